@@ -1,7 +1,9 @@
 package ch.supsi.fscli.backend.controller;
 
 import ch.supsi.fscli.backend.core.FileSystem;
-import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.FileSystemFactory;
+import ch.supsi.fscli.backend.core.ReadView;
+import ch.supsi.fscli.backend.core.exception.FSException;
 import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.FileSystemNode;
 import ch.supsi.fscli.backend.service.FileSystemPersistenceService;
@@ -97,6 +99,8 @@ public class FileSystemPersistenceController {
     /**
      * Saves the current filesystem to the specified path.
      * Delegates to the persistence service layer.
+     * The tree is saved from a pinned read view, so commands running during
+     * the save neither wait for it nor end up half in the saved image.
      * 
      * @param path The file path where to save the filesystem
      * @throws IOException If an I/O error occurs during save
@@ -107,8 +111,11 @@ public class FileSystemPersistenceController {
         if (fs == null) {
             throw new IllegalStateException(BackendMessageProvider.get("error.noFilesystemLoaded"));
         }
-        DirectoryNode root = fs.getRoot();
-        persistenceService.save(root, path);
+        try (ReadView view = fs.openReadView()) {
+            persistenceService.save(view.getRoot(), path);
+        } catch (FSException e) {
+            throw new IOException(e.getMessage(), e);
+        }
     }
     
     /**
@@ -126,7 +133,7 @@ public class FileSystemPersistenceController {
         }
         
         DirectoryNode root = (DirectoryNode) rootOpt.get();
-        InMemoryFileSystem loadedFS = new InMemoryFileSystem(root);
+        FileSystem loadedFS = FileSystemFactory.fromImage(root);
         service.setFileSystem(loadedFS);
         
         return true;
@@ -3,8 +3,11 @@ package ch.supsi.fscli.backend.core;
 import ch.supsi.fscli.backend.core.exception.FSException;
 import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.provider.resolver.ParsedPath;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Core interface defining filesystem operations.
@@ -17,6 +20,20 @@ public interface FileSystem {
      */
     void mkdir(String path) throws FSException;
 
+    /**
+     * Create a directory at each path in turn, stopping at the first
+     * failure. The paths are read one at a time, so they may be generated
+     * while this runs.
+     */
+    void mkdirAll(Iterable<String> paths) throws FSException;
+
+    /**
+     * Make sure a directory exists at each path, creating any missing
+     * directory along it, like mkdir -p. An existing directory is not an
+     * error; an existing entry of another kind is.
+     */
+    void mkdirs(Iterable<String> paths) throws FSException;
+
     /**
      * Remove an empty directory.
      */
@@ -27,16 +44,53 @@ public interface FileSystem {
      */
     void touch(String path) throws FSException;
 
+    /**
+     * Create or update a file at each path in turn, stopping at the first
+     * failure. The paths are read one at a time, so they may be generated
+     * while this runs.
+     */
+    void touchAll(Iterable<String> paths) throws FSException;
+
     /**
      * Remove a file.
      */
     void rm(String path) throws FSException;
 
+    /**
+     * Remove a file or, with {@code recursive}, a directory and everything
+     * below it. The directory is unlinked before this returns; releasing
+     * what was inside may go on in the background, tracked by the returned
+     * handle.
+     *
+     * @param path The path to remove
+     * @param recursive Whether directories may be removed
+     * @param force Whether to ignore a path that does not exist
+     * @return Handle on the release of the removed nodes
+     * @throws FSException if the path cannot be removed
+     */
+    Teardown rm(String path, boolean recursive, boolean force) throws FSException;
+
+    /**
+     * Remove each path in turn, like {@link #rm(String, boolean, boolean)},
+     * stopping at the first failure. The paths are read one at a time, so
+     * they may be generated while this runs.
+     */
+    void rmAll(Iterable<String> paths, boolean recursive, boolean force) throws FSException;
+
     /**
      * Move or rename a file/directory.
      */
     void mv(String src, String dest) throws FSException;
 
+    /**
+     * Move each source into an existing directory under its own name,
+     * stopping at the first failure.
+     *
+     * @throws FSException if {@code dir} is not a directory, or a source
+     *                     cannot be moved
+     */
+    void mvInto(Iterable<String> sources, String dir) throws FSException;
+
     /**
      * Create a link (hard or symbolic).
      */
@@ -61,12 +115,111 @@ public interface FileSystem {
      * Copy a file or directory.
      */
     void cp(String src, String dest) throws FSException;
+
+    /**
+     * Copy a file or directory. With {@code reflink}, a directory copy
+     * shares the source subtree until either side changes, so copying a
+     * large tree costs O(1) until it is modified.
+     *
+     * @param src The path to copy
+     * @param dest The path of the new copy
+     * @param reflink Whether to make a copy-on-write copy
+     * @throws FSException if the source is missing or the destination exists
+     */
+    void cp(String src, String dest, boolean reflink) throws FSException;
+
+    /**
+     * Copy each source into an existing directory under its own name,
+     * stopping at the first failure.
+     *
+     * @throws FSException if {@code dir} is not a directory, or a source
+     *                     cannot be copied
+     */
+    void cpInto(Iterable<String> sources, String dir, boolean reflink) throws FSException;
     
     /**
-     * Expand wildcards in path.
+     * Open a session over the same tree with a working directory of its own.
+     *
+     * @throws FSException if the filesystem does not support sessions
+     */
+    FileSystem openSession() throws FSException;
+
+    /**
+     * Open a transaction on the calling thread: the changes made until
+     * {@link #commit()} or {@link #rollback()} are kept or undone together.
+     *
+     * @throws FSException if a transaction is already open
+     */
+    void begin() throws FSException;
+
+    /**
+     * Keep the changes of the open transaction.
+     *
+     * @throws FSException if no transaction is open on this thread
+     */
+    void commit() throws FSException;
+
+    /**
+     * Undo the changes of the open transaction.
+     *
+     * @throws FSException if no transaction is open on this thread
+     */
+    void rollback() throws FSException;
+
+    /**
+     * Whether the calling thread has a transaction open.
+     */
+    boolean inTransaction();
+
+    /**
+     * Pin the current version of the whole tree for reading; changes made
+     * afterwards are not seen through the view. Close it when done.
+     */
+    ReadView openReadView() throws FSException;
+
+    /**
+     * Take a named snapshot of the whole tree.
+     *
+     * @param name The snapshot name
+     * @throws FSException if the name is taken or snapshots are not supported
+     */
+    void createSnapshot(String name) throws FSException;
+
+    /**
+     * Names of the snapshots taken so far, oldest first.
+     */
+    List<String> listSnapshots();
+
+    /**
+     * Roll the whole tree back to a snapshot, which stays available.
+     *
+     * @param name The snapshot name
+     * @throws FSException if there is no such snapshot
+     */
+    void restoreSnapshot(String name) throws FSException;
+
+    /**
+     * Discard a snapshot.
+     *
+     * @param name The snapshot name
+     * @throws FSException if there is no such snapshot
+     */
+    void dropSnapshot(String name) throws FSException;
+
+    /**
+     * Expand wildcards in path, which may span several components and use
+     * {@code **}. Yields the path itself when nothing matches.
      */
     List<String> expWildcard(String path, DirectoryNode curDir) throws FSException;
 
+    /**
+     * Lazily expand wildcards in path, one match at a time, for commands
+     * that can consume a large expansion without holding all of it.
+     *
+     * @see GlobWalker
+     */
+    Iterator<String> glob(String pattern, DirectoryNode curDir);
+
     /**
      * Resolve a path to a node.
      * External commands can use this for custom operations.
@@ -77,6 +230,18 @@ public interface FileSystem {
      * @throws FSException if path doesn't exist or other error
      */
     FileSystemNode resolveNode(String path, boolean followSymlinks) throws FSException;
+
+    /**
+     * Resolve an already parsed path to a node.
+     * Commands that touch the same path repeatedly can parse it once with
+     * {@link ParsedPath#of(String)} and pass it around instead of the string.
+     *
+     * @param path The parsed path to resolve
+     * @param followSymlinks Whether to follow symbolic links
+     * @return The resolved node
+     * @throws FSException if path doesn't exist or other error
+     */
+    FileSystemNode resolveNode(ParsedPath path, boolean followSymlinks) throws FSException;
     
     /**
      * Create a node at the specified path.
@@ -87,6 +252,15 @@ public interface FileSystem {
      * @throws FSException if parent doesn't exist or path already exists
      */
     void createNode(String path, FileSystemNode node) throws FSException;
+
+    /**
+     * Create a node at the specified parsed path.
+     *
+     * @param path The parsed path where to create the node
+     * @param node The node to create
+     * @throws FSException if parent doesn't exist or path already exists
+     */
+    void createNode(ParsedPath path, FileSystemNode node) throws FSException;
     
     /**
      * Delete a node at the specified path.
@@ -96,6 +270,14 @@ public interface FileSystem {
      * @throws FSException if path doesn't exist or other error
      */
     void deleteNode(String path) throws FSException;
+
+    /**
+     * Delete a node at the specified parsed path.
+     *
+     * @param path The parsed path of the node to delete
+     * @throws FSException if path doesn't exist or other error
+     */
+    void deleteNode(ParsedPath path) throws FSException;
     
     /**
      * Copy a node (file, directory, symlink).
@@ -116,6 +298,15 @@ public interface FileSystem {
      * @throws FSException if parent doesn't exist
      */
     DirectoryNode getParentDirectory(String path) throws FSException;
+
+    /**
+     * Get the parent directory of a parsed path.
+     *
+     * @param path The parsed path to get parent for
+     * @return The parent directory node
+     * @throws FSException if parent doesn't exist
+     */
+    DirectoryNode getParentDirectory(ParsedPath path) throws FSException;
     
     /**
      * Get current working directory.
@@ -130,6 +321,14 @@ public interface FileSystem {
      * @return The root directory node
      */
     DirectoryNode getRoot();
+
+    /**
+     * Look up a node by inode number in O(1), as {@code find -inum} would.
+     *
+     * @param inode The inode number shown by {@code ls -i}
+     * @return The node holding that number, or null if none does
+     */
+    FileSystemNode findByInode(int inode);
     
     /**
      * List all child nodes of a directory.
@@ -138,6 +337,15 @@ public interface FileSystem {
      * @return List of child nodes
      */
     List<FileSystemNode> listNodes(DirectoryNode directory);
+
+    /**
+     * Visit every child of a directory once, in listing order, without
+     * building an intermediate list.
+     *
+     * @param directory The directory to iterate
+     * @param action Called with each child's name and node
+     */
+    void forEachChild(DirectoryNode directory, BiConsumer<String, FileSystemNode> action);
     
     /**
      * Extract filename from a path.
@@ -0,0 +1,30 @@
+package ch.supsi.fscli.backend.core;
+
+import ch.supsi.fscli.backend.core.offheap.OffHeapFileSystem;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+
+/**
+ * Creates the filesystem implementation selected by the {@code fscli.storage}
+ * system property: {@code heap} (default) for {@link InMemoryFileSystem},
+ * {@code offheap} for {@link OffHeapFileSystem}, meant for very large images.
+ */
+public final class FileSystemFactory {
+    public static final String STORAGE_PROPERTY = "fscli.storage";
+
+    private FileSystemFactory() {}
+
+    public static FileSystem newFileSystem() {
+        return useOffHeap() ? new OffHeapFileSystem() : new InMemoryFileSystem();
+    }
+
+    /**
+     * Wraps a loaded image.
+     */
+    public static FileSystem fromImage(DirectoryNode root) {
+        return useOffHeap() ? new OffHeapFileSystem(root) : new InMemoryFileSystem(root);
+    }
+
+    private static boolean useOffHeap() {
+        return "offheap".equalsIgnoreCase(System.getProperty(STORAGE_PROPERTY, "heap"));
+    }
+}
@@ -0,0 +1,217 @@
+package ch.supsi.fscli.backend.core;
+
+import java.util.Arrays;
+
+/**
+ * Compiled shell glob matching whole names: {@code *} matches any run of
+ * characters, {@code ?} a single one, {@code [a-z]} one character of a set
+ * and {@code [!x]} (or {@code [^x]}) one character outside it. A {@code [}
+ * without a closing {@code ]} stands for itself.
+ * <p>
+ * The pattern is compiled once into token arrays; matching walks them with
+ * the usual star-backtracking loop and allocates nothing. The literal text
+ * before the first wildcard and after the last one is checked up front with
+ * {@code regionMatches}, so {@code *.tmp} or {@code log-*} cost a length
+ * check and one comparison per name.
+ * <p>
+ * Compiled globs are interned in a small bounded cache keyed by the pattern,
+ * like {@code ParsedPath}, so a script repeating a pattern compiles it once.
+ */
+public final class Glob {
+    private static final int CACHE_SIZE = 1024;
+    private static final Glob[] CACHE = new Glob[CACHE_SIZE];
+
+    private static final byte LITERAL = 0;
+    private static final byte ANY = 1;
+    private static final byte STAR = 2;
+    private static final byte SET = 3;
+
+    private final String pattern;
+    private final String prefix;
+    private final String suffix;
+    private final int minLength;
+    private final boolean hasStar;
+    /** Tokens between prefix and suffix. */
+    private final byte[] kinds;
+    private final char[] literals;
+    /** Inclusive ranges of each set token, as [lo, hi, lo, hi, ...]. */
+    private final char[][] sets;
+    private final boolean[] negated;
+
+    private Glob(String pattern, byte[] kinds, char[] literals, char[][] sets, boolean[] negated, int count) {
+        this.pattern = pattern;
+        int first = 0;
+        while (first < count && kinds[first] == LITERAL) first++;
+        int last = count;
+        while (last > first && kinds[last - 1] == LITERAL) last--;
+        this.prefix = new String(literals, 0, first);
+        this.suffix = new String(literals, last, count - last);
+
+        int bodyLength = last - first;
+        this.kinds = new byte[bodyLength];
+        this.literals = new char[bodyLength];
+        this.sets = new char[bodyLength][];
+        this.negated = new boolean[bodyLength];
+        System.arraycopy(kinds, first, this.kinds, 0, bodyLength);
+        System.arraycopy(literals, first, this.literals, 0, bodyLength);
+        System.arraycopy(sets, first, this.sets, 0, bodyLength);
+        System.arraycopy(negated, first, this.negated, 0, bodyLength);
+
+        int fixed = 0;
+        boolean star = false;
+        for (int i = 0; i < count; i++) {
+            if (kinds[i] == STAR) star = true;
+            else fixed++;
+        }
+        this.minLength = fixed;
+        this.hasStar = star;
+    }
+
+    /**
+     * Returns the compiled form of a glob, from the cache when possible.
+     */
+    public static Glob compile(String pattern) {
+        if (pattern == null) throw new IllegalArgumentException();
+        int h = pattern.hashCode();
+        int slot = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+        Glob cached = CACHE[slot];
+        if (cached != null && pattern.equals(cached.pattern)) {
+            return cached;
+        }
+        Glob compiled = parse(pattern);
+        CACHE[slot] = compiled;
+        return compiled;
+    }
+
+    /**
+     * Whether the string uses any glob syntax, i.e. would match anything
+     * other than itself.
+     */
+    public static boolean isGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') return true;
+            if (c == '[' && setEnd(pattern, i) > 0) return true;
+        }
+        return false;
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    public boolean matches(String name) {
+        int n = name.length();
+        if (hasStar ? n < minLength : n != minLength) return false;
+        if (!name.startsWith(prefix)) return false;
+        if (!name.regionMatches(n - suffix.length(), suffix, 0, suffix.length())) return false;
+        return matchBody(name, prefix.length(), n - suffix.length());
+    }
+
+    private boolean matchBody(String name, int from, int to) {
+        int t = 0;
+        int end = kinds.length;
+        int i = from;
+        int starToken = -1;
+        int starPos = -1;
+        while (i < to) {
+            if (t < end && kinds[t] == STAR) {
+                starToken = t++;
+                starPos = i;
+            } else if (t < end && matchesOne(t, name.charAt(i))) {
+                t++;
+                i++;
+            } else if (starToken >= 0) {
+                // let the last star swallow one more character and retry
+                t = starToken + 1;
+                i = ++starPos;
+            } else {
+                return false;
+            }
+        }
+        while (t < end && kinds[t] == STAR) t++;
+        return t == end;
+    }
+
+    private boolean matchesOne(int token, char c) {
+        switch (kinds[token]) {
+            case LITERAL:
+                return literals[token] == c;
+            case ANY:
+                return true;
+            default:
+                char[] ranges = sets[token];
+                boolean in = false;
+                for (int r = 0; r < ranges.length && !in; r += 2) {
+                    in = c >= ranges[r] && c <= ranges[r + 1];
+                }
+                return in != negated[token];
+        }
+    }
+
+    private static Glob parse(String pattern) {
+        int len = pattern.length();
+        byte[] kinds = new byte[len];
+        char[] literals = new char[len];
+        char[][] sets = new char[len][];
+        boolean[] negated = new boolean[len];
+        int count = 0;
+        for (int i = 0; i < len; i++) {
+            char c = pattern.charAt(i);
+            int close = c == '[' ? setEnd(pattern, i) : -1;
+            if (c == '*') {
+                // a run of stars matches the same as one
+                if (count == 0 || kinds[count - 1] != STAR) kinds[count++] = STAR;
+            } else if (c == '?') {
+                kinds[count++] = ANY;
+            } else if (close > 0) {
+                int start = i + 1;
+                boolean negate = pattern.charAt(start) == '!' || pattern.charAt(start) == '^';
+                if (negate) start++;
+                kinds[count] = SET;
+                negated[count] = negate;
+                sets[count] = ranges(pattern, start, close);
+                count++;
+                i = close;
+            } else {
+                kinds[count] = LITERAL;
+                literals[count] = c;
+                count++;
+            }
+        }
+        return new Glob(pattern, kinds, literals, sets, negated, count);
+    }
+
+    /**
+     * Index of the {@code ]} closing the set opened at {@code open}, or -1.
+     * A {@code ]} right after the opening bracket (or its negation) is a
+     * member, not the end.
+     */
+    private static int setEnd(String pattern, int open) {
+        int i = open + 1;
+        if (i < pattern.length() && (pattern.charAt(i) == '!' || pattern.charAt(i) == '^')) i++;
+        if (i < pattern.length() && pattern.charAt(i) == ']') i++;
+        return pattern.indexOf(']', i);
+    }
+
+    private static char[] ranges(String pattern, int from, int close) {
+        char[] out = new char[2 * (close - from)];
+        int n = 0;
+        for (int i = from; i < close; i++) {
+            char lo = pattern.charAt(i);
+            char hi = lo;
+            if (i + 2 < close && pattern.charAt(i + 1) == '-') {
+                hi = pattern.charAt(i + 2);
+                i += 2;
+            }
+            out[n++] = lo;
+            out[n++] = hi;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
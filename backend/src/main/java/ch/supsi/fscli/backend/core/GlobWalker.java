@@ -0,0 +1,207 @@
+package ch.supsi.fscli.backend.core;
+
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy expansion of a glob over full paths, such as {@code src/*}{@code /Main*}
+ * or {@code /tmp/**}{@code /*.bak}. Each component is matched against one
+ * directory level with a {@link Glob}; {@code **} stands for any number of
+ * directories, itself included, and like in most shells does not descend
+ * through symlinks. Other components do follow symlinks to directories.
+ * <p>
+ * The walk only enters directories the pattern can still match: literal
+ * components are looked up by name, not scanned for. It is depth first in
+ * insertion order and produced one match at a time, so memory is bounded by
+ * the directories waiting to be visited and the matches of the one being
+ * read, not by the total number of matches. Directories removed after
+ * they were queued, for instance by a command consuming the matches, are
+ * skipped.
+ * <p>
+ * Matches keep the pattern's form: relative patterns yield paths relative
+ * to the starting directory, which is expected to be the working
+ * directory. If nothing matches, the pattern itself is the only result.
+ */
+public final class GlobWalker implements Iterator<String> {
+    private static final String RECURSIVE = "**";
+
+    /** A directory still to be matched against {@code components[component]}. */
+    private static final class Visit {
+        final String path;
+        final DirectoryNode dir;
+        final int component;
+
+        Visit(String path, DirectoryNode dir, int component) {
+            this.path = path;
+            this.dir = dir;
+            this.component = component;
+        }
+    }
+
+    private final FileSystem fs;
+    private final DirectoryNode root;
+    private final String pattern;
+    private final String[] components;
+    private final boolean directoriesOnly;
+    /** Matches to hand out and directories to visit, in output order. */
+    private final Deque<Object> work = new ArrayDeque<>();
+    private boolean matched;
+    private boolean done;
+    private String next;
+
+    public GlobWalker(FileSystem fs, String pattern, DirectoryNode curDir) {
+        this.fs = fs;
+        this.root = fs.getRoot();
+        this.pattern = pattern;
+        this.components = split(pattern);
+        this.directoriesOnly = pattern.length() > 1 && pattern.endsWith("/");
+        if (!Glob.isGlob(pattern) || components.length == 0) {
+            work.push(pattern);
+        } else if (pattern.startsWith("/")) {
+            work.push(new Visit("/", fs.getRoot(), 0));
+        } else {
+            work.push(new Visit("", curDir, 0));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = advance();
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        String match = next;
+        next = null;
+        return match;
+    }
+
+    private String advance() {
+        while (!work.isEmpty()) {
+            Object item = work.pop();
+            if (item instanceof String match) {
+                matched = true;
+                return match;
+            }
+            visit((Visit) item);
+        }
+        if (!matched) {
+            matched = true;
+            return pattern;
+        }
+        return null;
+    }
+
+    private void visit(Visit visit) {
+        if (!isAttached(visit.dir)) {
+            return;
+        }
+        String component = components[visit.component];
+        boolean last = visit.component == components.length - 1;
+        List<Object> found = new ArrayList<>();
+        if (component.equals(RECURSIVE)) {
+            if (!last) {
+                // zero directories first, then one more level of **
+                found.add(new Visit(visit.path, visit.dir, visit.component + 1));
+            }
+            visit.dir.forEachChild((name, child) -> {
+                String path = join(visit.path, name);
+                if (last && (!directoriesOnly || child.isDirectory())) {
+                    found.add(directoriesOnly ? path + "/" : path);
+                }
+                if (child.isDirectory()) {
+                    found.add(new Visit(path, (DirectoryNode) child, visit.component));
+                }
+            });
+        } else if (Glob.isGlob(component)) {
+            Glob glob = Glob.compile(component);
+            for (String name : visit.dir.namesMatching(glob::matches)) {
+                step(visit, name, last, found);
+            }
+        } else {
+            step(visit, component, last, found);
+        }
+        for (int i = found.size() - 1; i >= 0; i--) {
+            work.push(found.get(i));
+        }
+    }
+
+    private void step(Visit visit, String name, boolean last, List<Object> found) {
+        FileSystemNode child = child(visit.dir, name);
+        if (child == null) {
+            return;
+        }
+        String path = join(visit.path, name);
+        if (last && !directoriesOnly) {
+            found.add(path);
+            return;
+        }
+        DirectoryNode dir = directoryOf(path, child);
+        if (dir == null) {
+            return;
+        }
+        found.add(last ? path + "/" : new Visit(path, dir, visit.component + 1));
+    }
+
+    private static FileSystemNode child(DirectoryNode dir, String name) {
+        if (name.equals(".")) return dir;
+        if (name.equals("..")) return dir.getParent() == null ? dir : dir.getParent();
+        return dir.get(name);
+    }
+
+    private DirectoryNode directoryOf(String path, FileSystemNode node) {
+        if (node.isDirectory()) {
+            return (DirectoryNode) node;
+        }
+        if (!node.isLink()) {
+            return null;
+        }
+        try {
+            FileSystemNode target = fs.resolveNode(path, true);
+            return target.isDirectory() ? (DirectoryNode) target : null;
+        } catch (FSException e) {
+            return null;
+        }
+    }
+
+    /*
+     * A removed subtree is cut off at its top, so walking up from a
+     * directory that is still in the tree ends at the root. Compared by
+     * identity: inode numbers can change, as on a restore.
+     */
+    private boolean isAttached(DirectoryNode dir) {
+        for (DirectoryNode cur = dir; cur != null; cur = cur.getParent()) {
+            if (cur == root) return true;
+        }
+        return false;
+    }
+
+    private static String join(String base, String name) {
+        if (base.isEmpty()) return name;
+        return base.endsWith("/") ? base + name : base + "/" + name;
+    }
+
+    private static String[] split(String pattern) {
+        List<String> parts = new ArrayList<>();
+        for (String part : pattern.split("/")) {
+            if (part.isEmpty()) continue;
+            // consecutive ** match the same paths as one, only more than once
+            if (part.equals(RECURSIVE) && !parts.isEmpty() && parts.get(parts.size() - 1).equals(RECURSIVE)) continue;
+            parts.add(part);
+        }
+        return parts.toArray(new String[0]);
+    }
+}
@@ -1,6 +1,8 @@
 package ch.supsi.fscli.backend.core;
 
 import ch.supsi.fscli.backend.data.LinkNode;
+import ch.supsi.fscli.backend.provider.resolver.LookupResult;
+import ch.supsi.fscli.backend.provider.resolver.ParsedPath;
 import ch.supsi.fscli.backend.provider.resolver.PathResolver;
 import ch.supsi.fscli.backend.core.exception.AlreadyExistsException;
 import ch.supsi.fscli.backend.core.exception.FSException;
@@ -10,216 +12,654 @@ import ch.supsi.fscli.backend.core.exception.NotFoundException;
 import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.FileSystemNode;
 import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.InodeTable;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 
 /**
  * In-memory implementation of a Unix-like filesystem.
  * Provides commands like mkdir, touch, rm, mv, cp, ln, cd, pwd, ls.
  * Supports symbolic links, hard links, and wildcard expansion.
+ * Inode numbers come from a table owned by this filesystem, so they are
+ * stable across save/load and freed ids are reused.
  */
 public class InMemoryFileSystem implements FileSystem {
     private final DirectoryNode root;
     private DirectoryNode cwd;
+    private int removalsSeen;
     private final PathResolver pathResolver;
+    private final Shared shared;
+    private final Lock writers;
+
+    /**
+     * State shared by every session over the same tree.
+     */
+    private static final class Shared {
+        volatile InodeTable inodes = new InodeTable();
+        final Map<String, Snapshot> snapshots = Collections.synchronizedMap(new LinkedHashMap<>());
+        volatile ForkJoinPool copyPool = ForkJoinPool.commonPool();
+        /*
+         * Changes share this lock; an open transaction holds it exclusively,
+         * so changes from other threads wait until it commits or rolls back.
+         */
+        final ReentrantReadWriteLock transactionLock = new ReentrantReadWriteLock();
+        /*
+         * The session whose transaction is open. The lock is held by a
+         * thread, and sessions may share one, so this is what tells the
+         * session that opened it from the others.
+         */
+        volatile InMemoryFileSystem owner;
+        UndoJournal journal;
+        /** Bumped whenever directories leave the tree, so sessions recheck their cwd. */
+        final AtomicInteger removals = new AtomicInteger();
+        final LockManager locks = new LockManager();
+    }
+
+    /**
+     * A pinned view of the tree, and the inode numbers that were free when
+     * it was taken.
+     */
+    private record Snapshot(DirectoryNode tree, InodeTable ids) {
+    }
 
     public InMemoryFileSystem() {
         this.root = new DirectoryNode();
-        this.root.setParent(root);
+        this.root.startTree();
         this.cwd = root;
         this.pathResolver = PathResolver.getInstance();
+        this.shared = new Shared();
+        this.writers = shared.transactionLock.readLock();
+        shared.inodes.allocate(root);
     }
     
+    /**
+     * Wraps an existing tree, typically a loaded image. Nodes keep the inode
+     * numbers they were saved with; entries sharing an id were hard links
+     * and are rejoined into a single node.
+     */
     public InMemoryFileSystem(DirectoryNode root) {
         this.root = root;
-        this.root.setParent(root);
+        this.root.startTree();
         this.cwd = root;
         this.pathResolver = PathResolver.getInstance();
+        this.shared = new Shared();
+        this.writers = shared.transactionLock.readLock();
+        claimTree(root);
+    }
+
+    private InMemoryFileSystem(InMemoryFileSystem other) {
+        this.root = other.root;
+        this.cwd = root;
+        this.removalsSeen = other.shared.removals.get();
+        this.pathResolver = other.pathResolver;
+        this.shared = other.shared;
+        this.writers = other.writers;
+    }
+
+    /**
+     * Opens a session over the same tree, starting at /. Sessions only have
+     * their working directory to themselves; changes, snapshots and
+     * transactions are shared. A session whose working directory is removed
+     * by another one finds itself back at /.
+     */
+    @Override
+    public InMemoryFileSystem openSession() {
+        return new InMemoryFileSystem(this);
     }
 
     @Override
     public void mkdir(String path) throws FSException {
-        if (path == null || path.isEmpty()) {
-            throw new InvalidPathException(BackendMessageProvider.get("emptyPath"));
-        }
+        lockWriters();
         try {
-            pathResolver.resolve(cwd, path, false);
-            throw new AlreadyExistsException(BackendMessageProvider.get("alreadyExists") + ": " + path);
-        } catch (NotFoundException ignored) {
-            // it does not exist, we can create it
+            mkdirLocked(parse(path));
+        } finally {
+            writers.unlock();
         }
+    }
 
-        String parentPath = getParentPath(path);
-        String dirName = getFileName(path);
-        DirectoryNode parent;
+    @Override
+    public void mkdirAll(Iterable<String> paths) throws FSException {
+        createAll(paths, true);
+    }
 
-        if (parentPath.isEmpty()) {
-            parent = cwd;
-        } else {
-            try {
-                FileSystemNode parentNode = pathResolver.resolve(cwd, parentPath, true);
-                if (!parentNode.isDirectory()) {
-                    throw new NotADirectoryException(BackendMessageProvider.get("parentNotDir") + ": " + parentPath);
+    private void mkdirLocked(ParsedPath path) throws FSException {
+        LookupResult target = lookupForCreate(path, "alreadyExists", "parentNotDir");
+        addCreated(target.getParent(), target.getName(), register(new DirectoryNode()));
+    }
+
+    @Override
+    public void mkdirs(Iterable<String> paths) throws FSException {
+        lockWriters();
+        try {
+            for (String path : paths) {
+                ensurePath(parse(path), path);
+            }
+        } finally {
+            writers.unlock();
+        }
+    }
+
+    /**
+     * Returns the directory at a path, creating each missing directory of
+     * it in the same walk from the start, so a deep path costs one pass
+     * however much of it is new. Symlinks are followed but their targets
+     * are never created, as with mkdir -p.
+     */
+    private DirectoryNode ensurePath(ParsedPath parsed, String path) throws FSException {
+        DirectoryNode dir = parsed.isAbsolute() ? root : cwd();
+        for (int i = 0; i < parsed.size(); i++) {
+            String name = parsed.component(i);
+            if (name.equals("..")) {
+                dir = dir.getParent() == null ? dir : dir.getParent();
+                continue;
+            }
+            FileSystemNode child = dir.get(name);
+            if (child == null) {
+                child = createDirectory(dir, name);
+            }
+            if (child.isLink()) {
+                ParsedPath targetPath = ParsedPath.of(((LinkNode) child).getTarget());
+                LookupResult target = pathResolver.tryResolve(root, dir, targetPath, true);
+                if (!target.isFound()) {
+                    throw target.toException();
                 }
-                parent = (DirectoryNode) parentNode;
-            } catch (NotFoundException e) {
-                throw new NotFoundException(BackendMessageProvider.get("parentNotFound") + ": " + parentPath);
+                child = target.getNode();
             }
+            if (!child.isDirectory()) {
+                if (i == parsed.size() - 1) {
+                    throw new AlreadyExistsException(() -> BackendMessageProvider.get("alreadyExists") + ": " + path);
+                }
+                throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+            }
+            dir = (DirectoryNode) child;
         }
+        return dir;
+    }
 
-        DirectoryNode newDir = new DirectoryNode();
-        parent.add(dirName, newDir);
+    /**
+     * Creates a directory entry, or returns the one another session made
+     * under the same name in the meantime.
+     */
+    private FileSystemNode createDirectory(DirectoryNode parent, String name) throws FSException {
+        DirectoryNode created = register(new DirectoryNode());
+        try {
+            addCreated(parent, name, created);
+            return created;
+        } catch (AlreadyExistsException e) {
+            // no other session writes during a transaction, so nothing was journaled for this
+            FileSystemNode existing = parent.get(name);
+            if (existing == null) throw e;
+            return existing;
+        }
     }
 
     @Override
     public void rmdir(String path) throws FSException {
-        FileSystemNode node = pathResolver.resolve(cwd, path, false);
+        lockWriters();
+        try {
+            rmdirLocked(path);
+        } finally {
+            writers.unlock();
+        }
+    }
+
+    private void rmdirLocked(String path) throws FSException {
+        LookupResult lookup = lookupExisting(parse(path));
+        FileSystemNode node = lookup.getNode();
 
         if (!node.isDirectory()) {
-            throw new NotADirectoryException(BackendMessageProvider.get("notDirectory") + ": " + path);
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
         }
 
         DirectoryNode dir = (DirectoryNode) node;
 
         if (!dir.isEmpty()) {
-            throw new FSException(BackendMessageProvider.get("notEmpty") + ": " + path);
+            throw new FSException(() -> BackendMessageProvider.get("notEmpty") + ": " + path);
         }
 
-        DirectoryNode parent = dir.getParent();
+        DirectoryNode parent = parentOf(lookup);
 
         if (parent == null || parent == dir) {
-            throw new FSException(BackendMessageProvider.get("cannotRemoveRoot"));
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveRoot"));
         }
 
-        String name = findNameInParent(parent, dir);
+        String name = nameOf(lookup, parent);
         if (name != null) {
-            parent.remove(name);
+            // the directory's stripe too, so nothing is created in it meanwhile
+            try (LockManager.Held held = shared.locks.write(parent, dir)) {
+                checkEntry(parent, name, node, path);
+                if (!dir.isEmpty()) {
+                    throw new FSException(() -> BackendMessageProvider.get("notEmpty") + ": " + path);
+                }
+                removeEntry(parent, name, node);
+            }
+            release(node);
         }
     }
 
     @Override
     public void touch(String path) throws FSException {
+        lockWriters();
         try {
-            FileSystemNode existing = pathResolver.resolve(cwd, path, false);
-            existing.touch();
-        } catch (NotFoundException e) {
-            String parentPath = getParentPath(path);
-            String fileName = getFileName(path);
-            DirectoryNode parent;
-
-            if (parentPath.isEmpty()) {
-                parent = cwd;
-            } else {
-                FileSystemNode parentNode = pathResolver.resolve(cwd, parentPath, true);
-                if (!parentNode.isDirectory()) {
-                    throw new NotADirectoryException(BackendMessageProvider.get("parentNotDir") + ": " + parentPath);
+            touchLocked(parse(path));
+        } finally {
+            writers.unlock();
+        }
+    }
+
+    @Override
+    public void touchAll(Iterable<String> paths) throws FSException {
+        createAll(paths, false);
+    }
+
+    private void touchLocked(ParsedPath path) throws FSException {
+        // "name/" must be a directory, so a link there counts as what it points to
+        boolean directoryOnly = path.requiresDirectory();
+        LookupResult lookup = pathResolver.tryResolve(root, cwd(), path, directoryOnly);
+        if (lookup.isFound()) {
+            if (directoryOnly && !lookup.getNode().isDirectory()) {
+                throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+            }
+            touchNode(lookup.getNode());
+            return;
+        }
+        if (!lookup.isMissingLeaf()) {
+            throw lookup.toException();
+        }
+        if (directoryOnly) {
+            // touch creates files only
+            throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + path);
+        }
+        addCreated(lookup.getParent(), lookup.getName(), register(new FileNode()));
+    }
+
+    private void touchNode(FileSystemNode node) {
+        if (journal() != null) journal().record(() -> { }, node);
+        node.touch();
+    }
+
+    /**
+     * Creates a directory or touches a file at each path, under one writers
+     * lock and in runs sharing their directory, see {@link #forEachInRuns}.
+     */
+    private void createAll(Iterable<String> paths, boolean directories) throws FSException {
+        lockWriters();
+        try {
+            forEachInRuns(paths, new EntryAction() {
+                @Override
+                public void apply(String path) throws FSException {
+                    if (directories) mkdirLocked(parse(path));
+                    else touchLocked(parse(path));
+                }
+
+                @Override
+                public void applyIn(DirectoryNode parent, String name, String path) throws FSException {
+                    createIn(parent, name, path, directories);
                 }
-                parent = (DirectoryNode) parentNode;
+            });
+        } finally {
+            writers.unlock();
+        }
+    }
+
+    /**
+     * What a bulk operation does to one path: from scratch, or given the
+     * directory holding its entry.
+     */
+    private interface EntryAction {
+        void apply(String path) throws FSException;
+
+        void applyIn(DirectoryNode parent, String name, String path) throws FSException;
+    }
+
+    /**
+     * Applies an action to each path in turn, stopping at the first
+     * failure. Consecutive paths written with the same directory part form
+     * a run: the directory is resolved once for the whole run, and each
+     * path of it is then just a lookup by name, with no parsing and no
+     * resolver walk. Paths that name no entry, like "dir/.." or "dir/",
+     * and runs whose directory does not resolve take the single-path code,
+     * which reports their errors.
+     * <p>
+     * Paths are read one at a time and each is done before the next is
+     * read, so they can come from a lazy expansion that looks at the tree.
+     * Each entry takes its directory's lock stripe on its own for that
+     * reason: holding it across the run would run the expansion under it.
+     */
+    private void forEachInRuns(Iterable<String> paths, EntryAction action) throws FSException {
+        // the directory part of the current run, as written, and what it resolved to
+        String prefix = null;
+        DirectoryNode parent = null;
+        for (String path : paths) {
+            String name = prefix == null ? null : nameAfter(prefix, path);
+            if (name == null) {
+                prefix = path.substring(0, path.lastIndexOf('/') + 1);
+                name = nameAfter(prefix, path);
+                parent = name == null ? null : directoryAt(prefix);
+            }
+            if (parent == null) {
+                action.apply(path);
+            } else {
+                action.applyIn(parent, name, path);
             }
+        }
+    }
 
-            FileNode newFile = new FileNode();
-            parent.add(fileName, newFile);
+    /**
+     * The directory a path's directory part resolves to, or null.
+     */
+    private DirectoryNode directoryAt(String prefix) {
+        if (prefix.isEmpty()) {
+            return cwd();
         }
+        LookupResult lookup = pathResolver.tryResolve(root, cwd(), ParsedPath.of(prefix), true);
+        return lookup.isFound() && lookup.getNode().isDirectory() ? (DirectoryNode) lookup.getNode() : null;
+    }
+
+    /**
+     * The last name of a path that starts with {@code prefix} and has no
+     * other components, or null.
+     */
+    private static String nameAfter(String prefix, String path) {
+        if (!path.startsWith(prefix) || path.indexOf('/', prefix.length()) >= 0) {
+            return null;
+        }
+        String name = path.substring(prefix.length());
+        return !name.isEmpty() && isEntryName(name) ? name : null;
+    }
+
+    private void createIn(DirectoryNode parent, String name, String path, boolean directory) throws FSException {
+        FileSystemNode existing = parent.get(name);
+        if (existing == null) {
+            addCreated(parent, name, register(directory ? new DirectoryNode() : new FileNode()));
+        } else if (directory) {
+            throw new AlreadyExistsException(() -> BackendMessageProvider.get("alreadyExists") + ": " + path);
+        } else {
+            touchNode(existing);
+        }
+    }
+
+    private static boolean isEntryName(String name) {
+        return name != null && !name.equals(".") && !name.equals("..");
     }
 
     @Override
     public void rm(String path) throws FSException {
-        FileSystemNode node = pathResolver.resolve(cwd, path, false);
+        rm(path, false, false);
+    }
+
+    @Override
+    public Teardown rm(String path, boolean recursive, boolean force) throws FSException {
+        lockWriters();
+        try {
+            return rmLocked(path, recursive, force);
+        } finally {
+            writers.unlock();
+        }
+    }
 
-        if (node.isDirectory()) {
-            throw new FSException(BackendMessageProvider.get("rmNotDir") + ": " + path);
+    private Teardown rmLocked(String path, boolean recursive, boolean force) throws FSException {
+        ParsedPath parsed = parse(path);
+        LookupResult lookup = pathResolver.tryResolve(root, cwd(), parsed, false);
+        if (!lookup.isFound()) {
+            if (force && lookup.getStatus() == LookupResult.Status.NOT_FOUND) {
+                return Teardown.completed(0);
+            }
+            throw lookup.toException();
         }
+        FileSystemNode node = lookup.getNode();
 
-        DirectoryNode parent = node.getParent();
-        if (parent == null) {
-            throw new FSException(BackendMessageProvider.get("cannotRemoveRoot"));
+        if (node.isDirectory() && !recursive) {
+            throw new FSException(() -> BackendMessageProvider.get("rmNotDir") + ": " + path);
         }
 
-        String name = findNameInParent(parent, node);
-        if (name != null) {
-            parent.remove(name);
+        DirectoryNode parent = parentOf(lookup);
+        if (parent == null || parent == node) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveRoot"));
+        }
+        if (node.isDirectory() && (parsed.fileName() == null || parsed.fileName().equals(".."))) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveDot") + ": " + path);
         }
+
+        String name = nameOf(lookup, parent);
+        if (name == null) {
+            return Teardown.completed(0);
+        }
+        unlinkEntry(parent, name, node, path);
+        return releaseRemoved(node);
     }
 
+    /**
+     * Removes each path in turn, like {@link #rm(String, boolean, boolean)},
+     * in runs sharing their directory, see {@link #forEachInRuns}.
+     */
     @Override
-    public void mv(String src, String dest) throws FSException {
-        FileSystemNode srcNode = pathResolver.resolve(cwd, src, false);
-
+    public void rmAll(Iterable<String> paths, boolean recursive, boolean force) throws FSException {
+        lockWriters();
         try {
-            pathResolver.resolve(cwd, dest, false);
-            throw new AlreadyExistsException(BackendMessageProvider.get("destExists") + ": " + dest);
-        } catch (NotFoundException ignored) {
-            // Destination does not exist, proceed
+            forEachInRuns(paths, new EntryAction() {
+                @Override
+                public void apply(String path) throws FSException {
+                    rmLocked(path, recursive, force);
+                }
+
+                @Override
+                public void applyIn(DirectoryNode parent, String name, String path) throws FSException {
+                    FileSystemNode node = parent.get(name);
+                    if (node == null) {
+                        if (force) return;
+                        throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + path);
+                    }
+                    if (node.isDirectory() && !recursive) {
+                        throw new FSException(() -> BackendMessageProvider.get("rmNotDir") + ": " + path);
+                    }
+                    unlinkEntry(parent, name, node, path);
+                    releaseRemoved(node);
+                }
+            });
+        } finally {
+            writers.unlock();
         }
+    }
 
-        String destParentPath = getParentPath(dest);
-        String destName = getFileName(dest);
-        DirectoryNode destParent;
+    /**
+     * Releases a node just unlinked by rm: a file at once, a directory's
+     * subtree in the background.
+     */
+    private Teardown releaseRemoved(FileSystemNode node) {
+        if (!node.isDirectory()) {
+            unlinkFile(node);
+            return Teardown.completed(node.getParent() == null ? 1 : 0);
+        }
+        DirectoryNode dir = (DirectoryNode) node;
+        if (isWithin(cwd(), dir)) {
+            cwd = root;
+        }
+        Teardown teardown = new Teardown();
+        if (journal() != null) {
+            // the subtree stays whole until commit, so a rollback can put it back
+            journal().record(teardown::complete);
+            journal().defer(() -> startTeardown(dir, teardown));
+            return teardown;
+        }
+        startTeardown(dir, teardown);
+        return teardown;
+    }
 
-        if (destParentPath.isEmpty()) {
-            destParent = cwd;
-        } else {
-            FileSystemNode destParentNode = pathResolver.resolve(cwd, destParentPath, true);
-            if (!destParentNode.isDirectory()) {
-                throw new NotADirectoryException(BackendMessageProvider.get("destParentNotDir") + ": " + destParentPath);
+    private void startTeardown(DirectoryNode dir, Teardown teardown) {
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                new TeardownTask(dir, teardown).invoke();
+                teardown.complete();
+            } catch (Throwable e) {
+                teardown.fail(e);
             }
-            destParent = (DirectoryNode) destParentNode;
-        }
+        });
+    }
 
-        DirectoryNode srcParent = srcNode.getParent();
-        if (srcParent == null) {
-            throw new FSException(BackendMessageProvider.get("cannotMoveRoot"));
+    @Override
+    public void mv(String src, String dest) throws FSException {
+        lockWriters();
+        try {
+            mvLocked(src, dest);
+        } finally {
+            writers.unlock();
         }
+    }
+
+    private void mvLocked(String src, String dest) throws FSException {
+        LookupResult srcLookup = lookupExisting(parse(src));
+        FileSystemNode srcNode = srcLookup.getNode();
+        LookupResult destLookup = lookupForCreate(parse(dest), "destExists", "destParentNotDir");
 
-        String srcName = findNameInParent(srcParent, srcNode);
-        if (srcName != null) {
-            srcParent.remove(srcName);
+        DirectoryNode srcParent = parentOf(srcLookup);
+        if (srcParent == null || srcNode == root) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotMoveRoot"));
         }
 
-        destParent.add(destName, srcNode);
+        String srcName = nameOf(srcLookup, srcParent);
+        relink(srcParent, srcName, srcNode, destLookup.getParent(), destLookup.getName(), src, dest);
     }
 
+    /**
+     * Moves each source into an existing directory, keeping its name, in
+     * runs of sources sharing their directory, see {@link #forEachInRuns}.
+     * The destination is resolved once for all of them.
+     */
     @Override
-    public void ln(String target, String link, boolean sym) throws FSException {
+    public void mvInto(Iterable<String> sources, String dir) throws FSException {
+        lockWriters();
         try {
-            pathResolver.resolve(cwd, link, false);
-            throw new AlreadyExistsException(BackendMessageProvider.get("linkExists") + ": " + link);
-        } catch (NotFoundException ignored) {
-            // Good - link doesn't exist
-        }
+            DirectoryNode destDir = existingDirectory(dir);
+            forEachInRuns(sources, new EntryAction() {
+                @Override
+                public void apply(String path) throws FSException {
+                    mvLocked(path, destinationIn(dir, path));
+                }
 
-        String linkParentPath = getParentPath(link);
-        String linkName = getFileName(link);
-        DirectoryNode linkParent;
+                @Override
+                public void applyIn(DirectoryNode parent, String name, String path) throws FSException {
+                    FileSystemNode node = parent.get(name);
+                    if (node == null) {
+                        throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + name);
+                    }
+                    String dest = destinationIn(dir, path);
+                    if (destDir.contains(name)) {
+                        throw new AlreadyExistsException(() -> BackendMessageProvider.get("destExists") + ": " + dest);
+                    }
+                    relink(parent, name, node, destDir, name, path, dest);
+                }
+            });
+        } finally {
+            writers.unlock();
+        }
+    }
 
-        if (linkParentPath.isEmpty()) {
-            linkParent = cwd;
+    private void relink(DirectoryNode srcParent, String srcName, FileSystemNode srcNode,
+                        DirectoryNode destParent, String destName, String src, String dest) throws FSException {
+        if (srcNode.isDirectory() && destParent != srcParent) {
+            // no other directory can change parent until this one has, so
+            // the destination cannot end up inside it after the check
+            try (LockManager.Held rename = shared.locks.rename()) {
+                if (isWithin(destParent, (DirectoryNode) srcNode)) {
+                    throw new FSException(() -> BackendMessageProvider.get("cannotMoveIntoSelf") + ": " + src);
+                }
+                moveEntry(srcParent, srcName, srcNode, destParent, destName, src, dest);
+            }
         } else {
-            FileSystemNode linkParentNode = pathResolver.resolve(cwd, linkParentPath, true);
-            if (!linkParentNode.isDirectory()) {
-                throw new NotADirectoryException(BackendMessageProvider.get("linkParentNotDir") + ": " + linkParentPath);
+            moveEntry(srcParent, srcName, srcNode, destParent, destName, src, dest);
+        }
+    }
+
+    /**
+     * Relinks a node under both directories' lock stripes, so the move is
+     * one step for anyone else changing either directory.
+     */
+    private void moveEntry(DirectoryNode srcParent, String srcName, FileSystemNode srcNode,
+                           DirectoryNode destParent, String destName, String src, String dest) throws FSException {
+        try (LockManager.Held held = shared.locks.write(srcParent, destParent)) {
+            // the lookups ran unlocked, so check they still hold
+            if (srcName != null) {
+                checkEntry(srcParent, srcName, srcNode, src);
+            }
+            if (destParent.contains(destName)) {
+                throw new AlreadyExistsException(() -> BackendMessageProvider.get("destExists") + ": " + dest);
             }
-            linkParent = (DirectoryNode) linkParentNode;
+            if (srcName != null) {
+                removeEntry(srcParent, srcName, srcNode);
+            }
+            if (journal() != null) journal().record(() -> destParent.remove(destName), destParent, srcNode);
+            destParent.add(destName, srcNode);
+        }
+    }
+
+    @Override
+    public void ln(String target, String link, boolean sym) throws FSException {
+        lockWriters();
+        try {
+            lnLocked(target, link, sym);
+        } finally {
+            writers.unlock();
         }
+    }
+
+    private void lnLocked(String target, String link, boolean sym) throws FSException {
+        ParsedPath linkPath = parse(link);
+        LookupResult linkLookup = lookupForCreate(linkPath, "linkExists", "linkParentNotDir");
+        if (linkPath.requiresDirectory()) {
+            // a link is never a directory, so "name/" cannot name a new one
+            throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + link);
+        }
+        DirectoryNode linkParent = linkLookup.getParent();
+        String linkName = linkLookup.getName();
 
         if (sym) {
-            LinkNode symlink = new LinkNode(target);
-            linkParent.add(linkName, symlink);
+            addCreated(linkParent, linkName, register(new LinkNode(target)));
         } else {
-            FileSystemNode targetNode = pathResolver.resolve(cwd, target, true);
+            FileSystemNode targetNode = pathResolver.resolve(root, cwd(), parse(target), true);
             if (targetNode.isDirectory()) {
-                throw new InvalidPathException(BackendMessageProvider.get("hardLinkTargetDir") + ": " + target);
+                throw new InvalidPathException(() -> BackendMessageProvider.get("hardLinkTargetDir") + ": " + target);
+            }
+            // holding the target's directory keeps it from being unlinked,
+            // and its inode freed, while the new link is added
+            DirectoryNode targetParent = targetNode.getParent();
+            FileSystemNode[] reads = targetParent == null ? new FileSystemNode[0] : new FileSystemNode[] { targetParent };
+            try (LockManager.Held held = shared.locks.acquire(new FileSystemNode[] { linkParent }, reads)) {
+                if (targetParent == null || targetNode.nameIn(targetParent) == null) {
+                    throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + target);
+                }
+                if (journal() != null) {
+                    journal().record(() -> {
+                        linkParent.remove(linkName);
+                        targetNode.decrementLinkCount();
+                    }, linkParent, targetNode);
+                }
+                if (!linkParent.addIfAbsent(linkName, targetNode)) {
+                    throw new AlreadyExistsException(() -> BackendMessageProvider.get("alreadyExists") + ": " + link);
+                }
+                targetNode.incrementLinkCount();
             }
-            linkParent.add(linkName, targetNode);
-            targetNode.incrementLinkCount();
         }
     }
 
     @Override
     public List<String> ls(String path, boolean showI) throws FSException {
-        FileSystemNode node = pathResolver.resolve(cwd, path, true);
+        FileSystemNode node = pathResolver.resolve(root, cwd(), parse(path), true);
         if (!node.isDirectory()) {
             if (showI) {
                 return List.of(node.getId() + " " + getFileName(path));
@@ -228,143 +668,447 @@ public class InMemoryFileSystem implements FileSystem {
             }
         }
         DirectoryNode dir = (DirectoryNode) node;
-        List<String> result = new ArrayList<>();
-        for (String name : dir.listNames()) {
-            FileSystemNode child = dir.get(name);
-            if (showI) {
-                String prefix = child.getId() + " ";
-                if (child.isDirectory()) {
-                    result.add(prefix + name + "/");
-                } else if (child.isLink()) {
-                    LinkNode sym = (LinkNode) child;
-                    result.add(prefix + name + " -> " + sym.getTarget());
-                } else {
-                    result.add(prefix + name);
-                }
+        List<String> result = new ArrayList<>(dir.childCount());
+        dir.forEachChild((name, child) -> {
+            String entry;
+            if (child.isDirectory()) {
+                entry = name + "/";
+            } else if (child.isLink()) {
+                entry = name + " -> " + ((LinkNode) child).getTarget();
             } else {
-                if (child.isDirectory()) {
-                    result.add(name + "/");
-                } else if (child.isLink()) {
-                    LinkNode sym = (LinkNode) child;
-                    result.add(name + " -> " + sym.getTarget());
-                } else {
-                    result.add(name);
-                }
+                entry = name;
             }
-        }
+            result.add(showI ? child.getId() + " " + entry : entry);
+        });
         return result;
     }
 
     @Override
     public void cd(String path) throws FSException {
-        FileSystemNode node = pathResolver.resolve(cwd, path, true);
+        FileSystemNode node = pathResolver.resolve(root, cwd(), parse(path), true);
         if (!node.isDirectory()) {
-            throw new NotADirectoryException(BackendMessageProvider.get("notDirectory") + ": " + path);
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
         }
         cwd = (DirectoryNode) node;
     }
 
     @Override
     public String pwd() {
-        return getAbsolutePath(cwd);
+        return getAbsolutePath(cwd());
     }
 
     @Override
     public void cp(String src, String dest) throws FSException {
-        FileSystemNode srcNode = pathResolver.resolve(cwd, src, true);
+        cp(src, dest, false);
+    }
+
+    @Override
+    public void cp(String src, String dest, boolean reflink) throws FSException {
+        lockWriters();
         try {
-            pathResolver.resolve(cwd, dest, false);
-            throw new AlreadyExistsException(BackendMessageProvider.get("alreadyExists") + ": " + dest);
-        } catch (NotFoundException ignored) {
-            // Good - destination doesn't exist
+            cpLocked(src, dest, reflink);
+        } finally {
+            writers.unlock();
+        }
+    }
+
+    private void cpLocked(String src, String dest, boolean reflink) throws FSException {
+        FileSystemNode srcNode = pathResolver.resolve(root, cwd(), parse(src), true);
+        LookupResult destLookup = lookupForCreate(parse(dest), "alreadyExists", "parentNotDir");
+        publishCopy(srcNode, destLookup.getParent(), destLookup.getName(), dest, reflink);
+    }
+
+    /**
+     * Copies each source into an existing directory, keeping its name, in
+     * runs of sources sharing their directory, see {@link #forEachInRuns}.
+     * The destination is resolved once for all of them.
+     */
+    @Override
+    public void cpInto(Iterable<String> sources, String dir, boolean reflink) throws FSException {
+        lockWriters();
+        try {
+            DirectoryNode destDir = existingDirectory(dir);
+            forEachInRuns(sources, new EntryAction() {
+                @Override
+                public void apply(String path) throws FSException {
+                    refuseCopyInto(pathResolver.resolve(root, cwd(), parse(path), true), destDir, path);
+                    cpLocked(path, destinationIn(dir, path), reflink);
+                }
+
+                @Override
+                public void applyIn(DirectoryNode parent, String name, String path) throws FSException {
+                    FileSystemNode node = parent.get(name);
+                    if (node == null) {
+                        throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + name);
+                    }
+                    if (node.isLink()) {
+                        // a link is copied as what it points to
+                        node = pathResolver.resolve(root, cwd(), parse(path), true);
+                    }
+                    String dest = destinationIn(dir, path);
+                    if (destDir.contains(name)) {
+                        throw new AlreadyExistsException(() -> BackendMessageProvider.get("alreadyExists") + ": " + dest);
+                    }
+                    refuseCopyInto(node, destDir, path);
+                    publishCopy(node, destDir, name, dest, reflink);
+                }
+            });
+        } finally {
+            writers.unlock();
         }
+    }
 
-        String destParentPath = getParentPath(dest);
-        String destName = getFileName(dest);
-        DirectoryNode destParent;
+    /**
+     * Refuses to copy a directory into itself or one of its descendants,
+     * as mv does.
+     */
+    private static void refuseCopyInto(FileSystemNode srcNode, DirectoryNode dir, String src) throws FSException {
+        if (srcNode.isDirectory() && isWithin(dir, (DirectoryNode) srcNode)) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotMoveIntoSelf") + ": " + src);
+        }
+    }
 
-        if (destParentPath.isEmpty()) {
-            destParent = cwd;
+    private void publishCopy(FileSystemNode srcNode, DirectoryNode destParent, String destName, String dest,
+                             boolean reflink) throws FSException {
+        FileSystemNode copy;
+        if (reflink && srcNode.isDirectory()) {
+            copy = ((DirectoryNode) srcNode).reflinkCopy(shared.inodes);
+            shared.inodes.allocate(copy);
         } else {
-            FileSystemNode destParentNode = pathResolver.resolve(cwd, destParentPath, true);
-            if (!destParentNode.isDirectory()) {
-                throw new NotADirectoryException(BackendMessageProvider.get("parentNotDir") + ": " + destParentPath);
+            copy = copyNode(this, srcNode, srcNode.isDirectory());
+        }
+        if (journal() != null) journal().record(() -> dropCreated(destParent, destName, copy), destParent);
+        // publish the finished copy in one step; if the name got taken meanwhile, drop it
+        boolean added;
+        try (LockManager.Held held = shared.locks.write(destParent)) {
+            added = destParent.addIfAbsent(destName, copy);
+        }
+        if (!added) {
+            releaseIfUnlinked(copy);
+            throw new AlreadyExistsException(() -> BackendMessageProvider.get("alreadyExists") + ": " + dest);
+        }
+    }
+
+    /**
+     * The directory a path names, following links.
+     */
+    private DirectoryNode existingDirectory(String path) throws FSException {
+        FileSystemNode node = pathResolver.resolve(root, cwd(), parse(path), true);
+        if (!node.isDirectory()) {
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+        }
+        return (DirectoryNode) node;
+    }
+
+    /**
+     * Where moving or copying {@code src} into {@code dir} puts it.
+     */
+    private static String destinationIn(String dir, String src) throws InvalidPathException {
+        String name = parse(src).fileName();
+        if (name == null) return dir;
+        return dir.endsWith("/") ? dir + name : dir + "/" + name;
+    }
+
+    /**
+     * Pins the tree in O(1). Nodes are copied into the view only when a
+     * reader opens their directory or just before a writer changes it, so a
+     * view costs memory in proportion to what was read or changed while it
+     * was open.
+     */
+    @Override
+    public ReadView openReadView() {
+        DirectoryNode view = root.pinView();
+        return new ReadView(view, view::releaseView);
+    }
+
+    /**
+     * Takes a snapshot as a read view of the root, in O(1). As the live
+     * tree changes, the snapshot opens only the directories on the changed
+     * paths, so it holds just what changed since it was taken. Snapshot
+     * nodes keep the inode numbers, metadata and hard links of the nodes
+     * they stand for, but are registered nowhere, so they never show up in
+     * {@link #findByInode(int)}.
+     */
+    @Override
+    public void createSnapshot(String name) throws FSException {
+        if (name == null || name.isEmpty()) {
+            throw new InvalidPathException(() -> BackendMessageProvider.get("snapshot.error.missingOperand"));
+        }
+        // no change from another session between the view and the free ids
+        Lock exclusive = shared.transactionLock.writeLock();
+        exclusive.lock();
+        checkNoOtherTransaction(exclusive);
+        try {
+            Snapshot snapshot = new Snapshot(root.pinView(), shared.inodes.reserving());
+            if (shared.snapshots.putIfAbsent(name, snapshot) != null) {
+                // the name is taken; the view must not stay pinned with nobody to drop it
+                snapshot.tree().releaseView();
+                throw new AlreadyExistsException(() -> BackendMessageProvider.get("snapshotExists") + ": " + name);
             }
-            destParent = (DirectoryNode) destParentNode;
+        } finally {
+            exclusive.unlock();
         }
+    }
 
-        FileSystemNode copy = copyNode(this, srcNode, srcNode.isDirectory());
-        destParent.add(destName, copy);
+    @Override
+    public List<String> listSnapshots() {
+        return new ArrayList<>(shared.snapshots.keySet());
     }
 
+    /**
+     * Rolls the whole tree back to a snapshot in O(entries of /): the root
+     * becomes an unopened copy of the snapshot and the current tree is
+     * dropped. Restored nodes get back the inode numbers, metadata and hard
+     * links they had; the numbers free at the time are handed out to new
+     * nodes, so none clashes with a restored node not yet opened. The
+     * snapshot stays available. The working directory is kept if its path
+     * still exists, otherwise it moves to /; other sessions move to /.
+     */
     @Override
-    public List<String> expWildcard(String path, DirectoryNode curDir) throws FSException {
-        List<String> result = new ArrayList<>();
-        if (!path.contains("*") && !path.contains("?")) {
-            result.add(path);
-            return result;
-        }
-        
-        String pattern = path;
-        String regex = wildcardToRegex(pattern);
-        List<String> filenames = curDir.listNames();
-        
-        for (String filename : filenames) {
-            if (filename.matches(regex)) {
-                result.add(filename);
+    public void restoreSnapshot(String name) throws FSException {
+        if (inTransaction()) {
+            throw new FSException(() -> BackendMessageProvider.get("restoreInTransaction"));
+        }
+        Snapshot snapshot = snapshotNamed(name);
+        // other sessions must not be changing the tree being replaced
+        Lock exclusive = shared.transactionLock.writeLock();
+        exclusive.lock();
+        checkNoOtherTransaction(exclusive);
+        try {
+            String path = pwd();
+            InodeTable fresh = snapshot.ids().reserving();
+            root.resetToCopyOf(snapshot.tree(), fresh);
+            fresh.claim(root);
+            shared.inodes = fresh;
+            shared.removals.incrementAndGet();
+            cwd = root;
+            LookupResult previous = pathResolver.tryResolve(root, root, parse(path), true);
+            if (previous.isFound() && previous.getNode().isDirectory()) {
+                cwd = (DirectoryNode) previous.getNode();
             }
+        } finally {
+            exclusive.unlock();
         }
-        
-        if (result.isEmpty()) {
-            result.add(path);
+    }
+
+    @Override
+    public void dropSnapshot(String name) throws FSException {
+        Snapshot snapshot = shared.snapshots.remove(name);
+        if (snapshot == null) {
+            throw new NotFoundException(() -> BackendMessageProvider.get("snapshotNotFound") + ": " + name);
         }
-        
-        return result;
+        snapshot.tree().releaseView();
     }
-    
-    private String wildcardToRegex(String wildcard) {
-        StringBuilder regex = new StringBuilder("^");
-        for (char c : wildcard.toCharArray()) {
-            switch (c) {
-                case '*':
-                    regex.append(".*");
-                    break;
-                case '?':
-                    regex.append(".");
-                    break;
-                case '.':
-                case '(':
-                case ')':
-                case '+':
-                case '|':
-                case '^':
-                case '$':
-                case '@':
-                case '%':
-                case '[':
-                case ']':
-                case '{':
-                case '}':
-                case '\\':
-                    regex.append("\\").append(c);
-                    break;
-                default:
-                    regex.append(c);
-                    break;
-            }
+
+    private Snapshot snapshotNamed(String name) throws FSException {
+        Snapshot snapshot = shared.snapshots.get(name);
+        if (snapshot == null) {
+            throw new NotFoundException(() -> BackendMessageProvider.get("snapshotNotFound") + ": " + name);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Opens a transaction in this session. Until it ends, every change
+     * records its inverse in an undo journal, and changes from other
+     * sessions wait, or fail if they run on the same thread and so could
+     * never get their turn; the transaction is applied as a whole or not at
+     * all. Readers are not held up and may see its changes before it
+     * commits.
+     */
+    @Override
+    public void begin() throws FSException {
+        if (inTransaction()) {
+            throw new FSException(() -> BackendMessageProvider.get("transactionActive"));
+        }
+        Lock exclusive = shared.transactionLock.writeLock();
+        exclusive.lock();
+        if (shared.owner != null) {
+            // held by another session on this thread
+            exclusive.unlock();
+            throw new FSException(() -> BackendMessageProvider.get("transactionInOtherSession"));
+        }
+        shared.owner = this;
+        shared.journal = new UndoJournal(cwd());
+    }
+
+    /**
+     * Keeps the changes: nodes the transaction removed give back their
+     * inode numbers and removed subtrees are torn down only now.
+     */
+    @Override
+    public void commit() throws FSException {
+        UndoJournal done = ownJournal();
+        try {
+            done.commit();
+        } finally {
+            endTransaction();
         }
-        regex.append("$");
-        return regex.toString();
+    }
+
+    /**
+     * Undoes every change of the transaction, newest first, and returns to
+     * the working directory it began in.
+     */
+    @Override
+    public void rollback() throws FSException {
+        UndoJournal done = ownJournal();
+        try {
+            done.rollback();
+            cwd = done.cwd();
+        } finally {
+            endTransaction();
+        }
+    }
+
+    @Override
+    public boolean inTransaction() {
+        return shared.owner == this;
+    }
+
+    private UndoJournal ownJournal() throws FSException {
+        if (!inTransaction()) {
+            throw new FSException(() -> BackendMessageProvider.get("noTransaction"));
+        }
+        return shared.journal;
+    }
+
+    private void endTransaction() {
+        shared.journal = null;
+        shared.owner = null;
+        shared.transactionLock.writeLock().unlock();
+    }
+
+    /**
+     * The journal changes of this session are recorded in, or null outside
+     * a transaction.
+     */
+    private UndoJournal journal() {
+        return inTransaction() ? shared.journal : null;
+    }
+
+    /**
+     * Takes the shared side of the transaction lock for a change. Changes
+     * from another thread wait for an open transaction to end; one from
+     * another session on the thread holding it would get the lock
+     * reentrantly and land in that transaction, so it is refused instead.
+     */
+    private void lockWriters() throws FSException {
+        writers.lock();
+        checkNoOtherTransaction(writers);
+    }
+
+    /**
+     * Releases {@code held} and fails when a session other than this one
+     * has a transaction open.
+     */
+    private void checkNoOtherTransaction(Lock held) throws FSException {
+        InMemoryFileSystem owner = shared.owner;
+        if (owner != null && owner != this) {
+            held.unlock();
+            throw new FSException(() -> BackendMessageProvider.get("transactionInOtherSession"));
+        }
+    }
+
+    /**
+     * Links a node created by the current operation, recording how to drop
+     * it again.
+     */
+    private void addCreated(DirectoryNode parent, String name, FileSystemNode node) throws FSException {
+        if (journal() != null) journal().record(() -> dropCreated(parent, name, node), parent);
+        boolean added;
+        try (LockManager.Held held = shared.locks.write(parent)) {
+            added = parent.addIfAbsent(name, node);
+        }
+        // another session may have created the name since the lookup
+        if (!added) {
+            releaseIfUnlinked(node);
+            throw new AlreadyExistsException(() -> BackendMessageProvider.get("alreadyExists") + ": " + name);
+        }
+    }
+
+    private void dropCreated(DirectoryNode parent, String name, FileSystemNode node) {
+        parent.remove(name);
+        if (node.isDirectory()) shared.removals.incrementAndGet();
+        releaseIfUnlinked(node);
+    }
+
+    /**
+     * Unlinks an entry found by an unlocked lookup, under its directory's
+     * lock stripe and only if the lookup still holds.
+     */
+    private void unlinkEntry(DirectoryNode parent, String name, FileSystemNode node, String path) throws FSException {
+        try (LockManager.Held held = shared.locks.write(parent)) {
+            checkEntry(parent, name, node, path);
+            removeEntry(parent, name, node);
+        }
+    }
+
+    private static void checkEntry(DirectoryNode parent, String name, FileSystemNode node, String path)
+            throws NotFoundException {
+        if (parent.get(name) != node) {
+            throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + path);
+        }
+    }
+
+    /**
+     * Unlinks an entry, recording how to link it back.
+     */
+    private void removeEntry(DirectoryNode parent, String name, FileSystemNode node) {
+        if (journal() != null) {
+            int position = parent.indexOf(name);
+            journal().record(() -> parent.insert(position, name, node), parent, node);
+        }
+        parent.remove(name);
+        if (node.isDirectory()) shared.removals.incrementAndGet();
+    }
+
+    /**
+     * Drops the link a removed entry held on a file and frees the file once
+     * nothing links it any more.
+     */
+    private void unlinkFile(FileSystemNode node) {
+        if (journal() != null) journal().record(node::incrementLinkCount, node);
+        node.decrementLinkCount();
+        release(node);
+    }
+
+    /**
+     * Frees an unlinked node right away, or at commit inside a transaction.
+     */
+    private void release(FileSystemNode node) {
+        if (journal() != null) {
+            journal().defer(() -> releaseIfUnlinked(node));
+        } else {
+            releaseIfUnlinked(node);
+        }
+    }
+
+    @Override
+    public List<String> expWildcard(String path, DirectoryNode curDir) throws FSException {
+        List<String> result = new ArrayList<>();
+        glob(path, curDir).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public Iterator<String> glob(String pattern, DirectoryNode curDir) {
+        return new GlobWalker(this, pattern, curDir);
     }
     
     @Override
     public DirectoryNode getRoot() {
         return root;
     }
+
+    @Override
+    public FileSystemNode findByInode(int inode) {
+        return shared.inodes.get(inode);
+    }
     
     @Override
     public DirectoryNode getCwd() {
-        return cwd;
+        return cwd();
     }
 
     private String getParentPath(String path) {
@@ -389,123 +1133,364 @@ public class InMemoryFileSystem implements FileSystem {
         return path.substring(lastSlash + 1);
     }
     
-    private String findNameInParent(DirectoryNode parent, FileSystemNode child) {
-        for (String name : parent.listNames()) {
-            if (parent.get(name) == child) {
-                return name;
-            }
+    /**
+     * Turns a user-supplied path into its cached parsed form, so every
+     * operation parses its operands exactly once.
+     */
+    private static ParsedPath parse(String path) throws InvalidPathException {
+        if (path == null || path.isEmpty()) {
+            throw new InvalidPathException(() -> BackendMessageProvider.get("emptyPath"));
+        }
+        return ParsedPath.of(path);
+    }
+
+    /**
+     * Looks up a path that must not exist yet, in a single resolver walk that
+     * also yields the directory and name the new entry goes under.
+     */
+    private LookupResult lookupForCreate(ParsedPath path, String existsKey, String parentNotDirKey) throws FSException {
+        LookupResult lookup = pathResolver.tryResolve(root, cwd(), path, false);
+        switch (lookup.getStatus()) {
+            case FOUND:
+                throw new AlreadyExistsException(() -> BackendMessageProvider.get(existsKey) + ": " + path);
+            case NOT_FOUND:
+                if (lookup.isMissingLeaf()) {
+                    return lookup;
+                }
+                if (lookup.getName() == null) {
+                    throw lookup.toException();
+                }
+                throw new NotFoundException(() -> BackendMessageProvider.get("parentNotFound") + ": " + path.parent());
+            case NOT_A_DIRECTORY:
+                throw new NotADirectoryException(() -> BackendMessageProvider.get(parentNotDirKey) + ": " + path.parent());
+            default:
+                throw lookup.toException();
         }
-        return null;
+    }
+
+    private LookupResult lookupExisting(ParsedPath path) throws FSException {
+        LookupResult lookup = pathResolver.tryResolve(root, cwd(), path, false);
+        if (!lookup.isFound()) {
+            throw lookup.toException();
+        }
+        return lookup;
+    }
+
+    /**
+     * Directory the looked-up entry lives in. Paths ending in "." or ".."
+     * carry no entry, so fall back to the node's own dentry.
+     */
+    private DirectoryNode parentOf(LookupResult lookup) {
+        if (lookup.getParent() != null) {
+            return lookup.getParent();
+        }
+        return lookup.getNode().getParent();
+    }
+
+    private String nameOf(LookupResult lookup, DirectoryNode parent) {
+        if (lookup.getParent() == parent && lookup.getName() != null) {
+            return lookup.getName();
+        }
+        return lookup.getNode().nameIn(parent);
     }
     
-    private String getAbsolutePath(DirectoryNode dir) {
-        if (dir == null || dir == root) {
-            return "/";
+    private <T extends FileSystemNode> T register(T node) {
+        shared.inodes.allocate(node);
+        return node;
+    }
+
+    /**
+     * Frees the inode numbers of a node that is no longer linked anywhere,
+     * along with the subtree below it. Nodes also linked from elsewhere
+     * keep their ids.
+     */
+    private void releaseIfUnlinked(FileSystemNode node) {
+        if (node.getParent() != null) {
+            return;
+        }
+        if (node.isDirectory() && !((DirectoryNode) node).isEmpty()) {
+            new TeardownTask((DirectoryNode) node, new Teardown()).invoke();
+        } else {
+            shared.inodes.release(node);
+        }
+    }
+
+    /**
+     * This session's working directory, moved back to / if another session
+     * took it out of the tree.
+     */
+    private DirectoryNode cwd() {
+        int removals = shared.removals.get();
+        if (removals != removalsSeen) {
+            removalsSeen = removals;
+            if (!isWithin(cwd, root)) {
+                cwd = root;
+            }
+        }
+        return cwd;
+    }
+
+    private static boolean isWithin(DirectoryNode dir, DirectoryNode top) {
+        for (DirectoryNode cur = dir; cur != null; cur = cur.getParent()) {
+            if (cur == top) return true;
+            if (cur.getParent() == cur) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Tears down a subtree that is no longer reachable: every directory is
+     * emptied in one go, which drops one link from each child, and nodes
+     * left with no dentry give their inode number back. Hard-linked files
+     * still linked from outside the subtree survive with one link less.
+     * Subdirectories are handed to the fork-join pool so huge trees are
+     * released in parallel.
+     */
+    private final class TeardownTask extends RecursiveAction {
+        private final DirectoryNode dir;
+        private final Teardown teardown;
+
+        TeardownTask(DirectoryNode dir, Teardown teardown) {
+            this.dir = dir;
+            this.teardown = teardown;
+        }
+
+        @Override
+        protected void compute() {
+            List<TeardownTask> subdirectories = new ArrayList<>();
+            dir.unlinkAll((name, child) -> {
+                if (child.isDirectory()) {
+                    subdirectories.add(new TeardownTask((DirectoryNode) child, teardown));
+                    return;
+                }
+                child.decrementLinkCount();
+                if (child.getParent() == null) {
+                    shared.inodes.release(child);
+                    teardown.nodeReleased();
+                }
+            });
+            shared.inodes.release(dir);
+            teardown.nodeReleased();
+            invokeAll(subdirectories);
         }
-        List<String> parts = new ArrayList<>();
-        DirectoryNode current = dir;
-        while (current != root && current.getParent() != current) {
-            DirectoryNode parent = current.getParent();
-            if (parent == null) break;
-            
-            String name = findNameInParent(parent, current);
-            if (name != null) {
-                parts.add(0, name);
+    }
+
+    /**
+     * Claims the saved inode number of every node in a loaded tree. Two
+     * non-directory entries with the same id are the same hard-linked node,
+     * which the image stored twice; the later entry is pointed back at the
+     * first. Any other clash gets a fresh id.
+     */
+    private void claimTree(DirectoryNode top) {
+        shared.inodes.claim(top);
+        Deque<DirectoryNode> pending = new ArrayDeque<>();
+        pending.push(top);
+        while (!pending.isEmpty()) {
+            DirectoryNode dir = pending.pop();
+            List<String> rejoined = new ArrayList<>();
+            List<FileSystemNode> owners = new ArrayList<>();
+            dir.forEachChild((name, child) -> {
+                FileSystemNode owner = shared.inodes.claim(child);
+                if (owner == child) {
+                    if (child.isDirectory()) {
+                        pending.push((DirectoryNode) child);
+                    }
+                } else if (!child.isDirectory() && !owner.isDirectory() && child.isLink() == owner.isLink()) {
+                    rejoined.add(name);
+                    owners.add(owner);
+                } else {
+                    shared.inodes.allocate(child);
+                    if (child.isDirectory()) {
+                        pending.push((DirectoryNode) child);
+                    }
+                }
+            });
+            for (int i = 0; i < rejoined.size(); i++) {
+                dir.add(rejoined.get(i), owners.get(i));
             }
-            current = parent;
         }
-        if (parts.isEmpty()) {
+    }
+
+    private String getAbsolutePath(DirectoryNode dir) {
+        if (dir == null || dir == root) {
             return "/";
         }
-        return "/" + String.join("/", parts);
+        return dir.absolutePath();
     }
     
     @Override
     public FileSystemNode resolveNode(String path, boolean followSymlinks) throws FSException {
-        return pathResolver.resolve(cwd, path, followSymlinks);
+        return pathResolver.resolve(root, cwd(), parse(path), followSymlinks);
+    }
+
+    @Override
+    public FileSystemNode resolveNode(ParsedPath path, boolean followSymlinks) throws FSException {
+        return pathResolver.resolve(root, cwd(), path, followSymlinks);
     }
 
     @Override
     public void createNode(String path, FileSystemNode node) throws FSException {
-        if (path == null || path.isEmpty()) {
-            throw new InvalidPathException(BackendMessageProvider.get("emptyPath"));
-        }
+        createNode(parse(path), node);
+    }
+
+    @Override
+    public void createNode(ParsedPath path, FileSystemNode node) throws FSException {
+        lockWriters();
         try {
-            pathResolver.resolve(cwd, path, false);
-            throw new AlreadyExistsException(BackendMessageProvider.get("alreadyExists") + ": " + path);
-        } catch (NotFoundException ignored) {
-            // Good - doesn't exist yet
+            LookupResult target = lookupForCreate(path, "alreadyExists", "parentNotDir");
+            addCreated(target.getParent(), target.getName(), register(node));
+        } finally {
+            writers.unlock();
         }
+    }
 
-        String parentPath = getParentPath(path);
-        String nodeName = getFileName(path);
-        DirectoryNode parent;
+    @Override
+    public void deleteNode(String path) throws FSException {
+        deleteNode(parse(path));
+    }
 
-        if (parentPath.isEmpty()) {
-            parent = cwd;
-        } else {
-            FileSystemNode parentNode = pathResolver.resolve(cwd, parentPath, true);
-            if (!parentNode.isDirectory()) {
-                throw new NotADirectoryException(BackendMessageProvider.get("parentNotDir") + ": " + parentPath);
-            }
-            parent = (DirectoryNode) parentNode;
+    @Override
+    public void deleteNode(ParsedPath path) throws FSException {
+        lockWriters();
+        try {
+            deleteNodeLocked(path);
+        } finally {
+            writers.unlock();
         }
-
-        parent.add(nodeName, node);
     }
 
-    @Override
-    public void deleteNode(String path) throws FSException {
-        FileSystemNode node = pathResolver.resolve(cwd, path, false);
-        DirectoryNode parent = node.getParent();
+    private void deleteNodeLocked(ParsedPath path) throws FSException {
+        LookupResult lookup = lookupExisting(path);
+        FileSystemNode node = lookup.getNode();
+        DirectoryNode parent = parentOf(lookup);
 
         if (parent == null || parent == node) {
-            throw new FSException(BackendMessageProvider.get("cannotRemoveRoot"));
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveRoot"));
         }
 
-        String name = findNameInParent(parent, node);
+        String name = nameOf(lookup, parent);
         if (name != null) {
-            parent.remove(name);
+            unlinkEntry(parent, name, node, path.toString());
+            if (!node.isDirectory()) {
+                unlinkFile(node);
+                return;
+            }
+            if (isWithin(cwd(), (DirectoryNode) node)) {
+                cwd = root;
+            }
+            release(node);
         }
     }
 
+    /**
+     * Copies a node; directories copied recursively are built by
+     * {@link CopyTask}s on the copy pool, or on the calling thread when no
+     * pool is set. The copy is assembled off to the side and only gets inode
+     * numbers once complete, so a copy that fails half-way leaves nothing
+     * behind.
+     */
     @Override
     public FileSystemNode copyNode(FileSystem fs, FileSystemNode node, boolean recursive) {
-        if (!node.isDirectory() && !node.isLink()) {
-            return new FileNode();
+        FileSystemNode copy;
+        if (!node.isDirectory() || !recursive) {
+            copy = copyOne(node);
+        } else {
+            ForkJoinPool pool = shared.copyPool;
+            copy = pool != null ? pool.invoke(new CopyTask((DirectoryNode) node)) : copyTree((DirectoryNode) node);
+        }
+        shared.inodes.allocateTree(copy);
+        return copy;
+    }
 
-        } else if (node.isLink()) {
-            LinkNode symlink = (LinkNode) node;
-            return new LinkNode(symlink.getTarget());
+    /**
+     * Sets the pool recursive copies run on, the common pool by default;
+     * null copies on the calling thread.
+     */
+    public void setCopyPool(ForkJoinPool copyPool) {
+        shared.copyPool = copyPool;
+    }
 
-        } else if (node.isDirectory() && recursive) {
-            DirectoryNode srcDir = (DirectoryNode) node;
-            DirectoryNode destDir = new DirectoryNode();
+    /**
+     * Copies a directory tree on the calling thread, walking an explicit
+     * stack so deep trees cannot overflow the call stack.
+     */
+    private static DirectoryNode copyTree(DirectoryNode source) {
+        DirectoryNode top = new DirectoryNode();
+        Deque<DirectoryNode[]> pending = new ArrayDeque<>();
+        pending.push(new DirectoryNode[]{source, top});
+        while (!pending.isEmpty()) {
+            DirectoryNode[] pair = pending.pop();
+            pair[0].forEachChild((name, child) -> {
+                FileSystemNode copy = copyOne(child);
+                pair[1].add(name, copy);
+                if (child.isDirectory()) {
+                    pending.push(new DirectoryNode[]{(DirectoryNode) child, (DirectoryNode) copy});
+                }
+            });
+        }
+        return top;
+    }
 
-            for (FileSystemNode child : fs.listNodes(srcDir)) {
-                FileSystemNode childCopy = copyNode(fs, child, true);
-                String childName = findChildName(srcDir, child);
-                destDir.add(childName, childCopy);
-            }
+    private static FileSystemNode copyOne(FileSystemNode node) {
+        if (node.isLink()) {
+            return new LinkNode(((LinkNode) node).getTarget());
+        }
+        return node.isDirectory() ? new DirectoryNode() : new FileNode();
+    }
 
-            return destDir;
+    /**
+     * Copies one directory: files and symlinks inline, each subdirectory as
+     * a forked subtask, so large trees spread over the pool. Entries are
+     * added to the copy in the source's listing order once all of them are
+     * done. Copies carry no inode number yet.
+     */
+    private static final class CopyTask extends RecursiveTask<DirectoryNode> {
+        private final DirectoryNode source;
 
-        } else {
-            return new DirectoryNode();
+        CopyTask(DirectoryNode source) {
+            this.source = source;
+        }
+
+        @Override
+        protected DirectoryNode compute() {
+            List<String> names = new ArrayList<>(source.childCount());
+            List<FileSystemNode> copies = new ArrayList<>(source.childCount());
+            List<CopyTask> subdirectories = new ArrayList<>();
+            source.forEachChild((name, child) -> {
+                names.add(name);
+                if (child.isDirectory()) {
+                    CopyTask task = new CopyTask((DirectoryNode) child);
+                    task.fork();
+                    subdirectories.add(task);
+                    copies.add(null);
+                } else {
+                    copies.add(copyOne(child));
+                }
+            });
+            // join newest first, which is how the forked tasks sit in our queue
+            int next = subdirectories.size() - 1;
+            for (int i = copies.size() - 1; i >= 0; i--) {
+                if (copies.get(i) == null) copies.set(i, subdirectories.get(next--).join());
+            }
+            DirectoryNode copy = new DirectoryNode();
+            for (int i = 0; i < names.size(); i++) {
+                copy.add(names.get(i), copies.get(i));
+            }
+            return copy;
         }
     }
 
     @Override
     public DirectoryNode getParentDirectory(String path) throws FSException {
-        String parentPath = getParentPath(path);
-
-        if (parentPath.isEmpty()) {
-            return cwd;
-        }
+        return getParentDirectory(parse(path));
+    }
 
-        FileSystemNode parentNode = pathResolver.resolve(cwd, parentPath, true);
+    @Override
+    public DirectoryNode getParentDirectory(ParsedPath path) throws FSException {
+        ParsedPath parentPath = path.parent();
+        FileSystemNode parentNode = pathResolver.resolve(root, cwd(), parentPath, true);
         if (!parentNode.isDirectory()) {
-            throw new NotADirectoryException(BackendMessageProvider.get("parentNotDir") + ": " + parentPath);
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("parentNotDir") + ": " + parentPath);
         }
 
         return (DirectoryNode) parentNode;
@@ -513,12 +1498,15 @@ public class InMemoryFileSystem implements FileSystem {
 
     @Override
     public List<FileSystemNode> listNodes(DirectoryNode directory) {
-        List<FileSystemNode> nodes = new ArrayList<>();
-        for (String name : directory.listNames()) {
-            nodes.add(directory.get(name));
-        }
+        List<FileSystemNode> nodes = new ArrayList<>(directory.childCount());
+        directory.forEachChild((name, node) -> nodes.add(node));
         return nodes;
     }
+
+    @Override
+    public void forEachChild(DirectoryNode directory, BiConsumer<String, FileSystemNode> action) {
+        directory.forEachChild(action);
+    }
     
     @Override
     public String extractFileName(String path) {
@@ -529,13 +1517,4 @@ public class InMemoryFileSystem implements FileSystem {
     public String extractParentPath(String path) {
         return getParentPath(path);
     }
-
-    private String findChildName(DirectoryNode parent, FileSystemNode child) {
-        for (String name : parent.listNames()) {
-            if (parent.get(name) == child) {
-                return name;
-            }
-        }
-        return null;
-    }
 }
@@ -0,0 +1,120 @@
+package ch.supsi.fscli.backend.core;
+
+import ch.supsi.fscli.backend.data.FileSystemNode;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Locks for operations that change directory entries. Nodes map by
+ * identity hash onto a fixed set of read/write lock stripes, so the locks cost
+ * nothing per node; operations that touch several directories take all
+ * their stripes at once, always in ascending stripe order, which keeps them
+ * from deadlocking each other.
+ * <p>
+ * Moving a directory to another parent also takes the rename lock first.
+ * Ancestry only changes under it, so a move can check that its destination
+ * is not inside the directory being moved and rely on that staying true.
+ * <p>
+ * Stripes are taken before any directory monitor, and an operation takes
+ * them in a single call: a thread holding a stripe must not ask for more.
+ */
+public final class LockManager {
+    public static final int DEFAULT_STRIPES = 256;
+
+    private static final FileSystemNode[] NONE = new FileSystemNode[0];
+
+    private final ReentrantReadWriteLock[] stripes;
+    private final ReentrantLock renameLock = new ReentrantLock();
+
+    /**
+     * Locks held by one acquisition, released together.
+     */
+    @FunctionalInterface
+    public interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public LockManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes Number of lock stripes, a power of two
+     */
+    public LockManager(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a power of two: " + stripes);
+        }
+        this.stripes = new ReentrantReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Stripe guarding the given node. Picked by identity hash rather than
+     * inode number, which can change while the node is locked, as when a
+     * node is numbered on first use or claims its number on a restore.
+     */
+    public int stripeOf(FileSystemNode node) {
+        return System.identityHashCode(node) & (stripes.length - 1);
+    }
+
+    /**
+     * Write-locks the stripes of the given directories.
+     */
+    public Held write(FileSystemNode... dirs) {
+        return acquire(dirs, NONE);
+    }
+
+    /**
+     * Write-locks the stripes of {@code writes} and read-locks those of
+     * {@code reads}, all in ascending stripe order. A stripe asked for in
+     * both modes is write-locked once.
+     */
+    public Held acquire(FileSystemNode[] writes, FileSystemNode[] reads) {
+        // stripe index in the high bits, 1 for write in the lowest one, so
+        // sorting puts a stripe's write request right after its read request
+        int[] requests = new int[writes.length + reads.length];
+        int n = 0;
+        for (FileSystemNode node : writes) requests[n++] = stripeOf(node) << 1 | 1;
+        for (FileSystemNode node : reads) requests[n++] = stripeOf(node) << 1;
+        Arrays.sort(requests);
+
+        Lock[] taken = new Lock[n];
+        int count = 0;
+        try {
+            for (int i = 0; i < n; i++) {
+                int stripe = requests[i] >>> 1;
+                if (i + 1 < n && requests[i + 1] >>> 1 == stripe) continue;
+                ReentrantReadWriteLock lock = stripes[stripe];
+                Lock mode = (requests[i] & 1) == 1 ? lock.writeLock() : lock.readLock();
+                mode.lock();
+                taken[count++] = mode;
+            }
+        } catch (RuntimeException | Error e) {
+            unlock(taken, count);
+            throw e;
+        }
+        int held = count;
+        return () -> unlock(taken, held);
+    }
+
+    /**
+     * Takes the rename lock, for moves that change a directory's parent.
+     */
+    public Held rename() {
+        renameLock.lock();
+        return renameLock::unlock;
+    }
+
+    private static void unlock(Lock[] taken, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            taken[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ch.supsi.fscli.backend.core;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A version of the tree pinned for reading. Long walks such as saving the
+ * filesystem read through it and see the tree exactly as it was when the
+ * view was opened, while commands go on changing the live tree. The pinned
+ * version is reclaimed when the view is closed.
+ */
+public final class ReadView implements AutoCloseable {
+    private final DirectoryNode root;
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ReadView(DirectoryNode root, Runnable release) {
+        this.root = root;
+        this.release = release;
+    }
+
+    /**
+     * View over a tree that nothing else changes, such as a private copy.
+     *
+     * @param root Root of the tree
+     */
+    public static ReadView detached(DirectoryNode root) {
+        return new ReadView(root, () -> { });
+    }
+
+    /**
+     * Root of the pinned version. Its nodes keep the inode numbers and
+     * metadata of the live ones; they are not part of the live tree and
+     * must not be changed.
+     */
+    public DirectoryNode getRoot() {
+        if (closed.get()) throw new IllegalStateException("read view is closed");
+        return root;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Releases the pinned version. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) release.run();
+    }
+}
@@ -0,0 +1,71 @@
+package ch.supsi.fscli.backend.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Handle on the release of a removed subtree. {@code rm -r} cuts the
+ * subtree off the tree right away and leaves the per-node work (dropping
+ * link counts, freeing inode numbers, invalidating cached lookups) to a
+ * background task; this handle reports how far that task has got and when
+ * it is done.
+ */
+public final class Teardown {
+    private final CompletableFuture<Teardown> completion = new CompletableFuture<>();
+    private final LongAdder released = new LongAdder();
+
+    Teardown() {
+    }
+
+    /**
+     * Handle for work that already finished synchronously.
+     *
+     * @param released Number of nodes that were released
+     */
+    public static Teardown completed(long released) {
+        Teardown teardown = new Teardown();
+        teardown.released.add(released);
+        teardown.completion.complete(teardown);
+        return teardown;
+    }
+
+    /**
+     * Nodes released so far, for progress reporting.
+     */
+    public long released() {
+        return released.sum();
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * Blocks until the teardown has finished.
+     */
+    public void await() {
+        completion.join();
+    }
+
+    /**
+     * Runs {@code action} once the teardown has finished, right away if it
+     * already has. The action runs on the thread that completed it.
+     */
+    public Teardown whenDone(Consumer<Teardown> action) {
+        completion.thenAccept(action);
+        return this;
+    }
+
+    void nodeReleased() {
+        released.increment();
+    }
+
+    void complete() {
+        completion.complete(this);
+    }
+
+    void fail(Throwable error) {
+        completion.completeExceptionally(error);
+    }
+}
@@ -0,0 +1,74 @@
+package ch.supsi.fscli.backend.core;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inverse operations recorded while a transaction is open, run newest first
+ * on rollback. Work that cannot be undone, such as freeing the inode
+ * numbers of removed nodes or tearing down removed subtrees, is held back
+ * until commit, so a rollback puts back the very nodes that were there.
+ */
+final class UndoJournal {
+    private final DirectoryNode cwd;
+    private final List<Runnable> undo = new ArrayList<>();
+    private final List<Runnable> deferred = new ArrayList<>();
+
+    UndoJournal(DirectoryNode cwd) {
+        this.cwd = cwd;
+    }
+
+    /**
+     * Working directory when the transaction began.
+     */
+    DirectoryNode cwd() {
+        return cwd;
+    }
+
+    /**
+     * Records how to undo a change that is about to be made. The timestamps
+     * of {@code touched} are taken now and put back after {@code inverse}
+     * runs, since undoing a change stamps the nodes it touches again.
+     */
+    void record(Runnable inverse, FileSystemNode... touched) {
+        long[] times = new long[touched.length * 3];
+        for (int i = 0; i < touched.length; i++) {
+            times[i * 3] = touched[i].getCTimeNanos();
+            times[i * 3 + 1] = touched[i].getMTimeNanos();
+            times[i * 3 + 2] = touched[i].getATimeNanos();
+        }
+        undo.add(() -> {
+            inverse.run();
+            for (int i = 0; i < touched.length; i++) {
+                touched[i].restoreTimes(times[i * 3], times[i * 3 + 1], times[i * 3 + 2]);
+            }
+        });
+    }
+
+    /**
+     * Holds {@code action} back until commit.
+     */
+    void defer(Runnable action) {
+        deferred.add(action);
+    }
+
+    /**
+     * Number of changes recorded so far.
+     */
+    int size() {
+        return undo.size();
+    }
+
+    void commit() {
+        deferred.forEach(Runnable::run);
+    }
+
+    void rollback() {
+        for (int i = undo.size() - 1; i >= 0; i--) {
+            undo.get(i).run();
+        }
+    }
+}
@@ -32,4 +32,13 @@ public interface Command {
     default boolean shouldExpandArgument(int index, int totalArgs) {
         return shouldExpandWildcards();
     }
+
+    /**
+     * Returns whether this command opens or ends a transaction. Such
+     * commands are refused inside a batch, which is a transaction of its
+     * own: ending it early would break its all-or-nothing rollback.
+     */
+    default boolean controlsTransaction() {
+        return false;
+    }
 }
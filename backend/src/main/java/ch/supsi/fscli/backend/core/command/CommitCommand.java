@@ -0,0 +1,32 @@
+package ch.supsi.fscli.backend.core.command;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
+
+public class CommitCommand extends AbstractCommand {
+
+    public CommitCommand() {
+        super("commit",
+                BackendMessageProvider.get("commit.description"),
+                BackendMessageProvider.get("commit.usage"));
+    }
+
+    @Override
+    public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
+        fs.commit();
+        return CommandResult.success();
+    }
+
+    @Override
+    public boolean shouldExpandWildcards() {
+        return false;
+    }
+
+    @Override
+    public boolean controlsTransaction() {
+        return true;
+    }
+}
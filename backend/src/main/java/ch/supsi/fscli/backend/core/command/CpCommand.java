@@ -6,6 +6,7 @@ import ch.supsi.fscli.backend.core.exception.FSException;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
 
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
@@ -20,20 +21,32 @@ public class CpCommand extends AbstractCommand {
     @Override
     public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
         boolean recursive = false;
+        boolean reflink = false;
         int argStart = 0;
-        if (syntax.getArgumentCount() > 0 && syntax.getArgument(0).equals("-r")) {
-            recursive = true;
-            argStart = 1;
+        while (argStart < syntax.getArgumentCount()) {
+            String option = syntax.getArgument(argStart);
+            if (option.equals("-r")) {
+                recursive = true;
+            } else if (option.equals("--reflink")) {
+                reflink = true;
+            } else {
+                break;
+            }
+            argStart++;
         }
-        if (syntax.getArgumentCount() - argStart < 2) {
+        List<String> args = syntax.getArgumentsFrom(argStart);
+        int count = args.size();
+        if (count < 2) {
             return CommandResult.error(BackendMessageProvider.get("cp.error.missingOperand"));
         }
-        if (syntax.getArgumentCount() - argStart > 2) {
-            return CommandResult.error(BackendMessageProvider.get("cp.error.tooManyArguments"));
+        String dest = args.get(count - 1);
+        if (count > 2 || dest.endsWith("/")) {
+            fs.cpInto(args.subList(0, count - 1), dest, reflink);
+        } else if (reflink) {
+            fs.cp(args.get(0), dest, true);
+        } else {
+            fs.cp(args.get(0), dest);
         }
-        String src = syntax.getArgument(argStart);
-        String dest = syntax.getArgument(argStart + 1);
-        fs.cp(src, dest);
         return CommandResult.success();
     }
     
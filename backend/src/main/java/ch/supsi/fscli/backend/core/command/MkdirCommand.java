@@ -7,6 +7,7 @@ import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 
 
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
@@ -20,12 +21,24 @@ public class MkdirCommand extends AbstractCommand {
 
     @Override
     public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
-        if (syntax.getArgumentCount() == 0) {
+        boolean parents = false;
+        int flags = 0;
+        for (String arg : syntax.getArguments()) {
+            if (!arg.equals("-p")) {
+                break;
+            }
+            parents = true;
+            flags++;
+        }
+        List<String> directories = syntax.getArgumentsFrom(flags);
+        if (directories.isEmpty()) {
             return CommandResult.error(BackendMessageProvider.get("mkdir.error.missingOperand"));
         }
 
-        for (String path : syntax.getArguments()) {
-            fs.mkdir(path);
+        if (parents) {
+            fs.mkdirs(directories);
+        } else {
+            fs.mkdirAll(directories);
         }
 
         return CommandResult.success();
@@ -7,6 +7,7 @@ import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 
 
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
@@ -20,14 +21,17 @@ public class MvCommand extends AbstractCommand {
 
     @Override
     public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
-        if (syntax.getArgumentCount() < 2) {
+        List<String> args = syntax.getArguments();
+        int count = args.size();
+        if (count < 2) {
             return CommandResult.error(BackendMessageProvider.get("mv.error.missingOperand"));
         }
-        if (syntax.getArgumentCount() > 2) {
-            return CommandResult.error(BackendMessageProvider.get("mv.error.tooManyArguments"));
+        String dest = args.get(count - 1);
+        if (count == 2 && !dest.endsWith("/")) {
+            fs.mv(args.get(0), dest);
+        } else {
+            fs.mvInto(args.subList(0, count - 1), dest);
         }
-
-        fs.mv(syntax.getArgument(0), syntax.getArgument(1));
         return CommandResult.success();
     }
     
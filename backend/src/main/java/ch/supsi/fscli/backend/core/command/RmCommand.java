@@ -7,6 +7,7 @@ import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 
 
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
@@ -20,14 +21,34 @@ public class RmCommand extends AbstractCommand {
 
     @Override
     public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
-        if (syntax.getArgumentCount() == 0) {
-            return CommandResult.error(BackendMessageProvider.get("rm.error.missingOperand"));
+        boolean recursive = false;
+        boolean force = false;
+        int flags = 0;
+        for (String arg : syntax.getArguments()) {
+            if (!arg.startsWith("-") || arg.length() == 1) {
+                break;
+            }
+            for (char flag : arg.substring(1).toCharArray()) {
+                if (flag == 'r' || flag == 'R') {
+                    recursive = true;
+                } else if (flag == 'f') {
+                    force = true;
+                } else {
+                    return CommandResult.error(BackendMessageProvider.get("rm.error.invalidOption") + ": " + arg);
+                }
+            }
+            flags++;
         }
-
-        for (String path : syntax.getArguments()) {
-            fs.rm(path);
+        List<String> operands = syntax.getArgumentsFrom(flags);
+        if (operands.isEmpty()) {
+            return force
+                    ? CommandResult.success()
+                    : CommandResult.error(BackendMessageProvider.get("rm.error.missingOperand"));
         }
-
+        // operands are removed as they come, so a large wildcard expansion
+        // is never held in full; removed subtrees finish their teardown in
+        // the background
+        fs.rmAll(operands, recursive, force);
         return CommandResult.success();
     }
 }
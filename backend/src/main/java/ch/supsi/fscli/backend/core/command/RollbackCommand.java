@@ -0,0 +1,32 @@
+package ch.supsi.fscli.backend.core.command;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
+
+public class RollbackCommand extends AbstractCommand {
+
+    public RollbackCommand() {
+        super("rollback",
+                BackendMessageProvider.get("rollback.description"),
+                BackendMessageProvider.get("rollback.usage"));
+    }
+
+    @Override
+    public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
+        fs.rollback();
+        return CommandResult.success();
+    }
+
+    @Override
+    public boolean shouldExpandWildcards() {
+        return false;
+    }
+
+    @Override
+    public boolean controlsTransaction() {
+        return true;
+    }
+}
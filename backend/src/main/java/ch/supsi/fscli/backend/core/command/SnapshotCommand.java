@@ -0,0 +1,55 @@
+package ch.supsi.fscli.backend.core.command;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
+
+/**
+ * Takes, lists, restores and drops named snapshots of the whole tree.
+ * Snapshots live as long as the filesystem and are not saved with it.
+ */
+public class SnapshotCommand extends AbstractCommand {
+
+    public SnapshotCommand() {
+        super("snapshot",
+                BackendMessageProvider.get("snapshot.description"),
+                BackendMessageProvider.get("snapshot.usage"));
+    }
+
+    @Override
+    public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
+        if (syntax.getArgumentCount() == 0) {
+            return CommandResult.error(BackendMessageProvider.get("snapshot.error.missingOperand"));
+        }
+        String subcommand = syntax.getArgument(0);
+        if (subcommand.equals("list")) {
+            if (syntax.getArgumentCount() > 1) {
+                return CommandResult.error(BackendMessageProvider.get("snapshot.error.tooManyArguments"));
+            }
+            return CommandResult.success(fs.listSnapshots());
+        }
+        if (!subcommand.equals("create") && !subcommand.equals("restore") && !subcommand.equals("drop")) {
+            return CommandResult.error(BackendMessageProvider.get("snapshot.error.invalidSubcommand") + ": " + subcommand);
+        }
+        if (syntax.getArgumentCount() < 2) {
+            return CommandResult.error(BackendMessageProvider.get("snapshot.error.missingOperand"));
+        }
+        if (syntax.getArgumentCount() > 2) {
+            return CommandResult.error(BackendMessageProvider.get("snapshot.error.tooManyArguments"));
+        }
+        String name = syntax.getArgument(1);
+        switch (subcommand) {
+            case "create" -> fs.createSnapshot(name);
+            case "restore" -> fs.restoreSnapshot(name);
+            default -> fs.dropSnapshot(name);
+        }
+        return CommandResult.success();
+    }
+
+    @Override
+    public boolean shouldExpandWildcards() {
+        return false;
+    }
+}
@@ -24,9 +24,7 @@ public class TouchCommand extends AbstractCommand {
             return CommandResult.error(BackendMessageProvider.get("touch.error.missingOperand"));
         }
 
-        for (String path : syntax.getArguments()) {
-            fs.touch(path);
-        }
+        fs.touchAll(syntax.getArguments());
 
         return CommandResult.success();
     }
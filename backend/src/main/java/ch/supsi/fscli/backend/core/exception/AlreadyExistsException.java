@@ -1,7 +1,12 @@
 package ch.supsi.fscli.backend.core.exception;
 
+import java.util.function.Supplier;
+
 public class AlreadyExistsException extends FSException {
     public AlreadyExistsException(String message) {
         super(message);
     }
+    public AlreadyExistsException(Supplier<String> messageSupplier) {
+        super(messageSupplier);
+    }
 }
@@ -1,10 +1,35 @@
 package ch.supsi.fscli.backend.core.exception;
 
+import java.util.function.Supplier;
+
+/**
+ * Base class of all filesystem errors.
+ * These exceptions report user-facing failures, not programming errors, so
+ * they carry no stack trace and may defer formatting their (localized)
+ * message until it is actually read.
+ */
 public class FSException extends Exception {
+    private transient Supplier<String> messageSupplier;
+    private String formattedMessage;
+
     public FSException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
     public FSException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
+    }
+    public FSException(Supplier<String> messageSupplier) {
+        super(null, null, false, false);
+        this.messageSupplier = messageSupplier;
+    }
+
+    @Override
+    public String getMessage() {
+        Supplier<String> supplier = this.messageSupplier;
+        if (supplier != null) {
+            this.formattedMessage = supplier.get();
+            this.messageSupplier = null;
+        }
+        return this.formattedMessage != null ? this.formattedMessage : super.getMessage();
     }
 }
@@ -1,7 +1,12 @@
 package ch.supsi.fscli.backend.core.exception;
 
+import java.util.function.Supplier;
+
 public class InvalidCommandException extends FSException {
     public InvalidCommandException(String message) {
         super(message);
     }
+    public InvalidCommandException(Supplier<String> messageSupplier) {
+        super(messageSupplier);
+    }
 }
@@ -1,7 +1,12 @@
 package ch.supsi.fscli.backend.core.exception;
 
+import java.util.function.Supplier;
+
 public class InvalidPathException extends FSException {
     public InvalidPathException(String message) {
         super(message);
     }
+    public InvalidPathException(Supplier<String> messageSupplier) {
+        super(messageSupplier);
+    }
 }
@@ -1,7 +1,12 @@
 package ch.supsi.fscli.backend.core.exception;
 
+import java.util.function.Supplier;
+
 public class NotADirectoryException extends FSException {
     public NotADirectoryException(String message) {
         super(message);
     }
+    public NotADirectoryException(Supplier<String> messageSupplier) {
+        super(messageSupplier);
+    }
 }
@@ -1,7 +1,12 @@
 package ch.supsi.fscli.backend.core.exception;
 
+import java.util.function.Supplier;
+
 public class NotFoundException extends FSException {
     public NotFoundException(String message) {
         super(message);
     }
+    public NotFoundException(Supplier<String> messageSupplier) {
+        super(messageSupplier);
+    }
 }
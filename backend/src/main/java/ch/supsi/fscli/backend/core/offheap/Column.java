@@ -0,0 +1,75 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * One fixed-width field of every node, stored off-heap. Records live in
+ * direct buffers of {@link #CHUNK_RECORDS} each, allocated on first use, so
+ * the column grows without copying and the heap only holds the chunk array.
+ */
+final class Column {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_RECORDS - 1;
+
+    private final int width;
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+
+    Column(int width) {
+        this.width = width;
+    }
+
+    byte getByte(int record) {
+        return chunk(record).get(offset(record));
+    }
+
+    void putByte(int record, byte value) {
+        chunk(record).put(offset(record), value);
+    }
+
+    int getInt(int record) {
+        return chunk(record).getInt(offset(record));
+    }
+
+    void putInt(int record, int value) {
+        chunk(record).putInt(offset(record), value);
+    }
+
+    long getLong(int record) {
+        return chunk(record).getLong(offset(record));
+    }
+
+    void putLong(int record, long value) {
+        chunk(record).putLong(offset(record), value);
+    }
+
+    /**
+     * Off-heap bytes reserved by this column.
+     */
+    long reservedBytes() {
+        long total = 0;
+        for (ByteBuffer chunk : chunks) {
+            if (chunk != null) total += chunk.capacity();
+        }
+        return total;
+    }
+
+    private int offset(int record) {
+        return (record & CHUNK_MASK) * width;
+    }
+
+    private ByteBuffer chunk(int record) {
+        int index = record >>> CHUNK_BITS;
+        if (index >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, index + 1));
+        }
+        ByteBuffer chunk = chunks[index];
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(CHUNK_RECORDS * width).order(ByteOrder.nativeOrder());
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+}
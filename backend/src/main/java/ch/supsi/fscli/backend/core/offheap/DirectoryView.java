@@ -0,0 +1,119 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Read-only view of an off-heap directory. Metadata is a snapshot taken when
+ * the view was created, or for the root's single view when it was last
+ * handed out; children are read live from the store, each as a new view.
+ * Serializing a view with Jackson therefore walks the off-heap tree one
+ * directory at a time. Changes go through {@link OffHeapFileSystem}.
+ */
+@JsonTypeName("directory")
+final class DirectoryView extends DirectoryNode {
+    private final OffHeapFileSystem owner;
+    private final int inode;
+
+    DirectoryView(OffHeapFileSystem owner, int inode, int links, long created, long modified, long accessed) {
+        this(owner, inode);
+        refresh(links, created, modified, accessed);
+    }
+
+    DirectoryView(OffHeapFileSystem owner, int inode) {
+        super();
+        this.owner = owner;
+        this.inode = inode;
+        this.id = inode;
+    }
+
+    DirectoryView refresh(int links, long created, long modified, long accessed) {
+        this.linkCount = links;
+        this.ctime = created;
+        this.mtime = modified;
+        this.atime = accessed;
+        return this;
+    }
+
+    OffHeapFileSystem owner() {
+        return owner;
+    }
+
+    int inode() {
+        return inode;
+    }
+
+    @Override
+    public FileSystemNode get(String name) {
+        return owner.childView(inode, name);
+    }
+    @Override
+    public boolean contains(String name) {
+        return owner.childView(inode, name) != null;
+    }
+    @Override
+    public void forEachChild(BiConsumer<String, FileSystemNode> action) {
+        owner.forEachChildView(inode, action);
+    }
+    @Override
+    public int childCount() {
+        return owner.childCount(inode);
+    }
+    @Override
+    public boolean isEmpty() {
+        return owner.childCount(inode) == 0;
+    }
+    @Override
+    public List<String> listNames() {
+        List<String> names = new ArrayList<>();
+        owner.forEachChildView(inode, (name, node) -> names.add(name));
+        return names;
+    }
+    @Override
+    public List<String> namesMatching(Predicate<String> filter) {
+        List<String> names = new ArrayList<>();
+        owner.forEachChildView(inode, (name, node) -> {
+            if (filter.test(name)) names.add(name);
+        });
+        return names;
+    }
+    @Override
+    public Map<String, FileSystemNode> snapshot() {
+        Map<String, FileSystemNode> children = new LinkedHashMap<>();
+        owner.forEachChildView(inode, children::put);
+        return children;
+    }
+    @Override
+    public DirectoryNode getParent() {
+        return owner.parentView(inode);
+    }
+    @Override
+    public String getName() {
+        return owner.nameOf(inode);
+    }
+    @Override
+    public String absolutePath() {
+        return owner.pathOf(inode);
+    }
+
+    @Override
+    public void add(String name, FileSystemNode node) {
+        throw new UnsupportedOperationException("off-heap directories are changed through their filesystem");
+    }
+    @Override
+    public FileSystemNode remove(String name) {
+        throw new UnsupportedOperationException("off-heap directories are changed through their filesystem");
+    }
+    @Override
+    public void setChildren(Map<String, FileSystemNode> children) {
+        throw new UnsupportedOperationException("off-heap directories are changed through their filesystem");
+    }
+}
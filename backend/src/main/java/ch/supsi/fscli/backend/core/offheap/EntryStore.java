@@ -0,0 +1,220 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap directory entries. Every non-empty directory owns one segment:
+ * a header (capacity, used slots, live entries), its entries in insertion
+ * order as (hash, name reference, inode) triples, and, past
+ * {@link #INLINE_LIMIT} slots, an open-addressed index of entry + 1 using
+ * linear probing. Smaller segments are scanned linearly, as
+ * {@code ChildTable} does on-heap.
+ * <p>
+ * Removed entries keep their slot with inode 0 until the segment is
+ * rebuilt, which happens when it fills up or drops under a quarter live.
+ * Capacities are powers of two and freed segments are recycled per size.
+ * A segment address packs (chunk + 1) and the int offset within the chunk,
+ * so 0 means "no segment".
+ */
+final class EntryStore {
+    static final int INLINE_LIMIT = 8;
+    private static final int CHUNK_INTS = 1 << 18;
+    private static final int HEADER = 3;
+    private static final int ENTRY = 3;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private int currentChunk = -1;
+    private int currentUsed;
+    private final long[][] free = new long[Integer.SIZE][];
+    private final int[] freeCount = new int[Integer.SIZE];
+
+    int capacity(long segment) {
+        return segment == 0 ? 0 : read(segment, 0);
+    }
+
+    /**
+     * Slots in use, live or removed; iterate entries below this.
+     */
+    int size(long segment) {
+        return segment == 0 ? 0 : read(segment, 1);
+    }
+
+    int live(long segment) {
+        return segment == 0 ? 0 : read(segment, 2);
+    }
+
+    int hashAt(long segment, int entry) {
+        return read(segment, HEADER + entry * ENTRY);
+    }
+
+    int nameAt(long segment, int entry) {
+        return read(segment, HEADER + entry * ENTRY + 1);
+    }
+
+    /**
+     * Inode of an entry, 0 if it was removed.
+     */
+    int inodeAt(long segment, int entry) {
+        return read(segment, HEADER + entry * ENTRY + 2);
+    }
+
+    void setInode(long segment, int entry, int inode) {
+        write(segment, HEADER + entry * ENTRY + 2, inode);
+    }
+
+    /**
+     * Entry holding the given name, or -1.
+     */
+    int find(long segment, byte[] utf8, int hash, NameStore names) {
+        if (segment == 0) return -1;
+        int cap = read(segment, 0);
+        if (cap <= INLINE_LIMIT) {
+            int size = read(segment, 1);
+            for (int i = 0; i < size; i++) {
+                if (matches(segment, i, utf8, hash, names)) return i;
+            }
+            return -1;
+        }
+        int indexBase = HEADER + cap * ENTRY;
+        int mask = cap * 2 - 1;
+        for (int h = hash & mask, probes = 0; probes <= mask; h = (h + 1) & mask, probes++) {
+            int e = read(segment, indexBase + h);
+            if (e == 0) return -1;
+            if (matches(segment, e - 1, utf8, hash, names)) return e - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Appends an entry and returns the segment now holding the directory,
+     * which differs from {@code segment} when it had to grow.
+     */
+    long append(long segment, int hash, int nameRef, int inode) {
+        if (segment == 0) {
+            segment = allocate(1);
+        } else if (read(segment, 1) == read(segment, 0)) {
+            segment = rebuild(segment, Integer.highestOneBit(Math.max(1, read(segment, 2))) << 1);
+        }
+        int cap = read(segment, 0);
+        int slot = read(segment, 1);
+        int base = HEADER + slot * ENTRY;
+        write(segment, base, hash);
+        write(segment, base + 1, nameRef);
+        write(segment, base + 2, inode);
+        if (cap > INLINE_LIMIT) indexInsert(segment, cap, hash, slot);
+        write(segment, 1, slot + 1);
+        write(segment, 2, read(segment, 2) + 1);
+        return segment;
+    }
+
+    /**
+     * Removes an entry and returns the segment now holding the directory:
+     * 0 once it is empty, or a smaller copy once it is mostly empty.
+     */
+    long removeAt(long segment, int entry) {
+        setInode(segment, entry, 0);
+        int live = read(segment, 2) - 1;
+        write(segment, 2, live);
+        if (live == 0) {
+            release(segment);
+            return 0;
+        }
+        int cap = read(segment, 0);
+        if (cap >= 4 && live < cap / 4) {
+            return rebuild(segment, Integer.highestOneBit(live) << 1);
+        }
+        return segment;
+    }
+
+    /**
+     * Returns a segment to the free-list of its size.
+     */
+    void release(long segment) {
+        if (segment == 0) return;
+        int sizeClass = Integer.numberOfTrailingZeros(read(segment, 0));
+        long[] stack = free[sizeClass];
+        if (stack == null) {
+            stack = free[sizeClass] = new long[8];
+        } else if (freeCount[sizeClass] == stack.length) {
+            stack = free[sizeClass] = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[freeCount[sizeClass]++] = segment;
+    }
+
+    long reservedBytes() {
+        long total = 0;
+        for (ByteBuffer chunk : chunks) total += chunk.capacity();
+        return total;
+    }
+
+    private boolean matches(long segment, int entry, byte[] utf8, int hash, NameStore names) {
+        int base = HEADER + entry * ENTRY;
+        return read(segment, base) == hash
+                && read(segment, base + 2) != 0
+                && names.matches(read(segment, base + 1), utf8);
+    }
+
+    private long rebuild(long segment, int capacity) {
+        long copy = allocate(capacity);
+        int size = read(segment, 1);
+        for (int i = 0; i < size; i++) {
+            int base = HEADER + i * ENTRY;
+            int inode = read(segment, base + 2);
+            if (inode != 0) append(copy, read(segment, base), read(segment, base + 1), inode);
+        }
+        release(segment);
+        return copy;
+    }
+
+    private void indexInsert(long segment, int cap, int hash, int slot) {
+        int indexBase = HEADER + cap * ENTRY;
+        int mask = cap * 2 - 1;
+        int h = hash & mask;
+        while (read(segment, indexBase + h) != 0) h = (h + 1) & mask;
+        write(segment, indexBase + h, slot + 1);
+    }
+
+    private long allocate(int capacity) {
+        int sizeClass = Integer.numberOfTrailingZeros(capacity);
+        long segment;
+        int length = HEADER + capacity * ENTRY + (capacity > INLINE_LIMIT ? capacity * 2 : 0);
+        if (freeCount[sizeClass] > 0) {
+            segment = free[sizeClass][--freeCount[sizeClass]];
+            for (int i = 0; i < length; i++) write(segment, i, 0);
+        } else if (length > CHUNK_INTS) {
+            // huge directories get a chunk of their own
+            chunks.add(ByteBuffer.allocateDirect(length * Integer.BYTES).order(ByteOrder.nativeOrder()));
+            segment = address(chunks.size() - 1, 0);
+        } else {
+            if (current == null || currentUsed + length > CHUNK_INTS) {
+                current = ByteBuffer.allocateDirect(CHUNK_INTS * Integer.BYTES).order(ByteOrder.nativeOrder());
+                chunks.add(current);
+                currentChunk = chunks.size() - 1;
+                currentUsed = 0;
+            }
+            segment = address(currentChunk, currentUsed);
+            currentUsed += length;
+        }
+        write(segment, 0, capacity);
+        return segment;
+    }
+
+    private static long address(int chunk, int offset) {
+        return ((long) (chunk + 1) << 32) | offset;
+    }
+
+    private int read(long segment, int field) {
+        ByteBuffer chunk = chunks.get((int) (segment >>> 32) - 1);
+        return chunk.getInt(((int) segment + field) * Integer.BYTES);
+    }
+
+    private void write(long segment, int field, int value) {
+        ByteBuffer chunk = chunks.get((int) (segment >>> 32) - 1);
+        chunk.putInt(((int) segment + field) * Integer.BYTES, value);
+    }
+}
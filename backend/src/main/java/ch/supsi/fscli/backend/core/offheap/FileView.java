@@ -0,0 +1,20 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import ch.supsi.fscli.backend.data.FileNode;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * Snapshot of an off-heap regular file, taken when the view was created.
+ */
+@JsonTypeName("file")
+final class FileView extends FileNode {
+
+    FileView(int inode, int links, long created, long modified, long accessed) {
+        super();
+        this.id = inode;
+        this.linkCount = links;
+        this.ctime = created;
+        this.mtime = modified;
+        this.atime = accessed;
+    }
+}
@@ -0,0 +1,26 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+import java.util.Map;
+
+/**
+ * On-heap copy of an off-heap directory, made for a read view. Unlike a
+ * {@link DirectoryView} it holds its entries itself, so it no longer
+ * follows the store.
+ */
+@JsonTypeName("directory")
+final class FrozenDirectory extends DirectoryNode {
+
+    FrozenDirectory(DirectoryNode from, Map<String, FileSystemNode> entries) {
+        super();
+        setChildren(entries);
+        this.id = from.getId();
+        this.linkCount = from.getLinkCount();
+        this.ctime = from.getCTimeNanos();
+        this.mtime = from.getMTimeNanos();
+        this.atime = from.getATimeNanos();
+    }
+}
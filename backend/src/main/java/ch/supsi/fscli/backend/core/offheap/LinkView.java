@@ -0,0 +1,20 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import ch.supsi.fscli.backend.data.LinkNode;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * Snapshot of an off-heap symbolic link, taken when the view was created.
+ */
+@JsonTypeName("link")
+final class LinkView extends LinkNode {
+
+    LinkView(int inode, String target, int links, long created, long modified, long accessed) {
+        super(target);
+        this.id = inode;
+        this.linkCount = links;
+        this.ctime = created;
+        this.mtime = modified;
+        this.atime = accessed;
+    }
+}
@@ -0,0 +1,160 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Off-heap arena of UTF-8 strings: entry names and symlink targets. A
+ * reference packs the chunk number and the offset of a length-prefixed
+ * record; records never straddle chunks. Records take whole 4-byte granules
+ * and released ones are kept on a free list per granule count, threaded
+ * through the records themselves, so names that come and go reuse the same
+ * space instead of growing the arena.
+ */
+final class NameStore {
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+    private static final int GRANULE = Integer.BYTES;
+    /** Records up to this many granules have their free list head in an array. */
+    private static final int SMALL_CLASSES = 128;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer current;
+    private final int[] freeSmall = new int[SMALL_CLASSES + 1];
+    private final Map<Integer, Integer> freeLarge = new HashMap<>();
+
+    /**
+     * Stores the encoded name and returns its reference, never 0.
+     */
+    int add(byte[] utf8) {
+        int granules = granules(utf8.length);
+        if ((long) granules * GRANULE > CHUNK_SIZE) throw new IllegalArgumentException("name too long");
+        int ref = takeFree(granules);
+        if (ref == 0) {
+            ref = append(granules * GRANULE);
+        }
+        ByteBuffer chunk = chunks.get(ref >>> CHUNK_BITS);
+        int offset = ref & (CHUNK_SIZE - 1);
+        chunk.putInt(offset, utf8.length);
+        chunk.put(offset + Integer.BYTES, utf8);
+        return ref;
+    }
+
+    int add(String name) {
+        return add(encode(name));
+    }
+
+    /**
+     * Stores a second copy of a record, for a node that must own its string.
+     */
+    int copy(int ref) {
+        ByteBuffer chunk = chunks.get(ref >>> CHUNK_BITS);
+        int offset = ref & (CHUNK_SIZE - 1);
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return add(bytes);
+    }
+
+    /**
+     * Hands the record back for reuse; the reference must not be read again.
+     */
+    void release(int ref) {
+        if (ref == 0) return;
+        ByteBuffer chunk = chunks.get(ref >>> CHUNK_BITS);
+        int offset = ref & (CHUNK_SIZE - 1);
+        int granules = granules(chunk.getInt(offset));
+        // the length stays, so the size class can be read back; the next link takes the bytes
+        if (granules <= SMALL_CLASSES) {
+            chunk.putInt(offset + Integer.BYTES, freeSmall[granules]);
+            freeSmall[granules] = ref;
+        } else {
+            Integer next = freeLarge.put(granules, ref);
+            chunk.putInt(offset + Integer.BYTES, next == null ? 0 : next);
+        }
+    }
+
+    String get(int ref) {
+        ByteBuffer chunk = chunks.get(ref >>> CHUNK_BITS);
+        int offset = ref & (CHUNK_SIZE - 1);
+        byte[] bytes = new byte[chunk.getInt(offset)];
+        chunk.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    boolean matches(int ref, byte[] utf8) {
+        ByteBuffer chunk = chunks.get(ref >>> CHUNK_BITS);
+        int offset = ref & (CHUNK_SIZE - 1);
+        if (chunk.getInt(offset) != utf8.length) return false;
+        int base = offset + Integer.BYTES;
+        for (int i = 0; i < utf8.length; i++) {
+            if (chunk.get(base + i) != utf8[i]) return false;
+        }
+        return true;
+    }
+
+    long reservedBytes() {
+        return (long) chunks.size() * CHUNK_SIZE;
+    }
+
+    private int takeFree(int granules) {
+        if (granules <= SMALL_CLASSES) {
+            int ref = freeSmall[granules];
+            if (ref != 0) freeSmall[granules] = nextFree(ref);
+            return ref;
+        }
+        Integer ref = freeLarge.get(granules);
+        if (ref == null) return 0;
+        int next = nextFree(ref);
+        if (next == 0) {
+            freeLarge.remove(granules);
+        } else {
+            freeLarge.put(granules, next);
+        }
+        return ref;
+    }
+
+    private int nextFree(int ref) {
+        return chunks.get(ref >>> CHUNK_BITS).getInt((ref & (CHUNK_SIZE - 1)) + Integer.BYTES);
+    }
+
+    private int append(int needed) {
+        if (current == null || current.remaining() < needed) {
+            if (chunks.size() == MAX_CHUNKS) throw new IllegalStateException("name store full");
+            current = ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.nativeOrder());
+            // offset 0 of the first chunk is never handed out, so 0 can mean "no name"
+            if (chunks.isEmpty()) current.position(GRANULE);
+            chunks.add(current);
+        }
+        int ref = ((chunks.size() - 1) << CHUNK_BITS) | current.position();
+        current.position(current.position() + needed);
+        return ref;
+    }
+
+    /**
+     * Granules taken by a record of the given length: the length prefix
+     * plus the bytes, and at least two so a free record can hold its link.
+     */
+    private static int granules(int length) {
+        return Math.max(2, (Integer.BYTES + length + GRANULE - 1) / GRANULE);
+    }
+
+    static byte[] encode(String name) {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hash stored next to each directory entry, computed from the encoded
+     * bytes so it can be recomputed from the arena alone.
+     */
+    static int hash(byte[] utf8) {
+        int h = 1;
+        for (byte b : utf8) h = 31 * h + b;
+        return h ^ (h >>> 16);
+    }
+}
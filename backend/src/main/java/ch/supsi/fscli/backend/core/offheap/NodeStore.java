@@ -0,0 +1,162 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import java.util.Arrays;
+
+/**
+ * Node metadata as struct-of-arrays columns indexed by inode number, all
+ * off-heap. Inode numbers start at 1; freed ones are reused before new ones,
+ * like {@code InodeTable} does for the on-heap filesystem.
+ * <p>
+ * Columns: type, link count, parent directory and primary name (used for
+ * ".." and pwd), payload (entry segment of a directory, target reference of
+ * a symlink) and the three timestamps in epoch nanoseconds.
+ */
+final class NodeStore {
+    static final byte FREE = 0;
+    static final byte FILE = 1;
+    static final byte DIRECTORY = 2;
+    static final byte LINK = 3;
+
+    private final Column type = new Column(Byte.BYTES);
+    private final Column linkCount = new Column(Integer.BYTES);
+    private final Column parent = new Column(Integer.BYTES);
+    private final Column name = new Column(Integer.BYTES);
+    private final Column payload = new Column(Long.BYTES);
+    private final Column ctime = new Column(Long.BYTES);
+    private final Column mtime = new Column(Long.BYTES);
+    private final Column atime = new Column(Long.BYTES);
+
+    private int next = 1;
+    private int[] free = new int[16];
+    private int freeCount;
+    private int count;
+
+    /**
+     * Allocates a node of the given type with a link count of 1.
+     */
+    int allocate(byte nodeType, long now) {
+        int inode = 0;
+        // ids claimed since they were freed are skipped here, not removed eagerly
+        while (inode == 0 && freeCount > 0) {
+            int candidate = free[--freeCount];
+            if (type(candidate) == FREE) inode = candidate;
+        }
+        if (inode == 0) inode = next++;
+        init(inode, nodeType, now);
+        return inode;
+    }
+
+    /**
+     * Allocates the given inode number, as when importing a saved image.
+     * Returns false if it is already taken.
+     */
+    boolean allocateAt(int inode, byte nodeType, long now) {
+        if (inode <= 0) throw new IllegalArgumentException();
+        if (inode < next) {
+            if (type(inode) != FREE) return false;
+        } else {
+            for (int gap = next; gap < inode; gap++) pushFree(gap);
+            next = inode + 1;
+        }
+        init(inode, nodeType, now);
+        return true;
+    }
+
+    void release(int inode) {
+        type.putByte(inode, FREE);
+        payload.putLong(inode, 0);
+        pushFree(inode);
+        count--;
+    }
+
+    boolean exists(int inode) {
+        return inode > 0 && inode < next && type(inode) != FREE;
+    }
+
+    byte type(int inode) {
+        return type.getByte(inode);
+    }
+
+    int linkCount(int inode) {
+        return linkCount.getInt(inode);
+    }
+
+    void setLinkCount(int inode, int value) {
+        linkCount.putInt(inode, value);
+    }
+
+    int parent(int inode) {
+        return parent.getInt(inode);
+    }
+
+    int name(int inode) {
+        return name.getInt(inode);
+    }
+
+    void link(int inode, int parentInode, int nameRef) {
+        parent.putInt(inode, parentInode);
+        name.putInt(inode, nameRef);
+    }
+
+    long payload(int inode) {
+        return payload.getLong(inode);
+    }
+
+    void setPayload(int inode, long value) {
+        payload.putLong(inode, value);
+    }
+
+    long ctime(int inode) {
+        return ctime.getLong(inode);
+    }
+
+    long mtime(int inode) {
+        return mtime.getLong(inode);
+    }
+
+    long atime(int inode) {
+        return atime.getLong(inode);
+    }
+
+    void setCtime(int inode, long value) {
+        ctime.putLong(inode, value);
+    }
+
+    void setMtime(int inode, long value) {
+        mtime.putLong(inode, value);
+    }
+
+    void setAtime(int inode, long value) {
+        atime.putLong(inode, value);
+    }
+
+    /**
+     * Number of live nodes.
+     */
+    int count() {
+        return count;
+    }
+
+    long reservedBytes() {
+        return type.reservedBytes() + linkCount.reservedBytes() + parent.reservedBytes()
+                + name.reservedBytes() + payload.reservedBytes() + ctime.reservedBytes()
+                + mtime.reservedBytes() + atime.reservedBytes();
+    }
+
+    private void init(int inode, byte nodeType, long now) {
+        type.putByte(inode, nodeType);
+        linkCount.putInt(inode, 1);
+        parent.putInt(inode, 0);
+        name.putInt(inode, 0);
+        payload.putLong(inode, 0);
+        ctime.putLong(inode, now);
+        mtime.putLong(inode, now);
+        atime.putLong(inode, now);
+        count++;
+    }
+
+    private void pushFree(int inode) {
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = inode;
+    }
+}
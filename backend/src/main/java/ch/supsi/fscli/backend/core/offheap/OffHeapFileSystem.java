@@ -0,0 +1,971 @@
+package ch.supsi.fscli.backend.core.offheap;
+
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.GlobWalker;
+import ch.supsi.fscli.backend.core.ReadView;
+import ch.supsi.fscli.backend.core.Teardown;
+import ch.supsi.fscli.backend.core.exception.AlreadyExistsException;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.core.exception.InvalidPathException;
+import ch.supsi.fscli.backend.core.exception.NotADirectoryException;
+import ch.supsi.fscli.backend.core.exception.NotFoundException;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.LinkNode;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+import ch.supsi.fscli.backend.provider.resolver.ParsedPath;
+import ch.supsi.fscli.backend.provider.resolver.PathResolver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Filesystem for very large images that keeps nodes off the Java heap.
+ * Node metadata lives in struct-of-arrays columns ({@link NodeStore}),
+ * directory entries in off-heap hash segments ({@link EntryStore}) and names
+ * in an off-heap arena ({@link NameStore}); the heap only holds the chunk
+ * tables, so a tree of millions of nodes adds next to nothing for the
+ * garbage collector to trace.
+ * <p>
+ * Behaves like {@link ch.supsi.fscli.backend.core.InMemoryFileSystem} through
+ * the path-based operations. Methods returning nodes hand out read-only views
+ * (a fresh object per call, so compare ids rather than identity, except
+ * for the root, whose one view is refreshed whenever it is handed out, so
+ * walking up from any directory ends at the same object); the root view can
+ * be saved with the usual serializer. All operations synchronize on
+ * the filesystem.
+ */
+public class OffHeapFileSystem implements FileSystem {
+    private final NodeStore nodes = new NodeStore();
+    private final NameStore names = new NameStore();
+    private final EntryStore entries = new EntryStore();
+    private final int root;
+    private final DirectoryView rootView;
+    private int cwd;
+
+    public OffHeapFileSystem() {
+        this.root = nodes.allocate(NodeStore.DIRECTORY, now());
+        nodes.link(root, root, 0);
+        this.rootView = new DirectoryView(this, root);
+        this.cwd = root;
+    }
+
+    /**
+     * Copies an on-heap tree, typically a loaded image, into off-heap
+     * storage. Saved inode numbers are kept; entries sharing an id were hard
+     * links and become one node again.
+     */
+    public OffHeapFileSystem(DirectoryNode image) {
+        BitSet savedIds = new BitSet();
+        this.root = importNode(image, savedIds);
+        nodes.link(root, root, 0);
+        this.rootView = new DirectoryView(this, root);
+        this.cwd = root;
+        importChildren(image, root, savedIds);
+    }
+
+    @Override
+    public synchronized void mkdir(String path) throws FSException {
+        Walk target = lookupForCreate(parse(path), "alreadyExists", "parentNotDir");
+        addEntry(target.parent, target.name, nodes.allocate(NodeStore.DIRECTORY, now()));
+    }
+
+    @Override
+    public synchronized void mkdirAll(Iterable<String> paths) throws FSException {
+        for (String path : paths) {
+            mkdir(path);
+        }
+    }
+
+    @Override
+    public synchronized void mkdirs(Iterable<String> paths) throws FSException {
+        for (String path : paths) {
+            Walk target = walk(parse(path), true, true);
+            if (target.status == Walk.NOT_A_DIRECTORY) {
+                // name the whole operand, as the on-heap filesystem does
+                throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+            }
+            if (target.status != Walk.FOUND) {
+                throw target.toException();
+            }
+            if (nodes.type(target.inode) != NodeStore.DIRECTORY) {
+                throw new AlreadyExistsException(() -> BackendMessageProvider.get("alreadyExists") + ": " + path);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void rmdir(String path) throws FSException {
+        Walk lookup = lookupExisting(parse(path));
+        int node = lookup.inode;
+        if (nodes.type(node) != NodeStore.DIRECTORY) {
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+        }
+        if (entries.live(nodes.payload(node)) > 0) {
+            throw new FSException(() -> BackendMessageProvider.get("notEmpty") + ": " + path);
+        }
+        if (node == root) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveRoot"));
+        }
+        unlink(parentOf(lookup), nameOf(lookup));
+    }
+
+    @Override
+    public synchronized void touch(String path) throws FSException {
+        ParsedPath parsed = parse(path);
+        // "name/" must be a directory, so a link there counts as what it points to
+        boolean directoryOnly = parsed.requiresDirectory();
+        Walk lookup = walk(parsed, directoryOnly);
+        if (lookup.status == Walk.FOUND) {
+            if (directoryOnly && nodes.type(lookup.inode) != NodeStore.DIRECTORY) {
+                throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+            }
+            long now = now();
+            nodes.setCtime(lookup.inode, now);
+            nodes.setMtime(lookup.inode, now);
+            return;
+        }
+        if (!lookup.isMissingLeaf()) {
+            throw lookup.toException();
+        }
+        if (directoryOnly) {
+            // touch creates files only
+            throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + path);
+        }
+        addEntry(lookup.parent, lookup.name, nodes.allocate(NodeStore.FILE, now()));
+    }
+
+    @Override
+    public synchronized void touchAll(Iterable<String> paths) throws FSException {
+        for (String path : paths) {
+            touch(path);
+        }
+    }
+
+    @Override
+    public void rm(String path) throws FSException {
+        rm(path, false, false);
+    }
+
+    /**
+     * Tearing a subtree down here only rewrites columns in place, so unlike
+     * the on-heap filesystem it runs synchronously under the filesystem lock
+     * and the returned handle is already complete.
+     */
+    @Override
+    public synchronized Teardown rm(String path, boolean recursive, boolean force) throws FSException {
+        ParsedPath parsed = parse(path);
+        Walk lookup = walk(parsed, false);
+        if (lookup.status != Walk.FOUND) {
+            if (force && lookup.status == Walk.MISSING) {
+                return Teardown.completed(0);
+            }
+            throw lookup.toException();
+        }
+        boolean directory = nodes.type(lookup.inode) == NodeStore.DIRECTORY;
+        if (directory && !recursive) {
+            throw new FSException(() -> BackendMessageProvider.get("rmNotDir") + ": " + path);
+        }
+        if (lookup.inode == root) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveRoot"));
+        }
+        if (directory && (parsed.fileName() == null || parsed.fileName().equals(".."))) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveDot") + ": " + path);
+        }
+        return Teardown.completed(unlink(parentOf(lookup), nameOf(lookup)));
+    }
+
+    @Override
+    public synchronized void rmAll(Iterable<String> paths, boolean recursive, boolean force) throws FSException {
+        for (String path : paths) {
+            rm(path, recursive, force);
+        }
+    }
+
+    @Override
+    public synchronized void mvInto(Iterable<String> sources, String dir) throws FSException {
+        checkDirectory(dir);
+        for (String src : sources) {
+            mv(src, destinationIn(dir, src));
+        }
+    }
+
+    @Override
+    public synchronized void mv(String src, String dest) throws FSException {
+        Walk srcLookup = lookupExisting(parse(src));
+        Walk destLookup = lookupForCreate(parse(dest), "destExists", "destParentNotDir");
+        int node = srcLookup.inode;
+        if (node == root) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotMoveRoot"));
+        }
+        if (nodes.type(node) == NodeStore.DIRECTORY && isAncestorOrSelf(node, destLookup.parent)) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotMoveIntoSelf") + ": " + src);
+        }
+        int srcParent = parentOf(srcLookup);
+        removeEntry(srcParent, nameOf(srcLookup));
+        addEntry(destLookup.parent, destLookup.name, node);
+    }
+
+    @Override
+    public synchronized void ln(String target, String link, boolean sym) throws FSException {
+        ParsedPath linkPath = parse(link);
+        Walk linkLookup = lookupForCreate(linkPath, "linkExists", "linkParentNotDir");
+        if (linkPath.requiresDirectory()) {
+            // a link is never a directory, so "name/" cannot name a new one
+            throw new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + link);
+        }
+        if (sym) {
+            int symlink = nodes.allocate(NodeStore.LINK, now());
+            nodes.setPayload(symlink, names.add(target));
+            addEntry(linkLookup.parent, linkLookup.name, symlink);
+            return;
+        }
+        int node = resolve(parse(target), true);
+        if (nodes.type(node) == NodeStore.DIRECTORY) {
+            throw new InvalidPathException(() -> BackendMessageProvider.get("hardLinkTargetDir") + ": " + target);
+        }
+        addEntry(linkLookup.parent, linkLookup.name, node);
+        nodes.setLinkCount(node, nodes.linkCount(node) + 1);
+        nodes.setCtime(node, now());
+    }
+
+    @Override
+    public synchronized List<String> ls(String path, boolean showI) throws FSException {
+        int node = resolve(parse(path), true);
+        if (nodes.type(node) != NodeStore.DIRECTORY) {
+            String name = getFileName(path);
+            return List.of(showI ? node + " " + name : name);
+        }
+        long segment = nodes.payload(node);
+        List<String> result = new ArrayList<>(entries.live(segment));
+        int size = entries.size(segment);
+        for (int i = 0; i < size; i++) {
+            int child = entries.inodeAt(segment, i);
+            if (child == 0) continue;
+            String name = names.get(entries.nameAt(segment, i));
+            String entry;
+            byte type = nodes.type(child);
+            if (type == NodeStore.DIRECTORY) {
+                entry = name + "/";
+            } else if (type == NodeStore.LINK) {
+                entry = name + " -> " + names.get((int) nodes.payload(child));
+            } else {
+                entry = name;
+            }
+            result.add(showI ? child + " " + entry : entry);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void cd(String path) throws FSException {
+        int node = resolve(parse(path), true);
+        if (nodes.type(node) != NodeStore.DIRECTORY) {
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+        }
+        cwd = node;
+    }
+
+    @Override
+    public synchronized String pwd() {
+        return pathOf(cwd);
+    }
+
+    @Override
+    public synchronized void cp(String src, String dest) throws FSException {
+        int node = resolve(parse(src), true);
+        Walk destLookup = lookupForCreate(parse(dest), "alreadyExists", "parentNotDir");
+        addEntry(destLookup.parent, destLookup.name, copyTree(node));
+    }
+
+    /**
+     * Copies are always full here: a node costs a few dozen bytes of
+     * columns, so reflink copies fall back to {@link #cp(String, String)}.
+     */
+    @Override
+    public void cp(String src, String dest, boolean reflink) throws FSException {
+        cp(src, dest);
+    }
+
+    @Override
+    public synchronized void cpInto(Iterable<String> sources, String dir, boolean reflink) throws FSException {
+        int destDir = checkDirectory(dir);
+        for (String src : sources) {
+            int node = resolve(parse(src), true);
+            if (nodes.type(node) == NodeStore.DIRECTORY && isAncestorOrSelf(node, destDir)) {
+                throw new FSException(() -> BackendMessageProvider.get("cannotMoveIntoSelf") + ": " + src);
+            }
+            cp(src, destinationIn(dir, src));
+        }
+    }
+
+    private int checkDirectory(String path) throws FSException {
+        Walk lookup = walk(parse(path), true);
+        if (lookup.status != Walk.FOUND) {
+            throw lookup.toException();
+        }
+        if (nodes.type(lookup.inode) != NodeStore.DIRECTORY) {
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + path);
+        }
+        return lookup.inode;
+    }
+
+    private static String destinationIn(String dir, String src) throws FSException {
+        String name = parse(src).fileName();
+        if (name == null) return dir;
+        return dir.endsWith("/") ? dir + name : dir + "/" + name;
+    }
+
+    @Override
+    public FileSystem openSession() throws FSException {
+        throw new FSException(() -> BackendMessageProvider.get("sessionUnsupported"));
+    }
+
+    @Override
+    public void begin() throws FSException {
+        throw new FSException(() -> BackendMessageProvider.get("transactionUnsupported"));
+    }
+
+    @Override
+    public void commit() throws FSException {
+        throw new FSException(() -> BackendMessageProvider.get("noTransaction"));
+    }
+
+    @Override
+    public void rollback() throws FSException {
+        throw new FSException(() -> BackendMessageProvider.get("noTransaction"));
+    }
+
+    @Override
+    public boolean inTransaction() {
+        return false;
+    }
+
+    /**
+     * The store keeps a single version, so the view is an on-heap copy of
+     * the whole tree, made in O(n) while writers wait.
+     */
+    @Override
+    public synchronized ReadView openReadView() {
+        return ReadView.detached((DirectoryNode) freeze(view(root), new HashMap<>()));
+    }
+
+    private FileSystemNode freeze(FileSystemNode node, Map<Integer, FileSystemNode> frozen) {
+        if (!node.isDirectory()) {
+            // file and symlink views already hold their metadata; keep one per inode for hard links
+            return frozen.computeIfAbsent(node.getId(), id -> node);
+        }
+        Map<String, FileSystemNode> entries = new LinkedHashMap<>();
+        forEachChildView(((DirectoryView) node).inode(), (name, child) -> entries.put(name, freeze(child, frozen)));
+        return new FrozenDirectory((DirectoryNode) node, entries);
+    }
+
+    @Override
+    public void createSnapshot(String name) throws FSException {
+        throw new FSException(() -> BackendMessageProvider.get("snapshotUnsupported"));
+    }
+
+    @Override
+    public List<String> listSnapshots() {
+        return List.of();
+    }
+
+    @Override
+    public void restoreSnapshot(String name) throws FSException {
+        throw new FSException(() -> BackendMessageProvider.get("snapshotUnsupported"));
+    }
+
+    @Override
+    public void dropSnapshot(String name) throws FSException {
+        throw new FSException(() -> BackendMessageProvider.get("snapshotUnsupported"));
+    }
+
+    @Override
+    public synchronized List<String> expWildcard(String path, DirectoryNode curDir) throws FSException {
+        List<String> result = new ArrayList<>();
+        glob(path, curDir).forEachRemaining(result::add);
+        return result;
+    }
+
+    @Override
+    public Iterator<String> glob(String pattern, DirectoryNode curDir) {
+        return new GlobWalker(this, pattern, curDir);
+    }
+
+    @Override
+    public synchronized FileSystemNode resolveNode(String path, boolean followSymlinks) throws FSException {
+        return resolveNode(parse(path), followSymlinks);
+    }
+
+    @Override
+    public synchronized FileSystemNode resolveNode(ParsedPath path, boolean followSymlinks) throws FSException {
+        return view(resolve(path, followSymlinks));
+    }
+
+    @Override
+    public synchronized void createNode(String path, FileSystemNode node) throws FSException {
+        createNode(parse(path), node);
+    }
+
+    /**
+     * Copies the given on-heap node, and the tree below it, into this
+     * filesystem under a new inode.
+     */
+    @Override
+    public synchronized void createNode(ParsedPath path, FileSystemNode node) throws FSException {
+        Walk target = lookupForCreate(path, "alreadyExists", "parentNotDir");
+        int inode = importNode(node, null);
+        if (node.isDirectory()) {
+            importChildren((DirectoryNode) node, inode, null);
+        }
+        addEntry(target.parent, target.name, inode);
+    }
+
+    @Override
+    public synchronized void deleteNode(String path) throws FSException {
+        deleteNode(parse(path));
+    }
+
+    @Override
+    public synchronized void deleteNode(ParsedPath path) throws FSException {
+        Walk lookup = lookupExisting(path);
+        if (lookup.inode == root) {
+            throw new FSException(() -> BackendMessageProvider.get("cannotRemoveRoot"));
+        }
+        unlink(parentOf(lookup), nameOf(lookup));
+    }
+
+    /**
+     * Returns an on-heap copy of the node, not registered anywhere.
+     */
+    @Override
+    public FileSystemNode copyNode(FileSystem fs, FileSystemNode node, boolean recursive) {
+        if (node.isLink()) {
+            return new LinkNode(((LinkNode) node).getTarget());
+        }
+        if (!node.isDirectory()) {
+            return new FileNode();
+        }
+        DirectoryNode copy = new DirectoryNode();
+        if (recursive) {
+            ((DirectoryNode) node).forEachChild((name, child) -> copy.add(name, copyNode(fs, child, true)));
+        }
+        return copy;
+    }
+
+    @Override
+    public synchronized DirectoryNode getParentDirectory(String path) throws FSException {
+        return getParentDirectory(parse(path));
+    }
+
+    @Override
+    public synchronized DirectoryNode getParentDirectory(ParsedPath path) throws FSException {
+        ParsedPath parentPath = path.parent();
+        int parent = resolve(parentPath, true);
+        if (nodes.type(parent) != NodeStore.DIRECTORY) {
+            throw new NotADirectoryException(() -> BackendMessageProvider.get("parentNotDir") + ": " + parentPath);
+        }
+        return (DirectoryNode) view(parent);
+    }
+
+    @Override
+    public synchronized DirectoryNode getCwd() {
+        return (DirectoryNode) view(cwd);
+    }
+
+    @Override
+    public synchronized DirectoryNode getRoot() {
+        return (DirectoryNode) view(root);
+    }
+
+    @Override
+    public synchronized FileSystemNode findByInode(int inode) {
+        return nodes.exists(inode) ? view(inode) : null;
+    }
+
+    @Override
+    public synchronized List<FileSystemNode> listNodes(DirectoryNode directory) {
+        List<FileSystemNode> result = new ArrayList<>(directory.childCount());
+        forEachChild(directory, (name, node) -> result.add(node));
+        return result;
+    }
+
+    @Override
+    public synchronized void forEachChild(DirectoryNode directory, BiConsumer<String, FileSystemNode> action) {
+        if (directory instanceof DirectoryView view && view.owner() == this) {
+            forEachChildView(view.inode(), action);
+        } else {
+            directory.forEachChild(action);
+        }
+    }
+
+    @Override
+    public String extractFileName(String path) {
+        return getFileName(path);
+    }
+
+    @Override
+    public String extractParentPath(String path) {
+        if (path.equals("/")) {
+            return "";
+        }
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash <= 0) {
+            return "";
+        }
+        return path.substring(0, lastSlash);
+    }
+
+    /**
+     * Number of live nodes, root included.
+     */
+    public synchronized int nodeCount() {
+        return nodes.count();
+    }
+
+    /**
+     * Off-heap bytes reserved by the node columns, entry segments and names.
+     */
+    public synchronized long offHeapBytes() {
+        return nodes.reservedBytes() + entries.reservedBytes() + names.reservedBytes();
+    }
+
+    synchronized FileSystemNode childView(int dir, String name) {
+        byte[] utf8 = NameStore.encode(name);
+        long segment = nodes.payload(dir);
+        int entry = entries.find(segment, utf8, NameStore.hash(utf8), names);
+        return entry < 0 ? null : view(entries.inodeAt(segment, entry));
+    }
+
+    synchronized void forEachChildView(int dir, BiConsumer<String, FileSystemNode> action) {
+        long segment = nodes.payload(dir);
+        int size = entries.size(segment);
+        for (int i = 0; i < size; i++) {
+            int child = entries.inodeAt(segment, i);
+            if (child != 0) {
+                action.accept(names.get(entries.nameAt(segment, i)), view(child));
+            }
+        }
+    }
+
+    synchronized int childCount(int dir) {
+        return entries.live(nodes.payload(dir));
+    }
+
+    synchronized DirectoryNode parentView(int dir) {
+        return dir == root ? null : (DirectoryNode) view(nodes.parent(dir));
+    }
+
+    synchronized String nameOf(int inode) {
+        int ref = nodes.name(inode);
+        return ref == 0 ? null : names.get(ref);
+    }
+
+    synchronized String pathOf(int dir) {
+        if (dir == root) {
+            return "/";
+        }
+        Deque<String> parts = new ArrayDeque<>();
+        for (int cur = dir; cur != root && cur != 0; cur = nodes.parent(cur)) {
+            parts.push(names.get(nodes.name(cur)));
+        }
+        StringBuilder path = new StringBuilder();
+        for (String part : parts) {
+            path.append('/').append(part);
+        }
+        return path.toString();
+    }
+
+    private FileSystemNode view(int inode) {
+        int links = nodes.linkCount(inode);
+        long c = nodes.ctime(inode);
+        long m = nodes.mtime(inode);
+        long a = nodes.atime(inode);
+        return switch (nodes.type(inode)) {
+            case NodeStore.DIRECTORY -> inode == root
+                    ? rootView.refresh(links, c, m, a)
+                    : new DirectoryView(this, inode, links, c, m, a);
+            case NodeStore.LINK -> new LinkView(inode, names.get((int) nodes.payload(inode)), links, c, m, a);
+            default -> new FileView(inode, links, c, m, a);
+        };
+    }
+
+    private void addEntry(int dir, String name, int child) {
+        byte[] utf8 = NameStore.encode(name);
+        int nameRef = names.add(utf8);
+        nodes.setPayload(dir, entries.append(nodes.payload(dir), NameStore.hash(utf8), nameRef, child));
+        if (nodes.name(child) == 0) {
+            nodes.link(child, dir, nameRef);
+        }
+        long now = now();
+        nodes.setMtime(dir, now);
+        nodes.setAtime(child, now);
+    }
+
+    /**
+     * Removes the entry and returns the node it pointed to; the node itself
+     * is left alone.
+     */
+    private int removeEntry(int dir, String name) {
+        byte[] utf8 = NameStore.encode(name);
+        long segment = nodes.payload(dir);
+        int entry = entries.find(segment, utf8, NameStore.hash(utf8), names);
+        int child = entries.inodeAt(segment, entry);
+        if (nodes.parent(child) == dir && names.matches(nodes.name(child), utf8)) {
+            nodes.link(child, 0, 0);
+        }
+        names.release(entries.nameAt(segment, entry));
+        nodes.setPayload(dir, entries.removeAt(segment, entry));
+        nodes.setMtime(dir, now());
+        return child;
+    }
+
+    /**
+     * Removes the entry and drops one link from its node, freeing the node
+     * and everything only reachable through it once no link is left.
+     * Returns the number of nodes freed.
+     */
+    private int unlink(int dir, String name) {
+        int freed = 0;
+        int child = removeEntry(dir, name);
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(child);
+        while (!pending.isEmpty()) {
+            int node = pending.pop();
+            int links = nodes.linkCount(node) - 1;
+            if (links > 0) {
+                nodes.setLinkCount(node, links);
+                nodes.setCtime(node, now());
+                continue;
+            }
+            if (nodes.type(node) == NodeStore.DIRECTORY) {
+                long segment = nodes.payload(node);
+                int size = entries.size(segment);
+                for (int i = 0; i < size; i++) {
+                    int grandchild = entries.inodeAt(segment, i);
+                    if (grandchild == 0) continue;
+                    if (nodes.parent(grandchild) == node) {
+                        // its name is released below; a node kept alive by another link must not point at it
+                        nodes.link(grandchild, 0, 0);
+                    }
+                    names.release(entries.nameAt(segment, i));
+                    pending.push(grandchild);
+                }
+                entries.release(segment);
+                if (node == cwd) {
+                    cwd = root;
+                }
+            } else if (nodes.type(node) == NodeStore.LINK) {
+                names.release((int) nodes.payload(node));
+            }
+            nodes.release(node);
+            freed++;
+        }
+        return freed;
+    }
+
+    /**
+     * Copies a node and, for directories, everything below it. Works on an
+     * explicit stack so deep trees cannot overflow the call stack, and
+     * attaches nothing until the copy is complete, so copying a directory
+     * into itself terminates.
+     */
+    private int copyTree(int source) {
+        int top = copyOne(source);
+        Deque<int[]> pending = new ArrayDeque<>();
+        if (nodes.type(source) == NodeStore.DIRECTORY) pending.push(new int[]{source, top});
+        while (!pending.isEmpty()) {
+            int[] pair = pending.pop();
+            long segment = nodes.payload(pair[0]);
+            int size = entries.size(segment);
+            for (int i = 0; i < size; i++) {
+                int child = entries.inodeAt(segment, i);
+                if (child == 0) continue;
+                int copy = copyOne(child);
+                addEntry(pair[1], names.get(entries.nameAt(segment, i)), copy);
+                if (nodes.type(child) == NodeStore.DIRECTORY) pending.push(new int[]{child, copy});
+            }
+        }
+        return top;
+    }
+
+    private int copyOne(int source) {
+        byte type = nodes.type(source);
+        int copy = nodes.allocate(type, now());
+        if (type == NodeStore.LINK) {
+            nodes.setPayload(copy, names.copy((int) nodes.payload(source)));
+        }
+        return copy;
+    }
+
+    /**
+     * Allocates an inode for an on-heap node and copies its metadata. When
+     * {@code savedIds} is given, the node keeps its saved id if that is still
+     * free, and the id is recorded there.
+     */
+    private int importNode(FileSystemNode node, BitSet savedIds) {
+        byte type = node.isDirectory() ? NodeStore.DIRECTORY : node.isLink() ? NodeStore.LINK : NodeStore.FILE;
+        long now = now();
+        int inode = node.getId();
+        if (savedIds != null && inode > 0 && nodes.allocateAt(inode, type, now)) {
+            savedIds.set(inode);
+        } else {
+            inode = nodes.allocate(type, now);
+        }
+        if (type == NodeStore.LINK) {
+            nodes.setPayload(inode, names.add(((LinkNode) node).getTarget()));
+        }
+        nodes.setCtime(inode, node.getCTimeNanos());
+        nodes.setMtime(inode, node.getMTimeNanos());
+        nodes.setAtime(inode, node.getATimeNanos());
+        return inode;
+    }
+
+    private void importChildren(DirectoryNode dir, int inode, BitSet savedIds) {
+        Deque<Object[]> pending = new ArrayDeque<>();
+        pending.push(new Object[]{dir, inode});
+        while (!pending.isEmpty()) {
+            Object[] pair = pending.pop();
+            DirectoryNode source = (DirectoryNode) pair[0];
+            int target = (Integer) pair[1];
+            List<String> childNames = new ArrayList<>();
+            List<FileSystemNode> children = new ArrayList<>();
+            source.forEachChild((name, child) -> {
+                childNames.add(name);
+                children.add(child);
+            });
+            for (int i = 0; i < children.size(); i++) {
+                FileSystemNode child = children.get(i);
+                int id = child.getId();
+                if (savedIds != null && id > 0 && savedIds.get(id) && !child.isDirectory() && isSameKind(id, child)) {
+                    // the image stores a hard-linked node once per link
+                    addEntry(target, childNames.get(i), id);
+                    nodes.setLinkCount(id, nodes.linkCount(id) + 1);
+                    continue;
+                }
+                int imported = importNode(child, savedIds);
+                long atime = nodes.atime(imported);
+                addEntry(target, childNames.get(i), imported);
+                nodes.setAtime(imported, atime);
+                if (child.isDirectory()) {
+                    pending.push(new Object[]{child, imported});
+                }
+            }
+            nodes.setMtime(target, source.getMTimeNanos());
+        }
+    }
+
+    private boolean isSameKind(int inode, FileSystemNode node) {
+        byte type = nodes.type(inode);
+        return node.isLink() ? type == NodeStore.LINK : type == NodeStore.FILE;
+    }
+
+    private boolean isAncestorOrSelf(int dir, int node) {
+        for (int cur = node; ; cur = nodes.parent(cur)) {
+            if (cur == dir) return true;
+            if (cur == root || cur == 0) return false;
+        }
+    }
+
+    private int parentOf(Walk lookup) {
+        return lookup.parent != 0 ? lookup.parent : nodes.parent(lookup.inode);
+    }
+
+    private String nameOf(Walk lookup) {
+        return lookup.name != null ? lookup.name : names.get(nodes.name(lookup.inode));
+    }
+
+    private int resolve(ParsedPath path, boolean followSymlinks) throws FSException {
+        Walk lookup = walk(path, followSymlinks);
+        if (lookup.status != Walk.FOUND) {
+            throw lookup.toException();
+        }
+        return lookup.inode;
+    }
+
+    private Walk lookupExisting(ParsedPath path) throws FSException {
+        Walk lookup = walk(path, false);
+        if (lookup.status != Walk.FOUND) {
+            throw lookup.toException();
+        }
+        return lookup;
+    }
+
+    private Walk lookupForCreate(ParsedPath path, String existsKey, String parentNotDirKey) throws FSException {
+        Walk lookup = walk(path, false);
+        switch (lookup.status) {
+            case Walk.FOUND:
+                throw new AlreadyExistsException(() -> BackendMessageProvider.get(existsKey) + ": " + path);
+            case Walk.MISSING:
+                if (lookup.isMissingLeaf()) {
+                    return lookup;
+                }
+                throw new NotFoundException(() -> BackendMessageProvider.get("parentNotFound") + ": " + path.parent());
+            case Walk.NOT_A_DIRECTORY:
+                throw new NotADirectoryException(() -> BackendMessageProvider.get(parentNotDirKey) + ": " + path.parent());
+            default:
+                throw lookup.toException();
+        }
+    }
+
+    /**
+     * Resolves a path one component at a time. Symlinks are expanded in
+     * place: their target's components are pushed in front of the remaining
+     * ones, continuing from the root for absolute targets and from the
+     * link's own directory otherwise.
+     */
+    private Walk walk(ParsedPath path, boolean followLast) {
+        return walk(path, followLast, false);
+    }
+
+    /**
+     * Walks a path, and with {@code create} makes each missing directory
+     * of it on the way. Components reached through a symlink are never
+     * created: the walk stops there as when only looking.
+     */
+    private Walk walk(ParsedPath path, boolean followLast, boolean create) {
+        int current = path.isAbsolute() ? root : cwd;
+        int parent = 0;
+        String name = null;
+        Deque<String> pending = new ArrayDeque<>(path.size());
+        for (int i = 0; i < path.size(); i++) {
+            pending.addLast(path.component(i));
+        }
+        int expansions = 0;
+        // the trailing components that come from the path itself
+        int own = path.size();
+        while (!pending.isEmpty()) {
+            boolean creatable = create && pending.size() <= own;
+            String component = pending.pollFirst();
+            boolean last = pending.isEmpty();
+            if (nodes.type(current) != NodeStore.DIRECTORY) {
+                return Walk.notADirectory(component);
+            }
+            if (component.equals("..")) {
+                current = nodes.parent(current);
+                parent = 0;
+                name = null;
+                continue;
+            }
+            byte[] utf8 = NameStore.encode(component);
+            long segment = nodes.payload(current);
+            int entry = entries.find(segment, utf8, NameStore.hash(utf8), names);
+            int child;
+            if (entry >= 0) {
+                child = entries.inodeAt(segment, entry);
+            } else if (creatable) {
+                child = nodes.allocate(NodeStore.DIRECTORY, now());
+                addEntry(current, component, child);
+            } else {
+                return Walk.missing(current, component, last);
+            }
+            if (nodes.type(child) == NodeStore.LINK && (!last || followLast)) {
+                if (++expansions > PathResolver.MAX_SYMLINK_DEPTH) {
+                    return Walk.symlinkLoop();
+                }
+                ParsedPath target = ParsedPath.of(names.get((int) nodes.payload(child)));
+                own = Math.min(own, pending.size());
+                if (target.isAbsolute()) {
+                    current = root;
+                }
+                for (int i = target.size() - 1; i >= 0; i--) {
+                    pending.addFirst(target.component(i));
+                }
+                parent = 0;
+                name = null;
+                continue;
+            }
+            parent = current;
+            name = component;
+            current = child;
+        }
+        return Walk.found(current, parent, name);
+    }
+
+    private static ParsedPath parse(String path) throws InvalidPathException {
+        if (path == null || path.isEmpty()) {
+            throw new InvalidPathException(() -> BackendMessageProvider.get("emptyPath"));
+        }
+        return ParsedPath.of(path);
+    }
+
+    private static String getFileName(String path) {
+        if (path.equals("/")) {
+            return "/";
+        }
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash < 0) {
+            return path;
+        }
+        return path.substring(lastSlash + 1);
+    }
+
+    private static long now() {
+        return FileSystemNode.getClock().nowNanos();
+    }
+
+    /**
+     * Outcome of a path walk: the node found, or where and why it stopped.
+     * {@code parent} and {@code name} describe the entry the walk ended on,
+     * or 0 and null when it ended on "." or ".." rather than on an entry.
+     */
+    private static final class Walk {
+        static final int FOUND = 0;
+        static final int MISSING = 1;
+        static final int NOT_A_DIRECTORY = 2;
+        static final int SYMLINK_LOOP = 3;
+
+        final int status;
+        final int inode;
+        final int parent;
+        final String name;
+        final boolean leaf;
+
+        private Walk(int status, int inode, int parent, String name, boolean leaf) {
+            this.status = status;
+            this.inode = inode;
+            this.parent = parent;
+            this.name = name;
+            this.leaf = leaf;
+        }
+
+        static Walk found(int inode, int parent, String name) {
+            return new Walk(FOUND, inode, parent, name, true);
+        }
+
+        static Walk missing(int parent, String name, boolean leaf) {
+            return new Walk(MISSING, 0, parent, name, leaf);
+        }
+
+        static Walk notADirectory(String name) {
+            return new Walk(NOT_A_DIRECTORY, 0, 0, name, false);
+        }
+
+        static Walk symlinkLoop() {
+            return new Walk(SYMLINK_LOOP, 0, 0, null, false);
+        }
+
+        boolean isMissingLeaf() {
+            return status == MISSING && leaf;
+        }
+
+        FSException toException() {
+            String component = name;
+            return switch (status) {
+                case MISSING -> new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + component);
+                case NOT_A_DIRECTORY -> new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + component);
+                case SYMLINK_LOOP -> new InvalidPathException(() -> BackendMessageProvider.get("tooManySymlinkLevels"));
+                default -> throw new IllegalStateException();
+            };
+        }
+    }
+}
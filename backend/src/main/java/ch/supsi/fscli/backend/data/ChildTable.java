@@ -0,0 +1,196 @@
+package ch.supsi.fscli.backend.data;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Insertion-ordered child storage of a {@link DirectoryNode}.
+ * Entries live in two parallel arrays in insertion order. Storage adapts to
+ * the directory size: empty directories share {@link #EMPTY}, small ones
+ * (up to {@link #INLINE_LIMIT} slots) are scanned linearly with no index, and
+ * larger ones add an open-addressed index (linear probing, holding slot + 1,
+ * 0 meaning empty) mapping names to slots. Removal leaves a dead slot behind
+ * instead of shifting, so slots are never reused and a slot only ever goes
+ * empty -> (name, node) -> dead.
+ * <p>
+ * Mutations must be serialized by the caller. Reads take no lock: every
+ * mutation writes the volatile {@code size} last, even one that leaves it
+ * unchanged, and readers read it first, which makes every completed
+ * mutation visible. Readers tolerate a concurrent one by treating
+ * half-written or half-removed slots, and slots past the size they read,
+ * as absent. When a table runs out of slots the owner
+ * swaps in a compacted copy, so readers still holding the old table keep a
+ * consistent (if stale) view.
+ */
+final class ChildTable {
+    /**
+     * Largest table scanned without an index; a linear scan over this many
+     * names beats hashing and costs no extra array.
+     */
+    static final int INLINE_LIMIT = 8;
+
+    /**
+     * Shared table of every empty directory. It has no room, so the first
+     * add always replaces it.
+     */
+    static final ChildTable EMPTY = new ChildTable(0);
+
+    private final String[] names;
+    private final FileSystemNode[] nodes;
+    private final int[] index;
+    private volatile int size;
+    private volatile int live;
+
+    private ChildTable(int capacity) {
+        this.names = new String[capacity];
+        this.nodes = new FileSystemNode[capacity];
+        this.index = capacity > INLINE_LIMIT ? new int[tableSizeFor(capacity * 2)] : null;
+    }
+
+    /**
+     * Empty table with room for {@code capacity} entries.
+     */
+    static ChildTable withCapacity(int capacity) {
+        return capacity <= 0 ? EMPTY : new ChildTable(capacity);
+    }
+
+    FileSystemNode get(String name) {
+        int slot = find(name);
+        return slot < 0 ? null : nodes[slot];
+    }
+
+    /**
+     * Slot holding the given name, or -1.
+     */
+    int find(String name) {
+        // volatile read: everything written before the last mutation is visible
+        int n = size;
+        int[] idx = index;
+        if (idx == null) {
+            for (int i = 0; i < n; i++) {
+                String candidate = names[i];
+                if (candidate != null && (candidate == name || candidate.equals(name))) return i;
+            }
+            return -1;
+        }
+        int mask = idx.length - 1;
+        int h = spread(name.hashCode()) & mask;
+        for (int probes = 0; probes < idx.length; probes++) {
+            int e = idx[h];
+            if (e == 0) return -1;
+            // a slot past n is still being appended; its name is not there yet
+            if (e <= n) {
+                String candidate = names[e - 1];
+                if (candidate != null && (candidate == name || candidate.equals(name))) return e - 1;
+            }
+            h = (h + 1) & mask;
+        }
+        return -1;
+    }
+
+    FileSystemNode nodeAt(int slot) {
+        return nodes[slot];
+    }
+
+    int liveCount() {
+        return live;
+    }
+
+    int capacity() {
+        return names.length;
+    }
+
+    boolean hasRoom() {
+        return size < names.length;
+    }
+
+    void append(String name, FileSystemNode node) {
+        int slot = size;
+        nodes[slot] = node;
+        names[slot] = name;
+        if (index != null) {
+            int mask = index.length - 1;
+            int h = spread(name.hashCode()) & mask;
+            while (index[h] != 0) h = (h + 1) & mask;
+            index[h] = slot + 1;
+        }
+        live++;
+        size = slot + 1;
+    }
+
+    void replaceAt(int slot, FileSystemNode node) {
+        nodes[slot] = node;
+        // written again only to publish the new node to readers
+        size = size;
+    }
+
+    FileSystemNode removeAt(int slot) {
+        FileSystemNode node = nodes[slot];
+        names[slot] = null;
+        nodes[slot] = null;
+        live--;
+        size = size;
+        return node;
+    }
+
+    /**
+     * Visits live entries in insertion order. Weakly consistent: entries
+     * added or removed concurrently may or may not be seen.
+     */
+    void forEach(BiConsumer<String, FileSystemNode> action) {
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            String name = names[i];
+            FileSystemNode node = nodes[i];
+            if (name != null && node != null) action.accept(name, node);
+        }
+    }
+
+    /**
+     * Number of slots in use, live or dead; the bound for {@link #collectNames}.
+     */
+    int slotCount() {
+        return size;
+    }
+
+    /**
+     * Adds the live names in slots {@code [from, to)} accepted by the
+     * filter to {@code out}, in insertion order. Weakly consistent, like
+     * {@link #forEach}; the bounds come from {@link #slotCount}, whose read
+     * of the size makes the slots below them visible.
+     */
+    void collectNames(int from, int to, Predicate<String> filter, List<String> out) {
+        for (int i = from; i < to; i++) {
+            String name = names[i];
+            if (name != null && filter.test(name)) out.add(name);
+        }
+    }
+
+    /**
+     * Compacted copy holding the live entries, sized for {@code capacity}.
+     */
+    ChildTable resized(int capacity) {
+        ChildTable copy = withCapacity(Math.max(capacity, live));
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            if (names[i] != null) copy.append(names[i], nodes[i]);
+        }
+        return copy;
+    }
+
+    /*
+     * Names made by a counter (f1, f2, ...) have hash codes in short
+     * arithmetic runs, which linear probing turns into long chains of taken
+     * slots; multiplying by the golden ratio scatters them first.
+     */
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int cap = Integer.highestOneBit(Math.max(2, n - 1)) << 1;
+        return cap < 0 ? 1 << 30 : cap;
+    }
+}
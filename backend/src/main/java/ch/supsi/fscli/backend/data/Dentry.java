@@ -0,0 +1,28 @@
+package ch.supsi.fscli.backend.data;
+
+/**
+ * A directory entry: the (parent, name) pair under which a node is linked.
+ * Directories and symlinks have exactly one, hard-linked files one per link.
+ */
+public final class Dentry {
+    private final DirectoryNode parent;
+    private final String name;
+
+    Dentry(DirectoryNode parent, String name) {
+        this.parent = parent;
+        this.name = name;
+    }
+
+    public DirectoryNode getParent() {
+        return this.parent;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("dentry(%s)", this.name);
+    }
+}
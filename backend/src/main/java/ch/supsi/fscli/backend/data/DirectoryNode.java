@@ -3,65 +3,548 @@ package ch.supsi.fscli.backend.data;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 /**
  * Represents a directory in the filesystem tree.
  * Directories contain named children (files, directories, or links).
+ * Mutations are synchronized; lookups and iteration take no lock and read
+ * the current {@link ChildTable}, which keeps insertion order for ls.
+ * Stored names go through the {@link NameTable}.
+ * <p>
+ * A directory can also be a reflink copy of another one (see
+ * {@link #reflinkCopy}): it starts out with no entries of its own and is
+ * opened, one level at a time, the first time either side needs it to
+ * differ: when it is read or changed, or just before its source changes.
+ * Read views (see {@link #pinView}) are built the same way, but stand in
+ * for the live nodes instead of creating new ones.
  */
 public class DirectoryNode extends FileSystemNode {
+    /** Slots above which {@link #namesMatching} splits the scan across the common pool. */
+    public static final int PARALLEL_SCAN_THRESHOLD = 1 << 15;
+
+    @JsonIgnore
+    private volatile ChildTable children = ChildTable.EMPTY;
+    @JsonIgnore
+    private volatile Reflink reflink;
+    /** Reflink bookkeeping of the tree this directory is in; null until it joins one. */
     @JsonIgnore
-    private final Map<String, FileSystemNode> children = new LinkedHashMap<>();
+    private volatile Reflink.Domain domain;
 
     public DirectoryNode() {
         super();
     }
     public synchronized void add(String name, FileSystemNode node) {
         if (name == null || name.isEmpty()) throw new IllegalArgumentException();
-        children.put(name, node);
-        node.setParent(this);
-        this.mtime = Instant.now();
-        node.atime = Instant.now();
+        // may swap in a table of our own, so it comes before the lookup
+        beforeMutation();
+        int slot = children.find(name);
+        if (slot < 0) {
+            appendEntry(name, node);
+            return;
+        }
+        FileSystemNode previous = children.nodeAt(slot);
+        children.replaceAt(slot, node);
+        if (previous != node) {
+            previous.detach(this, name);
+            node.attach(this, name);
+            bumpGeneration();
+        }
+        linked(node);
+    }
+    /**
+     * Adds the entry unless the name is already taken, checking and adding
+     * under one lock so a concurrent add of the same name cannot slip in
+     * between. Returns whether the entry was added.
+     */
+    public synchronized boolean addIfAbsent(String name, FileSystemNode node) {
+        if (name == null || name.isEmpty()) throw new IllegalArgumentException();
+        if (table().find(name) >= 0) return false;
+        appendEntry(name, node);
+        return true;
+    }
+    private void appendEntry(String name, FileSystemNode node) {
+        beforeMutation();
+        name = NameTable.intern(name);
+        ChildTable table = children;
+        if (!table.hasRoom()) {
+            table = table.resized(table.liveCount() * 2 + 1);
+            children = table;
+        }
+        table.append(name, node);
+        node.attach(this, name);
+        linked(node);
+    }
+    private void linked(FileSystemNode node) {
+        bumpGeneration();
+        long now = now();
+        this.mtime = now;
+        node.atime = now;
     }
     public synchronized FileSystemNode remove(String name) {
-        FileSystemNode node = children.remove(name);
-        if  (node != null) {
-            node.setParent(null);
-            this.mtime = Instant.now();
+        beforeMutation();
+        ChildTable table = children;
+        int slot = table.find(name);
+        if (slot < 0) return null;
+        FileSystemNode node = table.removeAt(slot);
+        // give memory back once a directory has emptied or mostly emptied
+        if (table.liveCount() == 0 || table.liveCount() < table.capacity() / 4) {
+            children = table.resized(table.liveCount() * 2);
         }
+        node.detach(this, name);
+        bumpGeneration();
+        this.mtime = now();
         return node;
     }
-    public synchronized boolean contains(String name) {
-        return children.containsKey(name);
+    /**
+     * Unlinks every child in one go and hands each to {@code action} once
+     * its entry is gone, for tearing down a subtree that was already cut off
+     * from the tree. The whole table is dropped at once instead of removing
+     * entries one by one. Cutting the subtree off already bumped the
+     * namespace generation, dropping cached lookups that went through it,
+     * so a long background teardown only bumps each directory's own
+     * generation instead of invalidating every cached lookup again.
+     */
+    public synchronized void unlinkAll(BiConsumer<String, FileSystemNode> action) {
+        Reflink state = reflink;
+        if (state != null && state.source != null) {
+            synchronized (domain) {
+                // an unopened copy has nothing of its own to tear down
+                if (state.copies.isEmpty()) {
+                    state.source.dropCopy(this);
+                    state.source = null;
+                    reflink = null;
+                }
+            }
+        }
+        beforeMutation();
+        ChildTable table = children;
+        children = ChildTable.EMPTY;
+        bumpGeneration();
+        table.forEach((name, node) -> {
+            node.detach(this, name);
+            action.accept(name, node);
+        });
+    }
+    /**
+     * Position of an entry in listing order, or -1 if there is no such
+     * entry. Costs O(entries).
+     */
+    public int indexOf(String name) {
+        int[] index = {0, -1};
+        table().forEach((entryName, node) -> {
+            if (index[1] < 0 && entryName.equals(name)) index[1] = index[0];
+            index[0]++;
+        });
+        return index[1];
+    }
+    /**
+     * Adds an entry at the given position in listing order, or last if the
+     * directory has fewer entries, as when putting back a removed entry.
+     * The entries are copied into a new table, so this costs O(entries).
+     */
+    public synchronized void insert(int position, String name, FileSystemNode node) {
+        if (name == null || name.isEmpty()) throw new IllegalArgumentException();
+        beforeMutation();
+        if (contains(name)) throw new IllegalArgumentException(name);
+        String stored = NameTable.intern(name);
+        ChildTable old = children;
+        ChildTable table = ChildTable.withCapacity(old.liveCount() + 1);
+        int[] index = {0};
+        old.forEach((entryName, child) -> {
+            if (index[0]++ == position) table.append(stored, node);
+            table.append(entryName, child);
+        });
+        if (position < 0 || position >= index[0]) table.append(stored, node);
+        children = table;
+        node.attach(this, stored);
+        bumpGeneration();
+        long now = now();
+        this.mtime = now;
+        node.atime = now;
+    }
+    public boolean contains(String name) {
+        return table().find(name) >= 0;
     }
-    public synchronized FileSystemNode get(String name) {
-        return children.get(name);
+    public FileSystemNode get(String name) {
+        return table().get(name);
+    }
+    /**
+     * Visits every child once, in insertion order, without copying the
+     * directory or taking its lock. Entries added or removed while the visit
+     * is in progress may or may not be seen.
+     */
+    public void forEachChild(BiConsumer<String, FileSystemNode> action) {
+        table().forEach(action);
+    }
+    @JsonIgnore
+    public int childCount() {
+        return table().liveCount();
+    }
+    /**
+     * Names accepted by the filter, in insertion order. Large directories
+     * are scanned in parallel chunks whose results are joined in order.
+     */
+    public List<String> namesMatching(Predicate<String> filter) {
+        ChildTable table = table();
+        int slots = table.slotCount();
+        if (slots <= PARALLEL_SCAN_THRESHOLD) {
+            List<String> names = new ArrayList<>();
+            table.collectNames(0, slots, filter, names);
+            return names;
+        }
+        return ForkJoinPool.commonPool().invoke(new ScanTask(table, 0, slots, filter));
     }
-    public synchronized List<String> listNames() {
-        return new ArrayList<>(children.keySet());
+    public List<String> listNames() {
+        ChildTable table = table();
+        List<String> names = new ArrayList<>(table.liveCount());
+        table.forEach((name, node) -> names.add(name));
+        return names;
     }
     @JsonProperty("children")
-    public synchronized Map<String, FileSystemNode> snapshot() {
-        return new LinkedHashMap<>(children);
+    public Map<String, FileSystemNode> snapshot() {
+        ChildTable table = table();
+        Map<String, FileSystemNode> copy = new LinkedHashMap<>(table.liveCount() * 2);
+        table.forEach(copy::put);
+        return copy;
     }
     @JsonProperty("children")
     @SuppressWarnings("unused")
     public synchronized void setChildren(Map<String, FileSystemNode> children) {
-        this.children.clear();
+        beforeMutation();
+        this.children.forEach((name, node) -> node.detach(this, name));
+        ChildTable table = ChildTable.withCapacity(children == null ? 0 : children.size());
         if (children != null) {
             for (Map.Entry<String, FileSystemNode> entry : children.entrySet()) {
-                this.children.put(entry.getKey(), entry.getValue());
-                entry.getValue().setParent(this);
+                // loaded names are fresh copies; share them with the rest of the tree
+                String name = NameTable.intern(entry.getKey());
+                table.append(name, entry.getValue());
+                entry.getValue().attach(this, name);
             }
         }
+        this.children = table;
+        bumpGeneration();
     }
     @JsonIgnore
-    public synchronized boolean isEmpty() {
-        return children.isEmpty();
+    public boolean isEmpty() {
+        return table().liveCount() == 0;
+    }
+
+    /**
+     * Makes this directory the root of a tree of its own: it becomes its
+     * own parent, and reflink copies and views taken anywhere in the tree
+     * are tracked apart from those of any other tree. Directories linked
+     * into the tree later join it. Costs O(directories) for a tree that is
+     * already populated, like a loaded image.
+     */
+    public void startTree() {
+        setParent(this);
+        adopt(new Reflink.Domain());
+    }
+
+    /**
+     * A directory linked into one that belongs to a tree joins that tree,
+     * with the directories below it that belong to none yet, like the
+     * subtree of a fresh copy.
+     */
+    @Override
+    void joined(DirectoryNode dir) {
+        Reflink.Domain tree = dir.domain;
+        if (tree != null && domain == null) adopt(tree);
+    }
+
+    private void adopt(Reflink.Domain tree) {
+        Deque<DirectoryNode> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            DirectoryNode dir = pending.pop();
+            dir.domain = tree;
+            dir.children.forEach((name, child) -> {
+                if (child.isDirectory() && ((DirectoryNode) child).domain == null) {
+                    pending.push((DirectoryNode) child);
+                }
+            });
+        }
+    }
+
+    /**
+     * The reflink domain of this directory's tree, starting one at the top
+     * of a tree that has none, for directories not under a filesystem root.
+     */
+    private Reflink.Domain domain() {
+        Reflink.Domain tree = domain;
+        if (tree != null) return tree;
+        DirectoryNode top = this;
+        while (top.parent != null && top.parent != top) top = top.parent;
+        synchronized (top) {
+            if (domain == null) top.adopt(top.domain != null ? top.domain : new Reflink.Domain());
+        }
+        return domain;
+    }
+
+    /**
+     * Whether read views of this directory's tree are pinned.
+     */
+    boolean viewsPinned() {
+        Reflink.Domain tree = domain;
+        return tree != null && tree.views > 0;
+    }
+
+    /**
+     * Returns a copy of this directory that shares its whole subtree until
+     * either side changes, in O(1) time and memory. The copy is opened one
+     * level at a time: the first time it is read or changed, or just before
+     * this directory changes, it gets fresh files and symlinks numbered by
+     * {@code inodes}, and subdirectories that are again unopened copies.
+     * The copy itself is returned without an inode number.
+     */
+    public DirectoryNode reflinkCopy(InodeTable inodes) {
+        if (inodes == null) throw new IllegalArgumentException();
+        synchronized (domain()) {
+            return reflinkCopyLocked(inodes);
+        }
+    }
+
+    /**
+     * Pins a read view of this subtree as it is now, in O(1): later changes
+     * to the live tree are not seen through it. The view keeps the inode
+     * numbers, metadata and hard links of the live nodes, so it can be
+     * listed or saved in place of them. Like a reflink copy it is opened one
+     * level at a time, so it only costs memory for the directories that are
+     * read or that change while it is pinned. Hand it back to
+     * {@link #releaseView()} when done.
+     */
+    public DirectoryNode pinView() {
+        Reflink.Domain tree = domain();
+        synchronized (tree) {
+            tree.views++;
+            return standInLocked(new IdentityHashMap<>(), null);
+        }
+    }
+
+    /**
+     * Releases a view returned by {@link #pinView()}. The live tree stops
+     * opening it, and whatever it alone still holds is left to the garbage
+     * collector.
+     */
+    public void releaseView() {
+        discardCopy();
+        Reflink.Domain tree = domain();
+        synchronized (tree) {
+            tree.views--;
+        }
+    }
+
+    /**
+     * Turns this directory into an unopened copy of {@code source}, as when
+     * rolling back to a snapshot taken with {@link #pinView()}. Like a view,
+     * the copy keeps the inode numbers, metadata and hard links of the
+     * nodes it stands in for; each claims its number in {@code inodes} as
+     * its directory is opened. Unopened copies of this directory are opened
+     * first so they keep the entries being replaced. The replaced entries
+     * are unlinked, so nothing below them still counts as in the tree, and
+     * then left to whatever still copies them and to the garbage collector.
+     * Costs O(entries of this directory).
+     */
+    public synchronized void resetToCopyOf(DirectoryNode source, InodeTable inodes) {
+        if (source == null || inodes == null || source == this) throw new IllegalArgumentException();
+        Reflink.Domain tree = domain();
+        if (source.domain != tree) throw new IllegalArgumentException();
+        synchronized (tree) {
+            openLocked();
+            Reflink own = reflink;
+            if (own != null) {
+                for (DirectoryNode copy : new ArrayList<>(own.copies)) {
+                    copy.openLocked();
+                }
+            }
+            // opening the copies settled any link back to us, so this cannot form a cycle
+            source.openLocked();
+            Reflink state = new Reflink(source, new IdentityHashMap<>(), inodes);
+            Reflink old = reflink;
+            if (old != null) state.copies.addAll(old.copies);
+            Reflink sourceState = source.reflink;
+            if (sourceState == null) {
+                sourceState = new Reflink();
+                source.reflink = sourceState;
+            }
+            if (sourceState.copies.isEmpty()) tree.sources++;
+            sourceState.copies.add(this);
+            ChildTable replaced = children;
+            children = ChildTable.EMPTY;
+            replaced.forEach((name, node) -> node.detach(this, name));
+            reflink = state;
+            copyMetadataFrom(source);
+            bumpGeneration();
+        }
+    }
+
+    /**
+     * Unregisters the unopened copies in this subtree that nothing copies in
+     * turn, so a copy being thrown away, like a dropped snapshot, is no
+     * longer opened by changes to its sources. Only the opened part of the
+     * subtree is walked.
+     */
+    public void discardCopy() {
+        synchronized (domain()) {
+            Deque<DirectoryNode> pending = new ArrayDeque<>();
+            pending.push(this);
+            while (!pending.isEmpty()) {
+                DirectoryNode dir = pending.pop();
+                Reflink state = dir.reflink;
+                if (state != null && state.source != null) {
+                    if (state.copies.isEmpty()) {
+                        state.source.dropCopy(dir);
+                        state.source = null;
+                        dir.reflink = null;
+                    }
+                    continue;
+                }
+                dir.children.forEach((name, child) -> {
+                    if (child.isDirectory()) pending.push((DirectoryNode) child);
+                });
+            }
+        }
+    }
+
+    private DirectoryNode reflinkCopyLocked(InodeTable inodes) {
+        DirectoryNode copy = new DirectoryNode();
+        copy.domain = domain;
+        copy.reflink = new Reflink(this, inodes);
+        registerCopyLocked(copy);
+        return copy;
+    }
+
+    private DirectoryNode standInLocked(Map<FileSystemNode, FileSystemNode> pinned, InodeTable inodes) {
+        DirectoryNode copy = new DirectoryNode();
+        copy.domain = domain;
+        copy.copyMetadataFrom(this);
+        copy.reflink = new Reflink(this, pinned, inodes);
+        registerCopyLocked(copy);
+        return copy;
+    }
+
+    private void registerCopyLocked(DirectoryNode copy) {
+        Reflink own = reflink;
+        if (own == null) {
+            own = new Reflink();
+            reflink = own;
+        }
+        if (own.copies.isEmpty()) domain.sources++;
+        own.copies.add(copy);
+    }
+
+    /**
+     * Current entries, opening this directory first if it is an unopened
+     * reflink copy. Ordinary directories pay one volatile read.
+     */
+    private ChildTable table() {
+        Reflink state = reflink;
+        if (state != null && state.source != null) {
+            synchronized (domain) {
+                openLocked();
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Called with this directory's lock held before its entries change, and
+     * before the metadata of an entry changes while read views are pinned:
+     * an unopened copy is opened, and unopened copies of this directory are
+     * opened while they can still see its current entries. A copy of an
+     * ancestor covers this directory too, so copies are opened down the
+     * path from any such ancestor first; that walk only happens while some
+     * reflink copy is still unopened.
+     */
+    void beforeMutation() {
+        Reflink.Domain tree = domain;
+        if (reflink == null && (tree == null || tree.sources == 0)) return;
+        synchronized (tree) {
+            openLocked();
+            if (tree.sources == 0) return;
+            List<DirectoryNode> path = new ArrayList<>();
+            for (DirectoryNode dir = this; dir != null; dir = dir.parent == dir ? null : dir.parent) {
+                path.add(dir);
+            }
+            // top-down: opening a copy of one level leaves copies of the next
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Reflink state = path.get(i).reflink;
+                if (state == null || state.copies.isEmpty()) continue;
+                for (DirectoryNode copy : new ArrayList<>(state.copies)) {
+                    copy.openLocked();
+                }
+            }
+        }
+    }
+
+    private void openLocked() {
+        Reflink state = reflink;
+        if (state == null || state.source == null) return;
+        DirectoryNode source = state.source;
+        // copies of copies open their source first
+        source.openLocked();
+        ChildTable from = source.children;
+        ChildTable table = ChildTable.withCapacity(from.liveCount());
+        from.forEach((name, child) -> {
+            FileSystemNode copy = state.pinned != null
+                    ? pinnedCopyLocked(child, state)
+                    : freshCopyLocked(child, state.inodes);
+            table.append(name, copy);
+            copy.attach(this, name);
+        });
+        source.dropCopy(this);
+        children = table;
+        // written after the entries, so a reader seeing no source sees them
+        state.source = null;
+        if (state.isSettled()) reflink = null;
+        // lookups open a copy before reading it, so none saw the entries replaced here
+        bumpGeneration();
+    }
+
+    private static FileSystemNode freshCopyLocked(FileSystemNode node, InodeTable inodes) {
+        FileSystemNode copy;
+        if (node.isDirectory()) {
+            copy = ((DirectoryNode) node).reflinkCopyLocked(inodes);
+        } else if (node.isLink()) {
+            copy = new LinkNode(((LinkNode) node).getTarget());
+        } else {
+            copy = new FileNode();
+        }
+        inodes.allocate(copy);
+        return copy;
+    }
+
+    private static FileSystemNode pinnedCopyLocked(FileSystemNode node, Reflink state) {
+        FileSystemNode copy = state.pinned.get(node);
+        // a second link to a node the copy already stands in for
+        if (copy != null) return copy;
+        if (node.isDirectory()) {
+            copy = ((DirectoryNode) node).standInLocked(state.pinned, state.inodes);
+        } else {
+            copy = node.isLink() ? new LinkNode(((LinkNode) node).getTarget()) : new FileNode();
+            copy.copyMetadataFrom(node);
+        }
+        if (state.inodes != null) state.inodes.claim(copy);
+        state.pinned.put(node, copy);
+        return copy;
+    }
+
+    private void dropCopy(DirectoryNode copy) {
+        Reflink state = reflink;
+        if (state == null || !state.copies.remove(copy)) return;
+        if (state.copies.isEmpty()) domain.sources--;
+        if (state.isSettled()) reflink = null;
     }
 
     @Override
@@ -76,4 +559,36 @@ public class DirectoryNode extends FileSystemNode {
     public String typeName() {
         return "directory";
     }
+
+    private static final class ScanTask extends RecursiveTask<List<String>> {
+        private static final int CHUNK = PARALLEL_SCAN_THRESHOLD / 4;
+
+        private final ChildTable table;
+        private final int from;
+        private final int to;
+        private final Predicate<String> filter;
+
+        ScanTask(ChildTable table, int from, int to, Predicate<String> filter) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+            this.filter = filter;
+        }
+
+        @Override
+        protected List<String> compute() {
+            if (to - from <= CHUNK) {
+                List<String> names = new ArrayList<>();
+                table.collectNames(from, to, filter, names);
+                return names;
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(table, from, mid, filter);
+            left.fork();
+            List<String> right = new ScanTask(table, mid, to, filter).compute();
+            List<String> names = left.join();
+            names.addAll(right);
+            return names;
+        }
+    }
 }
@@ -6,11 +6,17 @@ import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
 import java.time.Instant;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Base class for all filesystem nodes (files, directories, links).
  * Tracks metadata like creation time, modification time, and link count.
+ * Timestamps are kept as epoch nanoseconds read from a shared {@link NodeClock}
+ * and only turned into {@link Instant}s by the getters, which is also the form
+ * Jackson reads and writes.
+ * Each node remembers the directory entries it is linked under, so its name
+ * and absolute path are known without scanning the parent directory.
  * Supports JSON serialization with Jackson.
  */
 @JsonTypeInfo(
@@ -24,20 +30,27 @@ import java.util.concurrent.atomic.AtomicInteger;
         @JsonSubTypes.Type(value = LinkNode.class, name = "link")
 })
 public abstract class FileSystemNode {
-    private static final AtomicInteger ID_GEN = new AtomicInteger(1);
+    private static volatile NodeClock clock = NodeClock.SYSTEM;
 
-    protected final int id;
+    /** Inode number assigned by the owning filesystem's {@link InodeTable}; 0 until then. */
+    protected int id;
     protected int linkCount;
-    protected Instant ctime;
-    protected Instant mtime;
-    protected Instant atime;
+    protected long ctime;
+    protected long mtime;
+    protected long atime;
     @JsonIgnore
     protected DirectoryNode parent;
+    @JsonIgnore
+    protected String name;
+    /** Extra dentries of a hard-linked node; copied on write so readers need no lock. */
+    @JsonIgnore
+    private volatile List<Dentry> aliases;
+    @JsonIgnore
+    private volatile int generation;
 
     protected FileSystemNode() {
-        this.id = ID_GEN.getAndIncrement();
         this.linkCount = 1;
-        Instant now = Instant.now();
+        long now = now();
         this.ctime = this.mtime = this.atime = now;
         this.parent = null;
     }
@@ -50,28 +63,94 @@ public abstract class FileSystemNode {
         return this.linkCount;
     }
     public void incrementLinkCount() {
-        linkCount++;
-        this.ctime = Instant.now();
+        beforeChange();
+        synchronized (this) {
+            linkCount++;
+            this.ctime = now();
+        }
     }
     public void decrementLinkCount() {
-        linkCount = Math.max(0, linkCount - 1);
-        this.ctime = Instant.now();
+        beforeChange();
+        synchronized (this) {
+            linkCount = Math.max(0, linkCount - 1);
+            this.ctime = now();
+        }
     }
     @JsonProperty("ctime")
     public Instant getCTime() {
-        return this.ctime;
+        return toInstant(this.ctime);
     }
     @JsonProperty("mtime")
     public Instant getMTime() {
-        return this.mtime;
+        return toInstant(this.mtime);
     }
     @JsonProperty("atime")
     public Instant getATime() {
+        return toInstant(this.atime);
+    }
+    @JsonProperty("ctime")
+    @SuppressWarnings("unused")
+    public void setCTime(Instant ctime) {
+        this.ctime = toNanos(ctime);
+    }
+    @JsonProperty("mtime")
+    @SuppressWarnings("unused")
+    public void setMTime(Instant mtime) {
+        this.mtime = toNanos(mtime);
+    }
+    @JsonProperty("atime")
+    @SuppressWarnings("unused")
+    public void setATime(Instant atime) {
+        this.atime = toNanos(atime);
+    }
+    @JsonIgnore
+    public long getCTimeNanos() {
+        return this.ctime;
+    }
+    @JsonIgnore
+    public long getMTimeNanos() {
+        return this.mtime;
+    }
+    @JsonIgnore
+    public long getATimeNanos() {
         return this.atime;
     }
+    /**
+     * Puts back timestamps read with the {@code get*TimeNanos} getters, as
+     * when undoing a change.
+     */
+    public void restoreTimes(long ctime, long mtime, long atime) {
+        beforeChange();
+        this.ctime = ctime;
+        this.mtime = mtime;
+        this.atime = atime;
+    }
     public void touch() {
-        this.ctime = Instant.now();
-        this.mtime = Instant.now();
+        beforeChange();
+        long now = now();
+        this.ctime = now;
+        this.mtime = now;
+    }
+
+    /**
+     * Replaces the clock every node reads its timestamps from.
+     */
+    public static void setClock(NodeClock nodeClock) {
+        if (nodeClock == null) throw new IllegalArgumentException();
+        clock = nodeClock;
+    }
+    public static NodeClock getClock() {
+        return clock;
+    }
+    static long now() {
+        return clock.nowNanos();
+    }
+    private static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+    private static long toNanos(Instant instant) {
+        return instant == null ? 0L : instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
     }
     @JsonIgnore
     public DirectoryNode getParent() {
@@ -81,6 +160,149 @@ public abstract class FileSystemNode {
     public void setParent(DirectoryNode parent) {
         this.parent = parent;
     }
+    /**
+     * Version of whatever path resolution depends on in this node: the
+     * entries of a directory or the target of a symlink. Bumped on every
+     * such change so cached resolutions can be validated cheaply.
+     */
+    @JsonIgnore
+    public int getGeneration() {
+        return this.generation;
+    }
+    protected void bumpGeneration() {
+        this.generation++;
+    }
+    @JsonIgnore
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the name under which this node is linked in the given directory,
+     * or null if it is not linked there. Costs O(hard links), never O(siblings).
+     */
+    public String nameIn(DirectoryNode dir) {
+        if (this.name != null && this.parent == dir) return this.name;
+        List<Dentry> extra = aliases;
+        if (extra != null) {
+            for (Dentry d : extra) {
+                if (d.getParent() == dir) return d.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns every directory entry this node is linked under, primary first.
+     */
+    public List<Dentry> dentries() {
+        List<Dentry> extra = aliases;
+        List<Dentry> result = new ArrayList<>(extra == null ? 1 : extra.size() + 1);
+        if (this.name != null) result.add(new Dentry(this.parent, this.name));
+        if (extra != null) result.addAll(extra);
+        return result;
+    }
+
+    /**
+     * Builds the absolute path of this node from its primary dentries.
+     * Walks up once to size the buffer and once to fill it, so the work is
+     * O(depth) and the only allocation is the resulting string.
+     */
+    public String absolutePath() {
+        int len = 0;
+        for (FileSystemNode cur = this; !cur.isTopLevel(); cur = cur.parent) {
+            len += cur.name.length() + 1;
+        }
+        if (len == 0) return "/";
+        char[] buf = new char[len];
+        int pos = len;
+        for (FileSystemNode cur = this; !cur.isTopLevel(); cur = cur.parent) {
+            pos -= cur.name.length();
+            cur.name.getChars(0, cur.name.length(), buf, pos);
+            buf[--pos] = '/';
+        }
+        return new String(buf);
+    }
+
+    /*
+     * Dentry changes lock the node, not just the directory: a hard-linked
+     * file can be linked or unlinked from two directories at once, e.g. by
+     * a background teardown of a removed subtree.
+     */
+    synchronized void attach(DirectoryNode dir, String entryName) {
+        joined(dir);
+        if (this.name == null) {
+            this.parent = dir;
+            this.name = entryName;
+            return;
+        }
+        List<Dentry> extra = new ArrayList<>(aliases == null ? 1 : aliases.size() + 1);
+        if (aliases != null) extra.addAll(aliases);
+        extra.add(new Dentry(dir, entryName));
+        aliases = extra;
+    }
+
+    /**
+     * Called once this node is linked into {@code dir}.
+     */
+    void joined(DirectoryNode dir) {
+    }
+
+    synchronized void detach(DirectoryNode dir, String entryName) {
+        List<Dentry> extra = aliases;
+        if (this.parent == dir && entryName.equals(this.name)) {
+            if (extra == null || extra.isEmpty()) {
+                this.parent = null;
+                this.name = null;
+            } else {
+                Dentry promoted = extra.get(0);
+                this.parent = promoted.getParent();
+                this.name = promoted.getName();
+                aliases = extra.size() == 1 ? null : new ArrayList<>(extra.subList(1, extra.size()));
+            }
+            return;
+        }
+        if (extra != null) {
+            for (int i = 0; i < extra.size(); i++) {
+                Dentry d = extra.get(i);
+                if (d.getParent() == dir && d.getName().equals(entryName)) {
+                    List<Dentry> rest = new ArrayList<>(extra);
+                    rest.remove(i);
+                    aliases = rest.isEmpty() ? null : rest;
+                    return;
+                }
+            }
+        }
+    }
+
+    /*
+     * A read view copies a node's metadata when it opens a directory the
+     * node is linked in, so while views are pinned those directories are
+     * opened before the metadata changes.
+     */
+    void beforeChange() {
+        DirectoryNode dir = parent;
+        if (dir == null || !dir.viewsPinned()) return;
+        for (Dentry d : dentries()) {
+            d.getParent().beforeMutation();
+        }
+    }
+
+    /**
+     * Takes over the inode number and metadata of {@code other}, for a node
+     * standing in for it in a read view.
+     */
+    void copyMetadataFrom(FileSystemNode other) {
+        this.id = other.id;
+        this.linkCount = other.linkCount;
+        this.ctime = other.ctime;
+        this.mtime = other.mtime;
+        this.atime = other.atime;
+    }
+
+    private boolean isTopLevel() {
+        return this.name == null || this.parent == null || this.parent == this;
+    }
 
     @JsonProperty(value = "isDirectory", access = JsonProperty.Access.READ_ONLY)
     public abstract boolean isDirectory();
@@ -0,0 +1,144 @@
+package ch.supsi.fscli.backend.data;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Per-filesystem inode numbers. Each id indexes an array slot holding its
+ * node, so lookup by id is O(1). Released ids go on a free-list and are
+ * handed out again before the table grows, keeping ids dense and the array
+ * small. Ids start at 1; 0 means "not allocated".
+ * <p>
+ * Every filesystem owns its own table, so filesystems never contend on a
+ * shared counter. Methods synchronize on the table itself.
+ */
+public final class InodeTable {
+    private static final int INITIAL_CAPACITY = 64;
+    /** Saved ids above this are treated as corrupt rather than sizing the table to them. */
+    private static final int MAX_CLAIMED_ID = 1 << 26;
+
+    private FileSystemNode[] slots = new FileSystemNode[INITIAL_CAPACITY];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int next = 1;
+    private int size;
+
+    /**
+     * Gives the node a fresh id and returns it. A node that already has an
+     * id in this table keeps it.
+     */
+    public synchronized int allocate(FileSystemNode node) {
+        if (node.id > 0 && node.id < slots.length && slots[node.id] == node) return node.id;
+        int id = 0;
+        // entries claimed since they were freed are skipped here, not removed eagerly
+        while (id == 0 && freeCount > 0) {
+            int candidate = free[--freeCount];
+            if (slots[candidate] == null) id = candidate;
+        }
+        if (id == 0) id = next++;
+        ensureCapacity(id);
+        slots[id] = node;
+        node.id = id;
+        size++;
+        return id;
+    }
+
+    /**
+     * Gives every node of a subtree a fresh id under a single lock
+     * acquisition, as when publishing a copy that was built without ids.
+     */
+    public synchronized void allocateTree(FileSystemNode top) {
+        Deque<FileSystemNode> pending = new ArrayDeque<>();
+        pending.push(top);
+        while (!pending.isEmpty()) {
+            FileSystemNode node = pending.pop();
+            allocate(node);
+            if (node.isDirectory()) {
+                ((DirectoryNode) node).forEachChild((name, child) -> pending.push(child));
+            }
+        }
+    }
+
+    /**
+     * Claims the id the node already carries, as when loading a saved image.
+     * Returns the node now holding that id: the node itself, or whichever
+     * node claimed the id first, so the caller can tell duplicates apart.
+     * Nodes without a usable id get a fresh one.
+     */
+    public synchronized FileSystemNode claim(FileSystemNode node) {
+        int id = node.id;
+        if (id <= 0 || id > MAX_CLAIMED_ID) {
+            node.id = 0;
+            allocate(node);
+            return node;
+        }
+        ensureCapacity(id);
+        if (slots[id] != null) return slots[id];
+        if (id >= next) {
+            // ids skipped over by the image become free
+            for (int gap = next; gap < id; gap++) {
+                if (slots[gap] == null) pushFree(gap);
+            }
+            next = id + 1;
+        }
+        slots[id] = node;
+        size++;
+        return node;
+    }
+
+    /**
+     * An empty table that hands out only the ids free in this one, and those
+     * above them. The ids in use here stay reserved for the nodes holding
+     * them to {@link #claim} later, one at a time, without ever clashing
+     * with nodes numbered meanwhile; as when a snapshot comes back one
+     * directory at a time.
+     */
+    public synchronized InodeTable reserving() {
+        InodeTable table = new InodeTable();
+        table.slots = new FileSystemNode[slots.length];
+        table.next = next;
+        for (int i = 0; i < freeCount; i++) {
+            if (slots[free[i]] == null) table.pushFree(free[i]);
+        }
+        return table;
+    }
+
+    /**
+     * Frees the node's id for reuse. Does nothing if the node holds no id
+     * in this table.
+     */
+    public synchronized void release(FileSystemNode node) {
+        int id = node.id;
+        if (id <= 0 || id >= slots.length || slots[id] != node) return;
+        slots[id] = null;
+        node.id = 0;
+        pushFree(id);
+        size--;
+    }
+
+    /**
+     * Node holding the given id, or null.
+     */
+    public synchronized FileSystemNode get(int id) {
+        return id > 0 && id < slots.length ? slots[id] : null;
+    }
+
+    /**
+     * Number of ids in use.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(slots.length * 2, id + 1));
+        }
+    }
+
+    private void pushFree(int id) {
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = id;
+    }
+}
@@ -1,9 +1,8 @@
 package ch.supsi.fscli.backend.data;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import java.time.Instant;
-
 /**
  * Represents a symbolic link in the filesystem.
  * Stores a target path that can be absolute or relative.
@@ -11,7 +10,8 @@ import java.time.Instant;
 public class LinkNode extends FileSystemNode {
     private String target;
 
-    public LinkNode(String target) {
+    @JsonCreator
+    public LinkNode(@JsonProperty("target") String target) {
         super();
         this.target = target;
     }
@@ -21,9 +21,12 @@ public class LinkNode extends FileSystemNode {
     }
     @JsonProperty("target")
     public void setTarget(String target) {
+        beforeChange();
         this.target = target;
-        this.mtime = Instant.now();
-        this.ctime = Instant.now();
+        bumpGeneration();
+        long now = now();
+        this.mtime = now;
+        this.ctime = now;
     }
     @Override
     public boolean isDirectory() {
@@ -0,0 +1,63 @@
+package ch.supsi.fscli.backend.data;
+
+/**
+ * Filesystem-wide table of entry names. Directories intern the names they
+ * store, so a name repeated across the tree ("src", "main", "README") is
+ * held by a single {@code String} instead of one copy per occurrence, and
+ * names coming out of the lexer and the path parser are interned too, so
+ * most lookups match on identity before comparing characters.
+ * <p>
+ * The table is a bounded, lock-free cache rather than a set of every name
+ * ever seen, so unique names never pile up and no bookkeeping is needed
+ * when entries go away. It is set-associative: a name hashes to a bucket of
+ * {@link #WAYS} slots, each holding a name, its precomputed hash and a flag
+ * set once the name has been reused. A miss replaces an empty or never
+ * reused slot, so one-off names churn among themselves while the names
+ * that actually repeat stay put; only when every slot of a bucket has been
+ * reused are the flags reset. Races between threads are benign: a name is
+ * always checked with {@code equals} before being returned, so the worst
+ * outcome is a missed sharing opportunity.
+ */
+public final class NameTable {
+    private static final int WAYS = 4;
+    private static final int BUCKETS = 1 << 14;
+    private static final String[] NAMES = new String[BUCKETS * WAYS];
+    private static final int[] HASHES = new int[BUCKETS * WAYS];
+    private static final boolean[] REUSED = new boolean[BUCKETS * WAYS];
+
+    private NameTable() {}
+
+    /**
+     * Returns the canonical instance of {@code name}: an equal string
+     * interned earlier if the table still holds one, {@code name} itself
+     * otherwise.
+     */
+    public static String intern(String name) {
+        if (name == null) return null;
+        // String caches its hash, so this is computed once per instance
+        int h = name.hashCode();
+        int base = ((h ^ (h >>> 16)) & (BUCKETS - 1)) * WAYS;
+        int victim = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            String cached = NAMES[i];
+            if (cached == null) {
+                if (victim < 0) victim = i;
+                continue;
+            }
+            if (cached == name || (HASHES[i] == h && cached.equals(name))) {
+                if (!REUSED[i]) REUSED[i] = true;
+                return cached;
+            }
+            if (victim < 0 && !REUSED[i]) victim = i;
+        }
+        if (victim < 0) {
+            // every slot earned its place once; start over with the bucket
+            for (int i = base; i < base + WAYS; i++) REUSED[i] = false;
+            victim = base + (h >>> 30);
+        }
+        REUSED[victim] = false;
+        HASHES[victim] = h;
+        NAMES[victim] = name;
+        return name;
+    }
+}
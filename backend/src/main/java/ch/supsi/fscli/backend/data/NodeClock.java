@@ -0,0 +1,26 @@
+package ch.supsi.fscli.backend.data;
+
+/**
+ * Source of node timestamps, in nanoseconds since the epoch.
+ * Each mutation reads it once and stamps every affected field with the same
+ * value. Replace it with {@link FileSystemNode#setClock} for reproducible
+ * timestamps, e.g. in tests or when replaying a session.
+ */
+@FunctionalInterface
+public interface NodeClock {
+    /**
+     * Wall-clock time sampled once at startup and advanced with
+     * {@link System#nanoTime()}: monotonic, nanosecond resolution and free of
+     * allocation, at the price of not following later wall-clock adjustments.
+     */
+    NodeClock SYSTEM = new NodeClock() {
+        private final long offset = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+        @Override
+        public long nowNanos() {
+            return System.nanoTime() + offset;
+        }
+    };
+
+    long nowNanos();
+}
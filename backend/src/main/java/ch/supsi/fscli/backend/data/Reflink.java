@@ -0,0 +1,73 @@
+package ch.supsi.fscli.backend.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copy-on-write bookkeeping of a directory taking part in a reflink copy.
+ * A directory can be an unopened copy (it has a {@link #source} and no
+ * entries of its own yet), a source with unopened copies, or both when
+ * copies are chained. All of it is guarded by the {@link Domain} of the
+ * tree the directory belongs to, which is only locked when a directory
+ * actually carries this state.
+ */
+final class Reflink {
+    /**
+     * Reflink bookkeeping of one tree: its lock and counters. Each tree has
+     * its own, so copies taken in one filesystem cost nothing to changes in
+     * another. Copies and views belong to the domain of their source.
+     * <p>
+     * The domain object is the innermost lock: held while directories are
+     * opened, never while waiting for a directory's own lock.
+     */
+    static final class Domain {
+        /**
+         * Number of directories that currently have unopened copies. While
+         * it is 0, changes skip reflink bookkeeping altogether.
+         */
+        volatile int sources;
+
+        /**
+         * Number of read views currently pinned. While it is 0, metadata
+         * changes skip opening the copies that stand for the changed node.
+         */
+        volatile int views;
+    }
+
+    /** Directory this one copies, until it is opened. */
+    volatile DirectoryNode source;
+    /**
+     * Numbers the nodes created when this directory is opened; null in a
+     * read view. Alongside {@link #pinned}, the stand-ins claim the numbers
+     * of the nodes they stand in for, as when restoring a snapshot.
+     */
+    final InodeTable inodes;
+    /**
+     * For a read view or a restored tree, the node standing in for each
+     * node reached so far, shared by the whole copy so hard links stay
+     * shared.
+     */
+    final Map<FileSystemNode, FileSystemNode> pinned;
+    /** Unopened copies of this directory. */
+    final List<DirectoryNode> copies = new ArrayList<>(1);
+
+    /** State of a directory that is only a source. */
+    Reflink() {
+        this(null, null, null);
+    }
+
+    Reflink(DirectoryNode source, InodeTable inodes) {
+        this(source, null, inodes);
+    }
+
+    Reflink(DirectoryNode source, Map<FileSystemNode, FileSystemNode> pinned, InodeTable inodes) {
+        this.source = source;
+        this.pinned = pinned;
+        this.inodes = inodes;
+    }
+
+    boolean isSettled() {
+        return source == null && copies.isEmpty();
+    }
+}
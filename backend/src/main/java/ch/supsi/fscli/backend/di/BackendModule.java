@@ -6,7 +6,7 @@ import ch.supsi.fscli.backend.controller.FileSystemPersistenceController;
 import ch.supsi.fscli.backend.controller.HistoryController;
 import ch.supsi.fscli.backend.controller.PreferencesController;
 import ch.supsi.fscli.backend.core.FileSystem;
-import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.FileSystemFactory;
 import ch.supsi.fscli.backend.provider.parser.CommandParser;
 import ch.supsi.fscli.backend.provider.resolver.PathResolver;
 import ch.supsi.fscli.backend.service.FileSystemPersistenceService;
@@ -42,7 +42,7 @@ public class BackendModule extends AbstractModule {
     @Provides
     @Singleton
     FileSystem provideFileSystem() {
-        return new InMemoryFileSystem();
+        return FileSystemFactory.newFileSystem();
     }
     
     @Provides
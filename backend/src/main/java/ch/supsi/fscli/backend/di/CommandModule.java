@@ -1,7 +1,9 @@
 package ch.supsi.fscli.backend.di;
 
+import ch.supsi.fscli.backend.core.command.BeginCommand;
 import ch.supsi.fscli.backend.core.command.CdCommand;
 import ch.supsi.fscli.backend.core.command.Command;
+import ch.supsi.fscli.backend.core.command.CommitCommand;
 import ch.supsi.fscli.backend.core.command.CpCommand;
 import ch.supsi.fscli.backend.core.command.FortuneCommand;
 import ch.supsi.fscli.backend.core.command.LnCommand;
@@ -10,7 +12,9 @@ import ch.supsi.fscli.backend.core.command.MkdirCommand;
 import ch.supsi.fscli.backend.core.command.MvCommand;
 import ch.supsi.fscli.backend.core.command.PwdCommand;
 import ch.supsi.fscli.backend.core.command.RmCommand;
+import ch.supsi.fscli.backend.core.command.RollbackCommand;
 import ch.supsi.fscli.backend.core.command.RmdirCommand;
+import ch.supsi.fscli.backend.core.command.SnapshotCommand;
 import ch.supsi.fscli.backend.core.command.TouchCommand;
 import com.google.inject.AbstractModule;
 import com.google.inject.multibindings.Multibinder;
@@ -24,7 +28,9 @@ public class CommandModule extends AbstractModule {
     @Override
     protected void configure() {
         Multibinder<Command> commandBinder = Multibinder.newSetBinder(binder(), Command.class);
+        commandBinder.addBinding().to(BeginCommand.class);
         commandBinder.addBinding().to(CdCommand.class);
+        commandBinder.addBinding().to(CommitCommand.class);
         commandBinder.addBinding().to(CpCommand.class);
         commandBinder.addBinding().to(LnCommand.class);
         commandBinder.addBinding().to(LsCommand.class);
@@ -33,6 +39,8 @@ public class CommandModule extends AbstractModule {
         commandBinder.addBinding().to(PwdCommand.class);
         commandBinder.addBinding().to(RmCommand.class);
         commandBinder.addBinding().to(RmdirCommand.class);
+        commandBinder.addBinding().to(RollbackCommand.class);
+        commandBinder.addBinding().to(SnapshotCommand.class);
         commandBinder.addBinding().to(TouchCommand.class);
         commandBinder.addBinding().to(FortuneCommand.class);
     }
@@ -2,11 +2,14 @@ package ch.supsi.fscli.backend.i18n;
 
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.function.Supplier;
 
 public class BackendMessageProvider {
 
     private static final String BUNDLE_NAME = "messages_backend";
     private static Locale currentLocale = Locale.getDefault();
+    /** Locale of the session running a command on this thread, if any. */
+    private static final ThreadLocal<Locale> sessionLocale = new ThreadLocal<>();
 
     private BackendMessageProvider() {}
 
@@ -15,13 +18,32 @@ public class BackendMessageProvider {
     }
 
     public static Locale getLocale() {
-        return currentLocale;
+        Locale session = sessionLocale.get();
+        return session != null ? session : currentLocale;
+    }
+
+    /**
+     * Runs {@code action} with messages on this thread in {@code locale},
+     * or in the global locale if it is null.
+     */
+    public static <T> T withLocale(Locale locale, Supplier<T> action) {
+        Locale previous = sessionLocale.get();
+        sessionLocale.set(locale);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                sessionLocale.remove();
+            } else {
+                sessionLocale.set(previous);
+            }
+        }
     }
 
     public static String get(String key, Object... args) {
         ResourceBundle bundle = ResourceBundle.getBundle(
                 BUNDLE_NAME,
-                currentLocale,
+                getLocale(),
                 BackendMessageProvider.class.getClassLoader()
         );
         String pattern = bundle.getString(key);
@@ -3,16 +3,23 @@ package ch.supsi.fscli.backend.provider.executor;
 import ch.supsi.fscli.backend.core.command.Command;
 import ch.supsi.fscli.backend.core.CommandResult;
 import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.Glob;
 import ch.supsi.fscli.backend.core.exception.FSException;
 import ch.supsi.fscli.backend.core.exception.InvalidCommandException;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.provider.parser.BraceExpansion;
 import ch.supsi.fscli.backend.provider.parser.CommandParser;
 import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
+import ch.supsi.fscli.backend.provider.parser.ExpandedArguments;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Executes parsed commands on the filesystem.
@@ -34,6 +41,10 @@ public class CommandExecutor {
     }
     
     public CommandResult execute(String commandString) {
+        return execute(commandString, false);
+    }
+
+    private CommandResult execute(String commandString, boolean inBatch) {
         try {
             CommandSyntax parsedCommand = parser.parse(commandString);
             
@@ -42,6 +53,10 @@ public class CommandExecutor {
                 return CommandResult.error(
                         BackendMessageProvider.get("unknownCommand") + ": " + parsedCommand.getCommandName());
             }
+            if (inBatch && command.controlsTransaction()) {
+                return CommandResult.error(
+                        BackendMessageProvider.get("transactionInBatch") + ": " + command.getName());
+            }
             
             // Expand wildcards in arguments based on command's policy
             CommandSyntax expandedCommand = command.shouldExpandWildcards()
@@ -61,6 +76,34 @@ public class CommandExecutor {
         }
     }
 
+    /**
+     * Runs the commands as one transaction: either all of them take effect,
+     * or, as soon as one fails, everything the batch changed is rolled back
+     * and the remaining commands are skipped. Changes from other threads
+     * wait until the batch is done. Commands that open or end a
+     * transaction fail inside a batch.
+     *
+     * @return the results of the commands that ran, the failing one last
+     */
+    public List<CommandResult> executeBatch(List<String> commandStrings) {
+        List<CommandResult> results = new ArrayList<>(commandStrings.size());
+        try {
+            fileSystem.begin();
+            for (String commandString : commandStrings) {
+                CommandResult result = execute(commandString, true);
+                results.add(result);
+                if (!result.isSuccess()) {
+                    fileSystem.rollback();
+                    return results;
+                }
+            }
+            fileSystem.commit();
+        } catch (FSException e) {
+            results.add(CommandResult.error(e.getMessage()));
+        }
+        return results;
+    }
+
     public Map<String, Command> getAvailableCommands() {
         return new HashMap<>(commands);
     }
@@ -69,38 +112,81 @@ public class CommandExecutor {
         return commands.get(name);
     }
 
-    private CommandSyntax expandWildcards(CommandSyntax syntax, Command command) throws FSException {
+    private CommandSyntax expandWildcards(CommandSyntax syntax, Command command) throws InvalidCommandException {
         String commandName = syntax.getCommandName();
-        List<String> originalArgs = syntax.getArguments();
-        List<String> expandedArgs = new ArrayList<>();
+        ExpandedArguments originalArgs = ExpandedArguments.of(syntax.getArguments());
 
-        // Separate flags from non-flag arguments
+        // Separate flags from non-flag arguments; a brace expansion is never
+        // a flag, so its words stay ungenerated
         List<String> flags = new ArrayList<>();
-        List<String> nonFlagArgs = new ArrayList<>();
+        List<ExpandedArguments.Part> nonFlagArgs = new ArrayList<>();
+        long nonFlagCount = 0;
 
-        for (String arg : originalArgs) {
-            if (arg.startsWith("-")) {
-                flags.add(arg);
+        for (ExpandedArguments.Part arg : originalArgs.parts()) {
+            if (arg.literal() != null && arg.literal().startsWith("-")) {
+                flags.add(arg.literal());
             } else {
                 nonFlagArgs.add(arg);
+                nonFlagCount += arg.count();
             }
         }
 
-        List<String> expandedNonFlagArgs = new ArrayList<>();
-        for (int i = 0; i < nonFlagArgs.size(); i++) {
-            String arg = nonFlagArgs.get(i);
-            if (command.shouldExpandArgument(i, nonFlagArgs.size())) {
-                List<String> expanded = fileSystem.expWildcard(arg, fileSystem.getCwd());
-                expandedNonFlagArgs.addAll(expanded);
+        // Reconstruct arguments with flags first, then expanded args; patterns
+        // are only walked as the command reads its arguments
+        ExpandedArguments expandedArgs = new ExpandedArguments();
+        flags.forEach(expandedArgs::addLiteral);
+        DirectoryNode cwd = fileSystem.getCwd();
+        // commands number their arguments with ints
+        if (nonFlagCount > Integer.MAX_VALUE) {
+            throw new InvalidCommandException(BackendMessageProvider.get("tooManyArguments") + ": " + nonFlagCount);
+        }
+        int total = (int) nonFlagCount;
+        int index = 0;
+        for (ExpandedArguments.Part arg : nonFlagArgs) {
+            int first = index;
+            index += Math.toIntExact(arg.count());
+            String literal = arg.literal();
+            if (literal != null) {
+                if (command.shouldExpandArgument(first, total) && Glob.isGlob(literal)) {
+                    expandedArgs.addExpansion(() -> fileSystem.glob(literal, cwd));
+                } else {
+                    expandedArgs.addLiteral(literal);
+                }
+            } else if (arg instanceof BraceExpansion braces && !braces.mayGlob()) {
+                expandedArgs.addPart(arg);
             } else {
-                expandedNonFlagArgs.add(arg);
+                expandedArgs.addExpansion(() -> globEach(arg.iterator(), first, total, command, cwd));
             }
         }
 
-        // Reconstruct arguments with flags first, then expanded args
-        expandedArgs.addAll(flags);
-        expandedArgs.addAll(expandedNonFlagArgs);
-
         return new CommandSyntax(commandName, expandedArgs);
     }
+
+    /**
+     * The words of an expansion, each replaced by its matches where the
+     * command expands wildcards at that position.
+     */
+    private Iterator<String> globEach(Iterator<String> words, int first, int total, Command command, DirectoryNode cwd) {
+        return new Iterator<>() {
+            private int index = first;
+            private Iterator<String> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && words.hasNext()) {
+                    String word = words.next();
+                    current = command.shouldExpandArgument(index++, total) && Glob.isGlob(word)
+                            ? fileSystem.glob(word, cwd)
+                            : Collections.singletonList(word).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
 }
@@ -0,0 +1,335 @@
+package ch.supsi.fscli.backend.provider.parser;
+
+import ch.supsi.fscli.backend.core.exception.InvalidCommandException;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Shell brace expansion of one word: {@code proj/{a,b,c}/src} stands for
+ * three words, {@code f{1..100000}} for a hundred thousand and
+ * {@code {a..e}} for five. Alternatives nest, sequences take an optional
+ * step ({@code {0..100..10}}), may count down, and are zero padded when an
+ * end has a leading zero ({@code {01..10}}). Braces holding neither a comma
+ * nor a valid sequence, and unmatched ones, stand for themselves.
+ * <p>
+ * The word is parsed once into a tree whose size is known up front; words
+ * are never stored, but generated from their index, the leftmost brace
+ * varying slowest like in bash. The expansion is thus a random access list
+ * as cheap to hold as the word it came from.
+ * <p>
+ * Characters escaped with a backslash take no part in the syntax.
+ */
+public final class BraceExpansion implements ExpandedArguments.Part {
+    private final Node root;
+    private final long count;
+    private final boolean mayGlob;
+
+    private BraceExpansion(Node root, boolean mayGlob) {
+        this.root = root;
+        this.count = root.count();
+        this.mayGlob = mayGlob;
+    }
+
+    /**
+     * Parses a word, or returns null if it has no brace to expand.
+     *
+     * @throws InvalidCommandException if the word expands to more words than
+     *                                 can be counted
+     */
+    public static BraceExpansion parse(String word) throws InvalidCommandException {
+        Parser parser = new Parser(word);
+        try {
+            Node root = parser.sequence(word.length());
+            return parser.expands ? new BraceExpansion(root, parser.mayGlob) : null;
+        } catch (ArithmeticException e) {
+            throw new InvalidCommandException(BackendMessageProvider.get("braceExpansionTooLarge") + ": " + word);
+        }
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public String get(long index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException(Long.toString(index));
+        StringBuilder word = new StringBuilder();
+        root.append(index, word);
+        return word.toString();
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Whether some word may contain glob syntax. Words of an expansion for
+     * which this is false never need a wildcard walk.
+     */
+    public boolean mayGlob() {
+        return mayGlob;
+    }
+
+    private interface Node {
+        long count();
+
+        void append(long index, StringBuilder word);
+    }
+
+    private record Literal(String text) implements Node {
+        @Override
+        public long count() {
+            return 1;
+        }
+
+        @Override
+        public void append(long index, StringBuilder word) {
+            word.append(text);
+        }
+    }
+
+    /** Every combination of its parts, the last one varying fastest. */
+    private static final class Concat implements Node {
+        private final Node[] parts;
+        private final long count;
+
+        Concat(Node[] parts) {
+            this.parts = parts;
+            long c = 1;
+            for (Node part : parts) c = Math.multiplyExact(c, part.count());
+            this.count = c;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void append(long index, StringBuilder word) {
+            // index in mixed radix, one digit per part
+            long[] digits = new long[parts.length];
+            for (int i = parts.length - 1; i >= 0; i--) {
+                long radix = parts[i].count();
+                digits[i] = index % radix;
+                index /= radix;
+            }
+            for (int i = 0; i < parts.length; i++) {
+                parts[i].append(digits[i], word);
+            }
+        }
+    }
+
+    /** The words of each alternative in turn. */
+    private static final class Alternatives implements Node {
+        private final Node[] alternatives;
+        /** Index of the first word of each alternative, and the total. */
+        private final long[] starts;
+
+        Alternatives(Node[] alternatives) {
+            this.alternatives = alternatives;
+            this.starts = new long[alternatives.length + 1];
+            for (int i = 0; i < alternatives.length; i++) {
+                starts[i + 1] = Math.addExact(starts[i], alternatives[i].count());
+            }
+        }
+
+        @Override
+        public long count() {
+            return starts[alternatives.length];
+        }
+
+        @Override
+        public void append(long index, StringBuilder word) {
+            int lo = 0;
+            int hi = alternatives.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (starts[mid] <= index) lo = mid;
+                else hi = mid - 1;
+            }
+            alternatives[lo].append(index - starts[lo], word);
+        }
+    }
+
+    /** {@code {from..to..step}} over numbers or characters. */
+    private static final class Sequence implements Node {
+        private final long from;
+        private final long step;
+        private final long count;
+        private final int width;
+        private final boolean characters;
+
+        Sequence(long from, long to, long step, int width, boolean characters) {
+            long magnitude = step == 0 ? 1 : Math.abs(step);
+            this.from = from;
+            this.step = to >= from ? magnitude : -magnitude;
+            this.count = Math.addExact(Math.abs(Math.subtractExact(to, from)) / magnitude, 1);
+            this.width = width;
+            this.characters = characters;
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void append(long index, StringBuilder word) {
+            long value = from + index * step;
+            if (characters) {
+                word.append((char) value);
+                return;
+            }
+            // the sign counts towards the width, like in bash
+            String digits = Long.toString(Math.abs(value));
+            int length = digits.length();
+            if (value < 0) {
+                word.append('-');
+                length++;
+            }
+            for (; length < width; length++) word.append('0');
+            word.append(digits);
+        }
+    }
+
+    private static final class Parser {
+        private final String word;
+        private int pos;
+        boolean expands;
+        boolean mayGlob;
+
+        Parser(String word) {
+            this.word = word;
+        }
+
+        /** Parses up to {@code end}, which must not split a brace. */
+        Node sequence(int end) {
+            List<Node> parts = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            while (pos < end) {
+                char c = word.charAt(pos);
+                if (c == '\\' && pos + 1 < end) {
+                    text.append(word.charAt(pos + 1));
+                    pos += 2;
+                    continue;
+                }
+                if (c == '{') {
+                    Node brace = brace(end);
+                    if (brace != null) {
+                        if (!text.isEmpty()) parts.add(literal(text));
+                        text.setLength(0);
+                        parts.add(brace);
+                        continue;
+                    }
+                }
+                text.append(c);
+                pos++;
+            }
+            if (!text.isEmpty() || parts.isEmpty()) parts.add(literal(text));
+            return parts.size() == 1 ? parts.get(0) : new Concat(parts.toArray(new Node[0]));
+        }
+
+        /**
+         * Parses the brace at {@code pos} and moves past it, or returns null
+         * and stays put if it is not an expansion.
+         */
+        private Node brace(int end) {
+            int open = pos;
+            List<Integer> commas = new ArrayList<>();
+            int close = -1;
+            int depth = 0;
+            for (int i = open + 1; i < end && close < 0; i++) {
+                char c = word.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    if (depth == 0) close = i;
+                    else depth--;
+                } else if (c == ',' && depth == 0) {
+                    commas.add(i);
+                }
+            }
+            if (close < 0) {
+                return null;
+            }
+            if (commas.isEmpty()) {
+                Node range = range(word.substring(open + 1, close));
+                if (range == null) return null;
+                expands = true;
+                pos = close + 1;
+                return range;
+            }
+            expands = true;
+            commas.add(close);
+            Node[] alternatives = new Node[commas.size()];
+            pos = open + 1;
+            for (int i = 0; i < alternatives.length; i++) {
+                alternatives[i] = sequence(commas.get(i));
+                pos = commas.get(i) + 1;
+            }
+            return new Alternatives(alternatives);
+        }
+
+        private static Node range(String body) {
+            String[] ends = body.split("\\.\\.", -1);
+            if (ends.length != 2 && ends.length != 3) return null;
+            long step = 1;
+            if (ends.length == 3) {
+                if (!isNumber(ends[2])) return null;
+                step = Long.parseLong(ends[2]);
+            }
+            if (isNumber(ends[0]) && isNumber(ends[1])) {
+                int width = padded(ends[0]) || padded(ends[1]) ? Math.max(ends[0].length(), ends[1].length()) : 0;
+                return new Sequence(Long.parseLong(ends[0]), Long.parseLong(ends[1]), step, width, false);
+            }
+            if (ends[0].length() == 1 && ends[1].length() == 1
+                    && Character.isLetter(ends[0].charAt(0)) && Character.isLetter(ends[1].charAt(0))) {
+                return new Sequence(ends[0].charAt(0), ends[1].charAt(0), step, 0, true);
+            }
+            return null;
+        }
+
+        /** Whether the text is an integer that fits a long. */
+        private static boolean isNumber(String text) {
+            int start = text.startsWith("-") ? 1 : 0;
+            if (text.length() == start || text.length() - start > 18) return false;
+            for (int i = start; i < text.length(); i++) {
+                if (!Character.isDigit(text.charAt(i)) || text.charAt(i) > '9') return false;
+            }
+            return true;
+        }
+
+        private static boolean padded(String number) {
+            int start = number.startsWith("-") ? 1 : 0;
+            return number.length() > start + 1 && number.charAt(start) == '0';
+        }
+
+        private Node literal(StringBuilder text) {
+            String s = text.toString();
+            if (s.indexOf('*') >= 0 || s.indexOf('?') >= 0 || s.indexOf('[') >= 0) mayGlob = true;
+            return new Literal(s);
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package ch.supsi.fscli.backend.provider.parser;
 
 import ch.supsi.fscli.backend.core.exception.InvalidCommandException;
+import ch.supsi.fscli.backend.data.NameTable;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Tokenizes command strings with support for quotes and escaping.
+ * Tokens are interned in the {@link NameTable}, so a bare name typed at the
+ * prompt is usually the very instance its directory entry holds.
+ * <p>
+ * A token with unquoted braces is a {@link BraceExpansion}: it stays one
+ * entry of the returned list until its words are read. Quoted and escaped
+ * characters take no part in the brace syntax.
  */
 public class CommandLexer {
+    /** Characters with a meaning in brace expansion. */
+    private static final String BRACE_SYNTAX = "{},.\\";
 
-    public List<String> tokenize(String input) throws InvalidCommandException {
+    public ExpandedArguments tokenize(String input) throws InvalidCommandException {
         if (input == null || input.trim().isEmpty()) {
             throw new InvalidCommandException(BackendMessageProvider.get("commandEmpty"));
         }
-        List<String> tokens = new ArrayList<>();
+        ExpandedArguments tokens = new ExpandedArguments();
         StringBuilder current = new StringBuilder();
+        // the token as brace syntax, with its quoted characters escaped
+        StringBuilder braceSource = new StringBuilder();
+        boolean braces = false;
         boolean inSingleQuote = false;
         boolean inDoubleQuote = false;
         boolean escaped = false;
@@ -24,6 +33,7 @@ public class CommandLexer {
             char c = input.charAt(i);
             if (escaped) {
                 current.append(c);
+                appendQuoted(braceSource, c);
                 escaped = false;
                 continue;
             }
@@ -41,12 +51,20 @@ public class CommandLexer {
             }
             if (Character.isWhitespace(c) && !inSingleQuote && !inDoubleQuote) {
                 if (!current.isEmpty()) {
-                    tokens.add(current.toString());
+                    addToken(tokens, current, braces ? braceSource : null);
                     current = new StringBuilder();
+                    braceSource = new StringBuilder();
+                    braces = false;
                 }
                 continue;
             }
             current.append(c);
+            if (inSingleQuote || inDoubleQuote) {
+                appendQuoted(braceSource, c);
+            } else {
+                braceSource.append(c);
+                braces |= c == '{';
+            }
         }
         if (inSingleQuote || inDoubleQuote) {
             throw new InvalidCommandException(BackendMessageProvider.get("unclosedQuote"));
@@ -55,7 +73,7 @@ public class CommandLexer {
             throw new InvalidCommandException(BackendMessageProvider.get("trailingEscape"));
         }
         if (!current.isEmpty()) {
-            tokens.add(current.toString());
+            addToken(tokens, current, braces ? braceSource : null);
         }
         if (tokens.isEmpty()) {
             throw new InvalidCommandException(BackendMessageProvider.get("commandEmpty"));
@@ -63,6 +81,23 @@ public class CommandLexer {
         return tokens;
     }
 
+    private static void addToken(ExpandedArguments tokens, StringBuilder token, StringBuilder braceSource)
+            throws InvalidCommandException {
+        BraceExpansion expansion = braceSource == null ? null : BraceExpansion.parse(braceSource.toString());
+        if (expansion != null) {
+            tokens.addPart(expansion);
+        } else {
+            tokens.addLiteral(NameTable.intern(token.toString()));
+        }
+    }
+
+    private static void appendQuoted(StringBuilder braceSource, char c) {
+        if (BRACE_SYNTAX.indexOf(c) >= 0) {
+            braceSource.append('\\');
+        }
+        braceSource.append(c);
+    }
+
     public boolean validateCommandName(String name) {
         if (name == null || name.isEmpty()) {
             return false;
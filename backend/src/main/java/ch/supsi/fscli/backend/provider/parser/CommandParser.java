@@ -17,7 +17,7 @@ public class CommandParser {
     }
 
     public CommandSyntax parse(String commandString) throws InvalidCommandException {
-        List<String> tokens = lexer.tokenize(commandString);
+        ExpandedArguments tokens = lexer.tokenize(commandString);
 
         if (tokens.isEmpty()) {
             throw new InvalidCommandException(BackendMessageProvider.get("noCommandSpecified"));
@@ -31,7 +31,7 @@ public class CommandParser {
             );
         }
 
-        List<String> arguments = tokens.subList(1, tokens.size());
+        List<String> arguments = tokens.skip(1);
 
         return new CommandSyntax(commandName, arguments);
     }
@@ -30,6 +30,16 @@ public class CommandSyntax {
         return arguments.get(index);
     }
     
+    /**
+     * The arguments from an index on; expanded arguments stay unexpanded.
+     */
+    public List<String> getArgumentsFrom(int index) {
+        if (arguments instanceof ExpandedArguments expanded) {
+            return expanded.skip(index);
+        }
+        return arguments.subList(Math.min(index, arguments.size()), arguments.size());
+    }
+    
     public boolean hasArguments() {
         return !arguments.isEmpty();
     }
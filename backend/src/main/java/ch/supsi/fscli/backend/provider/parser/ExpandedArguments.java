@@ -0,0 +1,235 @@
+package ch.supsi.fscli.backend.provider.parser;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Word list whose words are generated while it is iterated. Each part is a
+ * word of the command line or what it expands to: a brace expansion knows
+ * how many words it has and makes any of them on demand, a wildcard walks
+ * the tree as it is read. A command that only loops over its arguments
+ * gets them one at a time.
+ * <p>
+ * The size and indexed access are answered from the parts while all their
+ * sizes are known; otherwise they expand everything once and keep the
+ * result. Every fresh iteration before that walks the globs again.
+ */
+public final class ExpandedArguments extends AbstractList<String> {
+    /**
+     * The words one word of the command line stands for.
+     */
+    public interface Part {
+        /** Number of words, or -1 if only known by producing them. */
+        long count();
+
+        /**
+         * Word at an index. Parts whose count is unknown walk their words up
+         * to it, so indexed access to them costs O(index).
+         */
+        String get(long index);
+
+        Iterator<String> iterator();
+
+        /** The word itself, when the part is just that word; null otherwise. */
+        default String literal() {
+            return null;
+        }
+    }
+
+    private final List<Part> parts = new ArrayList<>();
+    private List<String> expanded;
+
+    /**
+     * Returns the words as an argument list, taking each word literally
+     * unless they already are one.
+     */
+    public static ExpandedArguments of(List<String> words) {
+        if (words instanceof ExpandedArguments arguments) {
+            return arguments;
+        }
+        ExpandedArguments arguments = new ExpandedArguments();
+        words.forEach(arguments::addLiteral);
+        return arguments;
+    }
+
+    public void addLiteral(String word) {
+        parts.add(new Literal(word));
+    }
+
+    public void addPart(Part part) {
+        parts.add(part);
+    }
+
+    /**
+     * Adds words only known by walking them, such as the matches of a glob.
+     */
+    public void addExpansion(Supplier<Iterator<String>> expansion) {
+        parts.add(new Walk(expansion));
+    }
+
+    public List<Part> parts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * The words after the first {@code count} ones, still unexpanded.
+     */
+    public ExpandedArguments skip(long count) {
+        ExpandedArguments rest = new ExpandedArguments();
+        int i = 0;
+        for (; i < parts.size() && count > 0; i++) {
+            Part part = parts.get(i);
+            long size = part.count();
+            if (size >= 0 && size <= count) {
+                count -= size;
+                continue;
+            }
+            rest.parts.add(new Tail(part, count));
+            count = 0;
+        }
+        rest.parts.addAll(parts.subList(i, parts.size()));
+        return rest;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        if (expanded != null) {
+            return Collections.unmodifiableList(expanded).iterator();
+        }
+        return new Iterator<>() {
+            private int part;
+            private Iterator<String> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && part < parts.size()) {
+                    current = parts.get(part++).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public boolean isEmpty() {
+        // every part yields at least one word: an unmatched glob yields itself
+        return parts.isEmpty();
+    }
+
+    @Override
+    public String get(int index) {
+        if (expanded == null && knownSize() >= 0) {
+            if (index < 0) throw new IndexOutOfBoundsException(index);
+            long rest = index;
+            for (Part part : parts) {
+                if (rest < part.count()) return part.get(rest);
+                rest -= part.count();
+            }
+            throw new IndexOutOfBoundsException(index);
+        }
+        return expand().get(index);
+    }
+
+    @Override
+    public int size() {
+        long known = expanded == null ? knownSize() : -1;
+        if (known >= 0) {
+            return (int) Math.min(known, Integer.MAX_VALUE);
+        }
+        return expand().size();
+    }
+
+    private long knownSize() {
+        long total = 0;
+        for (Part part : parts) {
+            long count = part.count();
+            if (count < 0) return -1;
+            total += count;
+        }
+        return total;
+    }
+
+    private List<String> expand() {
+        if (expanded == null) {
+            List<String> all = new ArrayList<>();
+            iterator().forEachRemaining(all::add);
+            expanded = all;
+        }
+        return expanded;
+    }
+
+    private record Literal(String word) implements Part {
+        @Override
+        public long count() {
+            return 1;
+        }
+
+        @Override
+        public String get(long index) {
+            if (index != 0) throw new IndexOutOfBoundsException(Long.toString(index));
+            return word;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.singletonList(word).iterator();
+        }
+
+        @Override
+        public String literal() {
+            return word;
+        }
+    }
+
+    private record Walk(Supplier<Iterator<String>> expansion) implements Part {
+        @Override
+        public long count() {
+            return -1;
+        }
+
+        @Override
+        public String get(long index) {
+            if (index < 0) throw new IndexOutOfBoundsException(Long.toString(index));
+            Iterator<String> words = iterator();
+            for (long i = 0; i < index && words.hasNext(); i++) words.next();
+            if (!words.hasNext()) throw new IndexOutOfBoundsException(Long.toString(index));
+            return words.next();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return expansion.get();
+        }
+    }
+
+    /** A part without its first words. */
+    private record Tail(Part part, long skipped) implements Part {
+        @Override
+        public long count() {
+            return part.count() < 0 ? -1 : part.count() - skipped;
+        }
+
+        @Override
+        public String get(long index) {
+            return part.get(index + skipped);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            Iterator<String> words = part.iterator();
+            for (long i = 0; i < skipped && words.hasNext(); i++) words.next();
+            return words;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ch.supsi.fscli.backend.provider.resolver;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of path lookups keyed by (start directory, path, follow flag).
+ * Both hits and misses are cached. An entry remembers every directory and
+ * symlink the lookup walked through, with the generation each had then;
+ * adding, removing or replacing an entry bumps its directory's generation
+ * and retargeting a link bumps the link's. A hit is checked against those
+ * generations, so a change only invalidates the lookups that went through
+ * the changed node and costs nothing up front. A stale entry is dropped
+ * when it is next looked up and replaced by the fresh result; the size cap
+ * bounds the rest. Hits probe with a per-thread key, so they allocate
+ * nothing.
+ */
+public class DentryCache {
+    private static final int MAX_ENTRIES = 1 << 16;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ThreadLocal<Key> probe = ThreadLocal.withInitial(Key::new);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    LookupResult get(DirectoryNode start, ParsedPath path, boolean followSym) {
+        Key key = probe.get().set(start, path, followSym);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.isValid()) {
+                key.set(null, null, false);
+                hits.increment();
+                return entry.result;
+            }
+            // don't keep the nodes it holds reachable until it is replaced
+            entries.remove(key, entry);
+        }
+        key.set(null, null, false);
+        misses.increment();
+        return null;
+    }
+
+    void put(DirectoryNode start, ParsedPath path, boolean followSym, LookupResult result, Dependencies deps) {
+        Entry entry = new Entry(result, deps);
+        // something on the way changed while the lookup ran; its result may be stale already
+        if (!entry.isValid()) return;
+        if (entries.size() >= MAX_ENTRIES) entries.clear();
+        entries.put(new Key().set(start, path, followSym), entry);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Fraction of lookups served from the cache, 0 when nothing was looked up.
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * What a single lookup depended on: each directory and symlink it
+     * walked through, with that node's generation.
+     */
+    static final class Dependencies {
+        private FileSystemNode[] nodes = new FileSystemNode[8];
+        private int[] generations = new int[8];
+        private int count;
+
+        void add(FileSystemNode node) {
+            // read before the node is inspected, so a concurrent change
+            // after this point shows up as a newer generation
+            int generation = node.getGeneration();
+            if (count > 0 && nodes[count - 1] == node) return;
+            if (count == nodes.length) {
+                nodes = Arrays.copyOf(nodes, count * 2);
+                generations = Arrays.copyOf(generations, count * 2);
+            }
+            nodes[count] = node;
+            generations[count] = generation;
+            count++;
+        }
+    }
+
+    private static final class Entry {
+        private final LookupResult result;
+        private final FileSystemNode[] nodes;
+        private final int[] generations;
+
+        Entry(LookupResult result, Dependencies deps) {
+            this.result = result;
+            this.nodes = Arrays.copyOf(deps.nodes, deps.count);
+            this.generations = Arrays.copyOf(deps.generations, deps.count);
+        }
+
+        boolean isValid() {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i].getGeneration() != generations[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Stored keys are set once; each thread reuses one more as its probe.
+     */
+    private static final class Key {
+        private DirectoryNode start;
+        private ParsedPath path;
+        private boolean followSym;
+        private int hash;
+
+        Key set(DirectoryNode start, ParsedPath path, boolean followSym) {
+            this.start = start;
+            this.path = path;
+            this.followSym = followSym;
+            this.hash = path == null ? 0
+                    : (31 * System.identityHashCode(start) + path.hashCode()) * 2 + (followSym ? 1 : 0);
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key other)) return false;
+            return start == other.start && followSym == other.followSym && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
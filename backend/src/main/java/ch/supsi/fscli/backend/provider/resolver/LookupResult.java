@@ -0,0 +1,114 @@
+package ch.supsi.fscli.backend.provider.resolver;
+
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.core.exception.InvalidPathException;
+import ch.supsi.fscli.backend.core.exception.NotADirectoryException;
+import ch.supsi.fscli.backend.core.exception.NotFoundException;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+
+/**
+ * Outcome of a non-throwing path lookup.
+ * Besides the status it carries the directory the last component was looked
+ * up in and that component's name, so callers creating or unlinking entries
+ * do not need to resolve the parent path a second time.
+ */
+public final class LookupResult {
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND,
+        NOT_A_DIRECTORY,
+        SYMLINK_LOOP,
+        INVALID
+    }
+
+    private final Status status;
+    private final FileSystemNode node;
+    private final DirectoryNode parent;
+    private final String name;
+    private final boolean leaf;
+
+    private LookupResult(Status status, FileSystemNode node, DirectoryNode parent, String name, boolean leaf) {
+        this.status = status;
+        this.node = node;
+        this.parent = parent;
+        this.name = name;
+        this.leaf = leaf;
+    }
+
+    static LookupResult found(FileSystemNode node, DirectoryNode parent, String name) {
+        return new LookupResult(Status.FOUND, node, parent, name, true);
+    }
+
+    static LookupResult notFound(DirectoryNode parent, String name, boolean leaf) {
+        return new LookupResult(Status.NOT_FOUND, null, parent, name, leaf);
+    }
+
+    static LookupResult notADirectory(String name) {
+        return new LookupResult(Status.NOT_A_DIRECTORY, null, null, name, false);
+    }
+
+    static LookupResult symlinkLoop(String name) {
+        return new LookupResult(Status.SYMLINK_LOOP, null, null, name, false);
+    }
+
+    static LookupResult invalid() {
+        return new LookupResult(Status.INVALID, null, null, null, false);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFound() {
+        return status == Status.FOUND;
+    }
+
+    /**
+     * True when only the final path component is missing, i.e. the entry
+     * can be created in {@link #getParent()} under {@link #getName()}.
+     */
+    public boolean isMissingLeaf() {
+        return status == Status.NOT_FOUND && leaf && parent != null;
+    }
+
+    public FileSystemNode getNode() {
+        return node;
+    }
+
+    /**
+     * Directory holding the last looked-up entry, or null when the path
+     * ended on the start directory, root, "." or "..".
+     */
+    public DirectoryNode getParent() {
+        return parent;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Builds the exception {@link PathResolver#resolve} throws for this
+     * result. The message is only formatted if somebody reads it.
+     */
+    public FSException toException() {
+        String comp = name;
+        return switch (status) {
+            case NOT_FOUND -> comp == null
+                    ? new NotFoundException(() -> BackendMessageProvider.get("emptyPath"))
+                    : new NotFoundException(() -> BackendMessageProvider.get("noSuchFileOrDir") + ": " + comp);
+            case NOT_A_DIRECTORY -> new NotADirectoryException(() -> BackendMessageProvider.get("notDirectory") + ": " + comp);
+            case SYMLINK_LOOP -> new InvalidPathException(() -> BackendMessageProvider.get("tooManySymlinkLevels"));
+            case INVALID -> new InvalidPathException(() -> BackendMessageProvider.get("cwdNull"));
+            case FOUND -> throw new IllegalStateException();
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LookupResult{status=%s, name=%s, node=%s}", status, name, node);
+    }
+}
@@ -0,0 +1,167 @@
+package ch.supsi.fscli.backend.provider.resolver;
+
+import ch.supsi.fscli.backend.data.NameTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, pre-parsed path: an absolute flag plus its components.
+ * Empty and "." components are dropped while parsing, and ".." at the top
+ * of an absolute path is folded away since the root is its own parent.
+ * Other ".." components are kept: they are resolved physically by
+ * {@link PathResolver}, because folding them lexically would be wrong
+ * across symlinks. Components are interned in the {@link NameTable}, so
+ * resolving them mostly matches directory entries on identity.
+ * <p>
+ * Instances are interned in a small bounded cache keyed by the raw string,
+ * so scripts hitting the same paths over and over parse each of them once.
+ */
+public final class ParsedPath {
+    private static final int CACHE_SIZE = 8192;
+    private static final ParsedPath[] CACHE = new ParsedPath[CACHE_SIZE];
+    private static final String[] NO_COMPONENTS = new String[0];
+
+    private final boolean absolute;
+    private final boolean empty;
+    private final boolean directoryOnly;
+    private final String[] components;
+    private final int hash;
+    private String raw;
+    private ParsedPath parent;
+
+    private ParsedPath(String raw, boolean absolute, String[] components) {
+        this.raw = raw;
+        this.empty = raw != null && raw.isEmpty();
+        this.directoryOnly = raw != null && components.length > 0 && (raw.endsWith("/") || raw.endsWith("/."));
+        this.absolute = absolute;
+        this.components = components;
+        this.hash = 31 * Arrays.hashCode(components) + (absolute ? 1 : 0);
+    }
+
+    /**
+     * Returns the parsed form of a raw path, from the cache when possible.
+     * The cache is direct-mapped and lock-free: a slot simply holds the last
+     * path that hashed to it, which is safe because instances are immutable.
+     */
+    public static ParsedPath of(String raw) {
+        if (raw == null) throw new IllegalArgumentException();
+        int h = raw.hashCode();
+        int slot = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+        ParsedPath cached = CACHE[slot];
+        if (cached != null && raw.equals(cached.raw)) {
+            return cached;
+        }
+        ParsedPath parsed = parse(raw);
+        CACHE[slot] = parsed;
+        return parsed;
+    }
+
+    private static ParsedPath parse(String raw) {
+        boolean absolute = raw.startsWith("/");
+        List<String> parts = new ArrayList<>();
+        int len = raw.length();
+        int start = 0;
+        while (start <= len) {
+            int end = raw.indexOf('/', start);
+            if (end < 0) end = len;
+            if (end > start) {
+                String comp = raw.substring(start, end);
+                if (comp.equals("..")) {
+                    if (!(absolute && parts.isEmpty())) parts.add("..");
+                } else if (!comp.equals(".")) {
+                    parts.add(NameTable.intern(comp));
+                }
+            }
+            start = end + 1;
+        }
+        String[] components = parts.isEmpty() ? NO_COMPONENTS : parts.toArray(new String[0]);
+        return new ParsedPath(raw, absolute, components);
+    }
+
+    public boolean isAbsolute() {
+        return absolute;
+    }
+
+    /**
+     * True for the empty string, which names nothing (unlike ".").
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * True when the path as written ends in "/" or "/.", so whatever it
+     * names has to be a directory. Resolving ignores this; it is up to
+     * callers creating files to refuse such a path.
+     */
+    public boolean requiresDirectory() {
+        return directoryOnly;
+    }
+
+    public int size() {
+        return components.length;
+    }
+
+    public String component(int index) {
+        return components[index];
+    }
+
+    /**
+     * Last component, or null when the path has none (e.g. "/" or ".").
+     */
+    public String fileName() {
+        return components.length == 0 ? null : components[components.length - 1];
+    }
+
+    /**
+     * The path without its last component; "." or "/" when there is none.
+     */
+    public ParsedPath parent() {
+        ParsedPath p = this.parent;
+        if (p == null) {
+            String[] comps = components.length == 0
+                    ? NO_COMPONENTS
+                    : Arrays.copyOf(components, components.length - 1);
+            p = new ParsedPath(null, absolute, comps);
+            this.parent = p;
+        }
+        return p;
+    }
+
+    /**
+     * Returns a path made of this path's components followed by the
+     * components of {@code suffix} starting at {@code from}.
+     */
+    public ParsedPath append(ParsedPath suffix, int from) {
+        int extra = suffix.components.length - from;
+        if (extra <= 0) return this;
+        String[] comps = Arrays.copyOf(components, components.length + extra);
+        System.arraycopy(suffix.components, from, comps, components.length, extra);
+        return new ParsedPath(null, absolute, comps);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ParsedPath other)) return false;
+        return hash == other.hash && absolute == other.absolute && Arrays.equals(components, other.components);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        String r = this.raw;
+        if (r == null) {
+            String joined = String.join("/", components);
+            r = absolute ? "/" + joined : (joined.isEmpty() ? "." : joined);
+            this.raw = r;
+        }
+        return r;
+    }
+}
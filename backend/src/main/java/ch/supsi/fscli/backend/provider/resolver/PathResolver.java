@@ -1,19 +1,18 @@
 package ch.supsi.fscli.backend.provider.resolver;
 
-import ch.supsi.fscli.backend.core.exception.InvalidPathException;
-import ch.supsi.fscli.backend.core.exception.NotFoundException;
+import ch.supsi.fscli.backend.core.exception.FSException;
 import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.FileSystemNode;
 import ch.supsi.fscli.backend.data.LinkNode;
-import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Locale;
-import java.util.ResourceBundle;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 public class PathResolver {
-    private static final String SEP = "/";
+    // nesting limit for links resolving through links, like SYMLOOP_MAX;
+    // actual cycles are caught earlier by the set of links being resolved
+    public static final int MAX_SYMLINK_DEPTH = 32;
 
     private static PathResolver self;
     public static PathResolver getInstance() {
@@ -23,92 +22,160 @@ public class PathResolver {
         return self;
     }
 
+    private final DentryCache dentryCache = new DentryCache();
+
     private PathResolver() {}
 
-    public FileSystemNode resolve(DirectoryNode cwd, String path, boolean followSym) throws NotFoundException, InvalidPathException {
-        return resolve(cwd, path, followSym, 0);
+    /**
+     * Cache of recent lookups; exposes its hit/miss statistics.
+     */
+    public DentryCache getDentryCache() {
+        return dentryCache;
     }
 
-    private FileSystemNode resolve(DirectoryNode cwd, String path, boolean followSym, int depth) throws NotFoundException, InvalidPathException {
-        if (depth > 32) throw new InvalidPathException(BackendMessageProvider.get("tooManySymlinkLevels"));
-        if (path == null || path.isEmpty()) throw new NotFoundException(BackendMessageProvider.get("EmptyPath"));
-        if (cwd == null) throw new InvalidPathException(BackendMessageProvider.get("cwdNull"));
-
-        DirectoryNode base;
-        String rel;
-        if (path.startsWith(SEP)) {
-            base = getRoot(cwd);
-            rel = path.substring(SEP.length());
-        } else {
-            base = cwd;
-            rel = path;
-        }
-        if (rel.isEmpty()) return base;
+    /**
+     * Resolves a path, throwing if it cannot be resolved.
+     */
+    public FileSystemNode resolve(DirectoryNode cwd, String path, boolean followSym) throws FSException {
+        LookupResult result = tryResolve(cwd, path, followSym);
+        if (!result.isFound()) throw result.toException();
+        return result.getNode();
+    }
+
+    public FileSystemNode resolve(DirectoryNode cwd, ParsedPath path, boolean followSym) throws FSException {
+        LookupResult result = tryResolve(cwd, path, followSym);
+        if (!result.isFound()) throw result.toException();
+        return result.getNode();
+    }
+
+    /**
+     * Resolves a path without throwing: misses, non-directory components and
+     * symlink loops are reported through the result status. Use this for
+     * existence checks, where a miss is the expected outcome.
+     */
+    public LookupResult tryResolve(DirectoryNode cwd, String path, boolean followSym) {
+        if (path == null) return LookupResult.notFound(null, null, false);
+        return tryResolve(cwd, ParsedPath.of(path), followSym);
+    }
+
+    public LookupResult tryResolve(DirectoryNode cwd, ParsedPath path, boolean followSym) {
+        if (cwd == null) return LookupResult.invalid();
+        return tryResolve(getRoot(cwd), cwd, path, followSym);
+    }
 
-        String[] parts = Arrays.stream(rel.split(SEP)).filter(s -> !s.isEmpty()).toArray(String[]::new);
-        FileSystemNode cur = base;
+    /**
+     * Resolves from {@code cwd} in the tree whose top is {@code root}.
+     * Callers that already know the root, like a filesystem, should use
+     * these overloads: the others find the root by walking up from the
+     * cwd, which costs O(depth) on every lookup.
+     */
+    public LookupResult tryResolve(DirectoryNode root, DirectoryNode cwd, ParsedPath path, boolean followSym) {
+        if (root == null || cwd == null) return LookupResult.invalid();
+        if (path.isEmpty()) return LookupResult.notFound(null, null, false);
+
+        // absolute paths do not depend on the cwd, so share them across cwds
+        DirectoryNode start = path.isAbsolute() ? root : cwd;
+        LookupResult cached = dentryCache.get(start, path, followSym);
+        if (cached != null) return cached;
+
+        DentryCache.Dependencies deps = new DentryCache.Dependencies();
+        LookupResult result = lookup(root, cwd, path, followSym, deps);
+        dentryCache.put(start, path, followSym, result, deps);
+        return result;
+    }
 
-        for (int i = 0; i < parts.length; i++) {
-            String comp = parts[i];
-            if (comp.equals(".")) continue;
+    public FileSystemNode resolve(DirectoryNode root, DirectoryNode cwd, ParsedPath path, boolean followSym)
+            throws FSException {
+        LookupResult result = tryResolve(root, cwd, path, followSym);
+        if (!result.isFound()) throw result.toException();
+        return result.getNode();
+    }
+
+    /**
+     * Walks the path iteratively. Symlink targets are pushed as new frames
+     * on a work stack above the components still left to resolve; relative
+     * targets continue from the directory holding the link, absolute ones
+     * from the root. A link whose frame is still on the stack is still being
+     * resolved, so meeting it again means a loop.
+     */
+    private LookupResult lookup(DirectoryNode root, DirectoryNode cwd, ParsedPath path, boolean followSym,
+                                DentryCache.Dependencies deps) {
+        FileSystemNode cur = path.isAbsolute() ? root : cwd;
+        DirectoryNode parent = null;
+        String name = null;
+
+        Frame top = new Frame(path, null, null);
+        int pending = 0;
+        Set<LinkNode> active = null;
+
+        while (true) {
+            if (top.index == top.path.size()) {
+                if (top.below == null) break;
+                if (top.link != null) active.remove(top.link);
+                top = top.below;
+                pending -= top.path.size() - top.index;
+                continue;
+            }
+            String comp = top.path.component(top.index++);
             if (comp.equals("..")) {
-                if (cur instanceof DirectoryNode dir) {
-                    DirectoryNode par = dir.getParent();
-                    cur = (par == null) ? getRoot(dir) : par;
-                } else {
-                    DirectoryNode par = cwd.getParent();
-                    cur = (par == null) ? getRoot(cwd) : par;
-                }
+                if (!(cur instanceof DirectoryNode dir)) return LookupResult.notADirectory(comp);
+                DirectoryNode par = dir.getParent();
+                cur = (par == null) ? root : par;
+                // dir can only change parent by being unlinked from this one
+                deps.add(cur);
+                parent = null;
+                name = null;
                 continue;
             }
-            if (cur == null) throw new NotFoundException(BackendMessageProvider.get("notDirectory") + ": " + comp);
+            if (!(cur instanceof DirectoryNode dir)) return LookupResult.notADirectory(comp);
 
-            DirectoryNode dir = (DirectoryNode) cur;
+            boolean last = top.index == top.path.size() && pending == 0;
+            deps.add(dir);
             FileSystemNode next = dir.get(comp);
-            if (next == null) throw new NotFoundException(BackendMessageProvider.get("noSuchFileOrDir") + ": " + comp);
-
-            if (next.isLink() && (followSym || i < parts.length - 1)) {
-                LinkNode sl = (LinkNode) next;
-                String target = sl.getTarget();
-                String suffix = (i + 1 < parts.length) ? ("/" + String.join("/", Arrays.copyOfRange(parts, i + 1, parts.length))) : "";
-                String resolvedTarget;
-                if (target.startsWith(SEP)) {
-                    resolvedTarget = target + suffix;
-                } else {
-                    String parentPath = pathOf(dir);
-                    if (parentPath.equals(SEP)) parentPath = "";
-                    resolvedTarget = parentPath + "/" + target + suffix;
+            if (next == null) return LookupResult.notFound(dir, comp, last);
+
+            if (next.isLink() && (followSym || !last)) {
+                LinkNode link = (LinkNode) next;
+                if (active == null) active = Collections.newSetFromMap(new IdentityHashMap<>());
+                if (!active.add(link) || active.size() > MAX_SYMLINK_DEPTH) {
+                    return LookupResult.symlinkLoop(comp);
                 }
-                return resolve(cwd, resolvedTarget, followSym, depth + 1);
+                deps.add(link);
+                ParsedPath target = ParsedPath.of(link.getTarget());
+                pending += top.path.size() - top.index;
+                top = new Frame(target, link, top);
+                cur = target.isAbsolute() ? root : dir;
+                parent = null;
+                name = null;
             } else {
                 cur = next;
+                parent = dir;
+                name = comp;
             }
         }
-        return cur;
+        return LookupResult.found(cur, parent, name);
     }
 
-    private DirectoryNode getRoot(DirectoryNode cwd) throws NotFoundException {
+    private DirectoryNode getRoot(DirectoryNode cwd) {
         DirectoryNode cur = cwd;
         while (cur.getParent() != null && cur.getParent() != cur) cur = cur.getParent();
         return cur;
     }
 
-    private String pathOf(DirectoryNode dir) {
-        if (dir == null) return SEP;
-        if (dir.getParent() == dir || dir.getParent() == null) return SEP;
-
-        LinkedList<String> parts = new LinkedList<>();
-        DirectoryNode cur = dir;
-        while (cur.getParent() != null && cur.getParent() != cur) {
-            DirectoryNode parent = cur.getParent();
-            String found = null;
-            for (var e : parent.snapshot().entrySet()) {
-                if (e.getValue() == cur) { found = e.getKey(); break; }
-            }
-            if (found == null) break;
-            parts.addFirst(found);
-            cur = parent;
+    /**
+     * Components of one path still to be walked, and the symlink (if any)
+     * whose target they are.
+     */
+    private static final class Frame {
+        private final ParsedPath path;
+        private final LinkNode link;
+        private final Frame below;
+        private int index;
+
+        Frame(ParsedPath path, LinkNode link, Frame below) {
+            this.path = path;
+            this.link = link;
+            this.below = below;
         }
-        return String.join(SEP, parts);
     }
 }
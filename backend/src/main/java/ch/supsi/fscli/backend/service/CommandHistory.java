@@ -0,0 +1,52 @@
+package ch.supsi.fscli.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Commands run in a session, oldest first, capped at
+ * {@link #MAX_SIZE} entries by dropping the oldest.
+ * Like the session it belongs to, it is meant for one client at a time.
+ */
+class CommandHistory {
+    static final int MAX_SIZE = 1000;
+
+    private final List<CommandHistoryEntry> entries = new ArrayList<>();
+
+    void add(String command, boolean successful) {
+        entries.add(new CommandHistoryEntry(command, successful, System.currentTimeMillis()));
+        if (entries.size() > MAX_SIZE) {
+            entries.remove(0);
+        }
+    }
+
+    List<CommandHistoryEntry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    List<String> getCommands() {
+        return entries.stream()
+                .map(CommandHistoryEntry::getCommand)
+                .toList();
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    List<CommandHistoryEntry> getLast(int count) {
+        int size = entries.size();
+        int start = Math.max(0, size - count);
+        return new ArrayList<>(entries.subList(start, size));
+    }
+
+    /**
+     * Entries whose command contains the pattern, ignoring case.
+     */
+    List<CommandHistoryEntry> search(String pattern) {
+        String lowerPattern = pattern.toLowerCase();
+        return entries.stream()
+                .filter(entry -> entry.getCommand().toLowerCase().contains(lowerPattern))
+                .toList();
+    }
+}
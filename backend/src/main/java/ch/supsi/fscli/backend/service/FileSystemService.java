@@ -1,12 +1,10 @@
 package ch.supsi.fscli.backend.service;
 
 import ch.supsi.fscli.backend.core.FileSystem;
-import ch.supsi.fscli.backend.core.CommandResult;
-import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.FileSystemFactory;
+import ch.supsi.fscli.backend.core.exception.FSException;
 import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
-import ch.supsi.fscli.backend.provider.executor.CommandExecutor;
 import ch.supsi.fscli.backend.controller.CommandResponse;
-import ch.supsi.fscli.backend.provider.parser.CommandParser;
 import ch.supsi.fscli.backend.core.command.Command;
 import com.google.inject.Inject;
 
@@ -18,17 +16,17 @@ import java.util.Set;
 /**
  * Service layer for filesystem command execution.
  * Main interface between frontend and backend filesystem operations.
- * Manages command history and delegates to CommandExecutor.
+ * Runs commands in a default {@link Session}, whose history it keeps across
+ * filesystem reloads, and opens further sessions on the same tree.
  */
 public class FileSystemService {
     private static final ResourceBundle MESSAGES = ResourceBundle.getBundle("messages_backend");
 
-    private CommandExecutor executor;
-    private final List<CommandHistoryEntry> history = new ArrayList<>();
-    private static final int MAX_HISTORY_SIZE = 1000;
+    private final CommandHistory history = new CommandHistory();
     private final Set<Command> commands;
 
     private FileSystem fileSystem;
+    private Session session;
 
     @Inject
     public FileSystemService(Set<Command> commands) {
@@ -41,21 +39,29 @@ public class FileSystemService {
 
     public void setFileSystem(FileSystem fileSystem) {
         this.fileSystem = fileSystem;
-        this.executor = new CommandExecutor(fileSystem, new CommandParser());
-        registerCommands();
+        this.session = new Session(fileSystem, commands, history);
     }
 
     public void createNewFileSystem() {
-        this.fileSystem = new InMemoryFileSystem();
-        this.executor = new CommandExecutor(fileSystem, new CommandParser());
-        registerCommands();
+        setFileSystem(FileSystemFactory.newFileSystem());
         history.clear();
     }
 
-    private void registerCommands() {
-        for (Command command : commands) {
-            executor.registerCommand(command);
-        }
+    /**
+     * Session the service's own commands run in.
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * Open another session on the loaded filesystem, with its own working
+     * directory, history and locale.
+     *
+     * @throws FSException if the filesystem does not support sessions
+     */
+    public Session openSession() throws FSException {
+        return new Session(fileSystem.openSession(), commands);
     }
     
     /**
@@ -66,9 +72,7 @@ public class FileSystemService {
      * @return CommandResponse containing success status, output, or error message
      */
     public CommandResponse executeCommand(String commandString) {
-        CommandResponse response = executeInternal(commandString);
-        addToHistory(commandString, response);
-        return response;
+        return session.execute(commandString);
     }
     
     /**
@@ -76,19 +80,7 @@ public class FileSystemService {
      * Useful for automated/background commands.
      */
     public CommandResponse executeCommandSilent(String commandString) {
-        return executeInternal(commandString);
-    }
-
-    private CommandResponse executeInternal(String commandString) {
-        if (commandString == null || commandString.trim().isEmpty()) {
-            return new CommandResponse(false, null, BackendMessageProvider.get("commandEmpty"));
-        }
-        CommandResult result = executor.execute(commandString);
-        return new CommandResponse(
-            result.isSuccess(),
-            result.getOutput(),
-            result.getErrorMessage()
-        );
+        return session.executeSilent(commandString);
     }
     
     /**
@@ -97,7 +89,7 @@ public class FileSystemService {
      * @return Array of command names
      */
     public String[] getAvailableCommands() {
-        return executor.getAvailableCommands().keySet().toArray(new String[0]);
+        return session.getExecutor().getAvailableCommands().keySet().toArray(new String[0]);
     }
     
     /**
@@ -107,7 +99,7 @@ public class FileSystemService {
      * @return Help text with description and usage
      */
     public String getCommandHelp(String commandName) {
-        Command command = executor.getCommand(commandName);
+        Command command = session.getExecutor().getCommand(commandName);
         if (command == null) return commandName + ": " + BackendMessageProvider.get("unknownCommand");
         String descKey = commandName + ".description";
         String usageKey = commandName + ".usage";
@@ -135,7 +127,7 @@ public class FileSystemService {
      * @return List of command history entries
      */
     public List<CommandHistoryEntry> getHistory() {
-        return new ArrayList<>(history);
+        return history.getEntries();
     }
     
     /**
@@ -144,9 +136,7 @@ public class FileSystemService {
      * @return List of command strings from history
      */
     public List<String> getHistoryCommands() {
-        return history.stream()
-                .map(CommandHistoryEntry::getCommand)
-                .toList();
+        return history.getCommands();
     }
     
     /**
@@ -163,9 +153,7 @@ public class FileSystemService {
      * @return List of last N command history entries
      */
     public List<CommandHistoryEntry> getLastCommands(int count) {
-        int size = history.size();
-        int start = Math.max(0, size - count);
-        return new ArrayList<>(history.subList(start, size));
+        return history.getLast(count);
     }
     
     /**
@@ -175,26 +163,11 @@ public class FileSystemService {
      * @return List of matching history entries
      */
     public List<CommandHistoryEntry> searchHistory(String pattern) {
-        String lowerPattern = pattern.toLowerCase();
-        return history.stream()
-                .filter(entry -> entry.getCommand().toLowerCase().contains(lowerPattern))
-                .toList();
-    }
-    
-    private void addToHistory(String command, CommandResponse response) {
-        CommandHistoryEntry entry = new CommandHistoryEntry(
-                command,
-                response.isSuccess(),
-                System.currentTimeMillis()
-        );
-        history.add(entry);
-        if (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0);
-        }
+        return history.search(pattern);
     }
 
     public boolean isFileSystemLoaded() {
-        return fileSystem != null && executor != null;
+        return fileSystem != null && session != null;
     }
 
     public String getCurrentDirectory() {
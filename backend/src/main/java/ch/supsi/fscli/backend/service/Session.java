@@ -0,0 +1,105 @@
+package ch.supsi.fscli.backend.service;
+
+import ch.supsi.fscli.backend.controller.CommandResponse;
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.command.Command;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+import ch.supsi.fscli.backend.provider.executor.CommandExecutor;
+import ch.supsi.fscli.backend.provider.parser.CommandParser;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * One client's view of a filesystem: its own working directory (through a
+ * {@link FileSystem#openSession() filesystem session}), command history and
+ * message locale, over a tree other sessions share.
+ * A session is meant to be driven by one client at a time; different
+ * sessions may run commands concurrently.
+ */
+public class Session {
+    private final FileSystem fileSystem;
+    private final CommandExecutor executor;
+    private final CommandHistory history;
+    private volatile Locale locale;
+
+    public Session(FileSystem fileSystem, Set<Command> commands) {
+        this(fileSystem, commands, new CommandHistory());
+    }
+
+    Session(FileSystem fileSystem, Set<Command> commands, CommandHistory history) {
+        this.fileSystem = fileSystem;
+        this.executor = new CommandExecutor(fileSystem, new CommandParser());
+        for (Command command : commands) {
+            executor.registerCommand(command);
+        }
+        this.history = history;
+    }
+
+    public FileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    CommandExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Locale the session's messages are in, or null to follow the global one.
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    /**
+     * Execute a command string in this session and add it to its history.
+     */
+    public CommandResponse execute(String commandString) {
+        CommandResponse response = executeSilent(commandString);
+        history.add(commandString, response.isSuccess());
+        return response;
+    }
+
+    /**
+     * Execute a command string in this session without adding it to history.
+     */
+    public CommandResponse executeSilent(String commandString) {
+        return BackendMessageProvider.withLocale(locale, () -> {
+            if (commandString == null || commandString.trim().isEmpty()) {
+                return new CommandResponse(false, null, BackendMessageProvider.get("commandEmpty"));
+            }
+            CommandResult result = executor.execute(commandString);
+            return new CommandResponse(result.isSuccess(), result.getOutput(), result.getErrorMessage());
+        });
+    }
+
+    public String getCurrentDirectory() {
+        return fileSystem.pwd();
+    }
+
+    public List<CommandHistoryEntry> getHistory() {
+        return history.getEntries();
+    }
+
+    public List<String> getHistoryCommands() {
+        return history.getCommands();
+    }
+
+    public void clearHistory() {
+        history.clear();
+    }
+
+    public List<CommandHistoryEntry> getLastCommands(int count) {
+        return history.getLast(count);
+    }
+
+    public List<CommandHistoryEntry> searchHistory(String pattern) {
+        return history.search(pattern);
+    }
+}
@@ -0,0 +1,40 @@
+package backend.bench;
+
+/**
+ * Minimal timing harness shared by the benchmarks in this package.
+ * Benchmarks are plain main() programs rather than JUnit tests, so surefire
+ * does not pick them up. Run one after {@code mvn test-compile} with:
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.CreateWorkloadBenchmark
+ * </pre>
+ */
+final class Bench {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @FunctionalInterface
+    interface Workload {
+        void run() throws Exception;
+    }
+
+    private Bench() {}
+
+    /**
+     * Runs the workload for a few warm-up rounds, then reports the best
+     * measured round as nanoseconds per operation.
+     */
+    static double measure(String label, long opsPerRound, Workload workload) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            workload.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            workload.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double nsPerOp = (double) best / opsPerRound;
+        System.out.printf("%-40s %12.1f ns/op%n", label, nsPerOp);
+        return nsPerOp;
+    }
+}
@@ -0,0 +1,39 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.command.TouchCommand;
+import ch.supsi.fscli.backend.provider.executor.CommandExecutor;
+import ch.supsi.fscli.backend.provider.parser.CommandParser;
+
+/**
+ * {@code touch d/f{1..100000}} through the executor, where the brace
+ * expansion streams into one bulk touch resolving {@code d} once, against
+ * the same files touched one call and one path resolution at a time.
+ * Each round starts from an empty directory.
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.BraceTouchBenchmark
+ * </pre>
+ */
+public class BraceTouchBenchmark {
+    private static final int FILES = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        Bench.measure("touch per path", FILES, () -> {
+            InMemoryFileSystem fs = new InMemoryFileSystem();
+            fs.mkdir("/d");
+            for (int i = 1; i <= FILES; i++) {
+                fs.touch("/d/f" + i);
+            }
+        });
+        double ns = Bench.measure("touch /d/f{1.." + FILES + "}", FILES, () -> {
+            InMemoryFileSystem fs = new InMemoryFileSystem();
+            fs.mkdir("/d");
+            CommandExecutor executor = new CommandExecutor(fs, new CommandParser());
+            executor.registerCommand(new TouchCommand());
+            CommandResult result = executor.execute("touch /d/f{1.." + FILES + "}");
+            if (!result.isSuccess()) throw new IllegalStateException(result.getErrorMessage());
+        });
+        System.out.printf("%d files in %.1f ms%n", FILES, ns * FILES / 1e6);
+    }
+}
@@ -0,0 +1,51 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.command.RmCommand;
+import ch.supsi.fscli.backend.provider.executor.CommandExecutor;
+import ch.supsi.fscli.backend.provider.parser.CommandParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code rm /a/b/c/*} over 50k files through the executor, where the
+ * matches stream into one bulk remove resolving {@code /a/b/c} once per
+ * run, against the same files removed one call and one path resolution at
+ * a time. Each round starts from a freshly filled directory, whose setup is
+ * part of both measurements.
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.BulkRemoveBenchmark
+ * </pre>
+ */
+public class BulkRemoveBenchmark {
+    private static final int FILES = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> names = new ArrayList<>(FILES);
+        for (int i = 1; i <= FILES; i++) {
+            names.add("/a/b/c/f" + i);
+        }
+        Bench.measure("rm per path", FILES, () -> {
+            InMemoryFileSystem fs = filled(names);
+            for (String name : names) {
+                fs.rm(name);
+            }
+        });
+        Bench.measure("rm /a/b/c/*", FILES, () -> {
+            InMemoryFileSystem fs = filled(names);
+            CommandExecutor executor = new CommandExecutor(fs, new CommandParser());
+            executor.registerCommand(new RmCommand());
+            CommandResult result = executor.execute("rm /a/b/c/*");
+            if (!result.isSuccess()) throw new IllegalStateException(result.getErrorMessage());
+        });
+    }
+
+    private static InMemoryFileSystem filled(List<String> names) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdirAll(List.of("/a", "/a/b", "/a/b/c"));
+        fs.touchAll(names);
+        return fs;
+    }
+}
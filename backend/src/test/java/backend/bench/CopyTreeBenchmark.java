@@ -0,0 +1,32 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+
+/**
+ * Recursive copy and listing of a wide tree: 50 directories of 1000 files
+ * each, so per-directory work that is quadratic in the number of children
+ * dominates.
+ */
+public class CopyTreeBenchmark {
+    private static final int DIRS = 50;
+    private static final int FILES = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("src");
+        for (int d = 0; d < DIRS; d++) {
+            fs.mkdir("src/d" + d);
+            for (int f = 0; f < FILES; f++) {
+                fs.touch("src/d" + d + "/f" + f);
+            }
+        }
+        int nodes = DIRS * FILES;
+
+        int[] copies = {0};
+        Bench.measure("cp -r " + nodes + " nodes", nodes, () -> fs.cp("src", "copy" + copies[0]++));
+        Bench.measure("ls " + FILES + " entries", FILES, () -> fs.ls("src/d0", true));
+        DirectoryNode wide = (DirectoryNode) fs.resolveNode("src/d0", true);
+        Bench.measure("wildcard over " + FILES + " entries", FILES, () -> fs.expWildcard("f1*", wide));
+    }
+}
@@ -0,0 +1,49 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.exception.NotFoundException;
+import ch.supsi.fscli.backend.provider.resolver.PathResolver;
+
+/**
+ * Create-heavy workloads: bulk touch/mkdir into fresh directories, where
+ * every existence check misses. Also compares a throwing miss against a
+ * non-throwing {@code tryResolve} miss directly.
+ */
+public class CreateWorkloadBenchmark {
+    private static final int ENTRIES = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        Bench.measure("touch " + ENTRIES + " files", ENTRIES, () -> {
+            InMemoryFileSystem fs = new InMemoryFileSystem();
+            fs.mkdir("dir");
+            for (int i = 0; i < ENTRIES; i++) {
+                fs.touch("dir/f" + i);
+            }
+        });
+        Bench.measure("mkdir " + ENTRIES + " dirs", ENTRIES, () -> {
+            InMemoryFileSystem fs = new InMemoryFileSystem();
+            fs.mkdir("dir");
+            for (int i = 0; i < ENTRIES; i++) {
+                fs.mkdir("dir/d" + i);
+            }
+        });
+
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("dir");
+        PathResolver resolver = PathResolver.getInstance();
+        Bench.measure("resolve miss (catch)", ENTRIES, () -> {
+            for (int i = 0; i < ENTRIES; i++) {
+                try {
+                    resolver.resolve(fs.getCwd(), "dir/missing", false);
+                } catch (NotFoundException ignored) {
+                    // expected
+                }
+            }
+        });
+        Bench.measure("tryResolve miss", ENTRIES, () -> {
+            for (int i = 0; i < ENTRIES; i++) {
+                resolver.tryResolve(fs.getCwd(), "dir/missing", false);
+            }
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.exception.AlreadyExistsException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leaves 20 directories deep, spread over a few branches, made the way a
+ * script without {@code mkdir -p} has to, one mkdir per level of each
+ * leaf, against one {@code mkdirs} walk per leaf.
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.DeepTreeBenchmark
+ * </pre>
+ */
+public class DeepTreeBenchmark {
+    private static final int DEPTH = 20;
+    private static final int LEAVES = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> leaves = new ArrayList<>(LEAVES);
+        for (int i = 0; i < LEAVES; i++) {
+            StringBuilder path = new StringBuilder();
+            for (int level = 0; level < DEPTH; level++) {
+                path.append("/d").append(level).append('_').append(level < DEPTH - 1 ? i % 4 : i);
+            }
+            leaves.add(path.toString());
+        }
+        Bench.measure("mkdir per level", LEAVES, () -> {
+            InMemoryFileSystem fs = new InMemoryFileSystem();
+            for (String leaf : leaves) {
+                for (int slash = leaf.indexOf('/', 1); slash >= 0; slash = leaf.indexOf('/', slash + 1)) {
+                    mkdirIfAbsent(fs, leaf.substring(0, slash));
+                }
+                mkdirIfAbsent(fs, leaf);
+            }
+        });
+        Bench.measure("mkdirs", LEAVES, () -> new InMemoryFileSystem().mkdirs(leaves));
+    }
+
+    private static void mkdirIfAbsent(InMemoryFileSystem fs, String path) throws Exception {
+        try {
+            fs.mkdir(path);
+        } catch (AlreadyExistsException e) {
+            // made for an earlier leaf
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+
+import java.util.Random;
+
+/**
+ * Heap used by a generated tree shaped like our images: most directories
+ * hold 0-3 entries, a few hold thousands. Nodes and names are allocated
+ * first, then linked into directories, so the second figure is what child
+ * storage (plus the link-time bookkeeping in {@code add}) costs.
+ * <pre>
+ * java -Xmx3g -cp target/classes:target/test-classes backend.bench.DirectoryMemoryReport [nodes]
+ * </pre>
+ */
+public class DirectoryMemoryReport {
+    public static void main(String[] args) {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Random random = new Random(42);
+
+        FileSystemNode[] nodes = new FileSystemNode[total];
+        String[] names = new String[total];
+        int[] parents = new int[total];
+        nodes[0] = new DirectoryNode();
+        int created = 1;
+        int directories = 1;
+        for (int dir = 0; dir < created && created < total; dir++) {
+            if (!nodes[dir].isDirectory()) continue;
+            int children = dir == 0 ? 1000 : childCount(random);
+            for (int c = 0; c < children && created < total; c++) {
+                boolean isDir = random.nextInt(10) < 3;
+                nodes[created] = isDir ? new DirectoryNode() : new FileNode();
+                names[created] = "entry" + c;
+                parents[created] = dir;
+                if (isDir) directories++;
+                created++;
+            }
+        }
+
+        long unlinked = usedHeap();
+        for (int i = 1; i < created; i++) {
+            ((DirectoryNode) nodes[parents[i]]).add(names[i], nodes[i]);
+        }
+        long linked = usedHeap();
+
+        System.out.printf("nodes %d, directories %d%n", created, directories);
+        System.out.printf("heap with tree          %8.1f MB (%5.1f B/node)%n",
+                linked / 1e6, (double) linked / created);
+        System.out.printf("linking cost            %8.1f MB (%5.1f B/directory)%n",
+                (linked - unlinked) / 1e6, (double) (linked - unlinked) / directories);
+        // keep the tree reachable until after the last measurement
+        if (nodes[0].getId() < 0) System.out.println(nodes.length);
+    }
+
+    private static int childCount(Random random) {
+        int bucket = random.nextInt(100);
+        if (bucket < 60) return random.nextInt(4);
+        if (bucket < 95) return 4 + random.nextInt(13);
+        return 64 + random.nextInt(2000);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
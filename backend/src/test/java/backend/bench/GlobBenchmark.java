@@ -0,0 +1,52 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.Glob;
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Wildcard expansion over a 200k-entry directory: a regex per filename, one
+ * regex for the whole scan, and the compiled glob (sequential, then through
+ * expWildcard, which scans directories this large in parallel).
+ */
+public class GlobBenchmark {
+    private static final int FILES = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("/big");
+        for (int f = 0; f < FILES; f++) {
+            fs.touch("/big/f" + f + (f % 10 == 0 ? ".tmp" : ".txt"));
+        }
+        DirectoryNode big = (DirectoryNode) fs.resolveNode("/big", true);
+        String wildcard = "f1*.tmp";
+        String regex = "^f1.*\\.tmp$";
+
+        Bench.measure("regex per filename", FILES, () -> {
+            List<String> out = new ArrayList<>();
+            big.forEachChild((name, child) -> {
+                if (name.matches(regex)) out.add(name);
+            });
+        });
+        Bench.measure("one regex per scan", FILES, () -> {
+            Pattern compiled = Pattern.compile(regex);
+            List<String> out = new ArrayList<>();
+            big.forEachChild((name, child) -> {
+                if (compiled.matcher(name).matches()) out.add(name);
+            });
+        });
+        Bench.measure("glob, sequential", FILES, () -> {
+            Glob glob = Glob.compile(wildcard);
+            List<String> out = new ArrayList<>();
+            big.forEachChild((name, child) -> {
+                if (glob.matches(name)) out.add(name);
+            });
+        });
+        Bench.measure("expWildcard " + wildcard, FILES, () -> fs.expWildcard(wildcard, big));
+        Bench.measure("expWildcard f[0-4]?[!0]*", FILES, () -> fs.expWildcard("f[0-4]?[!0]*", big));
+    }
+}
@@ -0,0 +1,113 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Concurrent stress on the lock manager: 1 to 32 threads, each with its
+ * own session, shuffle their files between 64 shared directories with
+ * cross-directory mv and hard links, and every so often nest one of 8
+ * further directories inside another and back, which takes the rename
+ * lock and races other threads trying the opposite nesting.
+ * Prints operations per second and checks the tree afterwards.
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.LockStressBenchmark
+ * </pre>
+ */
+public class LockStressBenchmark {
+    private static final int DIRS = 64;
+    private static final int NESTED = 8;
+    private static final int FILES_PER_THREAD = 64;
+    private static final int OPS = 400_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 2; round++) {
+            for (int threads = 1; threads <= 32; threads *= 2) {
+                run(threads, round == 1);
+            }
+        }
+    }
+
+    private static void run(int threads, boolean print) throws InterruptedException {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        try {
+            for (int d = 0; d < DIRS; d++) fs.mkdir("/d" + d);
+            for (int n = 0; n < NESTED; n++) fs.mkdir("/n" + n);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        int perThread = OPS / threads;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            InMemoryFileSystem session = fs.openSession();
+            int worker = t;
+            workers.add(new Thread(() -> work(session, worker, perThread)));
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        long elapsed = System.nanoTime() - start;
+
+        if (print) {
+            System.out.printf("%2d threads  %10.3f ms  %12.0f ops/s  %d nodes%n",
+                    threads, elapsed / 1e6, (double) perThread * threads / (elapsed / 1e9), countNodes(fs, "/"));
+        }
+    }
+
+    private static void work(InMemoryFileSystem fs, int worker, int ops) {
+        SplittableRandom random = new SplittableRandom(worker);
+        // where each of this worker's files currently lives
+        int[] location = new int[FILES_PER_THREAD];
+        try {
+            for (int f = 0; f < FILES_PER_THREAD; f++) {
+                location[f] = random.nextInt(DIRS);
+                fs.touch(path(location[f], worker, f));
+            }
+            for (int i = 0; i < ops; i++) {
+                int f = random.nextInt(FILES_PER_THREAD);
+                int to = random.nextInt(DIRS);
+                int kind = random.nextInt(100);
+                if (kind < 90) {
+                    if (to == location[f]) continue;
+                    fs.mv(path(location[f], worker, f), path(to, worker, f));
+                    location[f] = to;
+                } else if (kind < 99) {
+                    String link = "/d" + to + "/l" + worker + "_" + f;
+                    fs.ln(path(location[f], worker, f), link, false);
+                    fs.rm(link);
+                } else {
+                    int a = random.nextInt(NESTED);
+                    int b = random.nextInt(NESTED);
+                    try {
+                        fs.mv("/n" + a, "/n" + b + "/n" + a);
+                        fs.mv("/n" + b + "/n" + a, "/n" + a);
+                    } catch (Exception expected) {
+                        // a == b, or another worker nested one of them first
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("worker " + worker, e);
+        }
+    }
+
+    private static String path(int dir, int worker, int file) {
+        return "/d" + dir + "/f" + worker + "_" + file;
+    }
+
+    private static int countNodes(InMemoryFileSystem fs, String dir) {
+        int count = 0;
+        try {
+            for (String entry : fs.ls(dir, false)) {
+                count++;
+                if (entry.endsWith("/")) count += countNodes(fs, dir + entry);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,89 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.serde.FilesystemFileManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Heap retained by a loaded image of a generated workspace: many projects
+ * sharing the usual skeleton (src/main/java, README.md, pom.xml,
+ * node_modules packages with index.js and package.json...) next to files
+ * with unique names. The image is saved to JSON and loaded back, since
+ * loading is where every repeated name used to become its own string.
+ * <pre>
+ * java -Xmx3g -cp target/classes:target/test-classes backend.bench.NameInterningReport [projects]
+ * </pre>
+ */
+public class NameInterningReport {
+    private static final String[] PACKAGES = {"lodash", "react", "express", "chalk", "debug", "commander"};
+    private static final String[] PACKAGE_FILES = {"index.js", "package.json", "README.md", "LICENSE", "CHANGELOG.md"};
+    private static final String[] PROJECT_FILES = {"README.md", "pom.xml", ".gitignore", "LICENSE", "Makefile"};
+
+    public static void main(String[] args) throws Exception {
+        int projects = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        Random random = new Random(42);
+        DirectoryNode root = new DirectoryNode();
+        for (int p = 0; p < projects; p++) {
+            DirectoryNode project = dir(root, "project-" + p);
+            for (String file : PROJECT_FILES) project.add(file, new FileNode());
+            DirectoryNode java = dir(dir(dir(project, "src"), "main"), "java");
+            DirectoryNode test = dir(dir(dir(project, "src"), "test"), "java");
+            for (int m = 0; m < 5; m++) {
+                DirectoryNode module = dir(java, "module" + m);
+                for (int f = 0; f < 20; f++) module.add("Class" + p + "_" + m + "_" + f + ".java", new FileNode());
+                dir(test, "module" + m).add("index.js", new FileNode());
+            }
+            DirectoryNode modules = dir(project, "node_modules");
+            for (String pkg : PACKAGES) {
+                if (random.nextBoolean()) continue;
+                DirectoryNode dir = dir(modules, pkg);
+                for (String file : PACKAGE_FILES) dir.add(file, new FileNode());
+                dir(dir, "lib").add("index.js", new FileNode());
+            }
+        }
+        Path image = Files.createTempFile("fscli-names", ".json");
+        FilesystemFileManager files = new FilesystemFileManager(image);
+        files.save(root);
+        root = null;
+
+        long before = usedHeap();
+        FileSystemNode loaded = files.load().orElseThrow();
+        long after = usedHeap();
+        Files.delete(image);
+        int nodes = count(loaded);
+
+        System.out.printf("projects %d, nodes %d%n", projects, nodes);
+        System.out.printf("heap retained by image   %8.1f MB (%5.1f B/node)%n",
+                (after - before) / 1e6, (double) (after - before) / nodes);
+        if (loaded.getId() < 0) System.out.println(image);
+    }
+
+    private static DirectoryNode dir(DirectoryNode parent, String name) {
+        FileSystemNode existing = parent.get(name);
+        if (existing != null) return (DirectoryNode) existing;
+        DirectoryNode dir = new DirectoryNode();
+        parent.add(name, dir);
+        return dir;
+    }
+
+    private static int count(FileSystemNode node) {
+        int[] total = {1};
+        if (node instanceof DirectoryNode dir) dir.forEachChild((name, child) -> total[0] += count(child));
+        return total[0];
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,45 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated per node by bulk creation, measured with the per-thread
+ * allocation counter of HotSpot, both straight on the data layer and through
+ * {@code touch}.
+ */
+public class NodeAllocationBenchmark {
+    private static final int NODES = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        for (int round = 0; round < 3; round++) {
+            long start = allocated();
+            DirectoryNode dir = new DirectoryNode();
+            for (int i = 0; i < NODES; i++) {
+                dir.add("f" + i, new FileNode());
+            }
+            long direct = allocated() - start;
+
+            start = allocated();
+            InMemoryFileSystem fs = new InMemoryFileSystem();
+            fs.mkdir("dir");
+            for (int i = 0; i < NODES; i++) {
+                fs.touch("dir/f" + i);
+            }
+            long touched = allocated() - start;
+
+            if (round == 2) {
+                System.out.printf("%-40s %12.1f B/node%n", "new FileNode + add", (double) direct / NODES);
+                System.out.printf("%-40s %12.1f B/node%n", "touch", (double) touched / NODES);
+            }
+        }
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,71 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.offheap.OffHeapFileSystem;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the same large tree (directories of 1000 files) in the on-heap and
+ * off-heap filesystems, then reports heap in use after a full collection,
+ * the longest GC pause seen while building and the duration of a full
+ * collection with the tree alive. Run each implementation in its own JVM:
+ * <pre>
+ * java -Xmx3g -XX:MaxDirectMemorySize=3g -cp target/classes:target/test-classes \
+ *     backend.bench.OffHeapScaleBenchmark offheap 20000000
+ * </pre>
+ */
+public class OffHeapScaleBenchmark {
+    private static final int FILES_PER_DIR = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        boolean offHeap = args.length == 0 || args[0].equals("offheap");
+        int total = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        AtomicLong longestPause = new AtomicLong();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                longestPause.accumulateAndGet(info.getGcInfo().getDuration(), Math::max);
+            }, notification -> notification.getType()
+                    .equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION), null);
+        }
+
+        FileSystem fs = offHeap ? new OffHeapFileSystem() : new InMemoryFileSystem();
+        long start = System.nanoTime();
+        int created = 0;
+        for (int d = 0; created < total; d++) {
+            String dir = "/d" + d;
+            fs.mkdir(dir);
+            fs.cd(dir);
+            created++;
+            for (int f = 0; f < FILES_PER_DIR && created < total; f++, created++) {
+                fs.touch("f" + f);
+            }
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long buildPause = longestPause.get();
+
+        Runtime runtime = Runtime.getRuntime();
+        long gcStart = System.nanoTime();
+        System.gc();
+        long fullGcMillis = (System.nanoTime() - gcStart) / 1_000_000;
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+
+        System.out.printf("%s, %d nodes, built in %d ms%n", offHeap ? "off-heap" : "on-heap", created, buildMillis);
+        System.out.printf("heap in use              %10.1f MB%n", heap / 1e6);
+        if (fs instanceof OffHeapFileSystem store) {
+            System.out.printf("off-heap reserved        %10.1f MB%n", store.offHeapBytes() / 1e6);
+        }
+        System.out.printf("longest pause (build)    %10d ms%n", buildPause);
+        System.out.printf("full GC with tree alive  %10d ms%n", fullGcMillis);
+        fs.cd("/");
+        if (fs.ls("/", false).isEmpty()) System.out.println("empty");
+    }
+}
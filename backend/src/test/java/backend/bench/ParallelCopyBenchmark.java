@@ -0,0 +1,54 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * cp -r of a tree of about a million nodes (100 directories of 10
+ * subdirectories of 1000 files), first on the calling thread with no copy
+ * pool, the sequential baseline, then on copy pools of growing parallelism.
+ * Parallelism 1 still forks a task per directory, so it shows the cost of
+ * the tasks themselves. Each copy is removed again before the next round so
+ * the heap stays flat.
+ * <pre>
+ * java -Xmx3g -cp target/classes:target/test-classes backend.bench.ParallelCopyBenchmark [maxParallelism]
+ * </pre>
+ */
+public class ParallelCopyBenchmark {
+    private static final int TOP = 100;
+    private static final int SUB = 10;
+    private static final int FILES = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        int maxParallelism = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("/src");
+        for (int t = 0; t < TOP; t++) {
+            fs.mkdir("/src/t" + t);
+            for (int s = 0; s < SUB; s++) {
+                fs.mkdir("/src/t" + t + "/s" + s);
+                fs.cd("/src/t" + t + "/s" + s);
+                for (int f = 0; f < FILES; f++) fs.touch("f" + f);
+            }
+        }
+        fs.cd("/");
+        int nodes = 1 + TOP * (1 + SUB * (1 + FILES));
+        System.out.printf("%d cores available%n", Runtime.getRuntime().availableProcessors());
+
+        fs.setCopyPool(null);
+        Bench.measure("cp -r " + nodes + " nodes, sequential", nodes, () -> {
+            fs.cp("/src", "/copy");
+            fs.rm("/copy", true, false).await();
+        });
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            fs.setCopyPool(pool);
+            Bench.measure("cp -r " + nodes + " nodes, parallelism " + parallelism, nodes, () -> {
+                fs.cp("/src", "/copy");
+                fs.rm("/copy", true, false).await();
+            });
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.ReadView;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.serde.Serializer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A save running next to a writer: serializes a tree of about 200k nodes
+ * (200 directories of 1000 files) from a pinned read view while another
+ * thread keeps creating and touching files, and reports how long pinning
+ * takes, how long the save takes and how many writes got through meanwhile.
+ * <pre>
+ * java -Xmx3g -cp target/classes:target/test-classes:&lt;jackson jars&gt; backend.bench.ReadViewBenchmark
+ * </pre>
+ */
+public class ReadViewBenchmark {
+    private static final int DIRS = 200;
+    private static final int FILES = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        for (int d = 0; d < DIRS; d++) {
+            fs.mkdir("/d" + d);
+            fs.cd("/d" + d);
+            for (int f = 0; f < FILES; f++) fs.touch("f" + f);
+        }
+        fs.cd("/");
+        Serializer<FileSystemNode> serializer = new Serializer<>();
+        serializer.serialize(fs.getRoot());
+
+        long start = System.nanoTime();
+        ReadView view = fs.openReadView();
+        long pin = System.nanoTime() - start;
+
+        AtomicInteger writes = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    int i = writes.getAndIncrement();
+                    fs.touch("/d" + (i % DIRS) + "/new" + i);
+                    fs.touch("/d" + ((i + 7) % DIRS) + "/f" + (i % FILES));
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        start = System.nanoTime();
+        int length = serializer.serialize(view.getRoot()).length();
+        long save = System.nanoTime() - start;
+        done.set(true);
+        writer.join();
+        view.close();
+
+        System.out.printf("tree of %d nodes%n", 1 + DIRS * (1 + FILES));
+        System.out.printf("pin read view       %12.3f ms%n", pin / 1e6);
+        System.out.printf("save from view      %12.3f ms (%d chars)%n", save / 1e6, length);
+        System.out.printf("writes during save  %12d%n", writes.get() * 2);
+    }
+}
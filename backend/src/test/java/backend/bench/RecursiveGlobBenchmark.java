@@ -0,0 +1,39 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+
+import java.util.Iterator;
+
+/**
+ * Full-path glob expansion over a million files: 1000 directories of 1000
+ * files under /data. Compares a recursive pattern that visits every
+ * directory with patterns whose literal or wildcard components prune the
+ * walk, consuming matches one at a time as a streaming command would.
+ */
+public class RecursiveGlobBenchmark {
+    private static final int DIRS = 1_000;
+    private static final int FILES = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("/data");
+        for (int d = 0; d < DIRS; d++) {
+            fs.mkdir("/data/d" + d);
+            for (int f = 0; f < FILES; f++) {
+                fs.touch("/data/d" + d + "/f" + f + (f % 100 == 0 ? ".bak" : ".txt"));
+            }
+        }
+        long nodes = (long) DIRS * FILES;
+
+        for (String pattern : new String[] { "/data/**/*.bak", "/data/d1*/*.bak", "/data/d7/f?.txt" }) {
+            long[] count = {0};
+            Bench.measure(pattern, nodes, () -> {
+                count[0] = 0;
+                for (Iterator<String> it = fs.glob(pattern, fs.getCwd()); it.hasNext(); it.next()) {
+                    count[0]++;
+                }
+            });
+            System.out.printf("  %d matches%n", count[0]);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+
+/**
+ * The template workflow: a skeleton of about 500k nodes (50 modules of 10
+ * packages of 1000 files) copied over and over. Compares a full cp -r with
+ * cp --reflink, in time and in heap retained per copy, then times the
+ * first change inside a reflink copy, which opens only the directories on
+ * its path.
+ * <pre>
+ * java -Xmx3g -cp target/classes:target/test-classes backend.bench.ReflinkCopyBenchmark
+ * </pre>
+ */
+public class ReflinkCopyBenchmark {
+    private static final int MODULES = 50;
+    private static final int PACKAGES = 10;
+    private static final int FILES = 1_000;
+    private static final int COPIES = 100;
+
+    public static void main(String[] args) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("/tpl");
+        for (int m = 0; m < MODULES; m++) {
+            fs.mkdir("/tpl/m" + m);
+            for (int p = 0; p < PACKAGES; p++) {
+                fs.mkdir("/tpl/m" + m + "/p" + p);
+                fs.cd("/tpl/m" + m + "/p" + p);
+                for (int f = 0; f < FILES; f++) fs.touch("f" + f);
+            }
+        }
+        fs.cd("/");
+        int nodes = 1 + MODULES * (1 + PACKAGES * (1 + FILES));
+
+        long base = usedHeap();
+        long start = System.nanoTime();
+        fs.cp("/tpl", "/full");
+        long full = System.nanoTime() - start;
+        long fullHeap = usedHeap() - base;
+        fs.rm("/full", true, false).await();
+
+        base = usedHeap();
+        start = System.nanoTime();
+        for (int i = 0; i < COPIES; i++) fs.cp("/tpl", "/inst" + i, true);
+        long reflink = (System.nanoTime() - start) / COPIES;
+        long reflinkHeap = (usedHeap() - base) / COPIES;
+
+        start = System.nanoTime();
+        fs.touch("/inst0/m7/p3/new");
+        long firstChange = System.nanoTime() - start;
+        start = System.nanoTime();
+        fs.touch("/tpl/m8/p4/new");
+        long sourceChange = System.nanoTime() - start;
+
+        System.out.printf("tree of %d nodes%n", nodes);
+        System.out.printf("cp -r               %12.3f ms %12d bytes%n", full / 1e6, fullHeap);
+        System.out.printf("cp --reflink        %12.3f ms %12d bytes (mean of %d)%n", reflink / 1e6, reflinkHeap, COPIES);
+        System.out.printf("first change in copy   %9.3f ms%n", firstChange / 1e6);
+        System.out.printf("change in source       %9.3f ms (opens %d copies along the path)%n", sourceChange / 1e6, COPIES);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,52 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.Teardown;
+
+/**
+ * Clears a tree of {@code dirs} directories holding {@code files} files
+ * each, first one command at a time (rm every file, then rmdir every
+ * directory, the only way before rm -r), then with a single rm -r, timing
+ * both when the command returns and when its background teardown is done.
+ * <pre>
+ * java -Xmx3g -cp target/classes:target/test-classes backend.bench.RemoveTreeBenchmark [dirs] [files]
+ * </pre>
+ */
+public class RemoveTreeBenchmark {
+    public static void main(String[] args) throws Exception {
+        int dirs = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int files = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        for (int round = 0; round < 3; round++) {
+            InMemoryFileSystem fs = build(dirs, files);
+            long start = System.nanoTime();
+            for (int d = 0; d < dirs; d++) {
+                for (int f = 0; f < files; f++) fs.rm("/tree/d" + d + "/f" + f);
+                fs.rmdir("/tree/d" + d);
+            }
+            fs.rmdir("/tree");
+            long oneByOne = System.nanoTime() - start;
+
+            fs = build(dirs, files);
+            start = System.nanoTime();
+            Teardown teardown = fs.rm("/tree", true, false);
+            long returned = System.nanoTime() - start;
+            teardown.await();
+            long done = System.nanoTime() - start;
+
+            System.out.printf("%d nodes: rm + rmdir %8.1f ms | rm -r returns %8.3f ms, teardown done %8.1f ms (%d released)%n",
+                    dirs * (files + 1L) + 1, oneByOne / 1e6, returned / 1e6, done / 1e6, teardown.released());
+        }
+    }
+
+    private static InMemoryFileSystem build(int dirs, int files) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("/tree");
+        for (int d = 0; d < dirs; d++) {
+            fs.mkdir("/tree/d" + d);
+            fs.cd("/tree/d" + d);
+            for (int f = 0; f < files; f++) fs.touch("f" + f);
+        }
+        fs.cd("/");
+        return fs;
+    }
+}
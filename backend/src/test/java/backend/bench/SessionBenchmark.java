@@ -0,0 +1,61 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Throughput of sessions sharing one tree: each session works in a
+ * directory of its own, creating files and moving each one into a shared
+ * directory, with 1, 2, 4 and 8 sessions on as many threads.
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.SessionBenchmark
+ * </pre>
+ */
+public class SessionBenchmark {
+    private static final int OPS_PER_SESSION = 50_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int round = 0; round < 3; round++) {
+            for (int sessions = 1; sessions <= 8; sessions *= 2) {
+                run(sessions, round == 2);
+            }
+        }
+    }
+
+    private static void run(int sessions, boolean print) throws InterruptedException {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        try {
+            fs.mkdir("/shared");
+            List<Thread> threads = new ArrayList<>();
+            for (int s = 0; s < sessions; s++) {
+                InMemoryFileSystem session = fs.openSession();
+                String home = "/s" + s;
+                session.mkdir(home);
+                session.cd(home);
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < OPS_PER_SESSION; i++) {
+                            session.touch("f" + i);
+                            session.mv("f" + i, "/shared/" + home.substring(1) + "-" + i);
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            long start = System.nanoTime();
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+            long elapsed = System.nanoTime() - start;
+            if (print) {
+                long ops = 2L * sessions * OPS_PER_SESSION;
+                System.out.printf("%d session(s)  %10.3f ms  %12.0f ops/s%n",
+                        sessions, elapsed / 1e6, ops / (elapsed / 1e9));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+
+/**
+ * Checkpoint and rollback on a tree of about 100k nodes (100 directories of
+ * 1000 files): times taking a snapshot, a handful of edits after it, and a
+ * restore, and measures the heap each retained snapshot costs once a few
+ * files have changed.
+ * <pre>
+ * java -Xmx3g -cp target/classes:target/test-classes backend.bench.SnapshotBenchmark
+ * </pre>
+ */
+public class SnapshotBenchmark {
+    private static final int DIRS = 100;
+    private static final int FILES = 1_000;
+    private static final int SNAPSHOTS = 50;
+
+    public static void main(String[] args) throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        for (int d = 0; d < DIRS; d++) {
+            fs.mkdir("/d" + d);
+            fs.cd("/d" + d);
+            for (int f = 0; f < FILES; f++) fs.touch("f" + f);
+        }
+        fs.cd("/");
+
+        long base = usedHeap();
+        long take = 0;
+        long edit = 0;
+        for (int i = 0; i < SNAPSHOTS; i++) {
+            long start = System.nanoTime();
+            fs.createSnapshot("s" + i);
+            take += System.nanoTime() - start;
+            start = System.nanoTime();
+            fs.touch("/d" + (i % DIRS) + "/new" + i);
+            fs.rm("/d" + ((i + 1) % DIRS) + "/f" + i);
+            edit += System.nanoTime() - start;
+        }
+        long perSnapshot = (usedHeap() - base) / SNAPSHOTS;
+
+        long start = System.nanoTime();
+        fs.restoreSnapshot("s0");
+        long restore = System.nanoTime() - start;
+        start = System.nanoTime();
+        int entries = 0;
+        for (int d = 0; d < DIRS; d++) entries += fs.ls("/d" + d, false).size();
+        long firstWalk = System.nanoTime() - start;
+
+        System.out.printf("tree of %d nodes, %d snapshots%n", 1 + DIRS * (1 + FILES), SNAPSHOTS);
+        System.out.printf("snapshot create     %12.3f ms (mean)%n", take / 1e6 / SNAPSHOTS);
+        System.out.printf("two edits after it  %12.3f ms (mean)%n", edit / 1e6 / SNAPSHOTS);
+        System.out.printf("heap per snapshot   %12d bytes%n", perSnapshot);
+        System.out.printf("snapshot restore    %12.3f ms%n", restore / 1e6);
+        System.out.printf("first full walk     %12.3f ms (%d entries)%n", firstWalk / 1e6, entries);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
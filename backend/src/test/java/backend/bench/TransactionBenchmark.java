@@ -0,0 +1,66 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.command.MkdirCommand;
+import ch.supsi.fscli.backend.core.command.TouchCommand;
+import ch.supsi.fscli.backend.provider.executor.CommandExecutor;
+import ch.supsi.fscli.backend.provider.parser.CommandParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of running commands as one transaction: 20k touch commands executed
+ * one by one, then as a committed batch, then as a batch whose last
+ * command fails so all of it is rolled back.
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.TransactionBenchmark
+ * </pre>
+ */
+public class TransactionBenchmark {
+    private static final int COMMANDS = 20_000;
+
+    public static void main(String[] args) {
+        for (int round = 0; round < 3; round++) {
+            run(round == 2);
+        }
+    }
+
+    private static void run(boolean print) {
+        List<String> batch = new ArrayList<>(COMMANDS);
+        for (int i = 0; i < COMMANDS; i++) batch.add("touch /d/f" + i);
+
+        CommandExecutor single = executor();
+        long start = System.nanoTime();
+        for (String command : batch) single.execute(command);
+        long one = System.nanoTime() - start;
+
+        CommandExecutor committed = executor();
+        start = System.nanoTime();
+        committed.executeBatch(batch);
+        long commit = System.nanoTime() - start;
+
+        CommandExecutor rolledBack = executor();
+        List<String> failing = new ArrayList<>(batch);
+        failing.add("mkdir /d");
+        start = System.nanoTime();
+        rolledBack.executeBatch(failing);
+        long rollback = System.nanoTime() - start;
+
+        if (print) {
+            System.out.printf("%d touch commands%n", COMMANDS);
+            System.out.printf("one by one          %10.3f ms%n", one / 1e6);
+            System.out.printf("batch, committed    %10.3f ms%n", commit / 1e6);
+            System.out.printf("batch, rolled back  %10.3f ms%n", rollback / 1e6);
+        }
+    }
+
+    private static CommandExecutor executor() {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        CommandExecutor executor = new CommandExecutor(fs, new CommandParser());
+        executor.registerCommand(new TouchCommand());
+        executor.registerCommand(new MkdirCommand());
+        executor.execute("mkdir /d");
+        return executor;
+    }
+}
@@ -0,0 +1,41 @@
+package backend.bench;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.provider.resolver.PathResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes 20k files one {@code rm} at a time with the dentry cache already
+ * holding a lookup for each of them, as after a listing or a previous pass
+ * over the same names. Each removal changes the one directory, so it should
+ * only cost the entries that went through it, not a sweep of the whole
+ * cache. Each round starts from a freshly filled and warmed directory,
+ * whose setup is part of the measurement.
+ * <pre>
+ * java -cp target/classes:target/test-classes backend.bench.WarmRemoveBenchmark
+ * </pre>
+ */
+public class WarmRemoveBenchmark {
+    private static final int FILES = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> names = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            names.add("/d/f" + i);
+        }
+        Bench.measure("rm per path, warm cache", FILES, () -> {
+            InMemoryFileSystem fs = new InMemoryFileSystem();
+            fs.mkdir("/d");
+            fs.touchAll(names);
+            for (String name : names) {
+                fs.resolveNode(name, false);
+            }
+            for (String name : names) {
+                fs.rm(name);
+            }
+        });
+        System.out.printf("dentry cache hit ratio %.2f%n", PathResolver.getInstance().getDentryCache().getHitRatio());
+    }
+}
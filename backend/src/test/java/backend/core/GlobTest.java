@@ -0,0 +1,78 @@
+package backend.core;
+
+import ch.supsi.fscli.backend.core.Glob;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobTest {
+
+    @Test
+    void testStarAndQuestionMark() {
+        Glob glob = Glob.compile("*.tmp");
+        assertTrue(glob.matches("a.tmp"));
+        assertTrue(glob.matches(".tmp"));
+        assertFalse(glob.matches("a.tmpx"));
+        assertFalse(glob.matches("tmp"));
+
+        assertTrue(Glob.compile("f?.txt").matches("f1.txt"));
+        assertFalse(Glob.compile("f?.txt").matches("f.txt"));
+        assertFalse(Glob.compile("f?.txt").matches("f12.txt"));
+    }
+
+    @Test
+    void testPrefixAndSuffixDoNotOverlap() {
+        Glob glob = Glob.compile("ab*ba");
+        assertTrue(glob.matches("abba"));
+        assertTrue(glob.matches("ab-ba"));
+        assertFalse(glob.matches("aba"));
+        assertFalse(Glob.compile("a*a").matches("a"));
+    }
+
+    @Test
+    void testStarsBacktrack() {
+        Glob glob = Glob.compile("*a*b?c*");
+        assertTrue(glob.matches("xxaxxbyc"));
+        assertTrue(glob.matches("abbbxc"));
+        assertFalse(glob.matches("xxaxxbc"));
+        assertTrue(Glob.compile("**").matches(""));
+        assertTrue(Glob.compile("a**b").matches("ab"));
+    }
+
+    @Test
+    void testSets() {
+        Glob range = Glob.compile("log[0-9].txt");
+        assertTrue(range.matches("log7.txt"));
+        assertFalse(range.matches("logx.txt"));
+
+        Glob negated = Glob.compile("[!a-c]*");
+        assertTrue(negated.matches("data"));
+        assertFalse(negated.matches("beta"));
+        assertTrue(Glob.compile("[^a]").matches("b"));
+
+        Glob members = Glob.compile("[]ab]");
+        assertTrue(members.matches("]"));
+        assertTrue(members.matches("b"));
+        assertFalse(members.matches("c"));
+    }
+
+    @Test
+    void testUnclosedBracketIsLiteral() {
+        assertFalse(Glob.isGlob("a[b"));
+        assertTrue(Glob.compile("a[b").matches("a[b"));
+        assertTrue(Glob.compile("*[").matches("x["));
+    }
+
+    @Test
+    void testIsGlob() {
+        assertTrue(Glob.isGlob("*.txt"));
+        assertTrue(Glob.isGlob("f?"));
+        assertTrue(Glob.isGlob("[ab]"));
+        assertFalse(Glob.isGlob("plain.txt"));
+    }
+
+    @Test
+    void testCompiledGlobsAreCached() {
+        assertSame(Glob.compile("cached-*"), Glob.compile("cached-*"));
+    }
+}
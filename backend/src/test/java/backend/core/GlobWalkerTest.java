@@ -0,0 +1,110 @@
+package backend.core;
+
+import ch.supsi.fscli.backend.core.GlobWalker;
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.core.offheap.OffHeapFileSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobWalkerTest {
+
+    private InMemoryFileSystem fs;
+
+    @BeforeEach
+    void setUp() throws FSException {
+        fs = new InMemoryFileSystem();
+        for (String dir : List.of("/src", "/src/a", "/src/b", "/src/b/deep", "/tmp", "/tmp/x", "/tmp/x/y")) {
+            fs.mkdir(dir);
+        }
+        for (String file : List.of("/src/a/Main.java", "/src/a/Util.java", "/src/b/Main.kt",
+                "/src/b/deep/Main.java", "/tmp/1.bak", "/tmp/x/2.bak", "/tmp/x/y/3.bak", "/tmp/x/y/4.txt")) {
+            fs.touch(file);
+        }
+    }
+
+    @Test
+    void testMultiComponentPattern() {
+        assertEquals(List.of("src/a/Main.java", "src/b/Main.kt"), expand("src/*/Main*"));
+        assertEquals(List.of("/src/a/Util.java"), expand("/src/?/U*"));
+    }
+
+    @Test
+    void testRecursivePattern() {
+        assertEquals(List.of("/tmp/1.bak", "/tmp/x/2.bak", "/tmp/x/y/3.bak"), expand("/tmp/**/*.bak"));
+        assertEquals(List.of("src/a/Main.java", "src/b/deep/Main.java"), expand("src/**/Main.java"));
+    }
+
+    @Test
+    void testTrailingRecursionListsEverythingBelow() {
+        assertEquals(List.of("/tmp/x/y", "/tmp/x/y/3.bak", "/tmp/x/y/4.txt", "/tmp/x/2.bak"), expand("/tmp/x/**"));
+    }
+
+    @Test
+    void testTrailingSlashMatchesDirectoriesOnly() {
+        assertEquals(List.of("src/a/", "src/b/"), expand("src/*/"));
+        assertEquals(List.of("/tmp/x/", "/tmp/x/y/"), expand("/tmp/**/"));
+    }
+
+    @Test
+    void testRelativePatternsStartAtTheCwd() throws FSException {
+        fs.cd("/src");
+        assertEquals(List.of("a/Main.java", "b/Main.kt"), expand("*/Main*"));
+        assertEquals(List.of("../tmp/1.bak"), expand("../tmp/*.bak"));
+    }
+
+    @Test
+    void testNoMatchYieldsThePattern() {
+        assertEquals(List.of("src/*/Nothing*"), expand("src/*/Nothing*"));
+        assertEquals(List.of("missing/*/x"), expand("missing/*/x"));
+        assertEquals(List.of("plain/path"), expand("plain/path"));
+    }
+
+    @Test
+    void testFollowsSymlinksExceptUnderRecursion() throws FSException {
+        fs.ln("/src/b", "/tmp/link", true);
+        assertEquals(List.of("/tmp/link/Main.kt"), expand("/tmp/*/Main.kt"));
+        assertFalse(expand("/tmp/**/Main.kt").contains("/tmp/link/Main.kt"));
+    }
+
+    @Test
+    void testSkipsDirectoriesRemovedWhileWalking() throws FSException {
+        GlobWalker walker = new GlobWalker(fs, "/tmp/**/*.bak", fs.getCwd());
+        assertEquals("/tmp/1.bak", walker.next());
+        fs.rm("/tmp/x", true, false);
+        List<String> rest = new ArrayList<>();
+        walker.forEachRemaining(rest::add);
+        assertEquals(List.of(), rest);
+    }
+
+    @Test
+    void testSkipsDirectoriesRemovedAfterARestore() throws FSException {
+        fs.createSnapshot("before");
+        fs.restoreSnapshot("before");
+        GlobWalker walker = new GlobWalker(fs, "/tmp/**/*.bak", fs.getCwd());
+        assertEquals("/tmp/1.bak", walker.next());
+        fs.rm("/tmp/x", true, false);
+        List<String> rest = new ArrayList<>();
+        walker.forEachRemaining(rest::add);
+        assertEquals(List.of(), rest);
+    }
+
+    @Test
+    void testWalksOffHeapTrees() throws FSException {
+        OffHeapFileSystem offHeap = new OffHeapFileSystem(fs.getRoot());
+        List<String> matches = new ArrayList<>();
+        offHeap.glob("/tmp/**/*.bak", offHeap.getCwd()).forEachRemaining(matches::add);
+        assertEquals(List.of("/tmp/1.bak", "/tmp/x/2.bak", "/tmp/x/y/3.bak"), matches);
+    }
+
+    private List<String> expand(String pattern) {
+        List<String> matches = new ArrayList<>();
+        fs.glob(pattern, fs.getCwd()).forEachRemaining(matches::add);
+        return matches;
+    }
+}
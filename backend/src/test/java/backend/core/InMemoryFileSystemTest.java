@@ -1,13 +1,23 @@
 package backend.core;
 
 import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.ReadView;
+import ch.supsi.fscli.backend.core.Teardown;
 import ch.supsi.fscli.backend.core.exception.*;
 import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
 import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.LinkNode;
+import ch.supsi.fscli.backend.data.serde.Serializer;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -252,6 +262,17 @@ class InMemoryFileSystemTest {
         assertNotNull(result);
     }
 
+    @Test
+    void testExpWildcardMatchesSetsInOrder() throws FSException {
+        for (String name : List.of("b1.txt", "a2.txt", "c.txt", "a3.log")) {
+            fs.touch(name);
+        }
+        assertEquals(List.of("b1.txt", "a2.txt"), fs.expWildcard("[ab]?.txt", fs.getCwd()));
+        assertEquals(List.of("c.txt"), fs.expWildcard("[!ab]*", fs.getCwd()));
+        assertEquals(List.of("*.md"), fs.expWildcard("*.md", fs.getCwd()));
+        assertEquals(List.of("plain"), fs.expWildcard("plain", fs.getCwd()));
+    }
+
     @Test
     void testResolveNode() throws FSException {
         fs.mkdir("test");
@@ -311,6 +332,52 @@ class InMemoryFileSystemTest {
         assertEquals(2, nodes.size());
     }
 
+    @Test
+    void testFindByInode() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("dir/file");
+        FileSystemNode file = fs.resolveNode("dir/file", false);
+
+        assertSame(file, fs.findByInode(file.getId()));
+        assertSame(fs.getRoot(), fs.findByInode(fs.getRoot().getId()));
+        assertNull(fs.findByInode(999_999));
+    }
+
+    @Test
+    void testInodeNumbersArePerFileSystemAndReused() throws FSException {
+        InMemoryFileSystem other = new InMemoryFileSystem();
+        fs.touch("a");
+        other.touch("a");
+        assertEquals(fs.resolveNode("a", false).getId(), other.resolveNode("a", false).getId());
+
+        int freed = fs.resolveNode("a", false).getId();
+        fs.rm("a");
+        assertNull(fs.findByInode(freed));
+        fs.touch("b");
+        assertEquals(freed, fs.resolveNode("b", false).getId());
+    }
+
+    @Test
+    void testRemovingOneHardLinkKeepsInode() throws FSException {
+        fs.touch("a");
+        fs.ln("a", "b", false);
+        FileSystemNode node = fs.resolveNode("a", false);
+        int id = node.getId();
+        fs.rm("a");
+        assertSame(node, fs.findByInode(id));
+    }
+
+    @Test
+    void testForEachChild() throws FSException {
+        fs.mkdir("dir1");
+        fs.touch("file1.txt");
+
+        List<String> names = new ArrayList<>();
+        fs.forEachChild(fs.getCwd(), (name, node) -> names.add(name));
+
+        assertEquals(List.of("dir1", "file1.txt"), names);
+    }
+
     @Test
     void testExtractFileName() {
         assertEquals("file.txt", fs.extractFileName("/home/user/file.txt"));
@@ -352,6 +419,23 @@ class InMemoryFileSystemTest {
         assertTrue(files.contains("child/"));
     }
 
+    @Test
+    void testTrailingSlashNeverCreatesAFile() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("file");
+
+        assertThrows(NotFoundException.class, () -> fs.touch("t/"));
+        assertThrows(NotFoundException.class, () -> fs.touchAll(List.of("t/.")));
+        assertThrows(NotADirectoryException.class, () -> fs.touch("file/"));
+        assertThrows(NotFoundException.class, () -> fs.ln("file", "l/", true));
+        assertThrows(NotFoundException.class, () -> fs.ln("file", "h/", false));
+        assertEquals(List.of("dir/", "file"), fs.ls(".", false));
+
+        fs.touch("dir/");
+        fs.ln("dir", "link", true);
+        fs.touch("link/");
+    }
+
     @Test
     void testTouchWithParentPath() throws FSException {
         fs.mkdir("parent");
@@ -372,4 +456,741 @@ class InMemoryFileSystemTest {
         List<String> files = fs.ls(".", false);
         assertFalse(files.contains("file.txt"));
     }
+
+    @Test
+    void testRmRecursiveDetachesAndReleasesSubtree() throws FSException {
+        fs.mkdir("tree");
+        fs.mkdir("tree/sub");
+        fs.touch("tree/sub/file");
+        fs.ln("/tree/sub/file", "outside", false);
+        FileSystemNode file = fs.resolveNode("outside", false);
+        int subId = fs.resolveNode("tree/sub", false).getId();
+
+        Teardown teardown = fs.rm("tree", true, false);
+        assertThrows(NotFoundException.class, () -> fs.resolveNode("tree", false));
+        teardown.await();
+
+        assertTrue(teardown.isDone());
+        assertEquals(2, teardown.released());
+        assertNull(fs.findByInode(subId));
+        assertSame(file, fs.findByInode(file.getId()));
+        assertEquals(1, file.getLinkCount());
+        assertEquals(1, file.dentries().size());
+        assertEquals("/outside", file.absolutePath());
+    }
+
+    @Test
+    void testRmRecursiveResetsCwdInsideRemovedTree() throws FSException {
+        fs.mkdir("a");
+        fs.mkdir("a/b");
+        fs.cd("a/b");
+        fs.rm("/a", true, false).await();
+        assertEquals("/", fs.pwd());
+    }
+
+    @Test
+    void testRmWithoutRecursiveRejectsDirectory() throws FSException {
+        fs.mkdir("dir");
+        assertThrows(FSException.class, () -> fs.rm("dir", false, false));
+        assertThrows(FSException.class, () -> fs.rm("/", true, false));
+        fs.cd("dir");
+        assertThrows(FSException.class, () -> fs.rm(".", true, false));
+        assertThrows(FSException.class, () -> fs.rm("..", true, false));
+    }
+
+    @Test
+    void testRmForceIgnoresMissingPath() throws FSException {
+        assertTrue(fs.rm("missing", false, true).isDone());
+        assertThrows(NotFoundException.class, () -> fs.rm("missing", false, false));
+    }
+
+    @Test
+    void testRmDecrementsHardLinkCount() throws FSException {
+        fs.touch("a");
+        fs.ln("a", "b", false);
+        FileSystemNode node = fs.resolveNode("a", false);
+        assertEquals(2, node.getLinkCount());
+        fs.rm("a");
+        assertEquals(1, node.getLinkCount());
+    }
+
+    @Test
+    void testCpRecursiveCopiesTreeInListingOrder() throws FSException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            fs.setCopyPool(pool);
+            assertRecursiveCopyKeepsListingOrder();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCpRecursiveWithoutAPoolCopiesOnTheCallingThread() throws FSException {
+        fs.setCopyPool(null);
+        assertRecursiveCopyKeepsListingOrder();
+    }
+
+    private void assertRecursiveCopyKeepsListingOrder() throws FSException {
+        fs.mkdir("src");
+        for (int d = 0; d < 20; d++) {
+            fs.mkdir("src/d" + d);
+            fs.touch("src/f" + d);
+            for (int f = 0; f < 20; f++) {
+                fs.touch("src/d" + d + "/f" + f);
+            }
+        }
+        fs.ln("f0", "src/d0/link", true);
+
+        fs.cp("src", "copy");
+
+        assertEquals(fs.ls("src", false), fs.ls("copy", false));
+        assertEquals(fs.ls("src/d7", false), fs.ls("copy/d7", false));
+        assertEquals("f0", ((LinkNode) fs.resolveNode("copy/d0/link", false)).getTarget());
+        Set<Integer> ids = new HashSet<>();
+        fs.forEachChild((DirectoryNode) fs.resolveNode("copy", false), (name, node) -> {
+            assertTrue(ids.add(node.getId()));
+            assertSame(node, fs.findByInode(node.getId()));
+        });
+    }
+
+    @Test
+    void testCpRecursiveIntoItselfTerminates() throws FSException {
+        fs.mkdir("a");
+        fs.touch("a/file");
+        fs.cp("a", "a/inner");
+        assertEquals(List.of("file", "inner/"), fs.ls("a", false));
+        assertEquals(List.of("file"), fs.ls("a/inner", false));
+    }
+
+    @Test
+    void testCpToExistingNameFails() throws FSException {
+        fs.mkdir("a");
+        fs.touch("b");
+        assertThrows(AlreadyExistsException.class, () -> fs.cp("a", "b"));
+        assertTrue(fs.resolveNode("b", false) instanceof FileNode);
+    }
+
+    @Test
+    void testReflinkCopySharesUntilOpened() throws FSException {
+        fs.mkdir("tpl");
+        fs.mkdir("tpl/src");
+        fs.touch("tpl/src/Main.java");
+        fs.touch("tpl/README");
+        fs.ln("README", "tpl/readme", true);
+
+        fs.cp("tpl", "inst", true);
+        DirectoryNode inst = (DirectoryNode) fs.resolveNode("inst", false);
+
+        assertEquals(List.of("src/", "README", "readme -> README"), fs.ls("inst", false));
+        assertEquals(List.of("Main.java"), fs.ls("inst/src", false));
+        FileSystemNode copied = fs.resolveNode("inst/src/Main.java", false);
+        assertNotSame(fs.resolveNode("tpl/src/Main.java", false), copied);
+        assertEquals("/inst/src/Main.java", copied.absolutePath());
+        assertSame(copied, fs.findByInode(copied.getId()));
+        assertSame(inst, fs.findByInode(inst.getId()));
+    }
+
+    @Test
+    void testReflinkCopyIsIsolatedFromBothSides() throws FSException {
+        fs.mkdir("tpl");
+        fs.mkdir("tpl/sub");
+        fs.touch("tpl/sub/a");
+
+        fs.cp("tpl", "one", true);
+        fs.cp("tpl", "two", true);
+        fs.touch("tpl/sub/b");
+        fs.rm("tpl/sub/a");
+        fs.touch("one/sub/c");
+
+        assertEquals(List.of("b"), fs.ls("tpl/sub", false));
+        assertEquals(List.of("a", "c"), fs.ls("one/sub", false));
+        assertEquals(List.of("a"), fs.ls("two/sub", false));
+    }
+
+    @Test
+    void testReflinkCopyOfCopyAndIntoItself() throws FSException {
+        fs.mkdir("tpl");
+        fs.touch("tpl/a");
+        fs.cp("tpl", "first", true);
+        fs.cp("first", "second", true);
+        fs.cp("tpl", "tpl/inner", true);
+        fs.rm("tpl/a");
+
+        assertEquals(List.of("a"), fs.ls("second", false));
+        assertEquals(List.of("inner/"), fs.ls("tpl", false));
+        assertEquals(List.of("a"), fs.ls("tpl/inner", false));
+    }
+
+    @Test
+    void testRemovingUnopenedReflinkCopy() throws FSException {
+        fs.mkdir("tpl");
+        fs.touch("tpl/a");
+        fs.cp("tpl", "copy", true);
+        fs.rm("copy", true, false).await();
+        fs.touch("tpl/b");
+        assertEquals(List.of("a", "b"), fs.ls("tpl", false));
+        assertThrows(NotFoundException.class, () -> fs.resolveNode("copy", false));
+    }
+
+    @Test
+    void testSnapshotRestoreRollsBackTheTree() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("dir/a");
+        fs.createSnapshot("before");
+        fs.rm("dir/a");
+        fs.touch("dir/b");
+        fs.mkdir("other");
+        fs.cd("other");
+
+        fs.restoreSnapshot("before");
+
+        assertEquals(List.of("dir/"), fs.ls("/", false));
+        assertEquals(List.of("a"), fs.ls("dir", false));
+        assertEquals("/", fs.pwd());
+        assertSame(fs.getRoot(), fs.resolveNode("dir", false).getParent());
+    }
+
+    @Test
+    void testSnapshotSurvivesChangesAfterRestore() throws FSException {
+        fs.mkdir("dir");
+        fs.createSnapshot("s");
+        fs.cd("dir");
+        fs.restoreSnapshot("s");
+        assertEquals("/dir", fs.pwd());
+
+        fs.touch("x");
+        fs.restoreSnapshot("s");
+        assertTrue(fs.ls("/dir", false).isEmpty());
+        assertEquals(List.of("s"), fs.listSnapshots());
+    }
+
+    @Test
+    void testRestoreKeepsInodesLinksAndTimes() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("dir/f1");
+        fs.ln("dir/f1", "hl", false);
+        fs.ln("dir", "sym", true);
+        FileSystemNode f1 = fs.resolveNode("dir/f1", false);
+        FileSystemNode dir = fs.resolveNode("dir", false);
+        int id = f1.getId();
+        long mtime = f1.getMTimeNanos();
+        long ctime = f1.getCTimeNanos();
+        long dirMtime = dir.getMTimeNanos();
+        int symId = fs.resolveNode("sym", false).getId();
+        fs.createSnapshot("s");
+
+        fs.touch("dir/f1");
+        fs.rm("hl");
+        fs.rm("sym");
+        fs.touch("dir/new");
+        fs.restoreSnapshot("s");
+
+        FileSystemNode restored = fs.resolveNode("dir/f1", false);
+        assertSame(restored, fs.resolveNode("hl", false));
+        assertEquals(id, restored.getId());
+        assertEquals(2, restored.getLinkCount());
+        assertEquals(mtime, restored.getMTimeNanos());
+        assertEquals(ctime, restored.getCTimeNanos());
+        assertEquals(dirMtime, fs.resolveNode("dir", false).getMTimeNanos());
+        assertEquals(symId, fs.resolveNode("sym", false).getId());
+        assertSame(restored, fs.findByInode(id));
+        assertSame(fs.getRoot(), fs.findByInode(fs.getRoot().getId()));
+
+        fs.touch("fresh");
+        Set<Integer> ids = new HashSet<>(List.of(fs.getRoot().getId(), id, symId, fs.resolveNode("dir", false).getId()));
+        assertTrue(ids.add(fs.resolveNode("fresh", false).getId()));
+    }
+
+    @Test
+    void testRestoreMovesOtherSessionsOutOfTheDroppedTree() throws FSException {
+        fs.createSnapshot("s");
+        fs.mkdir("/q");
+        fs.mkdir("/q/r");
+        InMemoryFileSystem other = fs.openSession();
+        other.cd("/q/r");
+
+        fs.restoreSnapshot("s");
+
+        assertEquals("/", other.pwd());
+        other.touch("z");
+        assertEquals(List.of("z"), fs.ls("/", false));
+        assertThrows(NotFoundException.class, () -> fs.ls("/q", false));
+    }
+
+    @Test
+    void testSnapshotErrorsAndDrop() throws FSException {
+        fs.createSnapshot("s");
+        assertThrows(AlreadyExistsException.class, () -> fs.createSnapshot("s"));
+        assertThrows(NotFoundException.class, () -> fs.restoreSnapshot("missing"));
+        fs.dropSnapshot("s");
+        assertTrue(fs.listSnapshots().isEmpty());
+        assertThrows(NotFoundException.class, () -> fs.dropSnapshot("s"));
+    }
+
+    @Test
+    void testReadViewIgnoresLaterChanges() throws Exception {
+        fs.mkdir("dir");
+        fs.mkdir("dir/sub");
+        fs.touch("dir/sub/a");
+        fs.ln("dir/sub/a", "hard", false);
+        fs.ln("dir", "sym", true);
+        String before = new Serializer<FileSystemNode>().serialize(fs.getRoot());
+
+        try (ReadView view = fs.openReadView()) {
+            fs.touch("dir/sub/a");
+            fs.rm("hard");
+            fs.touch("dir/sub/b");
+            fs.mv("dir", "moved");
+            fs.rm("/moved", true, false).await();
+
+            assertEquals(before, new Serializer<FileSystemNode>().serialize(view.getRoot()));
+            DirectoryNode sub = (DirectoryNode) ((DirectoryNode) view.getRoot().get("dir")).get("sub");
+            assertSame(sub.get("a"), view.getRoot().get("hard"));
+            assertEquals(2, sub.get("a").getLinkCount());
+        }
+        assertEquals(List.of("sym -> dir"), fs.ls("/", false));
+    }
+
+    @Test
+    void testReadViewDoesNotChangeTheLiveTree() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("dir/a");
+        FileSystemNode a = fs.resolveNode("dir/a", false);
+        ReadView view = fs.openReadView();
+        DirectoryNode dir = (DirectoryNode) view.getRoot().get("dir");
+
+        assertEquals(a.getId(), dir.get("a").getId());
+        assertNotSame(a, dir.get("a"));
+        assertSame(a, fs.findByInode(a.getId()));
+        view.close();
+        view.close();
+        assertTrue(view.isClosed());
+        assertThrows(IllegalStateException.class, view::getRoot);
+
+        fs.touch("dir/b");
+        assertEquals(List.of("a", "b"), fs.ls("dir", false));
+    }
+
+    @Test
+    void testReadViewCoversCopiedSubtrees() throws Exception {
+        fs.mkdir("dir");
+        fs.mkdir("dir/sub");
+        fs.touch("dir/sub/a");
+        fs.cp("dir", "copy");
+        InMemoryFileSystem other = new InMemoryFileSystem();
+        other.mkdir("dir");
+
+        try (ReadView view = fs.openReadView()) {
+            fs.touch("copy/sub/b");
+            other.touch("dir/x");
+
+            DirectoryNode copy = (DirectoryNode) view.getRoot().get("copy");
+            assertEquals(List.of("a"), ((DirectoryNode) copy.get("sub")).listNames());
+        }
+        assertEquals(List.of("a", "b"), fs.ls("copy/sub", false));
+    }
+
+    @Test
+    void testReadViewWhileWriterRuns() throws Exception {
+        fs.mkdir("dir");
+        for (int i = 0; i < 200; i++) {
+            fs.touch("dir/f" + i);
+        }
+        try (ReadView view = fs.openReadView()) {
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        fs.rm("dir/f" + i);
+                        fs.touch("dir/g" + i);
+                    }
+                } catch (FSException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            writer.start();
+            DirectoryNode dir = (DirectoryNode) view.getRoot().get("dir");
+            List<String> names = dir.listNames();
+            writer.join();
+            assertEquals(200, names.size());
+            assertTrue(names.stream().allMatch(name -> name.startsWith("f")));
+        }
+        assertEquals(200, fs.ls("dir", false).size());
+    }
+
+    @Test
+    void testRollbackUndoesEveryChange() throws Exception {
+        fs.mkdir("dir");
+        fs.mkdir("dir/sub");
+        fs.touch("dir/sub/a");
+        fs.touch("dir/b");
+        fs.ln("dir/b", "hard", false);
+        fs.cd("dir");
+        Serializer<FileSystemNode> serializer = new Serializer<>();
+        String before = serializer.serialize(fs.getRoot());
+        List<String> inodesBefore = fs.ls("/dir", true);
+
+        fs.begin();
+        fs.mkdir("new");
+        fs.touch("b");
+        fs.touch("sub/c");
+        fs.rm("/hard");
+        fs.ln("b", "/hard2", false);
+        fs.ln("sub", "sym", true);
+        fs.mv("sub/a", "moved");
+        fs.cp("sub", "/copy");
+        Teardown teardown = fs.rm("sub", true, false);
+        fs.rmdir("new");
+        fs.cd("/");
+        fs.rollback();
+
+        assertFalse(fs.inTransaction());
+        assertTrue(teardown.isDone());
+        assertEquals(0, teardown.released());
+        assertEquals(before, serializer.serialize(fs.getRoot()));
+        assertEquals(inodesBefore, fs.ls("/dir", true));
+        assertEquals("/dir", fs.pwd());
+        assertEquals(2, fs.resolveNode("/hard", false).getLinkCount());
+    }
+
+    @Test
+    void testCommitKeepsChangesAndReleasesRemovedNodes() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("dir/a");
+        FileSystemNode a = fs.resolveNode("dir/a", false);
+
+        fs.begin();
+        fs.rm("dir/a");
+        Teardown teardown = fs.rm("dir", true, false);
+        assertSame(a, fs.findByInode(a.getId()));
+        assertFalse(teardown.isDone());
+        fs.commit();
+
+        teardown.await();
+        assertTrue(fs.ls("/", false).isEmpty());
+        assertNull(fs.findByInode(a.getId()));
+    }
+
+    @Test
+    void testTransactionErrors() throws FSException {
+        assertThrows(FSException.class, () -> fs.commit());
+        assertThrows(FSException.class, () -> fs.rollback());
+        fs.createSnapshot("s");
+        fs.begin();
+        assertThrows(FSException.class, () -> fs.begin());
+        assertThrows(FSException.class, () -> fs.restoreSnapshot("s"));
+        fs.commit();
+        assertFalse(fs.inTransaction());
+    }
+
+    @Test
+    void testOtherWritersWaitForTheTransaction() throws Exception {
+        fs.begin();
+        fs.touch("mine");
+        Thread other = new Thread(() -> {
+            try {
+                fs.touch("theirs");
+            } catch (FSException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        other.start();
+        other.join(200);
+        assertTrue(other.isAlive());
+        assertEquals(List.of("mine"), fs.ls("/", false));
+        fs.rollback();
+        other.join();
+        assertEquals(List.of("theirs"), fs.ls("/", false));
+    }
+
+    @Test
+    void testSessionsHaveTheirOwnCwd() throws FSException {
+        fs.mkdir("/a");
+        fs.mkdir("/b");
+        InMemoryFileSystem other = fs.openSession();
+        fs.cd("/a");
+        other.cd("/b");
+        other.touch("f");
+
+        assertEquals("/a", fs.pwd());
+        assertEquals("/b", other.pwd());
+        assertEquals(List.of("f"), fs.ls("/b", false));
+        assertSame(fs.getRoot(), other.getRoot());
+    }
+
+    @Test
+    void testRemovingASessionsCwdSendsItToRoot() throws FSException {
+        fs.mkdir("/a");
+        fs.mkdir("/a/b");
+        InMemoryFileSystem other = fs.openSession();
+        other.cd("/a/b");
+        fs.rmdir("/a/b");
+
+        assertEquals("/", other.pwd());
+        other.touch("f");
+        assertTrue(fs.ls("/", false).contains("f"));
+    }
+
+    @Test
+    void testCrossingMovesDoNotDeadlock() throws Exception {
+        fs.mkdir("/a");
+        fs.mkdir("/b");
+        InMemoryFileSystem other = fs.openSession();
+        int rounds = 2_000;
+        List<Throwable> failures = new ArrayList<>();
+        Thread there = new Thread(() -> {
+            try {
+                for (int i = 0; i < rounds; i++) {
+                    fs.touch("/a/x" + i);
+                    fs.mv("/a/x" + i, "/b/x" + i);
+                }
+            } catch (Throwable t) {
+                synchronized (failures) { failures.add(t); }
+            }
+        });
+        Thread back = new Thread(() -> {
+            try {
+                for (int i = 0; i < rounds; i++) {
+                    other.touch("/b/y" + i);
+                    other.mv("/b/y" + i, "/a/y" + i);
+                }
+            } catch (Throwable t) {
+                synchronized (failures) { failures.add(t); }
+            }
+        });
+        there.start();
+        back.start();
+        there.join(30_000);
+        back.join(30_000);
+
+        assertFalse(there.isAlive() || back.isAlive());
+        assertEquals(List.of(), failures);
+        assertEquals(rounds, fs.ls("/a", false).size());
+        assertEquals(rounds, fs.ls("/b", false).size());
+    }
+
+    @Test
+    void testCannotMoveDirectoryIntoItself() throws FSException {
+        fs.mkdir("/a");
+        fs.mkdir("/a/b");
+
+        assertThrows(FSException.class, () -> fs.mv("/a", "/a/b/c"));
+        assertThrows(FSException.class, () -> fs.mv("/a", "/a/c"));
+        assertThrows(FSException.class, () -> fs.mv("/", "/a/c"));
+        assertEquals(List.of("a/"), fs.ls("/", false));
+        assertEquals(List.of("b/"), fs.ls("/a", false));
+        fs.mv("/a/b", "/b");
+        assertEquals(List.of("a/", "b/"), fs.ls("/", false));
+    }
+
+    @Test
+    void testTouchAllStopsAtTheFirstFailure() throws FSException {
+        fs.mkdir("/d");
+
+        assertThrows(NotFoundException.class, () -> fs.touchAll(List.of("/d/a", "/d/b", "/missing/c", "/d/c")));
+        assertEquals(List.of("a", "b"), fs.ls("/d", false));
+    }
+
+    @Test
+    void testMkdirAllChecksEachNameInTheSharedParent() throws FSException {
+        fs.mkdir("/d");
+        fs.touchAll(List.of("/d/f", "/d/g", "/d/f"));
+
+        assertThrows(AlreadyExistsException.class, () -> fs.mkdirAll(List.of("/d/a", "/d/b", "/d/f", "/d/c")));
+        assertEquals(List.of("f", "g", "a/", "b/"), fs.ls("/d", false));
+    }
+
+    @Test
+    void testBulkCreateOnlyReusesTheParentOfAnEntry() throws FSException {
+        fs.mkdir("/d");
+        fs.cd("/d");
+        fs.mkdir("x");
+
+        fs.touchAll(List.of("x/..", "x/y"));
+        fs.mkdir("z");
+        fs.touchAll(List.of("z/", "z/w"));
+
+        assertEquals(List.of("x/", "z/"), fs.ls("/d", false));
+        assertEquals(List.of("y"), fs.ls("/d/x", false));
+        assertEquals(List.of("w"), fs.ls("/d/z", false));
+    }
+
+    @Test
+    void testRmAllRemovesEachOperandInOrder() throws FSException {
+        fs.mkdir("/d");
+        fs.mkdir("/d/sub");
+        fs.touchAll(List.of("/d/a", "/d/b", "/d/c", "/d/sub/x"));
+
+        assertThrows(FSException.class, () -> fs.rmAll(List.of("/d/a", "/d/sub", "/d/b"), false, false));
+        assertEquals(List.of("sub/", "b", "c"), fs.ls("/d", false));
+
+        fs.rmAll(List.of("/d/b", "/d/missing", "/d/sub", "/d/c"), true, true);
+        assertEquals(List.of(), fs.ls("/d", false));
+        assertThrows(NotFoundException.class, () -> fs.rmAll(List.of("/d/missing"), false, false));
+    }
+
+    @Test
+    void testMvIntoKeepsNames() throws FSException {
+        fs.mkdir("/src");
+        fs.mkdir("/dst");
+        fs.mkdir("/src/dir");
+        fs.touchAll(List.of("/src/a", "/src/b", "/src/dir/f"));
+
+        fs.mvInto(List.of("/src/a", "/src/dir", "/src/b"), "/dst/");
+
+        assertEquals(List.of(), fs.ls("/src", false));
+        assertEquals(List.of("a", "dir/", "b"), fs.ls("/dst", false));
+        assertEquals(List.of("f"), fs.ls("/dst/dir", false));
+    }
+
+    @Test
+    void testMvIntoStopsAtTheFirstFailure() throws FSException {
+        fs.mkdir("/src");
+        fs.mkdir("/dst");
+        fs.touchAll(List.of("/src/a", "/src/b", "/src/c", "/dst/b"));
+
+        assertThrows(AlreadyExistsException.class, () -> fs.mvInto(List.of("/src/a", "/src/b", "/src/c"), "/dst"));
+        assertEquals(List.of("b", "c"), fs.ls("/src", false));
+        assertThrows(FSException.class, () -> fs.mvInto(List.of("/dst"), "/dst/"));
+        assertThrows(NotADirectoryException.class, () -> fs.mvInto(List.of("/src/c"), "/src/b"));
+    }
+
+    @Test
+    void testCpIntoCopiesEachOperand() throws FSException {
+        fs.mkdir("/src");
+        fs.mkdir("/dst");
+        fs.touchAll(List.of("/src/a", "/src/b"));
+        fs.ln("/src/a", "/src/link", true);
+
+        fs.cpInto(List.of("/src/a", "/src/b", "/src/link"), "/dst", false);
+
+        assertEquals(List.of("a", "b", "link -> /src/a"), fs.ls("/src", false));
+        assertEquals(List.of("a", "b", "link"), fs.ls("/dst", false));
+        assertFalse(fs.resolveNode("/dst/link", false).isLink());
+        assertThrows(AlreadyExistsException.class, () -> fs.cpInto(List.of("/src/a"), "/dst", true));
+    }
+
+    @Test
+    void testCpIntoRefusesADirectoryIntoItself() throws FSException {
+        fs.mkdir("/d");
+        fs.mkdir("/d/y");
+        fs.touch("/d/a");
+
+        FSException self = assertThrows(FSException.class, () -> fs.cpInto(List.of("/d/y"), "/d/y/", false));
+        assertTrue(self.getMessage().contains(BackendMessageProvider.get("cannotMoveIntoSelf")));
+        assertThrows(FSException.class, () -> fs.cpInto(List.of("/d"), "/d/y", false));
+        assertThrows(FSException.class, () -> fs.cpInto(List.of("/d/y/."), "/d/y", true));
+        assertEquals(List.of(), fs.ls("/d/y", false));
+
+        fs.cpInto(List.of("/d/a"), "/d/y", false);
+        assertEquals(List.of("a"), fs.ls("/d/y", false));
+    }
+
+    @Test
+    void testMkdirsCreatesMissingParents() throws FSException {
+        fs.mkdir("/a");
+        fs.cd("/a");
+
+        fs.mkdirs(List.of("b/c/d", "b/c/e", "/a/b", "../x/./y/../z"));
+
+        assertEquals(List.of("b/"), fs.ls("/a", false));
+        assertEquals(List.of("c/"), fs.ls("/a/b", false));
+        assertEquals(List.of("d/", "e/"), fs.ls("/a/b/c", false));
+        assertEquals(List.of("y/", "z/"), fs.ls("/x", false));
+    }
+
+    @Test
+    void testMkdirsFollowsLinksButNeverCreatesTheirTargets() throws FSException {
+        fs.mkdir("/real");
+        fs.touch("/file");
+        fs.ln("/real", "/link", true);
+        fs.ln("/gone", "/dangling", true);
+
+        fs.mkdirs(List.of("/link/a/b"));
+
+        assertEquals(List.of("a/"), fs.ls("/real", false));
+        assertThrows(NotFoundException.class, () -> fs.mkdirs(List.of("/dangling/a")));
+        assertThrows(NotFoundException.class, () -> fs.resolveNode("/gone", false));
+        assertThrows(NotADirectoryException.class, () -> fs.mkdirs(List.of("/file/a")));
+        assertThrows(AlreadyExistsException.class, () -> fs.mkdirs(List.of("/real/a", "/file")));
+    }
+
+    @Test
+    void testCrossingDirectoryMovesNeverFormACycle() throws Exception {
+        fs.mkdir("/x");
+        fs.mkdir("/y");
+        InMemoryFileSystem other = fs.openSession();
+        int rounds = 2_000;
+        List<Throwable> failures = new ArrayList<>();
+        Thread left = new Thread(() -> swapNesting(fs, "x", "y", rounds, failures));
+        Thread right = new Thread(() -> swapNesting(other, "y", "x", rounds, failures));
+        left.start();
+        right.start();
+        left.join(30_000);
+        right.join(30_000);
+
+        assertFalse(left.isAlive() || right.isAlive());
+        assertEquals(List.of(), failures);
+        // whatever the interleaving, both directories are still reachable from /
+        assertEquals("/x", ((DirectoryNode) fs.getRoot().get("x")).absolutePath());
+        assertEquals("/y", ((DirectoryNode) fs.getRoot().get("y")).absolutePath());
+    }
+
+    @Test
+    void testRacingSnapshotsUnderOneNameFailCleanly() throws Exception {
+        InMemoryFileSystem other = fs.openSession();
+        int rounds = 2_000;
+        List<Throwable> failures = new ArrayList<>();
+        Thread left = new Thread(() -> createAndDrop(fs, rounds, failures));
+        Thread right = new Thread(() -> createAndDrop(other, rounds, failures));
+        left.start();
+        right.start();
+        left.join(30_000);
+        right.join(30_000);
+
+        assertFalse(left.isAlive() || right.isAlive());
+        assertEquals(List.of(), failures);
+    }
+
+    /*
+     * Creates and drops snapshot "s"; run from two sessions, every round
+     * races for the name, and the loser must get a plain error.
+     */
+    private static void createAndDrop(InMemoryFileSystem fs, int rounds, List<Throwable> failures) {
+        try {
+            for (int i = 0; i < rounds; i++) {
+                try {
+                    fs.createSnapshot("s");
+                } catch (AlreadyExistsException expected) {
+                    // the other session holds the name
+                }
+                try {
+                    fs.dropSnapshot("s");
+                } catch (NotFoundException expected) {
+                    // the other session dropped it first
+                }
+            }
+        } catch (Throwable t) {
+            synchronized (failures) { failures.add(t); }
+        }
+    }
+
+    /*
+     * Moves "/a" under "/b" and back out again; run against the same pair
+     * from the other side, every round races for which one ends up inside.
+     */
+    private static void swapNesting(InMemoryFileSystem fs, String a, String b, int rounds, List<Throwable> failures) {
+        try {
+            for (int i = 0; i < rounds; i++) {
+                try {
+                    fs.mv("/" + a, "/" + b + "/" + a);
+                    fs.mv("/" + b + "/" + a, "/" + a);
+                } catch (FSException expected) {
+                    // lost the race: the other directory is inside this one or gone from /
+                }
+            }
+        } catch (Throwable t) {
+            synchronized (failures) { failures.add(t); }
+        }
+    }
 }
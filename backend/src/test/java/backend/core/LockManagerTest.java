@@ -0,0 +1,105 @@
+package backend.core;
+
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.LockManager;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.InodeTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockManagerTest {
+
+    @Test
+    void testStripesMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new LockManager(0));
+        assertThrows(IllegalArgumentException.class, () -> new LockManager(12));
+        assertDoesNotThrow(() -> new LockManager(16));
+    }
+
+    @Test
+    void testStripeDoesNotFollowTheInodeNumber() {
+        DirectoryNode dir = new DirectoryNode();
+        LockManager locks = new LockManager();
+        int before = locks.stripeOf(dir);
+
+        new InodeTable().allocate(dir);
+        assertNotEquals(0, dir.getId());
+        assertEquals(before, locks.stripeOf(dir));
+        assertEquals(System.identityHashCode(dir) & (LockManager.DEFAULT_STRIPES - 1), before);
+    }
+
+    @Test
+    void testSameStripeInBothModesIsWriteLockedOnce() throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        DirectoryNode root = fs.getRoot();
+        LockManager locks = new LockManager(1);
+
+        try (LockManager.Held held = locks.acquire(new FileSystemNode[] { root }, new FileSystemNode[] { root })) {
+            assertFalse(tryWriteFromAnotherThread(locks, root));
+        }
+        assertTrue(tryWriteFromAnotherThread(locks, root));
+    }
+
+    @Test
+    void testOppositeOrdersDoNotDeadlock() throws Exception {
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("/a");
+        fs.mkdir("/b");
+        DirectoryNode a = (DirectoryNode) fs.getRoot().get("a");
+        DirectoryNode b = (DirectoryNode) fs.getRoot().get("b");
+        LockManager locks = new LockManager();
+        int rounds = 20_000;
+        Thread forward = new Thread(() -> {
+            for (int i = 0; i < rounds; i++) {
+                try (LockManager.Held held = locks.write(a, b)) {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+        Thread backward = new Thread(() -> {
+            for (int i = 0; i < rounds; i++) {
+                try (LockManager.Held held = locks.write(b, a)) {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+        forward.start();
+        backward.start();
+        forward.join(30_000);
+        backward.join(30_000);
+
+        assertFalse(forward.isAlive() || backward.isAlive());
+    }
+
+    @Test
+    void testRenameLockIsExclusive() throws Exception {
+        LockManager locks = new LockManager();
+        try (LockManager.Held held = locks.rename()) {
+            assertFalse(tryFromAnotherThread(locks::rename));
+        }
+        assertTrue(tryFromAnotherThread(locks::rename));
+    }
+
+    private static boolean tryWriteFromAnotherThread(LockManager locks, FileSystemNode node) throws Exception {
+        return tryFromAnotherThread(() -> locks.write(node));
+    }
+
+    private static boolean tryFromAnotherThread(Supplier<LockManager.Held> lock) throws Exception {
+        AtomicBoolean acquired = new AtomicBoolean();
+        Thread other = new Thread(() -> {
+            try (LockManager.Held held = lock.get()) {
+                acquired.set(true);
+            }
+        });
+        other.setDaemon(true);
+        other.start();
+        other.join(200);
+        return acquired.get();
+    }
+}
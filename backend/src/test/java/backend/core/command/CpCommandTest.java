@@ -13,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -42,7 +43,7 @@ class CpCommandTest {
 
     @Test
     void testGetUsage() {
-        assertEquals("cp [-r] <source> <destination>", cpCommand.getUsage());
+        assertEquals("cp [-r] [--reflink] <source>... <destination>", cpCommand.getUsage());
     }
 
     @Test
@@ -99,25 +100,24 @@ class CpCommandTest {
     }
 
     @Test
-    void testExecuteWithTooManyArguments() throws FSException {
+    void testExecuteCopySeveralIntoDirectory() throws FSException {
         CommandSyntax syntax = new CommandSyntax("cp", Arrays.asList("file1.txt", "file2.txt", "file3.txt"));
         
         CommandResult result = cpCommand.execute(fileSystem, syntax);
         
+        verify(fileSystem).cpInto(List.of("file1.txt", "file2.txt"), "file3.txt", false);
         verify(fileSystem, never()).cp(anyString(), anyString());
-        assertFalse(result.isSuccess());
-        assertEquals("cp: too many arguments", result.getErrorMessage());
+        assertTrue(result.isSuccess());
     }
 
     @Test
-    void testExecuteWithTooManyArgumentsWithRecursiveFlag() throws FSException {
-        CommandSyntax syntax = new CommandSyntax("cp", Arrays.asList("-r", "file1.txt", "file2.txt", "file3.txt"));
+    void testExecuteCopyIntoDirectoryWithFlags() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("cp", Arrays.asList("-r", "--reflink", "dir1", "dir2/"));
         
         CommandResult result = cpCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem, never()).cp(anyString(), anyString());
-        assertFalse(result.isSuccess());
-        assertEquals("cp: too many arguments", result.getErrorMessage());
+        verify(fileSystem).cpInto(List.of("dir1"), "dir2/", true);
+        assertTrue(result.isSuccess());
     }
 
     @Test
@@ -159,4 +159,14 @@ class CpCommandTest {
         assertFalse(result.isSuccess());
         assertEquals("cp: missing operand", result.getErrorMessage());
     }
+
+    @Test
+    void testExecuteReflinkCopy() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("cp", Arrays.asList("-r", "--reflink", "template", "instance"));
+
+        CommandResult result = cpCommand.execute(fileSystem, syntax);
+
+        verify(fileSystem).cp("template", "instance", true);
+        assertTrue(result.isSuccess());
+    }
 }
@@ -13,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -42,7 +43,7 @@ class MkdirCommandTest {
 
     @Test
     void testGetUsage() {
-        assertEquals("mkdir <directory>...", mkdirCommand.getUsage());
+        assertEquals("mkdir [-p] <directory>...", mkdirCommand.getUsage());
     }
 
     @Test
@@ -51,7 +52,7 @@ class MkdirCommandTest {
         
         CommandResult result = mkdirCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).mkdir("newdir");
+        verify(fileSystem).mkdirAll(List.of("newdir"));
         assertTrue(result.isSuccess());
         assertTrue(result.getOutput().isEmpty());
     }
@@ -62,9 +63,7 @@ class MkdirCommandTest {
         
         CommandResult result = mkdirCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).mkdir("dir1");
-        verify(fileSystem).mkdir("dir2");
-        verify(fileSystem).mkdir("dir3");
+        verify(fileSystem).mkdirAll(List.of("dir1", "dir2", "dir3"));
         assertTrue(result.isSuccess());
     }
 
@@ -74,7 +73,7 @@ class MkdirCommandTest {
         
         CommandResult result = mkdirCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).mkdir("/home/user/newdir");
+        verify(fileSystem).mkdirAll(List.of("/home/user/newdir"));
         assertTrue(result.isSuccess());
     }
 
@@ -84,7 +83,7 @@ class MkdirCommandTest {
         
         CommandResult result = mkdirCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).mkdir("./subdir");
+        verify(fileSystem).mkdirAll(List.of("./subdir"));
         assertTrue(result.isSuccess());
     }
 
@@ -94,7 +93,7 @@ class MkdirCommandTest {
         
         CommandResult result = mkdirCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem, never()).mkdir(anyString());
+        verify(fileSystem, never()).mkdirAll(any());
         assertFalse(result.isSuccess());
         assertEquals("mkdir: missing operand", result.getErrorMessage());
     }
@@ -102,10 +101,10 @@ class MkdirCommandTest {
     @Test
     void testExecuteWithFSException() throws FSException {
         CommandSyntax syntax = new CommandSyntax("mkdir", Collections.singletonList("existing"));
-        doThrow(new FSException("Directory already exists")).when(fileSystem).mkdir("existing");
+        doThrow(new FSException("Directory already exists")).when(fileSystem).mkdirAll(List.of("existing"));
         
         assertThrows(FSException.class, () -> mkdirCommand.execute(fileSystem, syntax));
-        verify(fileSystem).mkdir("existing");
+        verify(fileSystem).mkdirAll(List.of("existing"));
     }
 
     @Test
@@ -114,19 +113,38 @@ class MkdirCommandTest {
         
         CommandResult result = mkdirCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).mkdir("parent/child/grandchild");
+        verify(fileSystem).mkdirAll(List.of("parent/child/grandchild"));
         assertTrue(result.isSuccess());
     }
 
     @Test
     void testExecutePartialSuccessWithException() throws FSException {
         CommandSyntax syntax = new CommandSyntax("mkdir", Arrays.asList("dir1", "existing", "dir3"));
-        lenient().doNothing().when(fileSystem).mkdir("dir1");
-        doThrow(new FSException("Directory already exists")).when(fileSystem).mkdir("existing");
+        doThrow(new FSException("Directory already exists")).when(fileSystem).mkdirAll(List.of("dir1", "existing", "dir3"));
         
         assertThrows(FSException.class, () -> mkdirCommand.execute(fileSystem, syntax));
-        verify(fileSystem).mkdir("dir1");
-        verify(fileSystem).mkdir("existing");
-        verify(fileSystem, never()).mkdir("dir3");
+        verify(fileSystem).mkdirAll(List.of("dir1", "existing", "dir3"));
+    }
+
+    @Test
+    void testExecuteWithParents() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("mkdir", Arrays.asList("-p", "a/b/c", "d"));
+        
+        CommandResult result = mkdirCommand.execute(fileSystem, syntax);
+        
+        verify(fileSystem).mkdirs(List.of("a/b/c", "d"));
+        verify(fileSystem, never()).mkdirAll(any());
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    void testExecuteWithParentsAndNoOperand() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("mkdir", Collections.singletonList("-p"));
+        
+        CommandResult result = mkdirCommand.execute(fileSystem, syntax);
+        
+        verifyNoInteractions(fileSystem);
+        assertFalse(result.isSuccess());
+        assertEquals("mkdir: missing operand", result.getErrorMessage());
     }
 }
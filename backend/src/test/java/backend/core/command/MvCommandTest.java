@@ -13,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -42,7 +43,7 @@ class MvCommandTest {
 
     @Test
     void testGetUsage() {
-        assertEquals("mv <source> <destination>", mvCommand.getUsage());
+        assertEquals("mv <source>... <destination>", mvCommand.getUsage());
     }
 
     @Test
@@ -109,14 +110,24 @@ class MvCommandTest {
     }
 
     @Test
-    void testExecuteWithTooManyArguments() throws FSException {
-        CommandSyntax syntax = new CommandSyntax("mv", Arrays.asList("file1.txt", "file2.txt", "file3.txt"));
+    void testExecuteMoveSeveralIntoDirectory() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("mv", Arrays.asList("file1.txt", "file2.txt", "dir"));
         
         CommandResult result = mvCommand.execute(fileSystem, syntax);
         
+        verify(fileSystem).mvInto(List.of("file1.txt", "file2.txt"), "dir");
         verify(fileSystem, never()).mv(anyString(), anyString());
-        assertFalse(result.isSuccess());
-        assertEquals("mv: too many arguments", result.getErrorMessage());
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    void testExecuteMoveIntoDirectoryWithTrailingSlash() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("mv", Arrays.asList("file.txt", "dir/"));
+        
+        CommandResult result = mvCommand.execute(fileSystem, syntax);
+        
+        verify(fileSystem).mvInto(List.of("file.txt"), "dir/");
+        assertTrue(result.isSuccess());
     }
 
     @Test
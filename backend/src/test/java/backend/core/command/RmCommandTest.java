@@ -13,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -42,7 +43,7 @@ class RmCommandTest {
 
     @Test
     void testGetUsage() {
-        assertEquals("rm <file>...", rmCommand.getUsage());
+        assertEquals("rm [-r] [-f] <file>...", rmCommand.getUsage());
     }
 
     @Test
@@ -51,7 +52,7 @@ class RmCommandTest {
         
         CommandResult result = rmCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).rm("oldfile.txt");
+        verify(fileSystem).rmAll(List.of("oldfile.txt"), false, false);
         assertTrue(result.isSuccess());
         assertTrue(result.getOutput().isEmpty());
     }
@@ -62,9 +63,7 @@ class RmCommandTest {
         
         CommandResult result = rmCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).rm("file1.txt");
-        verify(fileSystem).rm("file2.txt");
-        verify(fileSystem).rm("file3.txt");
+        verify(fileSystem).rmAll(List.of("file1.txt", "file2.txt", "file3.txt"), false, false);
         assertTrue(result.isSuccess());
     }
 
@@ -74,7 +73,7 @@ class RmCommandTest {
         
         CommandResult result = rmCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).rm("/tmp/tempfile.txt");
+        verify(fileSystem).rmAll(List.of("/tmp/tempfile.txt"), false, false);
         assertTrue(result.isSuccess());
     }
 
@@ -84,7 +83,7 @@ class RmCommandTest {
         
         CommandResult result = rmCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).rm("./subdir/file.txt");
+        verify(fileSystem).rmAll(List.of("./subdir/file.txt"), false, false);
         assertTrue(result.isSuccess());
     }
 
@@ -94,7 +93,7 @@ class RmCommandTest {
         
         CommandResult result = rmCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem, never()).rm(anyString());
+        verifyNoInteractions(fileSystem);
         assertFalse(result.isSuccess());
         assertEquals("rm: missing operand", result.getErrorMessage());
     }
@@ -102,22 +101,19 @@ class RmCommandTest {
     @Test
     void testExecuteWithNonexistentFile() throws FSException {
         CommandSyntax syntax = new CommandSyntax("rm", Collections.singletonList("nonexistent.txt"));
-        doThrow(new FSException("File not found")).when(fileSystem).rm("nonexistent.txt");
+        doThrow(new FSException("File not found")).when(fileSystem).rmAll(List.of("nonexistent.txt"), false, false);
         
         assertThrows(FSException.class, () -> rmCommand.execute(fileSystem, syntax));
-        verify(fileSystem).rm("nonexistent.txt");
     }
 
     @Test
-    void testExecutePartialSuccessWithException() throws FSException {
-        CommandSyntax syntax = new CommandSyntax("rm", Arrays.asList("file1.txt", "protected.txt", "file3.txt"));
-        lenient().doNothing().when(fileSystem).rm("file1.txt");
-        doThrow(new FSException("Permission denied")).when(fileSystem).rm("protected.txt");
-        
-        assertThrows(FSException.class, () -> rmCommand.execute(fileSystem, syntax));
-        verify(fileSystem).rm("file1.txt");
-        verify(fileSystem).rm("protected.txt");
-        verify(fileSystem, never()).rm("file3.txt");
+    void testExecuteOperandsAfterAnOperandAreNotFlags() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("rm", Arrays.asList("-r", "dir", "-f"));
+
+        CommandResult result = rmCommand.execute(fileSystem, syntax);
+
+        verify(fileSystem).rmAll(List.of("dir", "-f"), true, false);
+        assertTrue(result.isSuccess());
     }
 
     @Test
@@ -126,7 +122,7 @@ class RmCommandTest {
         
         CommandResult result = rmCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).rm(".hidden");
+        verify(fileSystem).rmAll(List.of(".hidden"), false, false);
         assertTrue(result.isSuccess());
     }
 
@@ -136,10 +132,48 @@ class RmCommandTest {
         
         CommandResult result = rmCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).rm("file.txt");
-        verify(fileSystem).rm("data.json");
-        verify(fileSystem).rm("script.sh");
-        verify(fileSystem).rm("image.png");
+        verify(fileSystem).rmAll(List.of("file.txt", "data.json", "script.sh", "image.png"), false, false);
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    void testExecuteRecursive() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("rm", Arrays.asList("-r", "dir1", "dir2"));
+
+        CommandResult result = rmCommand.execute(fileSystem, syntax);
+
+        verify(fileSystem).rmAll(List.of("dir1", "dir2"), true, false);
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    void testExecuteCombinedFlags() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("rm", Arrays.asList("-rf", "dir"));
+
+        CommandResult result = rmCommand.execute(fileSystem, syntax);
+
+        verify(fileSystem).rmAll(List.of("dir"), true, true);
         assertTrue(result.isSuccess());
     }
+
+    @Test
+    void testExecuteForceWithoutOperands() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("rm", Collections.singletonList("-f"));
+
+        CommandResult result = rmCommand.execute(fileSystem, syntax);
+
+        verifyNoInteractions(fileSystem);
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    void testExecuteInvalidOption() throws FSException {
+        CommandSyntax syntax = new CommandSyntax("rm", Arrays.asList("-x", "file.txt"));
+
+        CommandResult result = rmCommand.execute(fileSystem, syntax);
+
+        verifyNoInteractions(fileSystem);
+        assertFalse(result.isSuccess());
+        assertEquals("rm: invalid option: -x", result.getErrorMessage());
+    }
 }
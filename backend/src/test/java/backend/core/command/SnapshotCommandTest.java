@@ -0,0 +1,99 @@
+package backend.core.command;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.command.SnapshotCommand;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.core.exception.NotFoundException;
+import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SnapshotCommandTest {
+
+    @Mock
+    private FileSystem fileSystem;
+
+    private SnapshotCommand snapshotCommand;
+
+    @BeforeEach
+    void setUp() {
+        snapshotCommand = new SnapshotCommand();
+    }
+
+    @Test
+    void testGetName() {
+        assertEquals("snapshot", snapshotCommand.getName());
+    }
+
+    @Test
+    void testGetUsage() {
+        assertEquals("snapshot create|restore|drop <name> | snapshot list", snapshotCommand.getUsage());
+    }
+
+    @Test
+    void testDoesNotExpandWildcards() {
+        assertFalse(snapshotCommand.shouldExpandWildcards());
+    }
+
+    @Test
+    void testCreateRestoreAndDrop() throws FSException {
+        assertTrue(snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("create", "s1"))).isSuccess());
+        assertTrue(snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("restore", "s1"))).isSuccess());
+        assertTrue(snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("drop", "s1"))).isSuccess());
+
+        verify(fileSystem).createSnapshot("s1");
+        verify(fileSystem).restoreSnapshot("s1");
+        verify(fileSystem).dropSnapshot("s1");
+    }
+
+    @Test
+    void testListPrintsSnapshotNames() throws FSException {
+        when(fileSystem.listSnapshots()).thenReturn(List.of("before", "after"));
+
+        CommandResult result = snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("list")));
+
+        assertTrue(result.isSuccess());
+        assertEquals(List.of("before", "after"), result.getOutput());
+    }
+
+    @Test
+    void testMissingOperands() throws FSException {
+        CommandResult none = snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", Collections.emptyList()));
+        CommandResult noName = snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("create")));
+
+        assertFalse(none.isSuccess());
+        assertFalse(noName.isSuccess());
+        assertTrue(noName.getErrorMessage().contains("missing operand"));
+        verifyNoInteractions(fileSystem);
+    }
+
+    @Test
+    void testInvalidSubcommandAndTooManyArguments() throws FSException {
+        CommandResult invalid = snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("take", "s1")));
+        CommandResult extra = snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("drop", "s1", "s2")));
+
+        assertFalse(invalid.isSuccess());
+        assertTrue(invalid.getErrorMessage().contains("take"));
+        assertFalse(extra.isSuccess());
+        verifyNoInteractions(fileSystem);
+    }
+
+    @Test
+    void testErrorsFromFileSystemPropagate() throws FSException {
+        doThrow(new NotFoundException("No such snapshot")).when(fileSystem).restoreSnapshot("missing");
+
+        assertThrows(NotFoundException.class,
+                () -> snapshotCommand.execute(fileSystem, new CommandSyntax("snapshot", List.of("restore", "missing"))));
+    }
+}
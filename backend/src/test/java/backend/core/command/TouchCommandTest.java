@@ -13,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -51,7 +52,7 @@ class TouchCommandTest {
         
         CommandResult result = touchCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).touch("newfile.txt");
+        verify(fileSystem).touchAll(List.of("newfile.txt"));
         assertTrue(result.isSuccess());
         assertTrue(result.getOutput().isEmpty());
     }
@@ -62,9 +63,7 @@ class TouchCommandTest {
         
         CommandResult result = touchCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).touch("file1.txt");
-        verify(fileSystem).touch("file2.txt");
-        verify(fileSystem).touch("file3.txt");
+        verify(fileSystem).touchAll(List.of("file1.txt", "file2.txt", "file3.txt"));
         assertTrue(result.isSuccess());
     }
 
@@ -74,7 +73,7 @@ class TouchCommandTest {
         
         CommandResult result = touchCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).touch("/home/user/document.txt");
+        verify(fileSystem).touchAll(List.of("/home/user/document.txt"));
         assertTrue(result.isSuccess());
     }
 
@@ -84,7 +83,7 @@ class TouchCommandTest {
         
         CommandResult result = touchCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).touch("./subdir/file.txt");
+        verify(fileSystem).touchAll(List.of("./subdir/file.txt"));
         assertTrue(result.isSuccess());
     }
 
@@ -94,7 +93,7 @@ class TouchCommandTest {
         
         CommandResult result = touchCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem, never()).touch(anyString());
+        verify(fileSystem, never()).touchAll(any());
         assertFalse(result.isSuccess());
         assertEquals("touch: missing file operand", result.getErrorMessage());
     }
@@ -102,10 +101,10 @@ class TouchCommandTest {
     @Test
     void testExecuteWithFSException() throws FSException {
         CommandSyntax syntax = new CommandSyntax("touch", Collections.singletonList("readonly/file.txt"));
-        doThrow(new FSException("Permission denied")).when(fileSystem).touch("readonly/file.txt");
+        doThrow(new FSException("Permission denied")).when(fileSystem).touchAll(List.of("readonly/file.txt"));
         
         assertThrows(FSException.class, () -> touchCommand.execute(fileSystem, syntax));
-        verify(fileSystem).touch("readonly/file.txt");
+        verify(fileSystem).touchAll(List.of("readonly/file.txt"));
     }
 
     @Test
@@ -114,22 +113,17 @@ class TouchCommandTest {
         
         CommandResult result = touchCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).touch("file.txt");
-        verify(fileSystem).touch("data.json");
-        verify(fileSystem).touch("script.sh");
+        verify(fileSystem).touchAll(List.of("file.txt", "data.json", "script.sh"));
         assertTrue(result.isSuccess());
     }
 
     @Test
     void testExecutePartialSuccessWithException() throws FSException {
         CommandSyntax syntax = new CommandSyntax("touch", Arrays.asList("file1.txt", "invalid", "file3.txt"));
-        lenient().doNothing().when(fileSystem).touch("file1.txt");
-        doThrow(new FSException("Cannot create file")).when(fileSystem).touch("invalid");
+        doThrow(new FSException("Cannot create file")).when(fileSystem).touchAll(List.of("file1.txt", "invalid", "file3.txt"));
         
         assertThrows(FSException.class, () -> touchCommand.execute(fileSystem, syntax));
-        verify(fileSystem).touch("file1.txt");
-        verify(fileSystem).touch("invalid");
-        verify(fileSystem, never()).touch("file3.txt");
+        verify(fileSystem).touchAll(List.of("file1.txt", "invalid", "file3.txt"));
     }
 
     @Test
@@ -138,7 +132,7 @@ class TouchCommandTest {
         
         CommandResult result = touchCommand.execute(fileSystem, syntax);
         
-        verify(fileSystem).touch(".hidden");
+        verify(fileSystem).touchAll(List.of(".hidden"));
         assertTrue(result.isSuccess());
     }
 }
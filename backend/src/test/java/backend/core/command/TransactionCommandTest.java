@@ -0,0 +1,84 @@
+package backend.core.command;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.command.BeginCommand;
+import ch.supsi.fscli.backend.core.command.Command;
+import ch.supsi.fscli.backend.core.command.CommitCommand;
+import ch.supsi.fscli.backend.core.command.RollbackCommand;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * begin, commit and rollback each hand over to one filesystem call.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionCommandTest {
+
+    /** The filesystem call a command makes. */
+    private interface Call {
+        void on(FileSystem fs) throws FSException;
+    }
+
+    private record Case(Command command, String description, Call call) {
+        @Override
+        public String toString() {
+            return command.getName();
+        }
+    }
+
+    @Mock
+    private FileSystem fileSystem;
+
+    static Stream<Case> commands() {
+        return Stream.of(
+                new Case(new BeginCommand(),
+                        "Start a transaction; the changes that follow are kept or undone together",
+                        FileSystem::begin),
+                new Case(new CommitCommand(), "Keep the changes of the open transaction", FileSystem::commit),
+                new Case(new RollbackCommand(), "Undo the changes of the open transaction", FileSystem::rollback));
+    }
+
+    private static CommandSyntax syntax(Case c) {
+        return new CommandSyntax(c.command().getName(), Collections.emptyList());
+    }
+
+    @ParameterizedTest
+    @MethodSource("commands")
+    void testMetadata(Case c) {
+        Command command = c.command();
+        assertEquals(c.description(), command.getDescription());
+        assertEquals(command.getName(), command.getUsage());
+        assertFalse(command.shouldExpandWildcards());
+        assertTrue(command.controlsTransaction());
+    }
+
+    @ParameterizedTest
+    @MethodSource("commands")
+    void testExecute(Case c) throws FSException {
+        CommandResult result = c.command().execute(fileSystem, syntax(c));
+
+        c.call().on(verify(fileSystem));
+        verifyNoMoreInteractions(fileSystem);
+        assertTrue(result.isSuccess());
+    }
+
+    @ParameterizedTest
+    @MethodSource("commands")
+    void testErrorsFromFileSystemPropagate(Case c) throws FSException {
+        c.call().on(doThrow(new FSException("boom")).when(fileSystem));
+
+        assertThrows(FSException.class, () -> c.command().execute(fileSystem, syntax(c)));
+    }
+}
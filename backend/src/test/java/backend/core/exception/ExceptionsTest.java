@@ -69,4 +69,25 @@ class ExceptionsTest {
         assertEquals(message, exception.getMessage());
         assertInstanceOf(FSException.class, exception);
     }
+
+    @Test
+    void testFSException_IsStackless() {
+        FSException exception = new FSException("no trace");
+
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    void testFSException_FormatsMessageLazilyOnce() {
+        int[] calls = {0};
+        NotFoundException exception = new NotFoundException(() -> {
+            calls[0]++;
+            return "lazy";
+        });
+
+        assertEquals(0, calls[0]);
+        assertEquals("lazy", exception.getMessage());
+        assertEquals("lazy", exception.getMessage());
+        assertEquals(1, calls[0]);
+    }
 }
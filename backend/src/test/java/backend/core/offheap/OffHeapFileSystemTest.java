@@ -0,0 +1,425 @@
+package backend.core.offheap;
+
+import ch.supsi.fscli.backend.core.CommandResult;
+import ch.supsi.fscli.backend.core.FileSystem;
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.ReadView;
+import ch.supsi.fscli.backend.core.Teardown;
+import ch.supsi.fscli.backend.core.command.CdCommand;
+import ch.supsi.fscli.backend.core.command.LsCommand;
+import ch.supsi.fscli.backend.core.command.RmCommand;
+import ch.supsi.fscli.backend.core.command.TouchCommand;
+import ch.supsi.fscli.backend.core.exception.*;
+import ch.supsi.fscli.backend.core.offheap.OffHeapFileSystem;
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.serde.Deserializer;
+import ch.supsi.fscli.backend.data.serde.Serializer;
+import ch.supsi.fscli.backend.provider.executor.CommandExecutor;
+import ch.supsi.fscli.backend.provider.parser.CommandParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapFileSystemTest {
+
+    private OffHeapFileSystem fs;
+
+    @BeforeEach
+    void setUp() {
+        fs = new OffHeapFileSystem();
+    }
+
+    @Test
+    void testInitialPwd() {
+        assertEquals("/", fs.pwd());
+        assertEquals(1, fs.nodeCount());
+    }
+
+    @Test
+    void testMkdirTouchAndLs() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("file");
+        fs.ln("file", "sym", true);
+        assertEquals(List.of("dir/", "file", "sym -> file"), fs.ls(".", false));
+        assertEquals(List.of("file"), fs.ls("file", false));
+    }
+
+    @Test
+    void testLsShowsInodeNumbers() throws FSException {
+        fs.touch("a");
+        int id = fs.resolveNode("a", false).getId();
+        assertEquals(List.of(id + " a"), fs.ls("/", true));
+    }
+
+    @Test
+    void testBulkOperandsIntoADirectory() throws FSException {
+        fs.mkdirAll(List.of("src", "dst"));
+        fs.touchAll(List.of("src/a", "src/b", "src/c"));
+
+        fs.cpInto(List.of("src/a", "src/b"), "dst/", false);
+        fs.mvInto(List.of("src/c"), "dst");
+        fs.rmAll(List.of("src/a", "src/missing"), false, true);
+
+        assertEquals(List.of("b"), fs.ls("src", false));
+        assertEquals(List.of("a", "b", "c"), fs.ls("dst", false));
+        assertThrows(NotADirectoryException.class, () -> fs.mvInto(List.of("src/b"), "dst/a"));
+    }
+
+    @Test
+    void testMkdirsCreatesMissingParents() throws FSException {
+        fs.touch("file");
+        fs.ln("/gone", "dangling", true);
+
+        fs.mkdirs(List.of("a/b/c", "a/b/d", "a", "a/../e"));
+
+        assertEquals(List.of("file", "dangling -> /gone", "a/", "e/"), fs.ls(".", false));
+        assertEquals(List.of("c/", "d/"), fs.ls("a/b", false));
+        assertThrows(NotFoundException.class, () -> fs.mkdirs(List.of("dangling/x")));
+        assertThrows(NotADirectoryException.class, () -> fs.mkdirs(List.of("file/x")));
+        assertThrows(AlreadyExistsException.class, () -> fs.mkdirs(List.of("file")));
+    }
+
+    @Test
+    void testMkdirsNamesTheWholeOperandLikeTheHeapFilesystem() throws FSException {
+        InMemoryFileSystem heap = new InMemoryFileSystem();
+        fs.touch("file");
+        heap.touch("file");
+
+        Exception offHeap = assertThrows(NotADirectoryException.class, () -> fs.mkdirs(List.of("file/x")));
+        Exception onHeap = assertThrows(NotADirectoryException.class, () -> heap.mkdirs(List.of("file/x")));
+        assertEquals(onHeap.getMessage(), offHeap.getMessage());
+        assertTrue(offHeap.getMessage().endsWith(": file/x"));
+    }
+
+    @Test
+    void testCreateErrors() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("file");
+        assertThrows(AlreadyExistsException.class, () -> fs.mkdir("dir"));
+        assertThrows(InvalidPathException.class, () -> fs.mkdir(""));
+        assertThrows(NotFoundException.class, () -> fs.mkdir("missing/dir"));
+        assertThrows(NotADirectoryException.class, () -> fs.touch("file/x"));
+    }
+
+    @Test
+    void testRmdir() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("dir/file");
+        assertThrows(FSException.class, () -> fs.rmdir("dir"));
+        assertThrows(NotADirectoryException.class, () -> fs.rmdir("dir/file"));
+        assertThrows(FSException.class, () -> fs.rmdir("/"));
+        fs.rm("dir/file");
+        fs.rmdir("dir");
+        assertTrue(fs.ls("/", false).isEmpty());
+        assertEquals(1, fs.nodeCount());
+    }
+
+    @Test
+    void testRmRefusesDirectories() throws FSException {
+        fs.mkdir("dir");
+        assertThrows(FSException.class, () -> fs.rm("dir"));
+        assertThrows(NotFoundException.class, () -> fs.rm("missing"));
+    }
+
+    @Test
+    void testCdAndPwd() throws FSException {
+        fs.mkdir("a");
+        fs.mkdir("a/b");
+        fs.cd("a/b");
+        assertEquals("/a/b", fs.pwd());
+        fs.cd("..");
+        assertEquals("/a", fs.pwd());
+        fs.cd("/");
+        fs.cd("..");
+        assertEquals("/", fs.pwd());
+        fs.touch("f");
+        assertThrows(NotADirectoryException.class, () -> fs.cd("f"));
+    }
+
+    @Test
+    void testMvRenamesAndMovesDirectories() throws FSException {
+        fs.mkdir("a");
+        fs.touch("a/file");
+        fs.mkdir("b");
+        fs.mv("a", "b/c");
+        assertEquals(List.of("b/"), fs.ls("/", false));
+        assertEquals(List.of("file"), fs.ls("b/c", false));
+        fs.cd("b/c");
+        assertEquals("/b/c", fs.pwd());
+    }
+
+    @Test
+    void testMvIntoItselfIsRejected() throws FSException {
+        fs.mkdir("a");
+        fs.mkdir("a/b");
+        assertThrows(FSException.class, () -> fs.mv("a", "a/b/c"));
+        assertThrows(FSException.class, () -> fs.mv("/", "a/root"));
+        assertEquals(List.of("b/"), fs.ls("a", false));
+    }
+
+    @Test
+    void testCpIntoItselfIsRejected() throws FSException {
+        fs.mkdir("d");
+        fs.mkdir("d/y");
+        assertThrows(FSException.class, () -> fs.cpInto(List.of("d/y"), "d/y/", false));
+        assertThrows(FSException.class, () -> fs.cpInto(List.of("d"), "d/y", false));
+        assertEquals(List.of(), fs.ls("d/y", false));
+    }
+
+    @Test
+    void testTrailingSlashNeverCreatesAFile() throws FSException {
+        fs.touch("file");
+        assertThrows(NotFoundException.class, () -> fs.touch("t/"));
+        assertThrows(NotADirectoryException.class, () -> fs.touch("file/"));
+        assertThrows(NotFoundException.class, () -> fs.ln("file", "l/", true));
+        assertEquals(List.of("file"), fs.ls(".", false));
+    }
+
+    @Test
+    void testSymlinksResolveFromTheirDirectory() throws FSException {
+        fs.mkdir("dir");
+        fs.mkdir("dir/target");
+        fs.touch("dir/target/file");
+        fs.ln("target", "dir/rel", true);
+        fs.ln("/dir/target", "abs", true);
+        assertEquals(List.of("file"), fs.ls("dir/rel", false));
+        assertEquals(List.of("file"), fs.ls("abs", false));
+        fs.cd("abs");
+        assertEquals("/dir/target", fs.pwd());
+    }
+
+    @Test
+    void testSymlinkLoopIsReported() throws FSException {
+        fs.ln("b", "a", true);
+        fs.ln("a", "b", true);
+        assertThrows(InvalidPathException.class, () -> fs.ls("a", false));
+    }
+
+    @Test
+    void testHardLinksShareTheNodeUntilTheLastIsRemoved() throws FSException {
+        fs.touch("a");
+        fs.ln("a", "b", false);
+        FileSystemNode node = fs.resolveNode("a", false);
+        assertEquals(2, node.getLinkCount());
+        assertEquals(node.getId(), fs.resolveNode("b", false).getId());
+        assertThrows(InvalidPathException.class, () -> fs.ln("/", "c", false));
+
+        fs.rm("a");
+        assertEquals(1, fs.resolveNode("b", false).getLinkCount());
+        assertNotNull(fs.findByInode(node.getId()));
+        fs.rm("b");
+        assertNull(fs.findByInode(node.getId()));
+    }
+
+    @Test
+    void testFreedInodesAreReused() throws FSException {
+        fs.touch("a");
+        int id = fs.resolveNode("a", false).getId();
+        fs.rm("a");
+        fs.touch("b");
+        assertEquals(id, fs.resolveNode("b", false).getId());
+    }
+
+    @Test
+    void testRemovedNamesAreReused() throws FSException {
+        String prefix = "x".repeat(200);
+        long settled = 0;
+        for (int round = 0; round < 20; round++) {
+            fs.mkdir("d");
+            for (int i = 0; i < 1000; i++) {
+                fs.touch("d/" + prefix + i);
+                fs.ln("/" + prefix + i, "d/l" + i, true);
+            }
+            fs.cp("d", "e");
+            fs.rm("d", true, false);
+            fs.rm("e", true, false);
+            if (round == 0) settled = fs.offHeapBytes();
+        }
+        assertEquals(settled, fs.offHeapBytes());
+    }
+
+    @Test
+    void testHardLinkOutlivingItsDirectoryKeepsItsName() throws FSException {
+        fs.mkdir("d");
+        fs.touch("d/a");
+        fs.ln("d/a", "b", false);
+        fs.rm("d", true, false);
+        fs.touch("c");
+
+        assertEquals(List.of("b", "c"), fs.ls("/", false));
+        fs.mv("b", "renamed");
+        assertEquals(List.of("c", "renamed"), fs.ls("/", false));
+    }
+
+    @Test
+    void testCpCopiesTreesIncludingIntoThemselves() throws FSException {
+        fs.mkdir("src");
+        fs.touch("src/f");
+        fs.mkdir("src/sub");
+        fs.ln("f", "src/sub/link", true);
+        fs.cp("src", "copy");
+        fs.cp("src", "src/inner");
+        assertEquals(List.of("f", "sub/"), fs.ls("copy", false));
+        assertEquals(List.of("link -> f"), fs.ls("copy/sub", false));
+        assertEquals(List.of("f", "sub/"), fs.ls("src/inner", false));
+        assertNotEquals(fs.resolveNode("src/f", false).getId(), fs.resolveNode("copy/f", false).getId());
+    }
+
+    @Test
+    void testLargeDirectoryGrowsAndShrinks() throws FSException {
+        fs.mkdir("big");
+        for (int i = 0; i < 2000; i++) {
+            fs.touch("big/f" + i);
+        }
+        assertEquals(2000, fs.ls("big", false).size());
+        for (int i = 0; i < 2000; i++) {
+            if (i % 100 != 0) {
+                fs.rm("big/f" + i);
+            }
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i += 100) {
+            expected.add("f" + i);
+        }
+        assertEquals(expected, fs.ls("big", false));
+        assertNotNull(fs.resolveNode("big/f1900", false));
+        assertThrows(NotFoundException.class, () -> fs.resolveNode("big/f1901", false));
+    }
+
+    @Test
+    void testExpWildcardThroughCwdView() throws FSException {
+        fs.touch("a.txt");
+        fs.touch("b.txt");
+        fs.touch("c.log");
+        assertEquals(List.of("a.txt", "b.txt"), fs.expWildcard("*.txt", fs.getCwd()));
+        assertEquals(List.of("*.md"), fs.expWildcard("*.md", fs.getCwd()));
+    }
+
+    @Test
+    void testViewsReflectTheStore() throws FSException {
+        fs.mkdir("dir");
+        fs.touch("dir/file");
+        DirectoryNode dir = (DirectoryNode) fs.resolveNode("dir", false);
+        assertEquals(List.of("file"), dir.listNames());
+        assertEquals("/dir", dir.absolutePath());
+        assertEquals("dir", dir.getName());
+        assertNotNull(dir.get("file"));
+        assertEquals(1, fs.listNodes(dir).size());
+        assertThrows(UnsupportedOperationException.class, () -> dir.remove("file"));
+    }
+
+    @Test
+    void testCommandsRunUnchanged() throws FSException {
+        CommandExecutor executor = new CommandExecutor(fs, new CommandParser());
+        executor.registerCommand(new TouchCommand());
+        executor.registerCommand(new LsCommand());
+        executor.registerCommand(new RmCommand());
+        executor.registerCommand(new CdCommand());
+
+        assertTrue(executor.execute("touch one two three").isSuccess());
+        assertTrue(executor.execute("rm t*").isSuccess());
+        CommandResult ls = executor.execute("ls");
+        assertTrue(ls.isSuccess());
+        assertEquals(List.of("one"), ls.getOutput());
+    }
+
+    @Test
+    void testSaveAndLoadKeepInodeNumbersAndHardLinks() throws Exception {
+        fs.mkdir("dir");
+        fs.touch("dir/a");
+        fs.touch("gone");
+        fs.rm("gone");
+        fs.ln("dir/a", "hard", false);
+        fs.ln("dir", "sym", true);
+        List<String> before = fs.ls("/", true);
+
+        String json = new Serializer<FileSystemNode>().serialize(fs.getRoot());
+        DirectoryNode image = (DirectoryNode) new Deserializer<FileSystemNode>().deserialize(json, FileSystemNode.class);
+
+        OffHeapFileSystem offHeap = new OffHeapFileSystem(image);
+        assertEquals(before, offHeap.ls("/", true));
+        assertEquals(fs.ls("dir", true), offHeap.ls("dir", true));
+        assertEquals(2, offHeap.resolveNode("hard", false).getLinkCount());
+
+        image = (DirectoryNode) new Deserializer<FileSystemNode>().deserialize(json, FileSystemNode.class);
+        InMemoryFileSystem onHeap = new InMemoryFileSystem(image);
+        assertEquals(before, onHeap.ls("/", true));
+    }
+
+    @Test
+    void testBehavesLikeInMemoryFileSystem() throws FSException {
+        FileSystem reference = new InMemoryFileSystem();
+        for (FileSystem target : List.of(reference, fs)) {
+            target.mkdir("a");
+            target.mkdir("a/b");
+            target.touch("a/b/file");
+            target.ln("a/b", "link", true);
+            target.cp("a", "copy");
+            target.mv("copy/b/file", "moved");
+            target.cd("link");
+            target.touch("../new");
+            target.cd("/");
+        }
+        for (String path : List.of("/", "a", "a/b", "copy", "copy/b", "link")) {
+            assertEquals(reference.ls(path, false), fs.ls(path, false), path);
+        }
+    }
+
+    @Test
+    void testRmRecursive() throws FSException {
+        fs.mkdir("tree");
+        fs.mkdir("tree/sub");
+        fs.touch("tree/sub/file");
+        fs.ln("/tree/sub/file", "outside", false);
+        fs.cd("tree/sub");
+
+        assertThrows(FSException.class, () -> fs.rm("/tree", false, false));
+        assertThrows(FSException.class, () -> fs.rm(".", true, false));
+        Teardown teardown = fs.rm("/tree", true, false);
+
+        assertTrue(teardown.isDone());
+        assertEquals(2, teardown.released());
+        assertEquals("/", fs.pwd());
+        assertEquals(1, fs.resolveNode("outside", false).getLinkCount());
+        assertTrue(fs.rm("tree", true, true).isDone());
+    }
+
+    @Test
+    void testSnapshotsAreUnsupported() {
+        assertThrows(FSException.class, () -> fs.createSnapshot("s"));
+        assertThrows(FSException.class, () -> fs.restoreSnapshot("s"));
+        assertTrue(fs.listSnapshots().isEmpty());
+    }
+
+    @Test
+    void testReadViewIsAFrozenCopy() throws Exception {
+        fs.mkdir("dir");
+        fs.touch("dir/a");
+        fs.ln("dir/a", "hard", false);
+        String before = new Serializer<FileSystemNode>().serialize(fs.getRoot());
+
+        try (ReadView view = fs.openReadView()) {
+            fs.rm("hard");
+            fs.touch("dir/b");
+            assertEquals(before, new Serializer<FileSystemNode>().serialize(view.getRoot()));
+            assertSame(((DirectoryNode) view.getRoot().get("dir")).get("a"), view.getRoot().get("hard"));
+        }
+    }
+
+    @Test
+    void testTransactionsAreUnsupported() {
+        assertThrows(FSException.class, () -> fs.begin());
+        assertThrows(FSException.class, () -> fs.commit());
+        assertFalse(fs.inTransaction());
+    }
+
+    @Test
+    void testSessionsAreUnsupported() {
+        assertThrows(FSException.class, () -> fs.openSession());
+    }
+}
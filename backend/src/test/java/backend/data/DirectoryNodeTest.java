@@ -8,8 +8,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -76,4 +79,187 @@ public class DirectoryNodeTest {
         d.add("x", new FileNode());
         assertFalse(d.isEmpty());
     }
+
+    @Test
+    void dentryTracksNameAndPath() {
+        DirectoryNode root = new DirectoryNode();
+        root.setParent(root);
+        DirectoryNode sub = new DirectoryNode();
+        root.add("sub", sub);
+        FileNode f = new FileNode();
+        sub.add("f.txt", f);
+        assertEquals("sub", sub.getName());
+        assertEquals("f.txt", f.nameIn(sub));
+        assertNull(f.nameIn(root));
+        assertEquals("/sub/f.txt", f.absolutePath());
+        assertEquals("/", root.absolutePath());
+    }
+
+    @Test
+    void hardLinkKeepsOneDentryPerLink() {
+        DirectoryNode other = new DirectoryNode();
+        FileNode f = new FileNode();
+        d.add("a", f);
+        other.add("b", f);
+        assertEquals(2, f.dentries().size());
+        assertEquals("a", f.nameIn(d));
+        assertEquals("b", f.nameIn(other));
+        d.remove("a");
+        assertSame(other, f.getParent());
+        assertEquals("b", f.getName());
+        assertEquals(1, f.dentries().size());
+    }
+
+    @Test
+    void replacingAnEntryDetachesThePreviousNode() {
+        FileNode first = new FileNode();
+        FileNode second = new FileNode();
+        d.add("x", first);
+        d.add("x", second);
+        assertNull(first.getParent());
+        assertNull(first.nameIn(d));
+        assertEquals("x", second.nameIn(d));
+    }
+
+    @Test
+    void growsAndKeepsInsertionOrderAcrossRemovals() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            d.add("n" + i, new FileNode());
+            expected.add("n" + i);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertNotNull(d.remove("n" + i));
+            expected.remove("n" + i);
+        }
+        d.add("n0", new FileNode());
+        expected.add("n0");
+        assertEquals(expected, d.listNames());
+        for (String name : expected) {
+            assertTrue(d.contains(name));
+        }
+        assertFalse(d.contains("n3"));
+    }
+
+    @Test
+    void replacingKeepsPosition() {
+        d.add("a", new FileNode());
+        d.add("b", new FileNode());
+        FileNode replacement = new FileNode();
+        d.add("a", replacement);
+        assertEquals(List.of("a", "b"), d.listNames());
+        assertSame(replacement, d.get("a"));
+    }
+
+    @Test
+    void readersNeverBlockOrSeeTornEntries() throws InterruptedException {
+        FileNode stable = new FileNode();
+        d.add("stable", stable);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Runnable reader = () -> {
+            try {
+                while (!done.get()) {
+                    if (d.get("stable") != stable) throw new AssertionError("lost stable entry");
+                    for (String name : d.listNames()) {
+                        assertNotNull(name);
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        };
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(reader);
+            readers[i].start();
+        }
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 200; i++) d.add("tmp" + i, new FileNode());
+            for (int i = 0; i < 200; i++) d.remove("tmp" + i);
+        }
+        done.set(true);
+        for (Thread t : readers) t.join();
+
+        assertNull(failure.get());
+        assertEquals(List.of("stable"), d.listNames());
+    }
+
+    @Test
+    void forEachChildVisitsInInsertionOrder() {
+        FileNode a = new FileNode();
+        DirectoryNode b = new DirectoryNode();
+        d.add("a", a);
+        d.add("b", b);
+        d.add("c", new FileNode());
+        d.remove("c");
+        List<String> names = new ArrayList<>();
+        List<FileSystemNode> nodes = new ArrayList<>();
+        d.forEachChild((name, node) -> {
+            names.add(name);
+            nodes.add(node);
+        });
+        assertEquals(List.of("a", "b"), names);
+        assertEquals(List.of(a, b), nodes);
+        assertEquals(2, d.childCount());
+    }
+
+    @Test
+    void lookupsSurviveGrowingPastAndShrinkingBelowSmallDirectorySize() {
+        for (int i = 0; i < 20; i++) d.add("e" + i, new FileNode());
+        for (int i = 0; i < 20; i++) assertTrue(d.contains("e" + i));
+        for (int i = 2; i < 20; i++) d.remove("e" + i);
+        assertEquals(List.of("e0", "e1"), d.listNames());
+        assertNotNull(d.get("e1"));
+        assertNull(d.get("e5"));
+
+        d.remove("e0");
+        d.remove("e1");
+        assertTrue(d.isEmpty());
+        d.add("again", new FileNode());
+        assertEquals(List.of("again"), d.listNames());
+    }
+
+    @Test
+    void addIfAbsentKeepsExistingEntry() {
+        FileNode first = new FileNode();
+        FileNode second = new FileNode();
+        assertTrue(d.addIfAbsent("x", first));
+        assertFalse(d.addIfAbsent("x", second));
+        assertSame(first, d.get("x"));
+        assertNull(second.getParent());
+    }
+
+    @Test
+    void insertPutsEntryBackAtItsPosition() {
+        d.add("a", new FileNode());
+        FileNode b = new FileNode();
+        d.add("b", b);
+        d.add("c", new FileNode());
+        assertEquals(1, d.indexOf("b"));
+        assertEquals(-1, d.indexOf("missing"));
+
+        d.remove("b");
+        d.insert(1, "b", b);
+        d.insert(10, "z", new FileNode());
+        assertEquals(List.of("a", "b", "c", "z"), d.listNames());
+        assertSame(d, b.getParent());
+        assertThrows(IllegalArgumentException.class, () -> d.insert(0, "a", new FileNode()));
+    }
+
+    @Test
+    void namesMatchingKeepsInsertionOrderAcrossParallelChunks() {
+        int count = DirectoryNode.PARALLEL_SCAN_THRESHOLD * 2 + 7;
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = "f" + (count - i);
+            d.add(name, new FileNode());
+            if (name.endsWith("7")) expected.add(name);
+        }
+        d.remove("f" + count);
+
+        assertEquals(expected, d.namesMatching(name -> name.endsWith("7")));
+        assertEquals(count - 1, d.namesMatching(name -> true).size());
+    }
 }
@@ -2,7 +2,10 @@ package backend.data;
 
 import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.InodeTable;
 import ch.supsi.fscli.backend.data.LinkNode;
+import ch.supsi.fscli.backend.data.NodeClock;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,8 +29,12 @@ public class FSNodeTest {
 
     @Test
     void idGenerationIncrementsTest() {
+        InodeTable inodes = new InodeTable();
         FileNode a = new FileNode();
         FileNode b = new FileNode();
+        assertEquals(0, a.getId(), "IDs are only assigned by an inode table");
+        inodes.allocate(a);
+        inodes.allocate(b);
         assertTrue(b.getId() > a.getId(), "IDs should be monotonic increasing");
     }
 
@@ -61,6 +68,32 @@ public class FSNodeTest {
         assertFalse(f.getMTime().isBefore(prevM));
     }
 
+    @Test
+    void pluggableClockStampsEachMutationOnce() {
+        long[] ticks = {1_700_000_000_123_456_789L};
+        FileSystemNode.setClock(() -> ticks[0]++);
+        try {
+            FileNode file = new FileNode();
+            assertEquals(1_700_000_000_123_456_789L, file.getCTimeNanos());
+            assertEquals(file.getCTimeNanos(), file.getMTimeNanos());
+            assertEquals(Instant.ofEpochSecond(1_700_000_000L, 123_456_789L), file.getCTime());
+
+            DirectoryNode dir = new DirectoryNode();
+            dir.add("file", file);
+            assertEquals(dir.getMTimeNanos(), file.getATimeNanos());
+
+            file.touch();
+            assertEquals(file.getCTimeNanos(), file.getMTimeNanos());
+        } finally {
+            FileSystemNode.setClock(NodeClock.SYSTEM);
+        }
+    }
+
+    @Test
+    void setClockRejectsNull() {
+        assertThrows(IllegalArgumentException.class, () -> FileSystemNode.setClock(null));
+    }
+
     @Test
     void toStringIncludesTypeAndIdAndLinks() {
         String s = f.toString();
@@ -0,0 +1,110 @@
+package backend.data;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.InodeTable;
+import ch.supsi.fscli.backend.data.serde.Deserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InodeTableTest {
+    InodeTable inodes;
+
+    @BeforeEach
+    void setUp() {
+        inodes = new InodeTable();
+    }
+
+    @Test
+    void allocatesDenseIdsFromOne() {
+        FileNode a = new FileNode();
+        FileNode b = new FileNode();
+        assertEquals(1, inodes.allocate(a));
+        assertEquals(2, inodes.allocate(b));
+        assertSame(a, inodes.get(1));
+        assertSame(b, inodes.get(2));
+        assertEquals(2, inodes.size());
+    }
+
+    @Test
+    void allocatingTwiceKeepsTheId() {
+        FileNode a = new FileNode();
+        int id = inodes.allocate(a);
+        assertEquals(id, inodes.allocate(a));
+        assertEquals(1, inodes.size());
+    }
+
+    @Test
+    void releasedIdsAreReused() {
+        FileNode a = new FileNode();
+        FileNode b = new FileNode();
+        inodes.allocate(a);
+        int freed = inodes.allocate(b);
+        inodes.release(b);
+        assertEquals(0, b.getId());
+        assertNull(inodes.get(freed));
+
+        FileNode c = new FileNode();
+        assertEquals(freed, inodes.allocate(c));
+        assertSame(c, inodes.get(freed));
+    }
+
+    @Test
+    void releaseOfForeignNodeIsIgnored() {
+        FileNode a = new FileNode();
+        inodes.allocate(a);
+        InodeTable other = new InodeTable();
+        other.release(a);
+        assertSame(a, inodes.get(a.getId()));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        FileNode[] nodes = new FileNode[1000];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new FileNode();
+            inodes.allocate(nodes[i]);
+        }
+        for (FileNode node : nodes) {
+            assertSame(node, inodes.get(node.getId()));
+        }
+        assertNull(inodes.get(0));
+        assertNull(inodes.get(-1));
+        assertNull(inodes.get(5000));
+    }
+
+    @Test
+    void claimKeepsSavedIdsAndFreesGaps() throws Exception {
+        FileSystemNode saved = load(7);
+        assertSame(saved, inodes.claim(saved));
+        assertEquals(7, saved.getId());
+        assertSame(saved, inodes.get(7));
+
+        FileNode fresh = new FileNode();
+        int id = inodes.allocate(fresh);
+        assertTrue(id < 7, "ids skipped by the image should be reused first");
+    }
+
+    @Test
+    void claimReportsTheFirstOwnerOfADuplicateId() throws Exception {
+        FileSystemNode first = load(3);
+        FileSystemNode second = load(3);
+        inodes.claim(first);
+        assertSame(first, inodes.claim(second));
+    }
+
+    @Test
+    void claimAllocatesForNodesWithoutId() {
+        DirectoryNode dir = new DirectoryNode();
+        assertSame(dir, inodes.claim(dir));
+        assertEquals(1, dir.getId());
+    }
+
+    private static FileSystemNode load(int id) throws Exception {
+        String json = "{\"nodeType\":\"file\",\"id\":" + id + ",\"linkCount\":1}";
+        return new Deserializer<FileSystemNode>().deserialize(json, FileSystemNode.class);
+    }
+}
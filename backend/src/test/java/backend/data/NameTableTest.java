@@ -0,0 +1,59 @@
+package backend.data;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.FileSystemNode;
+import ch.supsi.fscli.backend.data.NameTable;
+import ch.supsi.fscli.backend.data.serde.Deserializer;
+import ch.supsi.fscli.backend.data.serde.Serializer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NameTableTest {
+
+    @Test
+    void equalNamesShareOneInstance() {
+        String first = NameTable.intern(new String("interned-once"));
+        String second = NameTable.intern(new String("interned-once"));
+        assertSame(first, second);
+        assertNull(NameTable.intern(null));
+    }
+
+    @Test
+    void repeatedNameSurvivesAStreamOfUniqueNames() {
+        String src = NameTable.intern(new String("survivor-src"));
+        assertSame(src, NameTable.intern(new String("survivor-src")));
+        for (int i = 0; i < 500_000; i++) {
+            NameTable.intern("unique-" + i);
+        }
+        assertSame(src, NameTable.intern(new String("survivor-src")));
+    }
+
+    @Test
+    void directoriesShareEntryNames() {
+        DirectoryNode a = new DirectoryNode();
+        DirectoryNode b = new DirectoryNode();
+        a.add(new String("shared-name"), new FileNode());
+        b.add(new String("shared-name"), new FileNode());
+        assertSame(a.listNames().get(0), b.listNames().get(0));
+        assertSame(a.listNames().get(0), a.get("shared-name").getName());
+    }
+
+    @Test
+    void loadedNamesAreShared() throws Exception {
+        DirectoryNode root = new DirectoryNode();
+        for (int i = 0; i < 3; i++) {
+            DirectoryNode project = new DirectoryNode();
+            project.add("loaded-readme", new FileNode());
+            root.add("project" + i, project);
+        }
+        String json = new Serializer<FileSystemNode>().serialize(root);
+        DirectoryNode loaded = (DirectoryNode) new Deserializer<FileSystemNode>().deserialize(json, FileSystemNode.class);
+
+        String first = ((DirectoryNode) loaded.get("project0")).listNames().get(0);
+        for (int i = 1; i < 3; i++) {
+            assertSame(first, ((DirectoryNode) loaded.get("project" + i)).listNames().get(0));
+        }
+    }
+}
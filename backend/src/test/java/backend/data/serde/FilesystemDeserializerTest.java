@@ -4,8 +4,11 @@ import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.serde.Deserializer;
 import ch.supsi.fscli.backend.data.FileSystemNode;
 import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.LinkNode;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class FilesystemDeserializerTest {
@@ -32,6 +35,9 @@ public class FilesystemDeserializerTest {
         assertFalse(node.isLink());
         assertEquals("file", node.typeName());
         assertEquals(1, node.getLinkCount());
+        assertEquals(Instant.parse("2025-11-02T23:00:00Z"), node.getCTime());
+        assertEquals(Instant.parse("2025-11-02T23:00:00Z"), node.getMTime());
+        assertEquals(Instant.parse("2025-11-02T23:00:00Z"), node.getATime());
     }
 
     @Test
@@ -106,4 +112,26 @@ public class FilesystemDeserializerTest {
         FileSystemNode subdir = dir.get("subdir");
         assertInstanceOf(DirectoryNode.class, subdir);
     }
+
+    @Test
+    void testDeserializeLinkNode() throws Exception {
+        String json = """
+                {
+                  "nodeType": "link",
+                  "id": 4,
+                  "linkCount": 1,
+                  "ctime": "2025-11-02T23:00:00Z",
+                  "mtime": "2025-11-02T23:00:00Z",
+                  "atime": "2025-11-02T23:00:00Z",
+                  "target": "/some/where"
+                }
+                """;
+
+        Deserializer<FileSystemNode> deserializer = new Deserializer<>();
+        FileSystemNode node = deserializer.deserialize(json, FileSystemNode.class);
+
+        assertInstanceOf(LinkNode.class, node);
+        assertEquals("/some/where", ((LinkNode) node).getTarget());
+        assertEquals(Instant.parse("2025-11-02T23:00:00Z"), node.getMTime());
+    }
 }
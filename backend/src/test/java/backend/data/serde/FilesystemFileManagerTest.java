@@ -1,5 +1,6 @@
 package backend.data.serde;
 
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
 import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.FileSystemNode;
 import ch.supsi.fscli.backend.data.FileNode;
@@ -8,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -62,6 +64,32 @@ class FilesystemFileManagerTest {
         Files.deleteIfExists(tempFile);
     }
 
+    @Test
+    void testSaveAndLoadKeepsInodeNumbersAndHardLinks() throws Exception {
+        Path tempFile = Files.createTempFile("filesystem", ".json");
+        FilesystemFileManager manager = new FilesystemFileManager(tempFile);
+
+        InMemoryFileSystem fs = new InMemoryFileSystem();
+        fs.mkdir("dir");
+        fs.touch("dir/a");
+        fs.touch("b");
+        fs.rm("b");
+        fs.touch("c");
+        fs.ln("dir/a", "hard", false);
+        List<String> before = fs.ls("/", true);
+
+        manager.save(fs.getRoot());
+        InMemoryFileSystem reloaded = new InMemoryFileSystem((DirectoryNode) manager.load().orElseThrow());
+
+        assertEquals(before, reloaded.ls("/", true));
+        assertEquals(fs.ls("dir", true), reloaded.ls("dir", true));
+        FileSystemNode a = reloaded.resolveNode("dir/a", false);
+        assertSame(a, reloaded.resolveNode("hard", false));
+        assertSame(a, reloaded.findByInode(a.getId()));
+
+        Files.deleteIfExists(tempFile);
+    }
+
     @Test
     void testLoadNonExistentFile() {
         Path tempFile = Paths.get("nonexistent-file-" + System.currentTimeMillis() + ".json");
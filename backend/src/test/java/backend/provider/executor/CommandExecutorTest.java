@@ -3,14 +3,26 @@ package backend.provider.executor;
 import ch.supsi.fscli.backend.core.CommandResult;
 import ch.supsi.fscli.backend.core.FileSystem;
 import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.command.BeginCommand;
 import ch.supsi.fscli.backend.core.command.Command;
+import ch.supsi.fscli.backend.core.command.CommitCommand;
+import ch.supsi.fscli.backend.core.command.CpCommand;
+import ch.supsi.fscli.backend.core.command.LnCommand;
+import ch.supsi.fscli.backend.core.command.MkdirCommand;
+import ch.supsi.fscli.backend.core.command.MvCommand;
+import ch.supsi.fscli.backend.core.command.RmCommand;
+import ch.supsi.fscli.backend.core.command.RollbackCommand;
+import ch.supsi.fscli.backend.core.command.TouchCommand;
 import ch.supsi.fscli.backend.core.exception.FSException;
 import ch.supsi.fscli.backend.provider.executor.CommandExecutor;
 import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
+import ch.supsi.fscli.backend.provider.parser.ExpandedArguments;
 import ch.supsi.fscli.backend.provider.parser.CommandParser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -207,4 +219,170 @@ class CommandExecutorTest {
         assertFalse(result.isSuccess());
         assertTrue(result.getErrorMessage().contains("Error executing command"));
     }
+
+    @Test
+    void testExecuteBatchCommitsWhenAllSucceed() throws FSException {
+        executor.registerCommand(new MkdirCommand());
+        executor.registerCommand(new TouchCommand());
+        executor.registerCommand(new MvCommand());
+
+        List<CommandResult> results = executor.executeBatch(List.of("mkdir a", "touch x", "mv x a/x"));
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(CommandResult::isSuccess));
+        assertFalse(fileSystem.inTransaction());
+        assertEquals(List.of("x"), fileSystem.ls("a", false));
+    }
+
+    @Test
+    void testExecuteBatchRollsBackOnFailure() throws FSException {
+        executor.registerCommand(new MkdirCommand());
+        executor.registerCommand(new TouchCommand());
+        executor.registerCommand(new MvCommand());
+        executor.registerCommand(new LnCommand());
+        fileSystem.touch("x");
+
+        List<CommandResult> results = executor.executeBatch(
+                List.of("mkdir a", "mv x a/x", "ln -s a/x a", "touch never"));
+
+        assertEquals(3, results.size());
+        assertFalse(results.get(2).isSuccess());
+        assertFalse(fileSystem.inTransaction());
+        assertEquals(List.of("x"), fileSystem.ls("/", false));
+    }
+
+    @Test
+    void testExecuteBatchRefusesTransactionCommands() throws FSException {
+        executor.registerCommand(new TouchCommand());
+        executor.registerCommand(new BeginCommand());
+        executor.registerCommand(new CommitCommand());
+        executor.registerCommand(new RollbackCommand());
+
+        for (String control : List.of("begin", "commit", "rollback")) {
+            List<CommandResult> results = executor.executeBatch(List.of("touch x", control, "touch y"));
+
+            assertEquals(2, results.size());
+            assertEquals("Cannot open or end a transaction inside a batch: " + control,
+                    results.get(1).getErrorMessage());
+            assertFalse(fileSystem.inTransaction());
+            assertEquals(List.of(), fileSystem.ls("/", false));
+        }
+    }
+
+    @Test
+    void testWildcardsSpanDirectoriesAndStreamIntoTheCommand() throws FSException {
+        fileSystem.mkdir("/tmp");
+        fileSystem.mkdir("/tmp/a");
+        fileSystem.touch("/tmp/a/x.bak");
+        fileSystem.touch("/tmp/a/y.txt");
+        fileSystem.touch("/tmp/z.bak");
+        executor.registerCommand(new RmCommand());
+
+        CommandResult result = executor.execute("rm /tmp/**/*.bak");
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(List.of("a/"), fileSystem.ls("/tmp", false));
+        assertEquals(List.of("y.txt"), fileSystem.ls("/tmp/a", false));
+    }
+
+    @Test
+    void testExpandedArgumentsAreWalkedLazily() throws FSException {
+        fileSystem.mkdir("/d");
+        fileSystem.touch("/d/a");
+        fileSystem.touch("/d/b");
+        List<String> seen = new ArrayList<>();
+        executor.registerCommand(new TestCommand("peek") {
+            @Override
+            public CommandResult execute(FileSystem fs, CommandSyntax syntax) throws FSException {
+                for (String arg : syntax.getArguments()) {
+                    seen.add(arg);
+                    // files created mid-walk in a directory not yet read still show up
+                    if (arg.equals("/d/a")) fs.touch("/e/c");
+                }
+                return CommandResult.success();
+            }
+        });
+        fileSystem.mkdir("/e");
+
+        executor.execute("peek /d/* /e/*");
+
+        assertEquals(List.of("/d/a", "/d/b", "/e/c"), seen);
+    }
+
+    @Test
+    void testWalkedPartsAnswerIndexedAccess() throws FSException {
+        fileSystem.mkdir("/d");
+        fileSystem.touch("/d/a");
+        fileSystem.touch("/d/b");
+        List<String> seen = new ArrayList<>();
+        executor.registerCommand(new TestCommand("peek") {
+            @Override
+            public CommandResult execute(FileSystem fs, CommandSyntax syntax) {
+                ExpandedArguments.Part walk = ((ExpandedArguments) syntax.getArguments()).parts().get(0);
+                seen.add(walk.get(1));
+                seen.add(walk.get(0));
+                assertThrows(IndexOutOfBoundsException.class, () -> walk.get(2));
+                return CommandResult.success();
+            }
+        });
+
+        assertTrue(executor.execute("peek /d/*").isSuccess());
+        assertEquals(List.of("/d/b", "/d/a"), seen);
+    }
+
+    @Test
+    void testArgumentsBeyondTheIntRangeAreRefused() {
+        executor.registerCommand(new TouchCommand());
+
+        CommandResult result = executor.execute("touch f{1..3000000000} g*");
+
+        assertFalse(result.isSuccess());
+        assertEquals("Invalid command: Too many arguments: 3000000001", result.getErrorMessage());
+    }
+
+    @Test
+    void testBraceExpansionsRunAsOneBulkCommand() throws FSException {
+        executor.registerCommand(new MkdirCommand());
+        executor.registerCommand(new TouchCommand());
+        executor.registerCommand(new RmCommand());
+
+        assertTrue(executor.execute("mkdir proj proj/{a,b,c}").isSuccess());
+        assertTrue(executor.execute("touch proj/{a,b,c}/f{1..100}").isSuccess());
+        CommandResult result = executor.execute("rm proj/{a,b}/f{1..99} proj/c/{f1*,f2}");
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(List.of("a/", "b/", "c/"), fileSystem.ls("/proj", false));
+        assertEquals(List.of("f100"), fileSystem.ls("/proj/a", false));
+        assertEquals(87, fileSystem.ls("/proj/c", false).size());
+    }
+
+    @Test
+    void testWildcardSourcesMoveIntoADirectory() throws FSException {
+        executor.registerCommand(new MkdirCommand());
+        executor.registerCommand(new TouchCommand());
+        executor.registerCommand(new MvCommand());
+        executor.registerCommand(new CpCommand());
+
+        assertTrue(executor.execute("mkdir src dst copy").isSuccess());
+        assertTrue(executor.execute("touch src/f{1..5} src/g").isSuccess());
+        CommandResult moved = executor.execute("mv src/f* dst/");
+        CommandResult copied = executor.execute("cp dst/f1 dst/f2 src/g copy");
+
+        assertTrue(moved.isSuccess(), moved.getErrorMessage());
+        assertTrue(copied.isSuccess(), copied.getErrorMessage());
+        assertEquals(List.of("g"), fileSystem.ls("/src", false));
+        assertEquals(List.of("f1", "f2", "f3", "f4", "f5"), fileSystem.ls("/dst", false));
+        assertEquals(List.of("f1", "f2", "g"), fileSystem.ls("/copy", false));
+    }
+
+    @Test
+    void testMkdirParentsBuildsATreeInOneCommand() throws FSException {
+        executor.registerCommand(new MkdirCommand());
+
+        CommandResult result = executor.execute("mkdir -p proj/{a,b}/src/{main,test}");
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(List.of("a/", "b/"), fileSystem.ls("/proj", false));
+        assertEquals(List.of("main/", "test/"), fileSystem.ls("/proj/b/src", false));
+    }
 }
@@ -0,0 +1,90 @@
+package backend.provider.parser;
+
+import ch.supsi.fscli.backend.core.exception.InvalidCommandException;
+import ch.supsi.fscli.backend.provider.parser.BraceExpansion;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BraceExpansionTest {
+
+    private static List<String> expand(String word) throws InvalidCommandException {
+        List<String> words = new ArrayList<>();
+        BraceExpansion.parse(word).iterator().forEachRemaining(words::add);
+        return words;
+    }
+
+    @Test
+    void testAlternatives() throws Exception {
+        assertEquals(List.of("proj/a/src", "proj/b/src", "proj/c/src"), expand("proj/{a,b,c}/src"));
+        assertEquals(List.of("a", ""), expand("{a,}"));
+    }
+
+    @Test
+    void testLeftmostBraceVariesSlowest() throws Exception {
+        assertEquals(List.of("a1x", "a1y", "a2x", "a2y"), expand("a{1,2}{x,y}"));
+    }
+
+    @Test
+    void testNestedAlternatives() throws Exception {
+        assertEquals(List.of("a", "b1", "b2", "c"), expand("{a,b{1,2},c}"));
+    }
+
+    @Test
+    void testNumericSequences() throws Exception {
+        assertEquals(List.of("f1", "f2", "f3"), expand("f{1..3}"));
+        assertEquals(List.of("3", "2", "1", "0", "-1"), expand("{3..-1}"));
+        assertEquals(List.of("0", "5", "10"), expand("{0..10..5}"));
+        assertEquals(List.of("08", "09", "10"), expand("{08..10}"));
+        assertEquals(List.of("-1", "00", "01"), expand("{-1..01}"));
+    }
+
+    @Test
+    void testCharacterSequences() throws Exception {
+        assertEquals(List.of("a", "b", "c"), expand("{a..c}"));
+        assertEquals(List.of("e", "c", "a"), expand("{e..a..2}"));
+    }
+
+    @Test
+    void testSizeAndIndexAreKnownWithoutGenerating() throws Exception {
+        BraceExpansion expansion = BraceExpansion.parse("d{1..1000}/f{1..1000}");
+
+        assertEquals(1_000_000, expansion.count());
+        assertEquals("d1/f1", expansion.get(0));
+        assertEquals("d2/f1", expansion.get(1000));
+        assertEquals("d1000/f1000", expansion.get(999_999));
+        assertThrows(IndexOutOfBoundsException.class, () -> expansion.get(1_000_000));
+    }
+
+    @Test
+    void testWordsWithoutExpansionAreNotParsed() throws Exception {
+        assertNull(BraceExpansion.parse("plain"));
+        assertNull(BraceExpansion.parse("{a}"));
+        assertNull(BraceExpansion.parse("{}"));
+        assertNull(BraceExpansion.parse("{a"));
+        assertNull(BraceExpansion.parse("{1..x}"));
+        assertNull(BraceExpansion.parse("\\{a,b}"));
+    }
+
+    @Test
+    void testLiteralBracesAroundAnExpansion() throws Exception {
+        assertEquals(List.of("{a}", "{b}"), expand("{{a,b}}"));
+        assertEquals(List.of("{x}a", "{x}b"), expand("{x}{a,b}"));
+        assertEquals(List.of("a,b", "c"), expand("{a\\,b,c}"));
+    }
+
+    @Test
+    void testTracksPossibleGlobs() throws Exception {
+        assertFalse(BraceExpansion.parse("f{1..3}").mayGlob());
+        assertTrue(BraceExpansion.parse("{a,b}/*.txt").mayGlob());
+    }
+
+    @Test
+    void testTooManyWordsAreRejected() {
+        assertThrows(InvalidCommandException.class,
+                () -> BraceExpansion.parse("{1..999999999}{1..999999999}{1..999999999}"));
+    }
+}
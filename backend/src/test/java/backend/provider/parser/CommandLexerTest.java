@@ -187,4 +187,24 @@ class CommandLexerTest {
         assertFalse(lexer.validateCommandName("cmd/with/slash"));
         assertFalse(lexer.validateCommandName("cmd with space"));
     }
+
+    @Test
+    void testTokensAreInterned() throws Exception {
+        List<String> first = lexer.tokenize("cd lexer-interned");
+        List<String> second = lexer.tokenize("ls lexer-interned");
+        assertSame(first.get(1), second.get(1));
+    }
+
+    @Test
+    void testBracesExpandIntoTokens() throws Exception {
+        List<String> tokens = lexer.tokenize("touch f{1..3} proj/{a,b}/src");
+        assertEquals(6, tokens.size());
+        assertEquals(List.of("touch", "f1", "f2", "f3", "proj/a/src", "proj/b/src"), tokens);
+    }
+
+    @Test
+    void testQuotedAndEscapedBracesAreLiteral() throws Exception {
+        List<String> tokens = lexer.tokenize("touch '{a,b}' \"x{1..2}\" y\\{a,b} {a'..'c} {}");
+        assertEquals(List.of("touch", "{a,b}", "x{1..2}", "y{a,b}", "{a..c}", "{}"), tokens);
+    }
 }
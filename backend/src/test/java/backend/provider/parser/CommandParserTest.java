@@ -6,6 +6,8 @@ import ch.supsi.fscli.backend.provider.parser.CommandSyntax;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CommandParserTest {
@@ -105,4 +107,16 @@ class CommandParserTest {
         assertTrue(str.contains("dir1"));
         assertTrue(str.contains("dir2"));
     }
+
+    @Test
+    void testParseBraceExpansions() throws Exception {
+        CommandSyntax syntax = parser.parse("mkdir proj/{a,b,c}");
+        assertEquals("mkdir", syntax.getCommandName());
+        assertEquals(3, syntax.getArgumentCount());
+        assertEquals(List.of("proj/a", "proj/b", "proj/c"), syntax.getArguments());
+
+        syntax = parser.parse("{mkdir,x,y} z");
+        assertEquals("mkdir", syntax.getCommandName());
+        assertEquals(List.of("x", "y", "z"), syntax.getArguments());
+    }
 }
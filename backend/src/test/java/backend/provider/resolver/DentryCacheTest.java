@@ -0,0 +1,141 @@
+package backend.provider.resolver;
+
+import ch.supsi.fscli.backend.data.DirectoryNode;
+import ch.supsi.fscli.backend.data.FileNode;
+import ch.supsi.fscli.backend.data.LinkNode;
+import ch.supsi.fscli.backend.provider.resolver.DentryCache;
+import ch.supsi.fscli.backend.provider.resolver.LookupResult;
+import ch.supsi.fscli.backend.provider.resolver.ParsedPath;
+import ch.supsi.fscli.backend.provider.resolver.PathResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DentryCacheTest {
+
+    private PathResolver resolver;
+    private DentryCache cache;
+    private DirectoryNode root;
+    private DirectoryNode deep;
+
+    @BeforeEach
+    void setUp() {
+        resolver = PathResolver.getInstance();
+        cache = resolver.getDentryCache();
+        cache.clear();
+
+        root = new DirectoryNode();
+        root.setParent(root);
+        DirectoryNode cur = root;
+        for (String name : new String[]{"srv", "a", "b", "c"}) {
+            DirectoryNode next = new DirectoryNode();
+            cur.add(name, next);
+            cur = next;
+        }
+        deep = cur;
+        deep.add("file", new FileNode());
+    }
+
+    @Test
+    void testRepeatedLookupIsAHit() {
+        LookupResult first = resolver.tryResolve(root, "/srv/a/b/c/file", false);
+        LookupResult second = resolver.tryResolve(root, "/srv/a/b/c/file", false);
+        assertTrue(second.isFound());
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio());
+    }
+
+    @Test
+    void testAbsolutePathsSharedAcrossCwds() {
+        resolver.tryResolve(root, "/srv/a/b/c/file", false);
+        resolver.tryResolve(deep, "/srv/a/b/c/file", false);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testNegativeEntryInvalidatedByAdd() {
+        assertFalse(resolver.tryResolve(root, "/srv/a/b/c/new", false).isFound());
+        assertFalse(resolver.tryResolve(root, "/srv/a/b/c/new", false).isFound());
+        assertEquals(1, cache.getHits());
+
+        deep.add("new", new FileNode());
+        assertTrue(resolver.tryResolve(root, "/srv/a/b/c/new", false).isFound());
+    }
+
+    @Test
+    void testEntryInvalidatedByRemoveOnTheWay() {
+        assertTrue(resolver.tryResolve(root, "/srv/a/b/c/file", false).isFound());
+        ((DirectoryNode) root.get("srv")).remove("a");
+        assertFalse(resolver.tryResolve(root, "/srv/a/b/c/file", false).isFound());
+    }
+
+    @Test
+    void testChangeOffThePathKeepsEntry() {
+        DirectoryNode tmp = new DirectoryNode();
+        root.add("tmp", tmp);
+        resolver.tryResolve(root, "/srv/a/b/c/file", false);
+
+        tmp.add("scratch", new FileNode());
+        assertTrue(resolver.tryResolve(root, "/srv/a/b/c/file", false).isFound());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testRetargetedSymlinkInvalidates() {
+        DirectoryNode other = new DirectoryNode();
+        root.add("other", other);
+        other.add("file", new FileNode());
+        LinkNode link = new LinkNode("/srv/a/b/c");
+        root.add("link", link);
+
+        LookupResult before = resolver.tryResolve(root, "/link/file", true);
+        assertSame(deep.get("file"), before.getNode());
+
+        link.setTarget("/other");
+        LookupResult after = resolver.tryResolve(root, "/link/file", true);
+        assertSame(other.get("file"), after.getNode());
+    }
+
+    @Test
+    void testRemoveOffThePathKeepsEntry() {
+        DirectoryNode tmp = new DirectoryNode();
+        root.add("tmp", tmp);
+        tmp.add("scratch", new FileNode());
+        resolver.tryResolve(root, "/srv/a/b/c/file", false);
+
+        tmp.remove("scratch");
+        assertTrue(resolver.tryResolve(root, "/srv/a/b/c/file", false).isFound());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testStaleEntryIsReplacedOnLookup() {
+        resolver.tryResolve(root, "/srv/a/b/c/file", false);
+        resolver.tryResolve(root, "/srv/a/b/c", false);
+        assertEquals(2, cache.size());
+
+        deep.remove("file");
+        assertFalse(resolver.tryResolve(root, "/srv/a/b/c/file", false).isFound());
+        assertTrue(resolver.tryResolve(root, "/srv/a/b/c", false).isFound());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testKnownRootSharesAbsoluteEntries() {
+        ParsedPath path = ParsedPath.of("/srv/a/b/c/file");
+        LookupResult first = resolver.tryResolve(root, deep, path, false);
+        LookupResult second = resolver.tryResolve(deep, path, false);
+        assertSame(first, second);
+        assertSame(deep.get("file"), first.getNode());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testDotDotAboveTheRootStaysThere() {
+        assertSame(root, resolver.tryResolve(root, deep, ParsedPath.of("../../../../../.."), false).getNode());
+    }
+}
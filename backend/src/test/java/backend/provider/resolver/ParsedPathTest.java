@@ -0,0 +1,74 @@
+package backend.provider.resolver;
+
+import ch.supsi.fscli.backend.provider.resolver.ParsedPath;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParsedPathTest {
+
+    @Test
+    void testParseAbsolute() {
+        ParsedPath path = ParsedPath.of("/home//user/./docs/");
+        assertTrue(path.isAbsolute());
+        assertEquals(3, path.size());
+        assertEquals("home", path.component(0));
+        assertEquals("docs", path.fileName());
+    }
+
+    @Test
+    void testParseRelativeKeepsDotDot() {
+        ParsedPath path = ParsedPath.of("./a/../b");
+        assertFalse(path.isAbsolute());
+        assertEquals(3, path.size());
+        assertEquals("..", path.component(1));
+    }
+
+    @Test
+    void testLeadingDotDotFoldedAtRoot() {
+        ParsedPath path = ParsedPath.of("/../../tmp");
+        assertEquals(1, path.size());
+        assertEquals("tmp", path.component(0));
+    }
+
+    @Test
+    void testEmptyAndRoot() {
+        assertTrue(ParsedPath.of("").isEmpty());
+        assertFalse(ParsedPath.of(".").isEmpty());
+        assertEquals(0, ParsedPath.of("/").size());
+        assertNull(ParsedPath.of("/").fileName());
+    }
+
+    @Test
+    void testTrailingSlashRequiresADirectory() {
+        assertTrue(ParsedPath.of("a/b/").requiresDirectory());
+        assertTrue(ParsedPath.of("a/.").requiresDirectory());
+        assertFalse(ParsedPath.of("a/b").requiresDirectory());
+        assertFalse(ParsedPath.of("/").requiresDirectory());
+        assertEquals(ParsedPath.of("a/b"), ParsedPath.of("a/b/"));
+    }
+
+    @Test
+    void testOfIsInterned() {
+        assertSame(ParsedPath.of("/srv/a/b"), ParsedPath.of("/srv/a/b"));
+    }
+
+    @Test
+    void testParent() {
+        assertEquals("/srv/a", ParsedPath.of("/srv/a/b").parent().toString());
+        assertEquals(".", ParsedPath.of("b").parent().toString());
+        assertEquals(ParsedPath.of("/srv/a"), ParsedPath.of("/srv/a/b").parent());
+    }
+
+    @Test
+    void testAppend() {
+        ParsedPath joined = ParsedPath.of("/target").append(ParsedPath.of("link/x/y"), 1);
+        assertEquals("/target/x/y", joined.toString());
+        assertTrue(joined.isAbsolute());
+    }
+
+    @Test
+    void testNullRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ParsedPath.of(null));
+    }
+}
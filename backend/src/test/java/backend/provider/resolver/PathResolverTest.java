@@ -3,6 +3,7 @@ package backend.provider.resolver;
 import ch.supsi.fscli.backend.core.exception.InvalidPathException;
 import ch.supsi.fscli.backend.core.exception.NotFoundException;
 import ch.supsi.fscli.backend.data.LinkNode;
+import ch.supsi.fscli.backend.provider.resolver.LookupResult;
 import ch.supsi.fscli.backend.provider.resolver.PathResolver;
 import ch.supsi.fscli.backend.data.DirectoryNode;
 import ch.supsi.fscli.backend.data.FileSystemNode;
@@ -174,7 +175,7 @@ class PathResolverTest {
     @Test
     void testResolveNullPathThrowsException() {
         assertThrows(Exception.class, () -> {
-            resolver.resolve(user, null, false);
+            resolver.resolve(user, (String) null, false);
         });
     }
 
@@ -267,4 +268,81 @@ class PathResolverTest {
         PathResolver instance2 = PathResolver.getInstance();
         assertSame(instance1, instance2);
     }
+
+    @Test
+    void testTryResolveFound() {
+        LookupResult result = resolver.tryResolve(user, "docs/readme.md", false);
+        assertTrue(result.isFound());
+        assertInstanceOf(FileNode.class, result.getNode());
+        assertSame(user.get("docs"), result.getParent());
+        assertEquals("readme.md", result.getName());
+    }
+
+    @Test
+    void testTryResolveMissingLeaf() {
+        LookupResult result = resolver.tryResolve(user, "docs/new.txt", false);
+        assertEquals(LookupResult.Status.NOT_FOUND, result.getStatus());
+        assertTrue(result.isMissingLeaf());
+        assertSame(user.get("docs"), result.getParent());
+        assertEquals("new.txt", result.getName());
+    }
+
+    @Test
+    void testTryResolveMissingIntermediate() {
+        LookupResult result = resolver.tryResolve(user, "nope/new.txt", false);
+        assertEquals(LookupResult.Status.NOT_FOUND, result.getStatus());
+        assertFalse(result.isMissingLeaf());
+        assertInstanceOf(NotFoundException.class, result.toException());
+    }
+
+    @Test
+    void testTryResolveThroughFile() {
+        LookupResult result = resolver.tryResolve(user, "file.txt/x", false);
+        assertEquals(LookupResult.Status.NOT_A_DIRECTORY, result.getStatus());
+    }
+
+    @Test
+    void testTryResolveSymlinkLoop() {
+        user.add("loop1", new LinkNode("/home/user/loop2"));
+        user.add("loop2", new LinkNode("/home/user/loop1"));
+        LookupResult result = resolver.tryResolve(user, "loop1", true);
+        assertEquals(LookupResult.Status.SYMLINK_LOOP, result.getStatus());
+        assertInstanceOf(InvalidPathException.class, result.toException());
+    }
+
+    @Test
+    void testTryResolveMissingLeafThroughSymlink() {
+        LookupResult result = resolver.tryResolve(user, "link/new.md", false);
+        assertTrue(result.isMissingLeaf());
+        assertSame(user.get("docs"), result.getParent());
+    }
+
+    @Test
+    void testResolveRelativeSymlinkFromLinkDirectory() throws Exception {
+        DirectoryNode docs = (DirectoryNode) user.get("docs");
+        docs.add("up", new LinkNode("../file.txt"));
+        FileSystemNode result = resolver.resolve(root, "/home/user/docs/up", true);
+        assertSame(user.get("file.txt"), result);
+    }
+
+    @Test
+    void testResolveRelativeSymlinkChain() throws Exception {
+        user.add("rel1", new LinkNode("rel2"));
+        user.add("rel2", new LinkNode("docs"));
+        FileSystemNode result = resolver.resolve(root, "/home/user/rel1/readme.md", false);
+        assertInstanceOf(FileNode.class, result);
+    }
+
+    @Test
+    void testResolveSameLinkTwiceIsNotALoop() throws Exception {
+        FileSystemNode result = resolver.resolve(user, "link/../link/readme.md", false);
+        assertInstanceOf(FileNode.class, result);
+    }
+
+    @Test
+    void testResolveSelfReferencingLinkIsALoop() {
+        user.add("self", new LinkNode("self/x"));
+        LookupResult result = resolver.tryResolve(user, "self", true);
+        assertEquals(LookupResult.Status.SYMLINK_LOOP, result.getStatus());
+    }
 }
@@ -0,0 +1,117 @@
+package backend.service;
+
+import ch.supsi.fscli.backend.controller.CommandResponse;
+import ch.supsi.fscli.backend.core.InMemoryFileSystem;
+import ch.supsi.fscli.backend.core.command.BeginCommand;
+import ch.supsi.fscli.backend.core.command.CdCommand;
+import ch.supsi.fscli.backend.core.command.Command;
+import ch.supsi.fscli.backend.core.command.CommitCommand;
+import ch.supsi.fscli.backend.core.command.MkdirCommand;
+import ch.supsi.fscli.backend.core.command.PwdCommand;
+import ch.supsi.fscli.backend.core.command.RollbackCommand;
+import ch.supsi.fscli.backend.core.exception.FSException;
+import ch.supsi.fscli.backend.i18n.BackendMessageProvider;
+import ch.supsi.fscli.backend.service.FileSystemService;
+import ch.supsi.fscli.backend.service.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionTest {
+
+    private final Set<Command> commands = Set.of(new CdCommand(), new MkdirCommand(), new PwdCommand(),
+            new BeginCommand(), new CommitCommand(), new RollbackCommand());
+    private Locale previous;
+    private FileSystemService service;
+
+    @BeforeEach
+    void setUp() {
+        previous = BackendMessageProvider.getLocale();
+        BackendMessageProvider.setLocale(Locale.ENGLISH);
+        service = new FileSystemService(commands);
+        service.setFileSystem(new InMemoryFileSystem());
+    }
+
+    @AfterEach
+    void tearDown() {
+        BackendMessageProvider.setLocale(previous);
+    }
+
+    @Test
+    void testSessionsShareTheTreeButNotTheCwd() throws FSException {
+        Session other = service.openSession();
+        service.executeCommand("mkdir /a");
+        other.execute("cd /a");
+
+        assertEquals("/a", other.getCurrentDirectory());
+        assertEquals("/", service.getCurrentDirectory());
+        assertEquals(List.of("/a"), other.execute("pwd").getOutput());
+    }
+
+    @Test
+    void testSessionsHaveTheirOwnHistory() throws FSException {
+        Session other = service.openSession();
+        service.executeCommand("mkdir /a");
+        other.execute("pwd");
+
+        assertEquals(List.of("mkdir /a"), service.getHistoryCommands());
+        assertEquals(List.of("pwd"), other.getHistoryCommands());
+    }
+
+    @Test
+    void testSessionLocaleOnlyAffectsItsOwnMessages() throws FSException {
+        Session other = service.openSession();
+        other.setLocale(Locale.ITALIAN);
+
+        CommandResponse italian = other.execute("");
+        CommandResponse english = service.executeCommand("");
+
+        assertEquals(get("commandEmpty", Locale.ITALIAN), italian.getErrorMessage());
+        assertEquals(get("commandEmpty", Locale.ENGLISH), english.getErrorMessage());
+        assertNotEquals(italian.getErrorMessage(), english.getErrorMessage());
+        assertEquals(Locale.ENGLISH, BackendMessageProvider.getLocale());
+    }
+
+    @Test
+    void testHistoryIsKeptAcrossReloads() {
+        service.executeCommand("pwd");
+        service.setFileSystem(new InMemoryFileSystem());
+        assertEquals(List.of("pwd"), service.getHistoryCommands());
+
+        service.createNewFileSystem();
+        assertTrue(service.getHistory().isEmpty());
+    }
+
+    @Test
+    void testTransactionBelongsToTheSessionThatOpenedIt() throws FSException {
+        Session other = service.openSession();
+        service.executeCommand("mkdir /home");
+        service.executeCommand("cd /home");
+        assertTrue(service.executeCommand("begin").isSuccess());
+        service.executeCommand("mkdir a");
+
+        // same thread, as with a single UI thread driving both sessions
+        assertFalse(other.getFileSystem().inTransaction());
+        CommandResponse refused = other.execute("mkdir /b");
+        assertFalse(refused.isSuccess());
+        assertTrue(refused.getErrorMessage().contains(get("transactionInOtherSession", Locale.ENGLISH)));
+        CommandResponse rollback = other.execute("rollback");
+        assertFalse(rollback.isSuccess());
+        assertTrue(rollback.getErrorMessage().contains(get("noTransaction", Locale.ENGLISH)));
+        assertEquals("/", other.getCurrentDirectory());
+
+        assertTrue(service.executeCommand("commit").isSuccess());
+        assertTrue(other.getFileSystem().resolveNode("/home/a", false).isDirectory());
+        assertTrue(other.execute("mkdir /b").isSuccess());
+    }
+
+    private static String get(String key, Locale locale) {
+        return BackendMessageProvider.withLocale(locale, () -> BackendMessageProvider.get(key));
+    }
+}